@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.embedded.AuthoritiesClaim2GrantedAuthoritySetConverter;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.embedded.ScopePrefixAuthoritiesClaim2GrantedAuthoritySetConverter;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.embedded.WithAuthoritiesJwtClaimSet;
+
+/**
+ * Authorities converters only (claim-set is built once)
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthoritiesConverterBenchmark {
+
+	WithAuthoritiesJwtClaimSet claims;
+
+	AuthoritiesClaim2GrantedAuthoritySetConverter<WithAuthoritiesJwtClaimSet> authoritiesClaimConverter;
+
+	ScopePrefixAuthoritiesClaim2GrantedAuthoritySetConverter<WithAuthoritiesJwtClaimSet> scopePrefixConverter;
+
+	@Setup
+	public void setUp() {
+		claims = new WithAuthoritiesJwtClaimSet(BenchmarkTokens.claims(), BenchmarkTokens.AUTHORITIES_CLAIM_NAME);
+		authoritiesClaimConverter = new AuthoritiesClaim2GrantedAuthoritySetConverter<>();
+		scopePrefixConverter = new ScopePrefixAuthoritiesClaim2GrantedAuthoritySetConverter<>();
+	}
+
+	@Benchmark
+	public Set<GrantedAuthority> authoritiesClaim() {
+		return authoritiesClaimConverter.convert(claims);
+	}
+
+	@Benchmark
+	public Set<GrantedAuthority> scopePrefix() {
+		return scopePrefixConverter.convert(claims);
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.benchmarks;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+/**
+ * Token workload shared by all benchmarks: same subject, scope and authorities as samples "admin" user.
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+final class BenchmarkTokens {
+	static final String SUBJECT = "admin";
+
+	static final String SCOPE = "showcase";
+
+	static final String AUTHORITIES_CLAIM_NAME = "authorities";
+
+	static final List<String> AUTHORITIES = List.of("showcase:ROLE_USER", "showcase:AUTHORIZED_PERSONNEL", "other:ROLE_ADMIN");
+
+	private BenchmarkTokens() {
+	}
+
+	static KeyPair rsaKeyPair() {
+		try {
+			final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+			generator.initialize(2048);
+			return generator.generateKeyPair();
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @param algorithm RS256 (RSA 2048), ES256 (P-256) or EdDSA (Ed25519, Java 15+)
+	 * @return a new key pair for this algorithm
+	 */
+	static KeyPair keyPair(JWSAlgorithm algorithm) {
+		if (JWSAlgorithm.RS256.equals(algorithm)) {
+			return rsaKeyPair();
+		}
+		try {
+			if (JWSAlgorithm.ES256.equals(algorithm)) {
+				final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+				generator.initialize(new ECGenParameterSpec("secp256r1"));
+				return generator.generateKeyPair();
+			}
+			if (JWSAlgorithm.EdDSA.equals(algorithm)) {
+				return KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+			}
+		} catch (final GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+		throw new IllegalArgumentException("Unsupported algorithm: " + algorithm);
+	}
+
+	/**
+	 * @return public JWK for a key pair from {@link #keyPair(JWSAlgorithm)}
+	 */
+	static JWK publicJwk(JWSAlgorithm algorithm, KeyPair keyPair, String kid) {
+		if (JWSAlgorithm.RS256.equals(algorithm)) {
+			return new RSAKey.Builder((RSAPublicKey) keyPair.getPublic()).keyID(kid).build();
+		}
+		if (JWSAlgorithm.ES256.equals(algorithm)) {
+			return new ECKey.Builder(Curve.P_256, (ECPublicKey) keyPair.getPublic()).keyID(kid).build();
+		}
+		final byte[] encoded = keyPair.getPublic().getEncoded();
+		return new OctetKeyPair.Builder(
+				Curve.Ed25519,
+				Base64URL.encode(Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length))).keyID(kid).build();
+	}
+
+	static JWSSigner signer(JWSAlgorithm algorithm, KeyPair keyPair) {
+		try {
+			if (JWSAlgorithm.RS256.equals(algorithm)) {
+				return new RSASSASigner(keyPair.getPrivate());
+			}
+			if (JWSAlgorithm.ES256.equals(algorithm)) {
+				return new ECDSASigner(keyPair.getPrivate(), Curve.P_256);
+			}
+		} catch (final JOSEException e) {
+			throw new IllegalStateException(e);
+		}
+		return new Ed25519Signer(keyPair.getPrivate());
+	}
+
+	/**
+	 * @return claims as exposed by authorization-server introspection end-point (and contained in JWTs)
+	 */
+	static Map<String, Object> claims() {
+		return Map.of(
+				"sub", SUBJECT,
+				"username", SUBJECT,
+				"client_id", "user-agent",
+				"scope", SCOPE,
+				"exp", Instant.now().plusSeconds(3600).getEpochSecond(),
+				AUTHORITIES_CLAIM_NAME, AUTHORITIES);
+	}
+
+	static String rs256(KeyPair keyPair) {
+		return sign(new JWSHeader(JWSAlgorithm.RS256), new RSASSASigner(keyPair.getPrivate()));
+	}
+
+	static String sign(JWSHeader header, JWSSigner signer) {
+		final JWTClaimsSet claims = new JWTClaimsSet.Builder()
+				.subject(SUBJECT)
+				.claim("client_id", "user-agent")
+				.claim("scope", SCOPE)
+				.claim(AUTHORITIES_CLAIM_NAME, AUTHORITIES)
+				.expirationTime(Date.from(Instant.now().plusSeconds(3600)))
+				.build();
+		final SignedJWT jwt = new SignedJWT(header, claims);
+		try {
+			jwt.sign(signer);
+		} catch (final JOSEException e) {
+			throw new IllegalStateException(e);
+		}
+		return jwt.serialize();
+	}
+
+	/**
+	 * JCA based: Nimbus own Ed25519 signer requires Google Tink
+	 */
+	private static final class Ed25519Signer implements JWSSigner {
+		private final PrivateKey privateKey;
+
+		private final JCAContext jcaContext = new JCAContext();
+
+		Ed25519Signer(PrivateKey privateKey) {
+			this.privateKey = privateKey;
+		}
+
+		@Override
+		public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+			return Set.of(JWSAlgorithm.EdDSA);
+		}
+
+		@Override
+		public JCAContext getJCAContext() {
+			return jcaContext;
+		}
+
+		@Override
+		public Base64URL sign(JWSHeader header, byte[] signingInput) throws JOSEException {
+			try {
+				final Signature signature = Signature.getInstance("Ed25519");
+				signature.initSign(privateKey);
+				signature.update(signingInput);
+				return Base64URL.encode(signature.sign());
+			} catch (final GeneralSecurityException e) {
+				throw new JOSEException(e.getMessage(), e);
+			}
+		}
+	}
+}
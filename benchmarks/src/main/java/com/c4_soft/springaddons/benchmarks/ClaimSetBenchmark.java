@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.benchmarks;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.c4_soft.oauth2.rfc7519.JwtClaimSet;
+import com.c4_soft.oauth2.rfc7662.IntrospectionClaimSet;
+
+/**
+ * {@code ClaimSet} construction and accessors
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClaimSetBenchmark {
+
+	Map<String, Object> claims;
+
+	JwtClaimSet jwtClaimSet;
+
+	IntrospectionClaimSet introspectionClaimSet;
+
+	@Setup
+	public void setUp() {
+		claims = BenchmarkTokens.claims();
+		jwtClaimSet = new JwtClaimSet(claims);
+		introspectionClaimSet = new IntrospectionClaimSet(claims);
+	}
+
+	@Benchmark
+	public JwtClaimSet newJwtClaimSet() {
+		return new JwtClaimSet(claims);
+	}
+
+	@Benchmark
+	public String jwtSubject() {
+		return jwtClaimSet.getSubject();
+	}
+
+	@Benchmark
+	public Instant jwtExpirationTime() {
+		return jwtClaimSet.getExpirationTime();
+	}
+
+	@Benchmark
+	public Collection<String> jwtAudience() {
+		return jwtClaimSet.getAudience();
+	}
+
+	@Benchmark
+	public Set<String> jwtScopeAsStringSet() {
+		return jwtClaimSet.getAsStringSet("scope");
+	}
+
+	@Benchmark
+	public Set<String> jwtAuthoritiesAsStringSet() {
+		return jwtClaimSet.getAsStringSet(BenchmarkTokens.AUTHORITIES_CLAIM_NAME);
+	}
+
+	@Benchmark
+	public Set<String> introspectionScope() {
+		return introspectionClaimSet.getScope();
+	}
+
+	@Benchmark
+	public Instant introspectionExpiresAt() {
+		return introspectionClaimSet.getExpiresAt();
+	}
+
+	@Benchmark
+	public String introspectionClientId() {
+		return introspectionClaimSet.getClientId();
+	}
+}
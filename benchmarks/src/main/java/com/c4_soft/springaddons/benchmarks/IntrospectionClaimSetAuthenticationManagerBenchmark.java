@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.server.resource.BearerTokenAuthenticationToken;
+
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.IntrospectionClaimSetAuthenticationManager;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.embedded.ScopePrefixAuthoritiesClaim2GrantedAuthoritySetConverter;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.embedded.WithAuthoritiesIntrospectionClaimSet;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <p>Full bearer authentication against an in-process introspection end-point stub.</p>
+ *
+ * <p>The stub answers with a constant body as fast as it can: what is measured is resource-server side (HTTP client,
+ * introspection response parsing, claim-set and authorities conversion) plus loop-back network round trip.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IntrospectionClaimSetAuthenticationManagerBenchmark {
+
+	HttpServer introspectionEndpoint;
+
+	ExecutorService introspectionEndpointExecutor;
+
+	IntrospectionClaimSetAuthenticationManager<WithAuthoritiesIntrospectionClaimSet> manager;
+
+	@Setup
+	public void setUp() throws IOException {
+		final byte[] introspectionResponse = introspectionResponse();
+		introspectionEndpointExecutor = Executors.newFixedThreadPool(4);
+		introspectionEndpoint = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		introspectionEndpoint.createContext("/introspect", exchange -> respond(exchange, introspectionResponse));
+		introspectionEndpoint.setExecutor(introspectionEndpointExecutor);
+		introspectionEndpoint.start();
+
+		final var authoritiesConverter = new ScopePrefixAuthoritiesClaim2GrantedAuthoritySetConverter<WithAuthoritiesIntrospectionClaimSet>();
+		manager = new IntrospectionClaimSetAuthenticationManager<>(
+				"http://localhost:" + introspectionEndpoint.getAddress().getPort() + "/introspect",
+				"showcase-resource-server",
+				"secret",
+				WithAuthoritiesIntrospectionClaimSet.builder(BenchmarkTokens.AUTHORITIES_CLAIM_NAME)::build,
+				claims -> authoritiesConverter.convert(
+						new WithAuthoritiesIntrospectionClaimSet(claims, BenchmarkTokens.AUTHORITIES_CLAIM_NAME)));
+	}
+
+	@TearDown
+	public void tearDown() {
+		introspectionEndpoint.stop(0);
+		introspectionEndpointExecutor.shutdownNow();
+	}
+
+	@Benchmark
+	public Authentication authenticate() {
+		return manager.authenticate(new BearerTokenAuthenticationToken("opaque-token"));
+	}
+
+	private static byte[] introspectionResponse() {
+		final String authorities = BenchmarkTokens.AUTHORITIES.stream()
+				.map(authority -> "\"" + authority + "\"")
+				.collect(Collectors.joining(",", "[", "]"));
+		return String.format(
+				"{\"active\":true,\"sub\":\"%s\",\"username\":\"%s\",\"client_id\":\"user-agent\",\"scope\":\"%s\",\"exp\":%d,\"%s\":%s}",
+				BenchmarkTokens.SUBJECT,
+				BenchmarkTokens.SUBJECT,
+				BenchmarkTokens.SCOPE,
+				Instant.now().plusSeconds(3600).getEpochSecond(),
+				BenchmarkTokens.AUTHORITIES_CLAIM_NAME,
+				authorities).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+		try (InputStream request = exchange.getRequestBody()) {
+			request.readAllBytes();
+		}
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream response = exchange.getResponseBody()) {
+			response.write(body);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.server.resource.BearerTokenAuthenticationToken;
+
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.JwtClaimSetAuthenticationManager;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.embedded.ScopePrefixAuthoritiesClaim2GrantedAuthoritySetConverter;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.embedded.WithAuthoritiesJwtClaimSet;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.jose.JwsAlgorithmsJwtDecoder;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+
+/**
+ * <p>Token signing (authorization-server side) and full bearer authentication (resource-server side) for each
+ * supported JWS algorithm. Serialized token size is printed during setup.</p>
+ *
+ * <p>EdDSA requires Java 15+.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwsAlgorithmsBenchmark {
+	private static final String KID = "benchmark";
+
+	@Param({ "RS256", "ES256", "EdDSA" })
+	String algorithm;
+
+	JWSHeader header;
+
+	JWSSigner signer;
+
+	String token;
+
+	JwtClaimSetAuthenticationManager<WithAuthoritiesJwtClaimSet> manager;
+
+	@Setup
+	public void setUp() {
+		final JWSAlgorithm alg = JWSAlgorithm.parse(algorithm);
+		final KeyPair keyPair = BenchmarkTokens.keyPair(alg);
+		header = new JWSHeader.Builder(alg).keyID(KID).build();
+		signer = BenchmarkTokens.signer(alg, keyPair);
+		token = BenchmarkTokens.sign(header, signer);
+		System.out.println(
+				String.format("%s token size: %d bytes", algorithm, token.getBytes(StandardCharsets.US_ASCII).length));
+
+		final var jwkSet = new JWKSet(BenchmarkTokens.publicJwk(alg, keyPair, KID));
+		final var authoritiesConverter = new ScopePrefixAuthoritiesClaim2GrantedAuthoritySetConverter<WithAuthoritiesJwtClaimSet>();
+		manager = new JwtClaimSetAuthenticationManager<>(
+				JwsAlgorithmsJwtDecoder.withJwkSource(new ImmutableJWKSet<>(jwkSet)).build(),
+				WithAuthoritiesJwtClaimSet.builder(BenchmarkTokens.AUTHORITIES_CLAIM_NAME)::build,
+				claims -> authoritiesConverter.convert(new WithAuthoritiesJwtClaimSet(claims, BenchmarkTokens.AUTHORITIES_CLAIM_NAME)));
+	}
+
+	@Benchmark
+	public String sign() {
+		return BenchmarkTokens.sign(header, signer);
+	}
+
+	@Benchmark
+	public Authentication authenticate() {
+		return manager.authenticate(new BearerTokenAuthenticationToken(token));
+	}
+}
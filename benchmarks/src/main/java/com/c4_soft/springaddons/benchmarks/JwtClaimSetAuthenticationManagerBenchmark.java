@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.benchmarks;
+
+import java.security.KeyPair;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.resource.BearerTokenAuthenticationToken;
+
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.JwtClaimSetAuthenticationManager;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.cache.CachingClaimSetAuthenticationManager;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.cache.PrecomputedClaimSetAuthenticationManager;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.embedded.ScopePrefixAuthoritiesClaim2GrantedAuthoritySetConverter;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.embedded.WithAuthoritiesJwtClaimSet;
+
+/**
+ * Full bearer authentication with locally signed JWTs: signature verification, claims validation, claim-set and
+ * authorities conversion.
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtClaimSetAuthenticationManagerBenchmark {
+
+	String token;
+
+	JwtClaimSetAuthenticationManager<WithAuthoritiesJwtClaimSet> manager;
+
+	PrecomputedClaimSetAuthenticationManager<WithAuthoritiesJwtClaimSet> precomputedManager;
+
+	CachingClaimSetAuthenticationManager<WithAuthoritiesJwtClaimSet> cachingManager;
+
+	@Setup
+	public void setUp() {
+		final KeyPair keyPair = BenchmarkTokens.rsaKeyPair();
+		token = BenchmarkTokens.rs256(keyPair);
+
+		final var authoritiesConverter = new ScopePrefixAuthoritiesClaim2GrantedAuthoritySetConverter<WithAuthoritiesJwtClaimSet>();
+		manager = new JwtClaimSetAuthenticationManager<>(
+				NimbusJwtDecoder.withPublicKey((RSAPublicKey) keyPair.getPublic()).build(),
+				WithAuthoritiesJwtClaimSet.builder(BenchmarkTokens.AUTHORITIES_CLAIM_NAME)::build,
+				claims -> authoritiesConverter.convert(new WithAuthoritiesJwtClaimSet(claims, BenchmarkTokens.AUTHORITIES_CLAIM_NAME)));
+
+		precomputedManager = new PrecomputedClaimSetAuthenticationManager<>(manager);
+		precomputedManager.register(token);
+
+		cachingManager = new CachingClaimSetAuthenticationManager<>(manager, Duration.ofMinutes(5));
+	}
+
+	@Benchmark
+	public Authentication authenticate() {
+		return manager.authenticate(new BearerTokenAuthenticationToken(token));
+	}
+
+	@Benchmark
+	public Authentication authenticatePrecomputed() {
+		return precomputedManager.authenticate(new BearerTokenAuthenticationToken(token));
+	}
+
+	@Benchmark
+	public Authentication authenticateCached() {
+		return cachingManager.authenticate(new BearerTokenAuthenticationToken(token));
+	}
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.oauth2;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.springframework.util.Assert;
+
+/**
+ * <p>Hierarchical timing wheel indexing keys by expiration instant (token {@code exp} claim for instance).</p>
+ *
+ * <p>Keys are hashed into one of {@value #LEVELS} wheels of {@value #SLOTS} slots, each level being {@value #SLOTS}
+ * times coarser than the previous one (with default one second tick: about a minute, an hour, three days and six
+ * months). When time advances, the slot at current tick is expired and, each time a wheel completes a turn, the next
+ * slot of the upper wheel is redistributed into finer ones. Deadlines beyond last wheel range are parked in its
+ * farthest slot and redistributed when reached.</p>
+ *
+ * <p>Scheduling, rescheduling and cancellation are O(1) (slots are doubly-linked lists and nodes are indexed by key);
+ * expiration is O(1) amortized per key. Keys are expired at the first tick boundary following their deadline: never
+ * before, at most one tick after. Callers needing exact expiration should also check deadline on read.</p>
+ *
+ * <p>There is no timer thread: time advances when {@link #advance()} is called, which is cheap when current tick did
+ * not change. Call it on cache accesses and / or from a scheduler shared by several wheels. Expiry callback is invoked
+ * by the thread calling {@link #advance()}, outside of the wheel lock.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ * @param <K> key type
+ */
+public class ExpiryTimingWheel<K> {
+	static final int SLOT_BITS = 6;
+
+	static final int SLOTS = 1 << SLOT_BITS;
+
+	static final int LEVELS = 4;
+
+	private static final int SLOT_MASK = SLOTS - 1;
+
+	/**
+	 * Farthest delta (in ticks) which can be slotted without being parked
+	 */
+	private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - (1L << (SLOT_BITS * (LEVELS - 1)));
+
+	private final Clock clock;
+
+	private final long tickMillis;
+
+	private final Consumer<K> onExpiry;
+
+	@SuppressWarnings("unchecked")
+	private final Node<K>[][] wheels = new Node[LEVELS][SLOTS];
+
+	private final Map<K, Node<K>> nodes = new HashMap<>();
+
+	private volatile long currentTick;
+
+	/**
+	 * @param clock time source
+	 * @param tick expiration granularity
+	 * @param onExpiry called with each key once its deadline is reached (not called for cancelled keys)
+	 */
+	public ExpiryTimingWheel(Clock clock, Duration tick, Consumer<K> onExpiry) {
+		Assert.notNull(clock, "clock can't be null");
+		Assert.notNull(tick, "tick can't be null");
+		Assert.isTrue(tick.toMillis() > 0, "tick must be at least one millisecond");
+		Assert.notNull(onExpiry, "onExpiry can't be null");
+		this.clock = clock;
+		this.tickMillis = tick.toMillis();
+		this.onExpiry = onExpiry;
+		this.currentTick = clock.millis() / tickMillis;
+	}
+
+	/**
+	 * One second tick and system UTC clock
+	 * @param onExpiry called with each key once its deadline is reached
+	 */
+	public ExpiryTimingWheel(Consumer<K> onExpiry) {
+		this(Clock.systemUTC(), Duration.ofSeconds(1), onExpiry);
+	}
+
+	/**
+	 * Schedules (or reschedules) a key expiration
+	 * @param key key to expire
+	 * @param expiresAt key deadline
+	 * @return false if deadline is already reached, in which case key is not scheduled (and previous schedule, if any,
+	 * is cancelled)
+	 */
+	public synchronized boolean schedule(K key, Instant expiresAt) {
+		Assert.notNull(key, "key can't be null");
+		Assert.notNull(expiresAt, "expiresAt can't be null");
+		final long deadlineTick = ceilDiv(expiresAt.toEpochMilli(), tickMillis);
+
+		Node<K> node = nodes.get(key);
+		if (node != null) {
+			unlink(node);
+		}
+		if (deadlineTick <= currentTick) {
+			if (node != null) {
+				nodes.remove(key);
+			}
+			return false;
+		}
+		if (node == null) {
+			node = new Node<>(key);
+			nodes.put(key, node);
+		}
+		node.deadlineTick = deadlineTick;
+		link(node);
+		return true;
+	}
+
+	/**
+	 * @param key key to forget about
+	 * @return true if key was scheduled
+	 */
+	public synchronized boolean cancel(K key) {
+		final Node<K> node = nodes.remove(key);
+		if (node == null) {
+			return false;
+		}
+		unlink(node);
+		return true;
+	}
+
+	/**
+	 * Forgets about all scheduled keys (without calling expiry callback)
+	 */
+	public synchronized void clear() {
+		for (final Node<K>[] wheel : wheels) {
+			Arrays.fill(wheel, null);
+		}
+		nodes.clear();
+	}
+
+	/**
+	 * @return count of scheduled keys
+	 */
+	public synchronized int size() {
+		return nodes.size();
+	}
+
+	/**
+	 * Moves wheel to current clock tick, calling expiry callback for all keys which deadline was reached
+	 */
+	public void advance() {
+		final long nowTick = clock.millis() / tickMillis;
+		if (nowTick <= currentTick) {
+			return;
+		}
+		final List<K> expired = advanceTo(nowTick);
+		for (final K key : expired) {
+			onExpiry.accept(key);
+		}
+	}
+
+	private synchronized List<K> advanceTo(long nowTick) {
+		List<K> expired = List.of();
+		while (currentTick < nowTick) {
+			if (nodes.isEmpty()) {
+				currentTick = nowTick;
+				break;
+			}
+			final long tick = currentTick + 1;
+			currentTick = tick;
+			cascade(tick, 1);
+
+			final int slot = (int) (tick & SLOT_MASK);
+			Node<K> node = wheels[0][slot];
+			wheels[0][slot] = null;
+			while (node != null) {
+				final Node<K> next = node.next;
+				node.prev = node.next = null;
+				nodes.remove(node.key);
+				if (expired.isEmpty()) {
+					expired = new ArrayList<>();
+				}
+				expired.add(node.key);
+				node = next;
+			}
+		}
+		return expired;
+	}
+
+	/**
+	 * When lower wheel completes a turn, redistributes current slot of wheel at {@code level} (after recursively doing
+	 * the same for upper levels)
+	 */
+	private void cascade(long tick, int level) {
+		if (level >= LEVELS || (tick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+			return;
+		}
+		cascade(tick, level + 1);
+		final int slot = (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+		Node<K> node = wheels[level][slot];
+		wheels[level][slot] = null;
+		while (node != null) {
+			final Node<K> next = node.next;
+			node.prev = node.next = null;
+			link(node);
+			node = next;
+		}
+	}
+
+	/**
+	 * Inserts node in the wheel matching its remaining time. Due nodes (redistributed at their deadline tick) go to
+	 * current level 0 slot, which is expired right after cascading.
+	 */
+	private void link(Node<K> node) {
+		final long delta = Math.min(Math.max(node.deadlineTick - currentTick, 0), MAX_DELTA);
+		final long slotTick = currentTick + delta;
+		int level = 0;
+		while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+			++level;
+		}
+		final int slot = (int) ((slotTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+		final Node<K> head = wheels[level][slot];
+		node.level = level;
+		node.slot = slot;
+		node.prev = null;
+		node.next = head;
+		if (head != null) {
+			head.prev = node;
+		}
+		wheels[level][slot] = node;
+	}
+
+	private void unlink(Node<K> node) {
+		if (node.prev == null) {
+			if (wheels[node.level][node.slot] == node) {
+				wheels[node.level][node.slot] = node.next;
+			}
+		} else {
+			node.prev.next = node.next;
+		}
+		if (node.next != null) {
+			node.next.prev = node.prev;
+		}
+		node.prev = node.next = null;
+	}
+
+	private static long ceilDiv(long x, long y) {
+		return -Math.floorDiv(-x, y);
+	}
+
+	private static final class Node<K> {
+		final K key;
+
+		long deadlineTick;
+
+		int level;
+
+		int slot;
+
+		Node<K> prev;
+
+		Node<K> next;
+
+		Node(K key) {
+			this.key = key;
+		}
+	}
+}
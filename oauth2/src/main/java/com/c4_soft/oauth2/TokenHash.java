@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.oauth2;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import org.springframework.util.Assert;
+
+/**
+ * <p>SHA-256 digest of a token value, base64url encoded without padding.</p>
+ *
+ * <p>Use it as key wherever tokens are indexed, so that raw token values are not retained in memory (or logged by
+ * accident when dumping a cache content).</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public final class TokenHash {
+
+	private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available on this JVM", e);
+		}
+	});
+
+	private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+	private TokenHash() {
+	}
+
+	/**
+	 * @param token raw token value (JWT or opaque string)
+	 * @return base64url encoded SHA-256 digest of the token
+	 */
+	public static String of(String token) {
+		Assert.hasLength(token, "token can't be empty");
+		return ENCODER.encodeToString(digest(token));
+	}
+
+	/**
+	 * @param token raw token value (JWT or opaque string)
+	 * @return raw SHA-256 digest of the token
+	 */
+	public static byte[] digest(String token) {
+		Assert.hasLength(token, "token can't be empty");
+		return SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -26,8 +26,28 @@ import java.util.stream.Collectors;
  *
  */
 public class UnmodifiableClaimSet extends DelegatingMap<String, Object> implements ClaimSet {
+	private final byte[] payload;
+
 	public UnmodifiableClaimSet(Map<String, Object> delegate) {
+		this(delegate, null);
+	}
+
+	/**
+	 * @param delegate claims
+	 * @param payload UTF-8 JSON document claims were parsed from, retained to be written back as is. Might be null.
+	 */
+	public UnmodifiableClaimSet(Map<String, Object> delegate, byte[] payload) {
 		super(Collections.unmodifiableMap(new HashMap<>(delegate)));
+		this.payload = payload;
+	}
+
+	/**
+	 * Not copied (this would defeat the purpose): callers must not modify it.
+	 *
+	 * @return UTF-8 JSON document claims were parsed from, or null if it was not retained
+	 */
+	public byte[] getPayload() {
+		return payload;
 	}
 
 	@Override
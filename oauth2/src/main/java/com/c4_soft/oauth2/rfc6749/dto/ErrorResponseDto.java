@@ -24,12 +24,12 @@ import org.springframework.util.Assert;
 import com.c4_soft.oauth2.rfc6749.AuthenticationError;
 
 /**
+ * Error response body, as defined by https://tools.ietf.org/html/rfc6749#section-5.2 (JSON members are snake-case
+ * versions of properties names)
  *
  * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
  *
- * @deprecated for illustration purpose only (useless for now)
  */
-@Deprecated
 public class ErrorResponseDto implements Serializable {
 	private static final long serialVersionUID = 562915804003429556L;
 
@@ -69,6 +69,10 @@ public class ErrorResponseDto implements Serializable {
 		return errorUri;
 	}
 
+	public String getState() {
+		return state;
+	}
+
 	public static Builder builder() {
 		return new Builder();
 	}
@@ -84,6 +88,11 @@ public class ErrorResponseDto implements Serializable {
 			return this;
 		}
 
+		public Builder error(String error) {
+			this.error = error;
+			return this;
+		}
+
 		public Builder errorDescription(String errorDescription) {
 			this.errorDescription = errorDescription;
 			return this;
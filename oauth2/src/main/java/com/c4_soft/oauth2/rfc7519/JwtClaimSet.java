@@ -41,6 +41,14 @@ public class JwtClaimSet extends UnmodifiableClaimSet implements Principal {
 		super(claims);
 	}
 
+	/**
+	 * @param claims decoded claims
+	 * @param payload UTF-8 JSON JWT payload claims were decoded from. Might be null.
+	 */
+	public JwtClaimSet(Map<String, Object> claims, byte[] payload) {
+		super(claims, payload);
+	}
+
 	@Override
 	public String getName() {
 		return getSubject();
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.oauth2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class ExpiryTimingWheelTest {
+	static final Instant NOW = Instant.parse("2019-10-01T12:00:00Z");
+
+	MutableClock clock;
+
+	List<String> expired;
+
+	ExpiryTimingWheel<String> wheel;
+
+	@Before
+	public void setUp() {
+		clock = new MutableClock(NOW);
+		expired = new ArrayList<>();
+		wheel = new ExpiryTimingWheel<>(clock, Duration.ofSeconds(1), expired::add);
+	}
+
+	@Test
+	public void keyIsExpiredWhenDeadlineIsReachedAndNotBefore() {
+		wheel.schedule("a", NOW.plusSeconds(10));
+
+		clock.set(NOW.plusSeconds(10).minusMillis(1));
+		wheel.advance();
+		assertThat(expired).isEmpty();
+
+		clock.set(NOW.plusSeconds(10));
+		wheel.advance();
+		assertThat(expired).containsExactly("a");
+		assertThat(wheel.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void deadlineBetweenTicksIsRoundedUp() {
+		wheel.schedule("a", NOW.plusMillis(1250));
+
+		clock.set(NOW.plusMillis(1999));
+		wheel.advance();
+		assertThat(expired).isEmpty();
+
+		clock.set(NOW.plusSeconds(2));
+		wheel.advance();
+		assertThat(expired).containsExactly("a");
+	}
+
+	@Test
+	public void cancelledKeyIsNotExpired() {
+		wheel.schedule("a", NOW.plusSeconds(10));
+
+		assertThat(wheel.cancel("a")).isTrue();
+		clock.set(NOW.plusSeconds(11));
+		wheel.advance();
+
+		assertThat(expired).isEmpty();
+		assertThat(wheel.cancel("a")).isFalse();
+	}
+
+	@Test
+	public void rescheduledKeyIsExpiredAtNewDeadlineOnly() {
+		wheel.schedule("a", NOW.plusSeconds(10));
+		wheel.schedule("a", NOW.plusSeconds(100));
+
+		clock.set(NOW.plusSeconds(50));
+		wheel.advance();
+		assertThat(expired).isEmpty();
+
+		clock.set(NOW.plusSeconds(100));
+		wheel.advance();
+		assertThat(expired).containsExactly("a");
+	}
+
+	@Test
+	public void pastDeadlineIsNotScheduled() {
+		assertThat(wheel.schedule("a", NOW.minusSeconds(1))).isFalse();
+		assertThat(wheel.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void deadlinesOnUpperWheelsAndBeyondAreExpiredOnTime() {
+		wheel.schedule("hour", NOW.plus(Duration.ofHours(1)));
+		wheel.schedule("week", NOW.plus(Duration.ofDays(7)));
+		wheel.schedule("two-years", NOW.plus(Duration.ofDays(730)));
+
+		clock.set(NOW.plus(Duration.ofHours(1)).minusSeconds(1));
+		wheel.advance();
+		assertThat(expired).isEmpty();
+		clock.set(NOW.plus(Duration.ofHours(1)));
+		wheel.advance();
+		assertThat(expired).containsExactly("hour");
+
+		clock.set(NOW.plus(Duration.ofDays(7)).minusSeconds(1));
+		wheel.advance();
+		assertThat(expired).containsExactly("hour");
+		clock.set(NOW.plus(Duration.ofDays(7)));
+		wheel.advance();
+		assertThat(expired).containsExactly("hour", "week");
+
+		clock.set(NOW.plus(Duration.ofDays(730)).minusSeconds(1));
+		wheel.advance();
+		assertThat(expired).containsExactly("hour", "week");
+		clock.set(NOW.plus(Duration.ofDays(730)));
+		wheel.advance();
+		assertThat(expired).containsExactly("hour", "week", "two-years");
+	}
+
+	@Test
+	public void randomDeadlinesAreExpiredAtTheirTick() {
+		final Random random = new Random(42);
+		final Map<String, Long> deadlines = new HashMap<>();
+		for (int i = 0; i < 2000; ++i) {
+			final long delay = 1 + random.nextInt(20000);
+			deadlines.put("k" + i, delay);
+			wheel.schedule("k" + i, NOW.plusSeconds(delay));
+		}
+		wheel.cancel("k0");
+		deadlines.remove("k0");
+
+		for (long second = 1; second <= 20000; second += 1 + random.nextInt(3)) {
+			clock.set(NOW.plusSeconds(second));
+			wheel.advance();
+			for (final String key : expired) {
+				assertThat(deadlines.remove(key)).isLessThanOrEqualTo(second).isGreaterThan(second - 3);
+			}
+			expired.clear();
+			final long now = second;
+			assertThat(deadlines.values()).allMatch(deadline -> deadline > now);
+		}
+		clock.set(NOW.plusSeconds(20000));
+		wheel.advance();
+		expired.forEach(deadlines::remove);
+		assertThat(deadlines).isEmpty();
+		assertThat(wheel.size()).isEqualTo(0);
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.util.Assert;
+
+/**
+ * <p>Closed-loop HTTP load: {@code concurrency} workers each send a request, wait for the response, record its
+ * latency and send the next one, until the run duration is elapsed. Each request carries the next token of a shared
+ * pool as bearer, so that the same token workload can be replayed against several servers.</p>
+ *
+ * <p>Latencies are recorded in an HdrHistogram {@link Recorder} (lock-free, microseconds). Requests sent during
+ * warm-up are not recorded. Being closed-loop, it reports service time under a fixed concurrency: a stalled server
+ * also slows request emission (coordinated omission), so compare servers with the same settings only.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp&#64;c4-soft.com&gt;
+ */
+public class LoadGenerator implements AutoCloseable {
+	private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+	private final ExecutorService clientExecutor;
+
+	private final HttpClient client;
+
+	private final int concurrency;
+
+	private final Duration warmup;
+
+	private final Duration duration;
+
+	/**
+	 * @param concurrency count of workers (and of concurrent requests)
+	 * @param warmup time during which requests are sent but not recorded
+	 * @param duration time during which latencies are recorded
+	 */
+	public LoadGenerator(int concurrency, Duration warmup, Duration duration) {
+		Assert.isTrue(concurrency > 0, "concurrency must be positive");
+		Assert.notNull(warmup, "warmup can't be null");
+		Assert.notNull(duration, "duration can't be null");
+		this.concurrency = concurrency;
+		this.warmup = warmup;
+		this.duration = duration;
+		this.clientExecutor = Executors.newFixedThreadPool(Math.max(2, concurrency / 4));
+		this.client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(5))
+				.executor(clientExecutor)
+				.build();
+	}
+
+	/**
+	 * @param name report name
+	 * @param uri end-point to load
+	 * @param tokens bearer tokens to pick requests authorization from (round robin)
+	 * @param expectedStatus HTTP status of successful responses
+	 * @return latency and throughput report
+	 * @throws InterruptedException if interrupted while waiting for workers
+	 */
+	public LoadReport run(String name, URI uri, List<String> tokens, int expectedStatus) throws InterruptedException {
+		Assert.notEmpty(tokens, "tokens can't be empty");
+		final List<HttpRequest> requests = new ArrayList<>(tokens.size());
+		for (final String token : tokens) {
+			requests.add(
+					HttpRequest.newBuilder(uri)
+							.timeout(Duration.ofSeconds(30))
+							.header("Authorization", "Bearer " + token)
+							.GET()
+							.build());
+		}
+
+		final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+		final LongAdder errors = new LongAdder();
+		final long start = System.nanoTime();
+		final long recordFrom = start + warmup.toNanos();
+		final long end = recordFrom + duration.toNanos();
+
+		final ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+		final List<Future<?>> futures = new ArrayList<>(concurrency);
+		for (int i = 0; i < concurrency; ++i) {
+			final int worker = i;
+			futures.add(workers.submit(() -> {
+				int next = worker;
+				long now;
+				while ((now = System.nanoTime()) < end) {
+					final HttpRequest request = requests.get(next % requests.size());
+					next += concurrency;
+					boolean failed;
+					try {
+						failed = client.send(request, HttpResponse.BodyHandlers.discarding())
+								.statusCode() != expectedStatus;
+					} catch (final IOException e) {
+						failed = true;
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+					if (now >= recordFrom) {
+						recorder.recordValue(
+								Math.min(HIGHEST_TRACKABLE_MICROS, (System.nanoTime() - now) / 1000));
+						if (failed) {
+							errors.increment();
+						}
+					}
+				}
+			}));
+		}
+		workers.shutdown();
+		for (final Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (final ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+
+		final Histogram latencies = recorder.getIntervalHistogram();
+		return new LoadReport(name, latencies, errors.sum(), System.nanoTime() - recordFrom);
+	}
+
+	@Override
+	public void close() {
+		clientExecutor.shutdownNow();
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.load;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latency distribution (microseconds) and throughput of a {@link LoadGenerator} run
+ *
+ * @author Jérôme Wacongne &lt;ch4mp&#64;c4-soft.com&gt;
+ */
+public class LoadReport {
+	private final String name;
+
+	private final Histogram latencies;
+
+	private final long errors;
+
+	private final long elapsedNanos;
+
+	LoadReport(String name, Histogram latencies, long errors, long elapsedNanos) {
+		this.name = name;
+		this.latencies = latencies;
+		this.errors = errors;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getRequests() {
+		return latencies.getTotalCount();
+	}
+
+	/**
+	 * @return count of responses with an unexpected status (included in {@link #getRequests()}) or I/O errors
+	 */
+	public long getErrors() {
+		return errors;
+	}
+
+	public double getRequestsPerSecond() {
+		return getRequests() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+	}
+
+	public long getLatencyMicros(double percentile) {
+		return latencies.getValueAtPercentile(percentile);
+	}
+
+	public Histogram getLatencies() {
+		return latencies;
+	}
+
+	/**
+	 * Writes latencies in HdrHistogram percentile distribution format ({@code .hgrm}, microseconds), which
+	 * HdrHistogram plotter can chart and compare with the ones of other runs
+	 *
+	 * @param out where to write
+	 */
+	public void outputPercentileDistribution(PrintStream out) {
+		latencies.outputPercentileDistribution(out, 1.0);
+	}
+
+	public static String header() {
+		return String.format(
+				"%-28s %10s %8s %10s %8s %8s %8s %8s",
+				"run",
+				"requests",
+				"errors",
+				"req/s",
+				"p50(us)",
+				"p99(us)",
+				"p99.9",
+				"max");
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"%-28s %10d %8d %10.0f %8d %8d %8d %8d",
+				name,
+				getRequests(),
+				errors,
+				getRequestsPerSecond(),
+				getLatencyMicros(50),
+				getLatencyMicros(99),
+				getLatencyMicros(99.9),
+				latencies.getMaxValue());
+	}
+}
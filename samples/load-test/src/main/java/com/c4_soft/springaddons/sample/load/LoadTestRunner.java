@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.load;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * <p>Showcase servers under load, for both token formats: for <b>jwt</b> and then for opaque tokens
+ * (<b>introspection</b>), an authorization-server and a servlet resource-server are started in this JVM, N synthetic
+ * users are created and get an access-token with password grant, and each end-point is loaded with a closed-loop
+ * {@link LoadGenerator} replaying these tokens. For <b>jwt</b>, the WebFlux resource-server is loaded too, with the
+ * same tokens.</p>
+ *
+ * <p>Requests per second and p50 / p99 / p99.9 / max latencies of each run are printed and written to
+ * {@code summary.txt} in output directory, along with the HdrHistogram percentile distribution of each run
+ * ({@code .hgrm} files).</p>
+ *
+ * <p>Arguments (all optional): concurrency (32), measured seconds (20), count of synthetic users / tokens (200),
+ * output directory ({@code target/load-test}). From samples directory, once the library is installed:</p>
+ *
+ * <pre>
+ * mvn install -DskipTests -pl load-test -am
+ * mvn -pl load-test exec:exec -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath com.c4_soft.springaddons.sample.load.LoadTestRunner 32 20 200"
+ * </pre>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp&#64;c4-soft.com&gt;
+ */
+public class LoadTestRunner {
+	private static final String[] ENDPOINTS = { "/greeting", "/restricted", "/claims" };
+
+	private static final String[] AUTHORITIES = { "showcase:ROLE_USER", "showcase:AUTHORIZED_PERSONNEL" };
+
+	public static void main(String[] args) throws Exception {
+		final int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+		final Duration duration = Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 20);
+		final int users = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+		final Path output = Paths.get(args.length > 3 ? args[3] : "target/load-test");
+		final Duration warmup = Duration.ofSeconds(Math.max(5, duration.getSeconds() / 2));
+
+		final List<LoadReport> reports = new ArrayList<>();
+		try (LoadGenerator loadGenerator = new LoadGenerator(concurrency, warmup, duration)) {
+			reports.addAll(run(loadGenerator, users, true));
+			reports.addAll(run(loadGenerator, users, false));
+		}
+
+		final String summary = String.format(
+				"%d workers, %d users, %ds warm-up, %ds measured",
+				concurrency,
+				users,
+				warmup.getSeconds(),
+				duration.getSeconds());
+		Files.createDirectories(output);
+		try (PrintStream out = new PrintStream(Files.newOutputStream(output.resolve("summary.txt")))) {
+			print(summary, reports, out);
+		}
+		for (final LoadReport report : reports) {
+			write(report, output.resolve(report.getName().replaceAll("[^\\w]+", "-") + ".hgrm"));
+		}
+		System.out.println();
+		print(summary, reports, System.out);
+		System.out.println("Latency distributions written to " + output.toAbsolutePath());
+	}
+
+	private static List<LoadReport> run(LoadGenerator loadGenerator, int users, boolean jwt)
+			throws InterruptedException {
+		final String profile = jwt ? "jwt" : "introspection";
+		final String[] profiles = jwt ? new String[] { "jwt" } : new String[] {};
+		final List<LoadReport> reports = new ArrayList<>();
+
+		try (ConfigurableApplicationContext authorizationServer = ShowcaseServers.authorizationServer(profiles)) {
+			final URI authorizationServerUri = ShowcaseServers.baseUri(authorizationServer);
+			final List<String> tokens = SyntheticUsers.accessTokens(
+					authorizationServerUri,
+					SyntheticUsers.create(authorizationServer, users, AUTHORITIES));
+
+			try (ConfigurableApplicationContext resourceServer =
+					ShowcaseServers.resourceServer(authorizationServerUri, profiles)) {
+				for (final String endpoint : ENDPOINTS) {
+					reports.add(
+							loadGenerator.run(
+									profile + " " + endpoint,
+									ShowcaseServers.uri(resourceServer, endpoint),
+									tokens,
+									200));
+				}
+			}
+
+			if (jwt) {
+				try (ConfigurableApplicationContext reactive =
+						ShowcaseServers.reactiveResourceServer(authorizationServerUri)) {
+					for (final String endpoint : ENDPOINTS) {
+						reports.add(
+								loadGenerator.run(
+										"reactive " + profile + " " + endpoint,
+										ShowcaseServers.uri(reactive, endpoint),
+										tokens,
+										200));
+					}
+				}
+			}
+		}
+		return reports;
+	}
+
+	private static void print(String summary, List<LoadReport> reports, PrintStream out) {
+		out.println(summary);
+		out.println(LoadReport.header());
+		reports.forEach(out::println);
+	}
+
+	private static void write(LoadReport report, Path file) throws IOException {
+		try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+			report.outputPercentileDistribution(out);
+		}
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * <p>Self-signed {@code localhost} certificate, generated with JDK {@code keytool} in a temporary PKCS12 key-store,
+ * and a trust-store containing it.</p>
+ *
+ * <p>Authorization-server is served over HTTPS with it (resource-server only accepts an https introspection
+ * end-point) and JVM default SSL context is replaced with one trusting it only, so that resource-servers and
+ * load-test clients trust it (clients created before {@link #install()} do not).</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp&#64;c4-soft.com&gt;
+ */
+final class LocalTls {
+	private static final String ALIAS = "localhost";
+
+	private static final String PASSWORD = "changeit";
+
+	private static final String KEY_STORE = "localhost.p12";
+
+	private static final String CERTIFICATE = "localhost.crt";
+
+	private static final String TRUST_STORE = "trust.p12";
+
+	private static Path directory;
+
+	private LocalTls() {
+	}
+
+	/**
+	 * Generates key and trust stores (once) and replaces JVM default SSL context with one trusting the latter
+	 *
+	 * @return {@code server.ssl.*} command-line arguments for a spring-boot app to serve HTTPS with it
+	 */
+	static synchronized String[] install() {
+		if (directory == null) {
+			try {
+				final Path tmp = Files.createTempDirectory("load-test-tls");
+				tmp.toFile().deleteOnExit();
+				generate(tmp);
+				Stream.of(KEY_STORE, CERTIFICATE, TRUST_STORE).forEach(f -> tmp.resolve(f).toFile().deleteOnExit());
+				directory = tmp;
+				trust(directory.resolve(TRUST_STORE));
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			} catch (final GeneralSecurityException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return new String[] { "--server.ssl.key-store=" + directory.resolve(KEY_STORE).toUri(),
+				"--server.ssl.key-store-type=PKCS12",
+				"--server.ssl.key-store-password=" + PASSWORD,
+				"--server.ssl.key-alias=" + ALIAS };
+	}
+
+	/**
+	 * Replaces JVM default SSL context (and {@link HttpsURLConnection} one, used by {@code RestTemplate}): it might
+	 * already have been initialized, so setting {@code javax.net.ssl.trustStore} would not be enough
+	 */
+	private static void trust(Path trustStore) throws IOException, GeneralSecurityException {
+		final KeyStore keyStore = KeyStore.getInstance("PKCS12");
+		try (InputStream in = Files.newInputStream(trustStore)) {
+			keyStore.load(in, PASSWORD.toCharArray());
+		}
+		final TrustManagerFactory trustManagers =
+				TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+		trustManagers.init(keyStore);
+		final SSLContext sslContext = SSLContext.getInstance("TLS");
+		sslContext.init(null, trustManagers.getTrustManagers(), null);
+		SSLContext.setDefault(sslContext);
+		HttpsURLConnection.setDefaultSSLSocketFactory(sslContext.getSocketFactory());
+	}
+
+	private static void generate(Path directory) throws IOException, InterruptedException {
+		keytool("-genkeypair",
+				"-alias",
+				ALIAS,
+				"-keyalg",
+				"RSA",
+				"-keysize",
+				"2048",
+				"-validity",
+				"2",
+				"-dname",
+				"CN=localhost",
+				"-ext",
+				"SAN=dns:localhost,ip:127.0.0.1",
+				"-keystore",
+				directory.resolve(KEY_STORE).toString(),
+				"-storetype",
+				"PKCS12",
+				"-storepass",
+				PASSWORD,
+				"-keypass",
+				PASSWORD);
+		keytool("-exportcert",
+				"-alias",
+				ALIAS,
+				"-keystore",
+				directory.resolve(KEY_STORE).toString(),
+				"-storepass",
+				PASSWORD,
+				"-file",
+				directory.resolve(CERTIFICATE).toString());
+		// trusted certificate entry: JSSE (and Tomcat) ignore the certificates of private key entries
+		keytool("-importcert",
+				"-alias",
+				ALIAS,
+				"-file",
+				directory.resolve(CERTIFICATE).toString(),
+				"-keystore",
+				directory.resolve(TRUST_STORE).toString(),
+				"-storetype",
+				"PKCS12",
+				"-storepass",
+				PASSWORD,
+				"-noprompt");
+	}
+
+	private static void keytool(String... args) throws IOException, InterruptedException {
+		final List<String> command = new ArrayList<>(args.length + 1);
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "keytool").toString());
+		command.addAll(Arrays.asList(args));
+		final Process keytool = new ProcessBuilder(command).redirectErrorStream(true).start();
+		final String output = new String(keytool.getInputStream().readAllBytes());
+		if (keytool.waitFor() != 0) {
+			throw new IllegalStateException("keytool " + args[0] + " failed: " + output);
+		}
+	}
+}
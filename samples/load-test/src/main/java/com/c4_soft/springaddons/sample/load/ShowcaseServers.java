@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.load;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.c4_soft.springaddons.sample.authorization.ShowcaseAuthorizationServer;
+import com.c4_soft.springaddons.sample.reactive.ShowcaseReactiveResourceServer;
+import com.c4_soft.springaddons.sample.resource.ShowcaseResourceServer;
+
+/**
+ * <p>Starts showcase authorization and resource servers in current JVM, on random ports.</p>
+ *
+ * <p>All samples are on the classpath and their configuration files share the same names: each app is given the
+ * explicit location of its own (inside its jar or classes directory) with {@code spring.config.location}. JPA
+ * auto-configuration is disabled in the apps which do not use it but have resource-server H2 and Hibernate on their
+ * classpath.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp&#64;c4-soft.com&gt;
+ */
+final class ShowcaseServers {
+	private static final String NO_JPA = "--spring.autoconfigure.exclude="
+			+ "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration,"
+			+ "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration,"
+			+ "org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration";
+
+	private ShowcaseServers() {
+	}
+
+	/**
+	 * @param profiles <b>jwt</b> and / or <b>jpa</b>
+	 * @return authorization-server, served over HTTPS with {@link LocalTls} certificate
+	 */
+	static ConfigurableApplicationContext authorizationServer(String... profiles) {
+		final List<String> args = args(ShowcaseAuthorizationServer.class, "application.yaml", profiles);
+		args.addAll(Arrays.asList(LocalTls.install()));
+		args.add(NO_JPA);
+		return new SpringApplicationBuilder(ShowcaseAuthorizationServer.class).web(WebApplicationType.SERVLET)
+				.run(args.toArray(String[]::new));
+	}
+
+	/**
+	 * @param authorizationServer authorization-server base URI (JWK set and introspection end-points)
+	 * @param profiles <b>jwt</b> and / or <b>jpa</b>, same as authorization-server ones
+	 * @return servlet resource-server
+	 */
+	static ConfigurableApplicationContext resourceServer(URI authorizationServer, String... profiles) {
+		final List<String> args = args(ShowcaseResourceServer.class, "application.yml", profiles);
+		args.add("--showcase.authorizationServer=" + authorizationServer);
+		return new SpringApplicationBuilder(ShowcaseResourceServer.class).web(WebApplicationType.SERVLET)
+				.run(args.toArray(String[]::new));
+	}
+
+	/**
+	 * @param authorizationServer authorization-server base URI, with <b>jwt</b> profile and embedded authorities
+	 * @return WebFlux resource-server
+	 */
+	static ConfigurableApplicationContext reactiveResourceServer(URI authorizationServer) {
+		final List<String> args = args(ShowcaseReactiveResourceServer.class, "application.yml");
+		args.add("--showcase.authorizationServer=" + authorizationServer);
+		args.add(NO_JPA);
+		return new SpringApplicationBuilder(ShowcaseReactiveResourceServer.class).web(WebApplicationType.REACTIVE)
+				.run(args.toArray(String[]::new));
+	}
+
+	static URI baseUri(ConfigurableApplicationContext context) {
+		return URI.create(
+				String.format(
+						"%s://localhost:%s",
+						context.getEnvironment().containsProperty("server.ssl.key-store") ? "https" : "http",
+						context.getEnvironment().getProperty("local.server.port")));
+	}
+
+	static URI uri(ConfigurableApplicationContext context, String path) {
+		return baseUri(context).resolve(path);
+	}
+
+	private static List<String> args(Class<?> application, String configFile, String... profiles) {
+		final List<String> args = new ArrayList<>();
+		args.add("--spring.config.location=" + configLocation(application, configFile));
+		if (profiles.length > 0) {
+			args.add("--spring.profiles.active=" + String.join(",", profiles));
+		}
+		args.add("--server.port=0");
+		args.add("--spring.main.banner-mode=off");
+		args.add("--logging.level.root=WARN");
+		return args;
+	}
+
+	/**
+	 * @return URL of the configuration file next to application class: in its jar or classes directory
+	 */
+	private static String configLocation(Class<?> application, String configFile) {
+		final String root = application.getProtectionDomain().getCodeSource().getLocation().toString();
+		return root.endsWith("/") ? root + configFile : "jar:" + root + "!/" + configFile;
+	}
+}
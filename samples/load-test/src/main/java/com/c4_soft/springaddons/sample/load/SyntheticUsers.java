@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.provisioning.UserDetailsManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Users created in an in-process authorization-server, and their access tokens, retrieved with password grant on
+ * token end-point as a user-agent would
+ *
+ * @author Jérôme Wacongne &lt;ch4mp&#64;c4-soft.com&gt;
+ */
+final class SyntheticUsers {
+	static final String PASSWORD = "password";
+
+	private static final String USER_AGENT_BASIC_AUTH = "Basic "
+			+ Base64.getEncoder().encodeToString("user-agent:secret".getBytes(StandardCharsets.UTF_8));
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+
+	private SyntheticUsers() {
+	}
+
+	/**
+	 * @param authorizationServer authorization-server application context
+	 * @param count number of users to create
+	 * @param authorities authorities granted to each user (for instance {@code showcase:ROLE_USER})
+	 * @return names of created users: {@code user-0} to {@code user-<count - 1>}
+	 */
+	static List<String> create(ConfigurableApplicationContext authorizationServer, int count, String... authorities) {
+		final UserDetailsManager users = authorizationServer.getBean(UserDetailsManager.class);
+		final List<String> usernames = new ArrayList<>(count);
+		for (int i = 0; i < count; ++i) {
+			final String username = "user-" + i;
+			// no BCrypt: creating hundreds of users and authenticating them must remain fast
+			users.createUser(
+					User.withUsername(username).password("{noop}" + PASSWORD).authorities(authorities).build());
+			usernames.add(username);
+		}
+		return usernames;
+	}
+
+	/**
+	 * @param authorizationServer authorization-server base URI
+	 * @param usernames users to get a {@code showcase} scoped access-token for
+	 * @return access tokens, in users order
+	 */
+	static List<String> accessTokens(URI authorizationServer, List<String> usernames) {
+		final HttpClient client = HttpClient.newHttpClient();
+		final List<String> tokens = new ArrayList<>(usernames.size());
+		for (final String username : usernames) {
+			tokens.add(accessToken(client, authorizationServer, username));
+		}
+		return tokens;
+	}
+
+	static String accessToken(URI authorizationServer, String username) {
+		return accessToken(HttpClient.newHttpClient(), authorizationServer, username);
+	}
+
+	private static String accessToken(HttpClient client, URI authorizationServer, String username) {
+		final HttpRequest request = HttpRequest.newBuilder(authorizationServer.resolve("/oauth/token"))
+				.header("Authorization", USER_AGENT_BASIC_AUTH)
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.header("Accept", "application/json")
+				.POST(
+						HttpRequest.BodyPublishers.ofString(
+								"grant_type=password&scope=showcase&username="
+										+ URLEncoder.encode(username, StandardCharsets.UTF_8)
+										+ "&password="
+										+ URLEncoder.encode(PASSWORD, StandardCharsets.UTF_8)))
+				.build();
+		try {
+			final HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+			if (response.statusCode() != 200) {
+				throw new IllegalStateException(
+						String.format("no token for %s: %d %s", username, response.statusCode(), response.body()));
+			}
+			return JSON.readTree(response.body()).get("access_token").asText();
+		} catch (final IOException e) {
+			throw new IllegalStateException("no token for " + username, e);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Reactive resource-server security against authorization-server tokens, and a short load run
+ *
+ * @author Jérôme Wacongne &lt;ch4mp&#64;c4-soft.com&gt;
+ */
+public class LoadGeneratorTests {
+	static ConfigurableApplicationContext authorizationServer;
+
+	static ConfigurableApplicationContext reactive;
+
+	@BeforeClass
+	public static void start() throws Exception {
+		authorizationServer = ShowcaseServers.authorizationServer("jwt");
+		reactive = ShowcaseServers.reactiveResourceServer(ShowcaseServers.baseUri(authorizationServer));
+	}
+
+	@AfterClass
+	public static void stop() {
+		reactive.close();
+		authorizationServer.close();
+	}
+
+	@Test
+	public void accessRulesAreThoseOfServletSample() throws Exception {
+		final String user = token("user");
+		final String admin = token("admin");
+		final String tampered = admin.substring(0, admin.lastIndexOf('.') + 1) + "c2lnbmF0dXJl";
+
+		assertThat(get("/greeting", null).statusCode()).isEqualTo(401);
+		assertThat(get("/greeting", null).headers().firstValue("WWW-Authenticate"))
+				.contains("Bearer realm=\"showcase\"");
+		assertThat(get("/greeting", tampered).statusCode()).isEqualTo(401);
+		assertThat(get("/greeting", tampered).body()).contains("\"error\":\"invalid_token\"");
+		assertThat(get("/greeting", user).body()).isEqualTo("Hello, user!");
+		assertThat(get("/restricted", user).statusCode()).isEqualTo(403);
+		assertThat(get("/restricted", admin).body()).isEqualTo("Welcome to restricted area.");
+		assertThat(get("/claims", admin).body()).contains("\"sub\":\"admin\"");
+	}
+
+	@Test
+	public void loadReportCountsRequestsAndErrors() throws Exception {
+		final List<String> tokens = SyntheticUsers.accessTokens(
+				ShowcaseServers.baseUri(authorizationServer),
+				SyntheticUsers.create(authorizationServer, 2, "showcase:ROLE_USER"));
+
+		try (LoadGenerator loadGenerator = new LoadGenerator(4, Duration.ofMillis(200), Duration.ofSeconds(1))) {
+			final LoadReport greeting =
+					loadGenerator.run("greeting", ShowcaseServers.uri(reactive, "/greeting"), tokens, 200);
+			final LoadReport restricted =
+					loadGenerator.run("restricted", ShowcaseServers.uri(reactive, "/restricted"), tokens, 200);
+
+			assertThat(greeting.getRequests()).isPositive();
+			assertThat(greeting.getErrors()).isZero();
+			assertThat(greeting.getLatencyMicros(99)).isPositive();
+			assertThat(restricted.getErrors()).isEqualTo(restricted.getRequests());
+		}
+	}
+
+	private static String token(String username) {
+		return SyntheticUsers.accessToken(ShowcaseServers.baseUri(authorizationServer), username);
+	}
+
+	private static HttpResponse<String> get(String path, String token) throws Exception {
+		final HttpRequest.Builder request = HttpRequest.newBuilder(ShowcaseServers.uri(reactive, path)).GET();
+		if (token != null) {
+			request.header("Authorization", "Bearer " + token);
+		}
+		return HttpClient.newHttpClient().send(request.build(), HttpResponse.BodyHandlers.ofString());
+	}
+}
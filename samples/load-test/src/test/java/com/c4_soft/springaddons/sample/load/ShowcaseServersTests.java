@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * <p>Authorization and resource servers started in-process, in the four profiles combinations, with access-tokens
+ * retrieved by a client with password grant.</p>
+ *
+ * <p>Reminder:</p>
+ * <ul>
+ * <li>when <b>jpa</b> profile is active, the resource-server manages authorities on his own and solely {@code jpa}
+ * user has authority to access {@code restricted} end-point</li>
+ * <li>when <b>jpa</b> profile is not active, authorities are provided by authorization-server (in {@code authorities}
+ * claim) and solely {@code admin} user has authority to access {@code restricted} end-point</li>
+ * </ul>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp&#64;c4-soft.com&gt;
+ */
+public class ShowcaseServersTests {
+	private static final Pattern JWT = Pattern.compile("([\\w-_]+)\\.([\\w-_]+)\\.([\\w-_]+)");
+
+	final HttpClient client = HttpClient.newHttpClient();
+
+	ConfigurableApplicationContext authorizationServer;
+
+	ConfigurableApplicationContext resourceServer;
+
+	@After
+	public void afterEach() {
+		if (resourceServer != null) {
+			resourceServer.close();
+		}
+		if (authorizationServer != null) {
+			authorizationServer.close();
+		}
+	}
+
+	private void startServers(boolean isJwt, boolean areAuthoritiesEmbeddedInTokenClaims) {
+		final List<String> profiles = new ArrayList<>();
+		if (isJwt) {
+			profiles.add("jwt");
+		}
+		if (!areAuthoritiesEmbeddedInTokenClaims) {
+			profiles.add("jpa");
+		}
+		authorizationServer = ShowcaseServers.authorizationServer(profiles.toArray(String[]::new));
+		resourceServer = ShowcaseServers
+				.resourceServer(ShowcaseServers.baseUri(authorizationServer), profiles.toArray(String[]::new));
+	}
+
+	@Test
+	public void testJwtWithEmbeddedAuthorities() throws Exception {
+		startServers(true, true);
+
+		final String adminToken = token("admin");
+		final String jpaToken = token("jpa");
+
+		assertThat(adminToken).matches(JWT);
+
+		assertThat(get("/greeting", adminToken).body()).isEqualTo("Hello, admin!");
+		assertThat(get("/greeting", jpaToken).statusCode()).isEqualTo(403);
+		assertThat(get("/restricted", adminToken).body()).isEqualTo("Welcome to restricted area.");
+		assertThat(get("/restricted", jpaToken).statusCode()).isEqualTo(403);
+
+		final String latencies = getActuator("/actuator/latencies").body();
+		assertThat(latencies).contains("\"authorities\":\"embedded\"", "\"/greeting\":{\"jwt\":{\"start\"");
+		assertThat(latencies).contains("\"/restricted/**\":{\"jwt\":{\"start\"");
+	}
+
+	@Test
+	public void testJwtWithResourceServerManagedAuthorities() throws Exception {
+		startServers(true, false);
+
+		final String adminToken = token("admin");
+		final String jpaToken = token("jpa");
+
+		assertThat(adminToken).matches(JWT);
+
+		assertThat(get("/greeting", adminToken).body()).isEqualTo("Hello, admin!");
+		assertThat(get("/greeting", jpaToken).body()).isEqualTo("Hello, jpa!");
+		assertThat(get("/restricted", adminToken).statusCode()).isEqualTo(403);
+		assertThat(get("/restricted", adminToken).body()).contains("\"error\":\"insufficient_scope\"");
+		assertThat(get("/restricted", jpaToken).body()).isEqualTo("Welcome to restricted area.");
+	}
+
+	@Test
+	public void testIntrospectedTokenWithEmbeddedAuthorities() throws Exception {
+		startServers(false, true);
+
+		final String adminToken = token("admin");
+		final String jpaToken = token("jpa");
+
+		assertThat(adminToken).doesNotContain(".");
+
+		assertThat(get("/greeting", adminToken).body()).isEqualTo("Hello, admin!");
+		assertThat(get("/greeting", jpaToken).statusCode()).isEqualTo(403);
+		assertThat(get("/restricted", adminToken).body()).isEqualTo("Welcome to restricted area.");
+		assertThat(get("/restricted", jpaToken).statusCode()).isEqualTo(403);
+	}
+
+	@Test
+	public void testIntrospectedTokenWithResourceServerManagedAuthorities() throws Exception {
+		startServers(false, false);
+
+		final String adminToken = token("admin");
+		final String jpaToken = token("jpa");
+
+		assertThat(adminToken).doesNotContain(".");
+
+		assertThat(get("/greeting", adminToken).body()).isEqualTo("Hello, admin!");
+		assertThat(get("/greeting", jpaToken).body()).isEqualTo("Hello, jpa!");
+		assertThat(get("/restricted", adminToken).statusCode()).isEqualTo(403);
+		assertThat(get("/restricted", jpaToken).body()).isEqualTo("Welcome to restricted area.");
+	}
+
+	private String token(String username) {
+		return SyntheticUsers.accessToken(ShowcaseServers.baseUri(authorizationServer), username);
+	}
+
+	private HttpResponse<String> get(String path, String token) throws Exception {
+		final URI uri = ShowcaseServers.uri(resourceServer, path);
+		return client.send(
+				HttpRequest.newBuilder(uri).header("Authorization", "Bearer " + token).GET().build(),
+				HttpResponse.BodyHandlers.ofString());
+	}
+
+	private HttpResponse<String> getActuator(String path) throws Exception {
+		final String credentials =
+				Base64.getEncoder().encodeToString("actuator:secret".getBytes(StandardCharsets.UTF_8));
+		final URI uri = ShowcaseServers.uri(resourceServer, path);
+		return client.send(
+				HttpRequest.newBuilder(uri).header("Authorization", "Basic " + credentials).GET().build(),
+				HttpResponse.BodyHandlers.ofString());
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.claims;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.UserAuthenticationConverter;
+import org.springframework.util.Assert;
+
+import com.c4_soft.oauth2.rfc7519.JwtRegisteredClaimNames;
+import com.c4_soft.springaddons.sample.authorization.key.JwtPayloadEncoder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>Writes JWT payload JSON straight from token and authentication, with the same claims as
+ * {@code DefaultAccessTokenConverter} configured with {@code SubjectAttributeUserTokenConverter}: authentication
+ * details, {@code sub}, {@code authorities} (user ones which scope was requested), {@code scope}, {@code exp},
+ * token additional information, {@code client_id} and {@code aud}. When a claim is provided by several sources,
+ * only the value {@code DefaultAccessTokenConverter} would keep is written.</p>
+ *
+ * <p>No intermediate maps or sets are built: user authorities come already filtered and encoded from
+ * {@link ScopedAuthoritiesIndex} (computed on the fly for users it does not know).</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class CompactJwtPayloadWriter implements JwtPayloadEncoder {
+	private static final String SUB = JwtRegisteredClaimNames.SUBJECT.value;
+
+	private static final String AUTHORITIES = UserAuthenticationConverter.AUTHORITIES;
+
+	private final ScopedAuthoritiesIndex index;
+
+	private final boolean authoritiesClaim;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	/**
+	 * @param index precomputed users authorities
+	 * @param authoritiesClaim if user authorities should be added to tokens
+	 */
+	public CompactJwtPayloadWriter(ScopedAuthoritiesIndex index, boolean authoritiesClaim) {
+		Assert.notNull(index, "index can't be null");
+		this.index = index;
+		this.authoritiesClaim = authoritiesClaim;
+	}
+
+	@Override
+	public String encode(OAuth2AccessToken token, OAuth2Authentication authentication) {
+		final OAuth2Request request = authentication.getOAuth2Request();
+		final Map<String, Object> info = token.getAdditionalInformation();
+		final StringBuilder json = new StringBuilder(512).append('{');
+
+		if (!authentication.isClientOnly()) {
+			writeUserClaims(json, authentication.getUserAuthentication(), token, request);
+		} else if (request.getAuthorities() != null && !request.getAuthorities().isEmpty()
+				&& !isOverridden(AUTHORITIES, token, request)) {
+			field(json, AUTHORITIES).append('[');
+			int i = 0;
+			for (final GrantedAuthority authority : request.getAuthorities()) {
+				JsonStrings.appendQuoted(i++ > 0 ? json.append(',') : json, authority.getAuthority());
+			}
+			json.append(']');
+		}
+
+		if (token.getScope() != null && !info.containsKey(AccessTokenConverter.SCOPE)) {
+			field(json, AccessTokenConverter.SCOPE);
+			writeValue(json, token.getScope());
+		}
+		if (token.getExpiration() != null && !info.containsKey(AccessTokenConverter.EXP)) {
+			field(json, AccessTokenConverter.EXP).append(token.getExpiration().getTime() / 1000);
+		}
+		for (final Map.Entry<String, Object> entry : info.entrySet()) {
+			if (!entry.getKey().equals(AccessTokenConverter.CLIENT_ID) && !isAudience(entry.getKey(), request)) {
+				field(json, entry.getKey());
+				writeValue(json, entry.getValue());
+			}
+		}
+		field(json, AccessTokenConverter.CLIENT_ID);
+		writeValue(json, request.getClientId());
+		if (request.getResourceIds() != null && !request.getResourceIds().isEmpty()) {
+			field(json, AccessTokenConverter.AUD);
+			writeValue(json, request.getResourceIds());
+		}
+
+		return json.append('}').toString();
+	}
+
+	private void writeUserClaims(
+			StringBuilder json,
+			Authentication user,
+			OAuth2AccessToken token,
+			OAuth2Request request) {
+		final Map<?, ?> details =
+				user.getDetails() instanceof Map ? (Map<?, ?>) user.getDetails() : Collections.emptyMap();
+		final String authoritiesJson = authoritiesClaim ? authoritiesJson(user, details) : "";
+
+		for (final Map.Entry<?, ?> entry : details.entrySet()) {
+			final String key = String.valueOf(entry.getKey());
+			if (!SUB.equals(key) && !(AUTHORITIES.equals(key) && !authoritiesJson.isEmpty())
+					&& !isOverridden(key, token, request)) {
+				field(json, key);
+				writeValue(json, entry.getValue());
+			}
+		}
+		if (!isOverridden(SUB, token, request)) {
+			field(json, SUB);
+			JsonStrings.appendQuoted(json, user.getName());
+		}
+		if (!authoritiesJson.isEmpty() && !isOverridden(AUTHORITIES, token, request)) {
+			field(json, AUTHORITIES).append('[').append(authoritiesJson).append(']');
+		}
+	}
+
+	private String authoritiesJson(Authentication user, Map<?, ?> details) {
+		final Object scope = details.get(AccessTokenConverter.SCOPE);
+		final String scopeString = scope == null ? null : scope.toString();
+		final ScopedAuthoritiesIndex.UserAuthorities indexed = index.get(user.getName());
+		return indexed != null
+				? indexed.authoritiesJson(scopeString)
+				: ScopedAuthoritiesIndex.authoritiesJson(scopeString, user.getAuthorities());
+	}
+
+	/**
+	 * @return if a claim written after user (or client) ones has this name
+	 */
+	private static boolean isOverridden(String key, OAuth2AccessToken token, OAuth2Request request) {
+		return AccessTokenConverter.SCOPE.equals(key) && token.getScope() != null
+				|| AccessTokenConverter.EXP.equals(key) && token.getExpiration() != null
+				|| AccessTokenConverter.CLIENT_ID.equals(key)
+				|| isAudience(key, request)
+				|| token.getAdditionalInformation().containsKey(key);
+	}
+
+	private static boolean isAudience(String key, OAuth2Request request) {
+		return AccessTokenConverter.AUD.equals(key) && request.getResourceIds() != null
+				&& !request.getResourceIds().isEmpty();
+	}
+
+	private static StringBuilder field(StringBuilder json, String name) {
+		if (json.length() > 1) {
+			json.append(',');
+		}
+		return JsonStrings.appendQuoted(json, name).append(':');
+	}
+
+	private void writeValue(StringBuilder json, Object value) {
+		if (value == null) {
+			json.append("null");
+		} else if (value instanceof String) {
+			JsonStrings.appendQuoted(json, (String) value);
+		} else if (value instanceof Long || value instanceof Integer || value instanceof Boolean) {
+			json.append(value);
+		} else if (value instanceof Collection) {
+			json.append('[');
+			int i = 0;
+			for (final Object element : (Collection<?>) value) {
+				if (i++ > 0) {
+					json.append(',');
+				}
+				writeValue(json, element);
+			}
+			json.append(']');
+		} else {
+			try {
+				json.append(objectMapper.writeValueAsString(value));
+			} catch (final JsonProcessingException e) {
+				throw new IllegalArgumentException("Could not serialize claim value " + value, e);
+			}
+		}
+	}
+}
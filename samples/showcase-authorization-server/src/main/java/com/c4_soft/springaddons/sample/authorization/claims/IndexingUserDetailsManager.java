@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.claims;
+
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.provisioning.UserDetailsManager;
+import org.springframework.util.Assert;
+
+/**
+ * {@link UserDetailsManager} decorator updating a {@link ScopedAuthoritiesIndex} each time a user is created,
+ * updated or deleted: authorities are grouped by scope and encoded once per change, not once per issued token.
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class IndexingUserDetailsManager implements UserDetailsManager {
+	private final UserDetailsManager delegate;
+
+	private final ScopedAuthoritiesIndex index;
+
+	/**
+	 * @param delegate actual users store (should be empty: users created before decoration are not indexed)
+	 * @param index index to maintain
+	 */
+	public IndexingUserDetailsManager(UserDetailsManager delegate, ScopedAuthoritiesIndex index) {
+		Assert.notNull(delegate, "delegate can't be null");
+		Assert.notNull(index, "index can't be null");
+		this.delegate = delegate;
+		this.index = index;
+	}
+
+	@Override
+	public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+		return delegate.loadUserByUsername(username);
+	}
+
+	@Override
+	public void createUser(UserDetails user) {
+		delegate.createUser(user);
+		index.put(user.getUsername(), user.getAuthorities());
+	}
+
+	@Override
+	public void updateUser(UserDetails user) {
+		delegate.updateUser(user);
+		index.put(user.getUsername(), user.getAuthorities());
+	}
+
+	@Override
+	public void deleteUser(String username) {
+		delegate.deleteUser(username);
+		index.remove(username);
+	}
+
+	@Override
+	public void changePassword(String oldPassword, String newPassword) {
+		delegate.changePassword(oldPassword, newPassword);
+	}
+
+	@Override
+	public boolean userExists(String username) {
+		return delegate.userExists(username);
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.claims;
+
+/**
+ * JSON string literals encoding (RFC 8259 section 7)
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+final class JsonStrings {
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private JsonStrings() {
+	}
+
+	static StringBuilder appendQuoted(StringBuilder json, String value) {
+		json.append('"');
+		for (int i = 0; i < value.length(); ++i) {
+			final char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < 0x20) {
+				json.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+			} else {
+				json.append(c);
+			}
+		}
+		return json.append('"');
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.claims;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.util.Assert;
+
+/**
+ * <p>Users authorities grouped by scope (authority prefix before first {@code :}), indexed by username and already
+ * JSON encoded: {@link CompactJwtPayloadWriter} copies them to tokens with no splitting, filtering nor collecting.</p>
+ *
+ * <p>Entries are computed when a user authorities change ({@link IndexingUserDetailsManager} keeps the index in sync),
+ * not when tokens are issued. The {@code authorities} claim for a given requested scopes string is also cached per
+ * user (for a few distinct strings only: clients requesting arbitrary scope combinations can't grow it
+ * unbounded).</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class ScopedAuthoritiesIndex {
+	static final int MAX_CACHED_SCOPE_STRINGS_PER_USER = 8;
+
+	private final Map<String, UserAuthorities> byUsername = new ConcurrentHashMap<>();
+
+	/**
+	 * Replaces user authorities
+	 * @param username user name
+	 * @param authorities all of the user authorities
+	 */
+	public void put(String username, Collection<? extends GrantedAuthority> authorities) {
+		Assert.notNull(username, "username can't be null");
+		Assert.notNull(authorities, "authorities can't be null");
+		byUsername.put(username, new UserAuthorities(authorities));
+	}
+
+	public void remove(String username) {
+		byUsername.remove(username);
+	}
+
+	/**
+	 * @param username user name
+	 * @return user precomputed authorities, or null if this user is not indexed
+	 */
+	public UserAuthorities get(String username) {
+		return username == null ? null : byUsername.get(username);
+	}
+
+	public int size() {
+		return byUsername.size();
+	}
+
+	/**
+	 * @param scope space separated scopes, as in token request {@code scope} parameter (null for none)
+	 * @param authorities authorities to filter
+	 * @return JSON array content (quoted authorities separated with commas) for authorities which prefix is one of
+	 * requested scopes, empty if none
+	 */
+	public static String authoritiesJson(String scope, Collection<? extends GrantedAuthority> authorities) {
+		return new UserAuthorities(authorities).authoritiesJson(scope);
+	}
+
+	/**
+	 * Immutable authorities of a user, grouped by scope and JSON encoded
+	 */
+	public static final class UserAuthorities {
+		private final Map<String, String> jsonByScope;
+
+		private final Map<String, String> jsonByScopeString = new ConcurrentHashMap<>();
+
+		private UserAuthorities(Collection<? extends GrantedAuthority> authorities) {
+			final Map<String, StringBuilder> byScope = new LinkedHashMap<>();
+			authorities.stream().map(GrantedAuthority::getAuthority).distinct().forEach(authority -> {
+				final int separator = authority.indexOf(':');
+				final String scope = separator < 0 ? authority : authority.substring(0, separator);
+				final StringBuilder json = byScope.computeIfAbsent(scope, s -> new StringBuilder());
+				if (json.length() > 0) {
+					json.append(',');
+				}
+				JsonStrings.appendQuoted(json, authority);
+			});
+			final Map<String, String> jsonByScope = new LinkedHashMap<>(byScope.size() * 2);
+			byScope.forEach((scope, json) -> jsonByScope.put(scope, json.toString()));
+			this.jsonByScope = jsonByScope;
+		}
+
+		/**
+		 * @param scope space separated scopes (null for none)
+		 * @return JSON array content for the authorities of these scopes, empty if none
+		 */
+		public String authoritiesJson(String scope) {
+			if (scope == null || jsonByScope.isEmpty()) {
+				return "";
+			}
+			final String cached = jsonByScopeString.get(scope);
+			if (cached != null) {
+				return cached;
+			}
+			final String json = filter(scope);
+			if (jsonByScopeString.size() < MAX_CACHED_SCOPE_STRINGS_PER_USER) {
+				jsonByScopeString.put(scope, json);
+			}
+			return json;
+		}
+
+		private String filter(String scope) {
+			final StringBuilder json = new StringBuilder();
+			final Set<String> seen = new HashSet<>();
+			for (final String requested : scope.split(" ")) {
+				final String scopeAuthorities = jsonByScope.get(requested);
+				if (scopeAuthorities != null && seen.add(requested)) {
+					if (json.length() > 0) {
+						json.append(',');
+					}
+					json.append(scopeAuthorities);
+				}
+			}
+			return json.toString();
+		}
+	}
+}
@@ -10,7 +10,7 @@
  * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
  * specific language governing permissions and limitations under the License.
  */
-package com.c4_soft.springaddons.sample.authorization.config;
+package com.c4_soft.springaddons.sample.authorization.claims;
 
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -25,7 +25,7 @@ import org.springframework.security.oauth2.provider.token.DefaultUserAuthenticat
 
 import com.c4_soft.oauth2.rfc7519.JwtRegisteredClaimNames;
 
-class SubjectAttributeUserTokenConverter extends DefaultUserAuthenticationConverter {
+public class SubjectAttributeUserTokenConverter extends DefaultUserAuthenticationConverter {
 
 	private final boolean authoritiesClaim;
 
@@ -15,13 +15,15 @@
  */
 package com.c4_soft.springaddons.sample.authorization.config;
 
-import java.security.KeyPair;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.env.Environment;
 import org.springframework.lang.Nullable;
@@ -33,19 +35,31 @@ import org.springframework.security.oauth2.config.annotation.web.configuration.E
 import org.springframework.security.oauth2.config.annotation.web.configurers.AuthorizationServerEndpointsConfigurer;
 import org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.TokenStore;
-import org.springframework.security.oauth2.provider.token.store.InMemoryTokenStore;
 import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
 
+import com.c4_soft.springaddons.sample.authorization.claims.CompactJwtPayloadWriter;
+import com.c4_soft.springaddons.sample.authorization.claims.SubjectAttributeUserTokenConverter;
+import com.c4_soft.springaddons.sample.authorization.claims.ScopedAuthoritiesIndex;
+import com.c4_soft.springaddons.sample.authorization.key.KeyRotatingJwtAccessTokenConverter;
+import com.c4_soft.springaddons.sample.authorization.key.RotatingKeyManager;
+import com.c4_soft.springaddons.sample.authorization.token.ConcurrentTokenStore;
+import com.c4_soft.springaddons.sample.authorization.token.IntrospectingTokenStore;
+import com.c4_soft.springaddons.sample.authorization.token.IntrospectionPrecomputingTokenStore;
+import com.c4_soft.springaddons.sample.authorization.token.IntrospectionResponseSerializer;
+import com.c4_soft.springaddons.sample.authorization.token.MappedTokenStore;
+
 @EnableAuthorizationServer
 @Configuration
 public class AuthorizationServerConfig extends AuthorizationServerConfigurerAdapter {
 
 	final Environment env;
 	final AuthenticationManager authenticationManager;
-	final KeyPair keyPair;
+	final RotatingKeyManager keyManager;
+	final ScopedAuthoritiesIndex scopedAuthoritiesIndex;
 	final String actuatorUsername;
 	final String actuatorPassword;
+	final String tokenStoreDirectory;
 
 	@Autowired
 	public AuthorizationServerConfig(
@@ -53,13 +67,17 @@ public class AuthorizationServerConfig extends AuthorizationServerConfigurerAdap
 			AuthenticationConfiguration authenticationConfiguration,
 			@Value("${showcase.management.username}") String actuatorUsername,
 			@Value("${showcase.management.password}") String actuatorPassword,
-			@Nullable KeyPair keyPair) throws Exception {
+			@Value("${showcase.token-store.directory:}") String tokenStoreDirectory,
+			@Nullable RotatingKeyManager keyManager,
+			ScopedAuthoritiesIndex scopedAuthoritiesIndex) throws Exception {
 
 		this.env = env;
 		this.authenticationManager = authenticationConfiguration.getAuthenticationManager();
-		this.keyPair = keyPair;
+		this.keyManager = keyManager;
+		this.scopedAuthoritiesIndex = scopedAuthoritiesIndex;
 		this.actuatorUsername = actuatorUsername;
 		this.actuatorPassword = actuatorPassword;
+		this.tokenStoreDirectory = tokenStoreDirectory;
 	}
 
 	@Override
@@ -104,21 +122,41 @@ public class AuthorizationServerConfig extends AuthorizationServerConfigurerAdap
 	}
 
 	@Bean
-	public TokenStore tokenStore() {
+	@Primary
+	public TokenStore tokenStore() throws IOException {
 		return Stream.of(env.getActiveProfiles()).anyMatch("jwt"::equals) ?
-				new JwtTokenStore(accessTokenConverter()) : new InMemoryTokenStore();
+				new JwtTokenStore(accessTokenConverter()) : introspectionTokenStore();
+	}
+
+	/**
+	 * Tokens survive restarts if {@code showcase.token-store.directory} is set (closed with application context). Mapped
+	 * store keeps introspection responses in its records: it is not decorated, which would keep them on heap.
+	 */
+	@Bean
+	@Profile("!jwt")
+	public IntrospectingTokenStore introspectionTokenStore() throws IOException {
+		final boolean authoritiesClaim = Stream.of(env.getActiveProfiles()).noneMatch("jpa"::equals);
+		return tokenStoreDirectory.isBlank() ?
+				new IntrospectionPrecomputingTokenStore(new ConcurrentTokenStore(), authoritiesClaim) :
+				new MappedTokenStore(
+						Paths.get(tokenStoreDirectory),
+						new IntrospectionResponseSerializer(authoritiesClaim));
 	}
 
+	/**
+	 * Tokens payload is written by {@link CompactJwtPayloadWriter} from authorities precomputed in
+	 * {@link ScopedAuthoritiesIndex}. The access token converter is still used to read tokens (refresh grant).
+	 */
 	@Bean
 	@Profile("jwt")
 	public JwtAccessTokenConverter accessTokenConverter() {
-		final var converter = new JwtAccessTokenConverter();
-		converter.setKeyPair(keyPair);
+		final var converter = new KeyRotatingJwtAccessTokenConverter(keyManager);
+		final boolean authoritiesClaim = Stream.of(env.getActiveProfiles()).noneMatch("jpa"::equals);
 
 		final DefaultAccessTokenConverter accessTokenConverter = new DefaultAccessTokenConverter();
-		accessTokenConverter.setUserTokenConverter(new SubjectAttributeUserTokenConverter(
-				Stream.of(env.getActiveProfiles()).noneMatch("jpa"::equals)));
+		accessTokenConverter.setUserTokenConverter(new SubjectAttributeUserTokenConverter(authoritiesClaim));
 		converter.setAccessTokenConverter(accessTokenConverter);
+		converter.setPayloadEncoder(new CompactJwtPayloadWriter(scopedAuthoritiesIndex, authoritiesClaim));
 
 		return converter;
 	}
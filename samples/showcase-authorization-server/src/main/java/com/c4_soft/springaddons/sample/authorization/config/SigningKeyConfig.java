@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.c4_soft.springaddons.sample.authorization.key.RotatingKeyManager;
+import com.nimbusds.jose.JWSAlgorithm;
+
+/**
+ * JWT signing keys: rotated every {@code showcase.jwt.key-rotation-period} and kept (for verification and in JWK
+ * set) {@code showcase.jwt.max-token-lifetime} after that. Rotation, retirement and next key generation run on
+ * scheduler thread every {@code showcase.jwt.key-maintenance-period}. Keys are for
+ * {@code showcase.jwt.signing-algorithm}: RS256 (default), ES256 or EdDSA.
+ */
+@Configuration
+@Profile("jwt")
+@EnableScheduling
+class SigningKeyConfig {
+	private final RotatingKeyManager keyManager;
+
+	SigningKeyConfig(
+			@Value("${showcase.jwt.key-rotation-period:P7D}") Duration rotationPeriod,
+			@Value("${showcase.jwt.max-token-lifetime:P30D}") Duration maxTokenLifetime,
+			@Value("${showcase.jwt.signing-algorithm:RS256}") String signingAlgorithm) {
+		this.keyManager =
+				new RotatingKeyManager(rotationPeriod, maxTokenLifetime, JWSAlgorithm.parse(signingAlgorithm));
+	}
+
+	@Bean
+	RotatingKeyManager rotatingKeyManager() {
+		return keyManager;
+	}
+
+	@Scheduled(
+			initialDelayString = "${showcase.jwt.key-maintenance-period:PT1M}",
+			fixedDelayString = "${showcase.jwt.key-maintenance-period:PT1M}")
+	void maintainSigningKeys() {
+		keyManager.maintain();
+	}
+}
@@ -32,6 +32,9 @@ import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
 import org.springframework.web.cors.CorsConfiguration;
 
+import com.c4_soft.springaddons.sample.authorization.claims.IndexingUserDetailsManager;
+import com.c4_soft.springaddons.sample.authorization.claims.ScopedAuthoritiesIndex;
+
 @Configuration
 public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
@@ -67,28 +70,36 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 		return cors;
 	}
 
+	@Bean
+	public ScopedAuthoritiesIndex scopedAuthoritiesIndex() {
+		return new ScopedAuthoritiesIndex();
+	}
+
+	/**
+	 * Users authorities are indexed by scope as users are created or updated (not when tokens are issued)
+	 */
 	@Bean
 	@Override
 	public UserDetailsService userDetailsService() {
+		final var users = new IndexingUserDetailsManager(new InMemoryUserDetailsManager(), scopedAuthoritiesIndex());
 		//@formatter:off
-		return new InMemoryUserDetailsManager(
-				User.withDefaultPasswordEncoder()
-					.username("user")
-					.password("password")
-					.authorities("showcase:ROLE_USER")
-					.build(),
-				User.withDefaultPasswordEncoder()
-					.username("admin")
-					.password("password")
-					.authorities("showcase:ROLE_USER", "showcase:AUTHORIZED_PERSONNEL")
-					.build(),
-				User.withDefaultPasswordEncoder()
-					.username("jpa")
-					.password("password")
-					.authorities(Collections.emptySet())
-					.build()
-					);
+		users.createUser(User.withDefaultPasswordEncoder()
+				.username("user")
+				.password("password")
+				.authorities("showcase:ROLE_USER")
+				.build());
+		users.createUser(User.withDefaultPasswordEncoder()
+				.username("admin")
+				.password("password")
+				.authorities("showcase:ROLE_USER", "showcase:AUTHORIZED_PERSONNEL")
+				.build());
+		users.createUser(User.withDefaultPasswordEncoder()
+				.username("jpa")
+				.password("password")
+				.authorities(Collections.emptySet())
+				.build());
 		// @formatter:on
+		return users;
 	}
 
 }
\ No newline at end of file
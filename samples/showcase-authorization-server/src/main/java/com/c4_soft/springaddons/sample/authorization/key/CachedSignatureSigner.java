@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.key;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.springframework.security.jwt.crypto.sign.Signer;
+import org.springframework.util.Assert;
+
+/**
+ * <p>{@link Signer} reusing initialized {@link Signature} instances, where spring-security-jwt signers get and
+ * initialize a new one for each token. {@link Signature#sign()} resets the instance for next token.</p>
+ *
+ * <p>Instances are pooled by this signer (at most one per available processor), and not in thread-locals: pooled
+ * threads would otherwise retain signatures, and so private keys, of rotated-out keys after their signer was dropped.
+ * {@link #clear()} releases pooled instances once the key stopped signing, but the signer still references the private
+ * key (to sign with new instances): key material is released only when the signer itself is.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class CachedSignatureSigner implements Signer {
+	private final String algorithm;
+
+	private final PrivateKey privateKey;
+
+	private final BlockingQueue<Signature> pool;
+
+	private volatile boolean isCleared = false;
+
+	/**
+	 * @param algorithm JCA signature algorithm, {@code SHA256withRSA} for instance
+	 * @param privateKey signing key
+	 */
+	public CachedSignatureSigner(String algorithm, PrivateKey privateKey) {
+		this(algorithm, privateKey, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param algorithm JCA signature algorithm, {@code SHA256withRSA} for instance
+	 * @param privateKey signing key
+	 * @param poolSize maximum count of idle initialized instances kept
+	 */
+	public CachedSignatureSigner(String algorithm, PrivateKey privateKey, int poolSize) {
+		Assert.hasText(algorithm, "algorithm can't be empty");
+		Assert.notNull(privateKey, "privateKey can't be null");
+		Assert.isTrue(poolSize > 0, "poolSize must be positive");
+		this.algorithm = algorithm;
+		this.privateKey = privateKey;
+		this.pool = new ArrayBlockingQueue<>(poolSize);
+	}
+
+	@Override
+	public byte[] sign(byte[] bytes) {
+		final Signature pooled = pool.poll();
+		final Signature instance = pooled == null ? newSignature() : pooled;
+		final byte[] signature;
+		try {
+			instance.update(bytes);
+			signature = instance.sign();
+		} catch (final GeneralSecurityException e) {
+			// instance state is unknown: not returned to the pool
+			throw new IllegalStateException("Could not sign with " + algorithm, e);
+		}
+		if (!isCleared && pool.offer(instance) && isCleared) {
+			// cleared between check and offer: the instance might be pooled after clear() emptied the pool
+			pool.clear();
+		}
+		return signature;
+	}
+
+	@Override
+	public String algorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * Drops pooled instances and stops pooling: signing still works, but initializes a new {@link Signature} each time
+	 */
+	public void clear() {
+		isCleared = true;
+		pool.clear();
+	}
+
+	/**
+	 * @return count of idle initialized instances
+	 */
+	int getPooledCount() {
+		return pool.size();
+	}
+
+	private Signature newSignature() {
+		try {
+			final Signature instance = Signature.getInstance(algorithm);
+			instance.initSign(privateKey);
+			return instance;
+		} catch (final GeneralSecurityException e) {
+			throw new IllegalStateException("Could not initialize " + algorithm + " signature", e);
+		}
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.key;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+
+import org.springframework.security.jwt.crypto.sign.InvalidSignatureException;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.util.Assert;
+
+/**
+ * {@link SignatureVerifier} for any JCA signature algorithm: spring-security-jwt only provides RSA and MAC ones.
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class JcaSignatureVerifier implements SignatureVerifier {
+	private final String algorithm;
+
+	private final PublicKey publicKey;
+
+	/**
+	 * @param algorithm JCA signature algorithm, {@code SHA256withECDSAinP1363Format} for instance
+	 * @param publicKey verification key
+	 */
+	public JcaSignatureVerifier(String algorithm, PublicKey publicKey) {
+		Assert.hasText(algorithm, "algorithm can't be empty");
+		Assert.notNull(publicKey, "publicKey can't be null");
+		this.algorithm = algorithm;
+		this.publicKey = publicKey;
+	}
+
+	@Override
+	public void verify(byte[] content, byte[] signature) {
+		final boolean valid;
+		try {
+			final Signature verifier = Signature.getInstance(algorithm);
+			verifier.initVerify(publicKey);
+			verifier.update(content);
+			valid = verifier.verify(signature);
+		} catch (final GeneralSecurityException e) {
+			throw new InvalidSignatureException("Could not verify " + algorithm + " signature: " + e.getMessage());
+		}
+		if (!valid) {
+			throw new InvalidSignatureException(algorithm + " signature did not match content");
+		}
+	}
+
+	@Override
+	public String algorithm() {
+		return algorithm;
+	}
+}
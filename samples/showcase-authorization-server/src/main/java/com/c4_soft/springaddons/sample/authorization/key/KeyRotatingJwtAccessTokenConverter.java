@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.key;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.common.util.JsonParser;
+import org.springframework.security.oauth2.common.util.JsonParserFactory;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.util.Assert;
+
+/**
+ * <p>{@link JwtAccessTokenConverter} signing with {@link RotatingKeyManager} current key (its ID in {@code kid} header)
+ * and verifying with the key identified by token {@code kid} header (refresh tokens signed before a rotation).</p>
+ *
+ * <p>JWS compact serialization is done here rather than with {@code JwtHelper}, which can only map RSA and HMAC JCA
+ * algorithms to {@code alg} header. A token is accepted only if its {@code alg} header is the one of the key its
+ * {@code kid} designates.</p>
+ *
+ * <p>The JOSE header is encoded once per key ({@link SigningKey#getEncodedHeader()}) and the payload JSON can be
+ * written directly by a {@link JwtPayloadEncoder} instead of going through claims maps.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class KeyRotatingJwtAccessTokenConverter extends JwtAccessTokenConverter {
+	private static final String KID = "kid";
+
+	private static final String ALG = "alg";
+
+	private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+
+	private static final Base64.Decoder BASE64URL_DECODER = Base64.getUrlDecoder();
+
+	private final RotatingKeyManager keyManager;
+
+	private final JsonParser jsonParser = JsonParserFactory.create();
+
+	private JwtPayloadEncoder payloadEncoder = (token, authentication) -> jsonParser
+			.formatMap(getAccessTokenConverter().convertAccessToken(token, authentication));
+
+	public KeyRotatingJwtAccessTokenConverter(RotatingKeyManager keyManager) {
+		Assert.notNull(keyManager, "keyManager can't be null");
+		this.keyManager = keyManager;
+	}
+
+	/**
+	 * @param payloadEncoder replaces default claims serialization ({@link #getAccessTokenConverter() access token
+	 * converter} output formatted with Jackson)
+	 */
+	public void setPayloadEncoder(JwtPayloadEncoder payloadEncoder) {
+		Assert.notNull(payloadEncoder, "payloadEncoder can't be null");
+		this.payloadEncoder = payloadEncoder;
+	}
+
+	@Override
+	protected String encode(OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+		final String content;
+		try {
+			content = payloadEncoder.encode(accessToken, authentication);
+		} catch (final Exception e) {
+			throw new IllegalStateException("Cannot convert access token to JSON", e);
+		}
+		final SigningKey key = keyManager.getCurrent();
+		final byte[] header = key.getEncodedHeader();
+		final byte[] payload = BASE64URL.encode(content.getBytes(StandardCharsets.UTF_8));
+		final byte[] signingInput = new byte[header.length + 1 + payload.length];
+		System.arraycopy(header, 0, signingInput, 0, header.length);
+		signingInput[header.length] = '.';
+		System.arraycopy(payload, 0, signingInput, header.length + 1, payload.length);
+		final byte[] signature = BASE64URL.encode(key.getSigner().sign(signingInput));
+		final byte[] jws = Arrays.copyOf(signingInput, signingInput.length + 1 + signature.length);
+		jws[signingInput.length] = '.';
+		System.arraycopy(signature, 0, jws, signingInput.length + 1, signature.length);
+		return new String(jws, StandardCharsets.US_ASCII);
+	}
+
+	@Override
+	protected Map<String, Object> decode(String token) {
+		try {
+			final int headerEnd = token.indexOf('.');
+			final int payloadEnd = token.indexOf('.', headerEnd + 1);
+			if (headerEnd < 0 || payloadEnd < 0 || token.indexOf('.', payloadEnd + 1) >= 0) {
+				throw new InvalidTokenException("Not a JWS compact serialization");
+			}
+			final Map<String, Object> header = jsonParser.parseMap(utf8(token.substring(0, headerEnd)));
+			final Object kid = header.get(KID);
+			final SigningKey key = keyManager.getKey(kid instanceof String ? (String) kid : null)
+					.orElseThrow(() -> new InvalidTokenException("Unknown or retired signing key: " + kid));
+			if (!key.getAlgorithm().getName().equals(header.get(ALG))) {
+				throw new InvalidTokenException("Unexpected alg for key " + kid + ": " + header.get(ALG));
+			}
+			key.getVerifier()
+					.verify(
+							token.substring(0, payloadEnd).getBytes(StandardCharsets.US_ASCII),
+							BASE64URL_DECODER.decode(token.substring(payloadEnd + 1)));
+			final Map<String, Object> claims = jsonParser.parseMap(utf8(token.substring(headerEnd + 1, payloadEnd)));
+			if (claims.get(EXP) instanceof Integer) {
+				claims.put(EXP, ((Integer) claims.get(EXP)).longValue());
+			}
+			getJwtClaimsSetVerifier().verify(claims);
+			return claims;
+		} catch (final InvalidTokenException e) {
+			throw e;
+		} catch (final Exception e) {
+			throw new InvalidTokenException("Cannot convert access token to JSON", e);
+		}
+	}
+
+	private static String utf8(String base64url) {
+		return new String(BASE64URL_DECODER.decode(base64url), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Keys are managed by {@link RotatingKeyManager}: nothing to initialize
+	 */
+	@Override
+	public void afterPropertiesSet() {
+	}
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.key;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.Assert;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+
+/**
+ * <p>Signing keys life-cycle:</p>
+ * <ol>
+ * <li>a key is generated one rotation period before it is used for signing: it is published in JWK set as "next"
+ * key, so that resource servers already have it when first tokens signed with it arrive</li>
+ * <li>it then signs tokens during a rotation period ("current" key)</li>
+ * <li>it is then kept for verification and in JWK set until all tokens it signed are expired (max token lifetime)</li>
+ * </ol>
+ *
+ * <p>{@link #maintain()} does rotations, key generation and retirement: it is expected to be called periodically from
+ * a background thread, so that (slow) key generation never happens on requests path. Readers get an immutable
+ * {@link KeySet} with JWK set serialized once per change.</p>
+ *
+ * <p>Rotation period should be longer than resource servers JWK set cache duration.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class RotatingKeyManager {
+	private static final Log LOG = LogFactory.getLog(RotatingKeyManager.class);
+
+	private final Clock clock;
+
+	private final Duration rotationPeriod;
+
+	private final Duration maxTokenLifetime;
+
+	private final Function<Instant, SigningKey> keyGenerator;
+
+	private volatile KeySet keySet;
+
+	/**
+	 * Generates current and next keys
+	 * @param clock time source
+	 * @param rotationPeriod how long a key signs tokens (and is published before that)
+	 * @param maxTokenLifetime how long a key is kept after it stopped signing tokens
+	 * @param keyGenerator creates a key (generation time as argument)
+	 */
+	public RotatingKeyManager(
+			Clock clock,
+			Duration rotationPeriod,
+			Duration maxTokenLifetime,
+			Function<Instant, SigningKey> keyGenerator) {
+		Assert.notNull(clock, "clock can't be null");
+		Assert.isTrue(
+				rotationPeriod != null && !rotationPeriod.isNegative() && !rotationPeriod.isZero(),
+				"rotationPeriod must be positive");
+		Assert.isTrue(maxTokenLifetime != null && !maxTokenLifetime.isNegative(), "maxTokenLifetime can't be negative");
+		Assert.notNull(keyGenerator, "keyGenerator can't be null");
+		this.clock = clock;
+		this.rotationPeriod = rotationPeriod;
+		this.maxTokenLifetime = maxTokenLifetime;
+		this.keyGenerator = keyGenerator;
+		final Instant now = clock.instant();
+		this.keySet = new KeySet(keyGenerator.apply(now), now, keyGenerator.apply(now), List.of());
+	}
+
+	/**
+	 * System UTC clock and RSA 2048 keys
+	 * @param rotationPeriod how long a key signs tokens (and is published before that)
+	 * @param maxTokenLifetime how long a key is kept after it stopped signing tokens
+	 */
+	public RotatingKeyManager(Duration rotationPeriod, Duration maxTokenLifetime) {
+		this(rotationPeriod, maxTokenLifetime, JWSAlgorithm.RS256);
+	}
+
+	/**
+	 * System UTC clock and keys for given JWS algorithm
+	 * @param rotationPeriod how long a key signs tokens (and is published before that)
+	 * @param maxTokenLifetime how long a key is kept after it stopped signing tokens
+	 * @param algorithm one of RS256, ES256 or EdDSA
+	 */
+	public RotatingKeyManager(Duration rotationPeriod, Duration maxTokenLifetime, JWSAlgorithm algorithm) {
+		this(Clock.systemUTC(), rotationPeriod, maxTokenLifetime, keyGenerator(algorithm));
+	}
+
+	/**
+	 * @return key to sign tokens with
+	 */
+	public SigningKey getCurrent() {
+		return keySet.current;
+	}
+
+	/**
+	 * @param kid key ID
+	 * @return current, next or retired but not expired key with this ID
+	 */
+	public Optional<SigningKey> getKey(String kid) {
+		return kid == null ? Optional.empty() : Optional.ofNullable(keySet.byKid.get(kid));
+	}
+
+	public KeySet getKeySet() {
+		return keySet;
+	}
+
+	/**
+	 * Drops expired retired keys, rotates keys if current one signed tokens for a whole rotation period and
+	 * generates the next key. Slow when a key is generated: call it from a background thread.
+	 */
+	public synchronized void maintain() {
+		final KeySet previous = keySet;
+		final Instant now = clock.instant();
+		final List<RetiredKey> retired = previous.retired.stream()
+				.filter(key -> now.isBefore(key.retireAt))
+				.collect(Collectors.toCollection(ArrayList::new));
+
+		if (now.isBefore(previous.currentSince.plus(rotationPeriod))) {
+			if (retired.size() != previous.retired.size()) {
+				keySet = new KeySet(previous.current, previous.currentSince, previous.next, retired);
+			}
+			return;
+		}
+
+		retired.add(0, new RetiredKey(previous.current, now.plus(maxTokenLifetime)));
+		final SigningKey next = keyGenerator.apply(now);
+		keySet = new KeySet(previous.next, now, next, retired);
+		previous.current.retire();
+		LOG.info(
+				String.format(
+						"Signing key rotated: %s is current, %s is next, %d retired",
+						previous.next.getKid(),
+						next.getKid(),
+						retired.size()));
+	}
+
+	/**
+	 * @param algorithm one of RS256 (RSA 2048), ES256 (P-256 curve) or EdDSA (Ed25519 curve, Java 15+)
+	 * @return key generator for this algorithm
+	 * @throws IllegalStateException if JCA provider does not support EdDSA (before Java 15)
+	 */
+	public static Function<Instant, SigningKey> keyGenerator(JWSAlgorithm algorithm) {
+		if (JWSAlgorithm.RS256.equals(algorithm)) {
+			return RotatingKeyManager::generateRsaKey;
+		}
+		if (JWSAlgorithm.ES256.equals(algorithm)) {
+			return RotatingKeyManager::generateEcKey;
+		}
+		if (JWSAlgorithm.EdDSA.equals(algorithm)) {
+			requireJcaSupport(SigningKey.ED25519);
+			return RotatingKeyManager::generateEd25519Key;
+		}
+		throw new IllegalArgumentException("Unsupported signing algorithm: " + algorithm);
+	}
+
+	/**
+	 * @param algorithm one of RS256, ES256 or EdDSA
+	 * @return if keys for this algorithm can be generated and used on this JVM (EdDSA requires Java 15+)
+	 */
+	public static boolean isSupported(JWSAlgorithm algorithm) {
+		if (JWSAlgorithm.RS256.equals(algorithm) || JWSAlgorithm.ES256.equals(algorithm)) {
+			return true;
+		}
+		return JWSAlgorithm.EdDSA.equals(algorithm) && isJcaSupported(SigningKey.ED25519);
+	}
+
+	static void requireJcaSupport(String jcaAlgorithm) {
+		if (!isJcaSupported(jcaAlgorithm)) {
+			throw new IllegalStateException(
+					jcaAlgorithm + " is not supported by JCA provider (Ed25519 requires Java 15+): "
+							+ "set showcase.jwt.signing-algorithm to RS256 or ES256");
+		}
+	}
+
+	static boolean isJcaSupported(String jcaAlgorithm) {
+		try {
+			KeyPairGenerator.getInstance(jcaAlgorithm);
+			Signature.getInstance(jcaAlgorithm);
+			return true;
+		} catch (final NoSuchAlgorithmException e) {
+			return false;
+		}
+	}
+
+	static SigningKey generateRsaKey(Instant createdAt) {
+		try {
+			final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+			generator.initialize(2048);
+			return SigningKey.rsa(generator.generateKeyPair(), createdAt);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException("RSA is not available", e);
+		}
+	}
+
+	static SigningKey generateEcKey(Instant createdAt) {
+		try {
+			final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+			generator.initialize(new ECGenParameterSpec("secp256r1"));
+			return SigningKey.ec(generator.generateKeyPair(), createdAt);
+		} catch (final GeneralSecurityException e) {
+			throw new IllegalStateException("EC P-256 is not available", e);
+		}
+	}
+
+	static SigningKey generateEd25519Key(Instant createdAt) {
+		try {
+			return SigningKey.ed25519(KeyPairGenerator.getInstance(SigningKey.ED25519).generateKeyPair(), createdAt);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Ed25519 is not available (requires Java 15+)", e);
+		}
+	}
+
+	/**
+	 * Immutable snapshot of keys with its serialized public JWK set
+	 */
+	public static final class KeySet {
+		private final SigningKey current;
+
+		private final Instant currentSince;
+
+		private final SigningKey next;
+
+		private final List<RetiredKey> retired;
+
+		private final Map<String, SigningKey> byKid;
+
+		private final byte[] jwkSet;
+
+		private final String etag;
+
+		private KeySet(SigningKey current, Instant currentSince, SigningKey next, List<RetiredKey> retired) {
+			this.current = current;
+			this.currentSince = currentSince;
+			this.next = next;
+			this.retired = Collections.unmodifiableList(retired);
+
+			final List<SigningKey> keys = Stream
+					.concat(Stream.of(current, next), retired.stream().map(key -> key.key))
+					.collect(Collectors.toList());
+			this.byKid = keys.stream().collect(Collectors.toUnmodifiableMap(SigningKey::getKid, key -> key));
+			final List<JWK> jwks = keys.stream().map(SigningKey::getPublicJwk).collect(Collectors.toList());
+			this.jwkSet = new JWKSet(jwks).toJSONObject(true).toJSONString().getBytes(StandardCharsets.UTF_8);
+			this.etag = '"' + sha256(jwkSet) + '"';
+		}
+
+		/**
+		 * @return public keys (current, next, then retired) as JWK set JSON
+		 */
+		public byte[] getJwkSet() {
+			return jwkSet;
+		}
+
+		/**
+		 * @return strong ETag for JWK set
+		 */
+		public String getEtag() {
+			return etag;
+		}
+
+		private static String sha256(byte[] bytes) {
+			try {
+				final byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+				return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+			} catch (final NoSuchAlgorithmException e) {
+				throw new IllegalStateException("SHA-256 is not available", e);
+			}
+		}
+	}
+
+	private static final class RetiredKey {
+		final SigningKey key;
+
+		final Instant retireAt;
+
+		RetiredKey(SigningKey key, Instant retireAt) {
+			this.key = key;
+			this.retireAt = retireAt;
+		}
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.key;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+
+import org.springframework.security.jwt.crypto.sign.RsaVerifier;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.security.jwt.crypto.sign.Signer;
+import org.springframework.util.Assert;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.util.Base64URL;
+
+/**
+ * A key pair with everything needed to sign and verify tokens and to publish it: its
+ * <a target="_blank" href="https://tools.ietf.org/html/rfc7638">RFC 7638 thumbprint</a> as key ID, public JWK,
+ * JWS algorithm, cached signer and verifier.
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public final class SigningKey {
+	/**
+	 * JCA name of EdDSA on Ed25519 curve, supported by default provider since Java 15 only
+	 */
+	static final String ED25519 = "Ed25519";
+
+	private final String kid;
+
+	private final JWSAlgorithm algorithm;
+
+	private final JWK publicJwk;
+
+	private final CachedSignatureSigner signer;
+
+	private final SignatureVerifier verifier;
+
+	private final Instant createdAt;
+
+	private final byte[] encodedHeader;
+
+	private SigningKey(
+			String kid,
+			JWSAlgorithm algorithm,
+			JWK publicJwk,
+			CachedSignatureSigner signer,
+			SignatureVerifier verifier,
+			Instant createdAt) {
+		this.kid = kid;
+		this.algorithm = algorithm;
+		this.publicJwk = publicJwk;
+		this.signer = signer;
+		this.verifier = verifier;
+		this.createdAt = createdAt;
+		final String header = "{\"alg\":\"" + algorithm.getName() + "\",\"typ\":\"JWT\",\"kid\":\"" + kid + "\"}";
+		this.encodedHeader = Base64.getUrlEncoder().withoutPadding().encode(header.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @param keyPair RSA key pair
+	 * @param createdAt when the key was generated
+	 * @return RS256 signing key
+	 */
+	public static SigningKey rsa(KeyPair keyPair, Instant createdAt) {
+		Assert.notNull(keyPair, "keyPair can't be null");
+		Assert.notNull(createdAt, "createdAt can't be null");
+		final RSAKey jwk;
+		try {
+			jwk = new RSAKey.Builder((RSAPublicKey) keyPair.getPublic())
+					.keyUse(KeyUse.SIGNATURE)
+					.algorithm(JWSAlgorithm.RS256)
+					.keyIDFromThumbprint()
+					.build();
+		} catch (final JOSEException e) {
+			throw new IllegalStateException("Could not compute JWK thumbprint", e);
+		}
+		return new SigningKey(
+				jwk.getKeyID(),
+				JWSAlgorithm.RS256,
+				jwk,
+				new CachedSignatureSigner("SHA256withRSA", (RSAPrivateKey) keyPair.getPrivate()),
+				new RsaVerifier((RSAPublicKey) keyPair.getPublic()),
+				createdAt);
+	}
+
+	/**
+	 * @param keyPair EC key pair on P-256 curve
+	 * @param createdAt when the key was generated
+	 * @return ES256 signing key
+	 */
+	public static SigningKey ec(KeyPair keyPair, Instant createdAt) {
+		Assert.notNull(keyPair, "keyPair can't be null");
+		Assert.notNull(createdAt, "createdAt can't be null");
+		final ECKey jwk;
+		try {
+			jwk = new ECKey.Builder(Curve.P_256, (ECPublicKey) keyPair.getPublic())
+					.keyUse(KeyUse.SIGNATURE)
+					.algorithm(JWSAlgorithm.ES256)
+					.keyIDFromThumbprint()
+					.build();
+		} catch (final JOSEException e) {
+			throw new IllegalStateException("Could not compute JWK thumbprint", e);
+		}
+		// JWS wants R || S concatenation (RFC 7518 section 3.4), not JCA default DER encoding
+		final String jcaAlgorithm = "SHA256withECDSAinP1363Format";
+		return new SigningKey(
+				jwk.getKeyID(),
+				JWSAlgorithm.ES256,
+				jwk,
+				new CachedSignatureSigner(jcaAlgorithm, keyPair.getPrivate()),
+				new JcaSignatureVerifier(jcaAlgorithm, keyPair.getPublic()),
+				createdAt);
+	}
+
+	/**
+	 * Requires a JCA provider supporting Ed25519 (default one since Java 15)
+	 * @param keyPair Ed25519 key pair
+	 * @param createdAt when the key was generated
+	 * @return EdDSA signing key
+	 */
+	public static SigningKey ed25519(KeyPair keyPair, Instant createdAt) {
+		Assert.notNull(keyPair, "keyPair can't be null");
+		Assert.notNull(createdAt, "createdAt can't be null");
+		// X.509 encoding of an Ed25519 public key ends with the 32 bytes RFC 8037 "x" parameter
+		final byte[] encoded = keyPair.getPublic().getEncoded();
+		final OctetKeyPair jwk;
+		try {
+			jwk = new OctetKeyPair.Builder(
+					Curve.Ed25519,
+					Base64URL.encode(Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length)))
+							.keyUse(KeyUse.SIGNATURE)
+							.algorithm(JWSAlgorithm.EdDSA)
+							.keyIDFromThumbprint()
+							.build();
+		} catch (final JOSEException e) {
+			throw new IllegalStateException("Could not compute JWK thumbprint", e);
+		}
+		return new SigningKey(
+				jwk.getKeyID(),
+				JWSAlgorithm.EdDSA,
+				jwk,
+				new CachedSignatureSigner(ED25519, keyPair.getPrivate()),
+				new JcaSignatureVerifier(ED25519, keyPair.getPublic()),
+				createdAt);
+	}
+
+	public String getKid() {
+		return kid;
+	}
+
+	/**
+	 * @return JWS {@code alg} header value for tokens signed with this key
+	 */
+	public JWSAlgorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * @return JWK with public key only
+	 */
+	public JWK getPublicJwk() {
+		return publicJwk;
+	}
+
+	public Signer getSigner() {
+		return signer;
+	}
+
+	public SignatureVerifier getVerifier() {
+		return verifier;
+	}
+
+	/**
+	 * Releases signer pooled resources once this key stopped signing (it is still used for verification)
+	 */
+	void retire() {
+		signer.clear();
+	}
+
+	/**
+	 * @return base64url encoded JOSE header ({@code alg}, {@code typ} and {@code kid}) for tokens signed with this key,
+	 * as ASCII bytes (shared: not to be modified)
+	 */
+	byte[] getEncodedHeader() {
+		return encodedHeader;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+}
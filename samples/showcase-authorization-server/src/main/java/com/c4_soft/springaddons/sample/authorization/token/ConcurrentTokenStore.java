@@ -0,0 +1,375 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.token;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AuthenticationKeyGenerator;
+import org.springframework.security.oauth2.provider.token.DefaultAuthenticationKeyGenerator;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.security.oauth2.provider.token.store.InMemoryTokenStore;
+import org.springframework.util.Assert;
+
+import com.c4_soft.oauth2.ExpiryTimingWheel;
+
+/**
+ * <p>Drop-in replacement for {@link InMemoryTokenStore} under concurrent load: no {@code synchronized} block and no
+ * periodic flush.</p>
+ *
+ * <ul>
+ * <li>an access token, its authentication and its links to other indexes are a single entry of a concurrent map (one
+ * lookup per read, no partially stored token visible from another index)</li>
+ * <li>indexes by refresh token, authentication key, client and (client, user) are concurrent maps of access token
+ * values, updated atomically per key</li>
+ * <li>refresh tokens and their authentication are a single entry too</li>
+ * <li>expired tokens are removed by {@link ExpiryTimingWheel}s, striped by token value hash so that concurrent
+ * issuances do not contend on a single wheel lock: cleanup cost is proportional to the count of expired tokens, not to
+ * store size</li>
+ * </ul>
+ *
+ * <p>There is no cleanup thread: wheels are advanced when tokens are stored, reads are plain map lookups (like
+ * {@link InMemoryTokenStore}, an expired token may be returned until it is removed: token services check expiration).
+ * Call {@link #purge()} from a scheduler to release memory when no token is issued.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class ConcurrentTokenStore implements TokenStore {
+
+	private final Map<String, AccessEntry> accessTokens = new ConcurrentHashMap<>();
+
+	private final Map<String, RefreshEntry> refreshTokens = new ConcurrentHashMap<>();
+
+	private final Map<String, String> accessByRefresh = new ConcurrentHashMap<>();
+
+	private final Map<String, String> accessByAuthenticationKey = new ConcurrentHashMap<>();
+
+	private final Map<String, Set<String>> accessByClient = new ConcurrentHashMap<>();
+
+	private final Map<String, Set<String>> accessByClientAndUser = new ConcurrentHashMap<>();
+
+	private final ExpiryTimingWheel<String>[] accessExpiries;
+
+	private final ExpiryTimingWheel<String>[] refreshExpiries;
+
+	private final int stripesMask;
+
+	private final AuthenticationKeyGenerator authenticationKeyGenerator;
+
+	/**
+	 * @param clock time source
+	 * @param tick expired tokens cleanup granularity
+	 * @param stripes count of expiry wheels (rounded up to a power of two)
+	 * @param authenticationKeyGenerator same as {@link InMemoryTokenStore#setAuthenticationKeyGenerator}
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentTokenStore(
+			Clock clock,
+			Duration tick,
+			int stripes,
+			AuthenticationKeyGenerator authenticationKeyGenerator) {
+		Assert.isTrue(stripes > 0, "stripes must be positive");
+		Assert.notNull(authenticationKeyGenerator, "authenticationKeyGenerator can't be null");
+		final int stripesCount = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+		this.stripesMask = stripesCount - 1;
+		this.accessExpiries = new ExpiryTimingWheel[stripesCount];
+		this.refreshExpiries = new ExpiryTimingWheel[stripesCount];
+		for (int i = 0; i < stripesCount; ++i) {
+			accessExpiries[i] = new ExpiryTimingWheel<>(clock, tick, this::removeAccessToken);
+			refreshExpiries[i] = new ExpiryTimingWheel<>(clock, tick, this::removeRefreshToken);
+		}
+		this.authenticationKeyGenerator = authenticationKeyGenerator;
+	}
+
+	/**
+	 * System UTC clock, one second cleanup granularity, one expiry wheel per available processor and default
+	 * authentication key generator
+	 */
+	public ConcurrentTokenStore() {
+		this(
+				Clock.systemUTC(),
+				Duration.ofSeconds(1),
+				Runtime.getRuntime().availableProcessors(),
+				new DefaultAuthenticationKeyGenerator());
+	}
+
+	/**
+	 * Removes expired tokens. Not required (storing tokens does it already), but can be scheduled to release memory
+	 * when no token is issued.
+	 */
+	public void purge() {
+		for (int i = 0; i <= stripesMask; ++i) {
+			accessExpiries[i].advance();
+			refreshExpiries[i].advance();
+		}
+	}
+
+	/**
+	 * @return count of access tokens in the store (including expired ones not removed yet)
+	 */
+	public int getAccessTokenCount() {
+		return accessTokens.size();
+	}
+
+	/**
+	 * @return count of refresh tokens in the store (including expired ones not removed yet)
+	 */
+	public int getRefreshTokenCount() {
+		return refreshTokens.size();
+	}
+
+	@Override
+	public void storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+		purge();
+		final String value = token.getValue();
+		final OAuth2RefreshToken refreshToken = token.getRefreshToken();
+		final AccessEntry entry = new AccessEntry(
+				token,
+				authentication,
+				authenticationKeyGenerator.extractKey(authentication),
+				authentication.getOAuth2Request().getClientId(),
+				authentication.isClientOnly() ? null : approvalKey(authentication),
+				refreshToken == null ? null : refreshToken.getValue());
+
+		final AccessEntry previous = accessTokens.put(value, entry);
+		if (previous != null) {
+			unindex(value, previous);
+		}
+		accessByAuthenticationKey.put(entry.authenticationKey, value);
+		addTo(accessByClient, entry.clientId, value);
+		if (entry.clientAndUserKey != null) {
+			addTo(accessByClientAndUser, entry.clientAndUserKey, value);
+		}
+		if (entry.refreshValue != null) {
+			accessByRefresh.put(entry.refreshValue, value);
+		}
+		if (token.getExpiration() != null
+				&& !expiries(accessExpiries, value).schedule(value, token.getExpiration().toInstant())) {
+			removeAccessToken(value);
+		}
+	}
+
+	@Override
+	public OAuth2AccessToken readAccessToken(String tokenValue) {
+		final AccessEntry entry = accessTokens.get(tokenValue);
+		return entry == null ? null : entry.token;
+	}
+
+	@Override
+	public OAuth2Authentication readAuthentication(OAuth2AccessToken token) {
+		return readAuthentication(token.getValue());
+	}
+
+	@Override
+	public OAuth2Authentication readAuthentication(String token) {
+		final AccessEntry entry = accessTokens.get(token);
+		return entry == null ? null : entry.authentication;
+	}
+
+	@Override
+	public void removeAccessToken(OAuth2AccessToken accessToken) {
+		final String value = accessToken.getValue();
+		expiries(accessExpiries, value).cancel(value);
+		removeAccessToken(value);
+	}
+
+	@Override
+	public void storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+		purge();
+		final String value = refreshToken.getValue();
+		refreshTokens.put(value, new RefreshEntry(refreshToken, authentication));
+		if (refreshToken instanceof ExpiringOAuth2RefreshToken) {
+			final ExpiringOAuth2RefreshToken expiring = (ExpiringOAuth2RefreshToken) refreshToken;
+			if (expiring.getExpiration() != null
+					&& !expiries(refreshExpiries, value).schedule(value, expiring.getExpiration().toInstant())) {
+				removeRefreshToken(value);
+			}
+		}
+	}
+
+	@Override
+	public OAuth2RefreshToken readRefreshToken(String tokenValue) {
+		final RefreshEntry entry = refreshTokens.get(tokenValue);
+		return entry == null ? null : entry.token;
+	}
+
+	@Override
+	public OAuth2Authentication readAuthenticationForRefreshToken(OAuth2RefreshToken token) {
+		final RefreshEntry entry = refreshTokens.get(token.getValue());
+		return entry == null ? null : entry.authentication;
+	}
+
+	@Override
+	public void removeRefreshToken(OAuth2RefreshToken token) {
+		final String value = token.getValue();
+		expiries(refreshExpiries, value).cancel(value);
+		removeRefreshToken(value);
+	}
+
+	@Override
+	public void removeAccessTokenUsingRefreshToken(OAuth2RefreshToken refreshToken) {
+		final String accessValue = accessByRefresh.remove(refreshToken.getValue());
+		if (accessValue != null) {
+			expiries(accessExpiries, accessValue).cancel(accessValue);
+			removeAccessToken(accessValue);
+		}
+	}
+
+	@Override
+	public OAuth2AccessToken getAccessToken(OAuth2Authentication authentication) {
+		final String key = authenticationKeyGenerator.extractKey(authentication);
+		final String value = accessByAuthenticationKey.get(key);
+		if (value == null) {
+			return null;
+		}
+		final AccessEntry entry = accessTokens.get(value);
+		if (entry == null) {
+			return null;
+		}
+		if (!Objects.equals(key, authenticationKeyGenerator.extractKey(entry.authentication))) {
+			// Keep the store consistent (maybe the same user is represented by this authentication but the details have
+			// changed)
+			storeAccessToken(entry.token, authentication);
+		}
+		return entry.token;
+	}
+
+	@Override
+	public Collection<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String userName) {
+		return tokens(accessByClientAndUser.get(approvalKey(clientId, userName)));
+	}
+
+	@Override
+	public Collection<OAuth2AccessToken> findTokensByClientId(String clientId) {
+		return tokens(accessByClient.get(clientId));
+	}
+
+	private void removeAccessToken(String value) {
+		final AccessEntry removed = accessTokens.remove(value);
+		if (removed != null) {
+			unindex(value, removed);
+		}
+	}
+
+	private void removeRefreshToken(String value) {
+		refreshTokens.remove(value);
+		accessByRefresh.remove(value);
+	}
+
+	private void unindex(String value, AccessEntry entry) {
+		accessByAuthenticationKey.remove(entry.authenticationKey, value);
+		removeFrom(accessByClient, entry.clientId, value);
+		if (entry.clientAndUserKey != null) {
+			removeFrom(accessByClientAndUser, entry.clientAndUserKey, value);
+		}
+		if (entry.refreshValue != null) {
+			accessByRefresh.remove(entry.refreshValue, value);
+		}
+	}
+
+	private Collection<OAuth2AccessToken> tokens(Set<String> values) {
+		if (values == null) {
+			return List.of();
+		}
+		return values.stream()
+				.map(accessTokens::get)
+				.filter(Objects::nonNull)
+				.map(entry -> entry.token)
+				.collect(Collectors.toList());
+	}
+
+	private ExpiryTimingWheel<String> expiries(ExpiryTimingWheel<String>[] stripes, String tokenValue) {
+		final int h = tokenValue.hashCode();
+		return stripes[(h ^ (h >>> 16)) & stripesMask];
+	}
+
+	private static void addTo(Map<String, Set<String>> index, String key, String value) {
+		index.compute(key, (k, values) -> {
+			final Set<String> updated = values == null ? ConcurrentHashMap.newKeySet() : values;
+			updated.add(value);
+			return updated;
+		});
+	}
+
+	private static void removeFrom(Map<String, Set<String>> index, String key, String value) {
+		index.computeIfPresent(key, (k, values) -> {
+			values.remove(value);
+			return values.isEmpty() ? null : values;
+		});
+	}
+
+	private static String approvalKey(OAuth2Authentication authentication) {
+		final String userName =
+				authentication.getUserAuthentication() == null ? "" : authentication.getUserAuthentication().getName();
+		return approvalKey(authentication.getOAuth2Request().getClientId(), userName);
+	}
+
+	private static String approvalKey(String clientId, String userName) {
+		return clientId + (userName == null ? "" : ":" + userName);
+	}
+
+	private static final class AccessEntry {
+		final OAuth2AccessToken token;
+
+		final OAuth2Authentication authentication;
+
+		final String authenticationKey;
+
+		final String clientId;
+
+		final String clientAndUserKey;
+
+		final String refreshValue;
+
+		AccessEntry(
+				OAuth2AccessToken token,
+				OAuth2Authentication authentication,
+				String authenticationKey,
+				String clientId,
+				String clientAndUserKey,
+				String refreshValue) {
+			this.token = token;
+			this.authentication = authentication;
+			this.authenticationKey = authenticationKey;
+			this.clientId = clientId;
+			this.clientAndUserKey = clientAndUserKey;
+			this.refreshValue = refreshValue;
+		}
+	}
+
+	private static final class RefreshEntry {
+		final OAuth2RefreshToken token;
+
+		final OAuth2Authentication authentication;
+
+		RefreshEntry(OAuth2RefreshToken token, OAuth2Authentication authentication) {
+			this.token = token;
+			this.authentication = authentication;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.token;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.springframework.security.oauth2.provider.token.TokenStore;
+
+import com.c4_soft.oauth2.rfc7662.IntrospectionClaimNames;
+
+/**
+ * {@link TokenStore} serving serialized introspection responses
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public interface IntrospectingTokenStore extends TokenStore {
+
+	/**
+	 * Response for unknown, revoked and expired tokens
+	 */
+	byte[] INACTIVE = ("{\"" + IntrospectionClaimNames.ACTIVE.value + "\":false}").getBytes(StandardCharsets.UTF_8);
+
+	/**
+	 * @param tokenValue access token as received by introspection endpoint
+	 * @return serialized introspection response if the token is active
+	 */
+	Optional<byte[]> introspect(String tokenValue);
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.token;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.util.Assert;
+
+import com.c4_soft.oauth2.ExpiryTimingWheel;
+import com.c4_soft.oauth2.TokenHash;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>{@link TokenStore} decorator serializing the introspection response of each access token once, when it is issued.
+ * Introspection is then a hash lookup returning bytes to write as is: no token store reads, no attributes map and no
+ * JSON serialization per request.</p>
+ *
+ * <p>Responses are keyed by {@link TokenHash token hash} and dropped when the token is removed or expires: an entry is
+ * never served at or after token expiration (deadline is checked on each read) and its memory is released by an
+ * {@link ExpiryTimingWheel} at most one tick later.</p>
+ *
+ * <p>Responses are on heap, so memory grows with active tokens count: {@link MappedTokenStore} keeps them in its
+ * records instead, and needs no decoration.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class IntrospectionPrecomputingTokenStore implements IntrospectingTokenStore {
+
+	private final TokenStore delegate;
+
+	private final IntrospectionResponseSerializer serializer;
+
+	private final Clock clock;
+
+	private final Map<String, Entry> responses = new ConcurrentHashMap<>();
+
+	private final Map<String, String> accessHashByRefreshHash = new ConcurrentHashMap<>();
+
+	private final ExpiryTimingWheel<String> expiries;
+
+	/**
+	 * @param delegate actual token store
+	 * @param authoritiesClaim if user authorities (filtered by token scopes) should be added to responses
+	 * @param objectMapper serializes responses
+	 * @param clock time source
+	 * @param tick memory release granularity for expired tokens responses
+	 */
+	public IntrospectionPrecomputingTokenStore(
+			TokenStore delegate,
+			boolean authoritiesClaim,
+			ObjectMapper objectMapper,
+			Clock clock,
+			Duration tick) {
+		Assert.notNull(delegate, "delegate can't be null");
+		Assert.notNull(clock, "clock can't be null");
+		this.delegate = delegate;
+		this.serializer = new IntrospectionResponseSerializer(authoritiesClaim, objectMapper);
+		this.clock = clock;
+		this.expiries = new ExpiryTimingWheel<>(clock, tick, this::evict);
+	}
+
+	/**
+	 * System UTC clock and one second granularity
+	 * @param delegate actual token store
+	 * @param authoritiesClaim if user authorities (filtered by token scopes) should be added to responses
+	 */
+	public IntrospectionPrecomputingTokenStore(TokenStore delegate, boolean authoritiesClaim) {
+		this(delegate, authoritiesClaim, new ObjectMapper(), Clock.systemUTC(), Duration.ofSeconds(1));
+	}
+
+	@Override
+	public Optional<byte[]> introspect(String tokenValue) {
+		expiries.advance();
+		if (tokenValue == null || tokenValue.isEmpty()) {
+			return Optional.empty();
+		}
+		final Entry entry = responses.get(TokenHash.of(tokenValue));
+		if (entry == null) {
+			return precomputeFromDelegate(tokenValue);
+		}
+		if (!clock.instant().isBefore(entry.expiresAt)) {
+			return Optional.empty();
+		}
+		return Optional.of(entry.response);
+	}
+
+	/**
+	 * @return count of precomputed responses (active tokens, plus expired ones not released yet)
+	 */
+	public int size() {
+		return responses.size();
+	}
+
+	@Override
+	public void storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+		delegate.storeAccessToken(token, authentication);
+		precompute(token, authentication, false);
+	}
+
+	/**
+	 * Tokens issued before this decorator was instantiated (persistent delegate and server restart) have no
+	 * precomputed response yet: it is computed on first introspection. The token might be removed between delegate
+	 * reads and response caching, so its presence is checked again when caching.
+	 */
+	private Optional<byte[]> precomputeFromDelegate(String tokenValue) {
+		final OAuth2AccessToken token = delegate.readAccessToken(tokenValue);
+		if (token == null) {
+			return Optional.empty();
+		}
+		final OAuth2Authentication authentication = delegate.readAuthentication(tokenValue);
+		if (authentication == null) {
+			return Optional.empty();
+		}
+		return Optional.ofNullable(precompute(token, authentication, true));
+	}
+
+	/**
+	 * @param checkDelegate if the token should still be in the delegate for the response to be cached
+	 * @return precomputed response, or null if the token is expired or was removed from the delegate
+	 */
+	private byte[] precompute(OAuth2AccessToken token, OAuth2Authentication authentication, boolean checkDelegate) {
+		final String hash = TokenHash.of(token.getValue());
+		final Instant expiresAt = token.getExpiration() == null ? Instant.MAX : token.getExpiration().toInstant();
+		if (!clock.instant().isBefore(expiresAt)) {
+			return null;
+		}
+		final String refreshHash =
+				token.getRefreshToken() == null ? null : TokenHash.of(token.getRefreshToken().getValue());
+		final Entry entry = new Entry(serializer.serialize(token, authentication), expiresAt, refreshHash);
+		// removals drop responses after removing the token from the delegate: checking it under the entry lock ensures
+		// a removal either prevents caching or drops what was cached
+		final Entry cached = responses.compute(hash, (key, current) -> {
+			if (checkDelegate && delegate.readAccessToken(token.getValue()) == null) {
+				return current;
+			}
+			if (refreshHash != null) {
+				accessHashByRefreshHash.put(refreshHash, hash);
+			}
+			return entry;
+		});
+		if (cached != entry) {
+			return null;
+		}
+		if (expiresAt != Instant.MAX && !expiries.schedule(hash, expiresAt)) {
+			evict(hash);
+			return null;
+		}
+		return entry.response;
+	}
+
+	@Override
+	public void removeAccessToken(OAuth2AccessToken token) {
+		delegate.removeAccessToken(token);
+		drop(TokenHash.of(token.getValue()));
+	}
+
+	@Override
+	public void removeAccessTokenUsingRefreshToken(OAuth2RefreshToken refreshToken) {
+		delegate.removeAccessTokenUsingRefreshToken(refreshToken);
+		final String accessHash = accessHashByRefreshHash.remove(TokenHash.of(refreshToken.getValue()));
+		if (accessHash != null) {
+			drop(accessHash);
+		}
+	}
+
+	@Override
+	public void removeRefreshToken(OAuth2RefreshToken token) {
+		delegate.removeRefreshToken(token);
+	}
+
+	@Override
+	public OAuth2Authentication readAuthentication(OAuth2AccessToken token) {
+		return delegate.readAuthentication(token);
+	}
+
+	@Override
+	public OAuth2Authentication readAuthentication(String token) {
+		return delegate.readAuthentication(token);
+	}
+
+	@Override
+	public OAuth2AccessToken readAccessToken(String tokenValue) {
+		return delegate.readAccessToken(tokenValue);
+	}
+
+	@Override
+	public void storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+		delegate.storeRefreshToken(refreshToken, authentication);
+	}
+
+	@Override
+	public OAuth2RefreshToken readRefreshToken(String tokenValue) {
+		return delegate.readRefreshToken(tokenValue);
+	}
+
+	@Override
+	public OAuth2Authentication readAuthenticationForRefreshToken(OAuth2RefreshToken token) {
+		return delegate.readAuthenticationForRefreshToken(token);
+	}
+
+	@Override
+	public OAuth2AccessToken getAccessToken(OAuth2Authentication authentication) {
+		return delegate.getAccessToken(authentication);
+	}
+
+	@Override
+	public Collection<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String userName) {
+		return delegate.findTokensByClientIdAndUserName(clientId, userName);
+	}
+
+	@Override
+	public Collection<OAuth2AccessToken> findTokensByClientId(String clientId) {
+		return delegate.findTokensByClientId(clientId);
+	}
+
+	private void drop(String accessHash) {
+		expiries.cancel(accessHash);
+		evict(accessHash);
+	}
+
+	private void evict(String accessHash) {
+		final Entry evicted = responses.remove(accessHash);
+		if (evicted != null && evicted.refreshHash != null) {
+			accessHashByRefreshHash.remove(evicted.refreshHash, accessHash);
+		}
+	}
+
+	private static final class Entry {
+		final byte[] response;
+
+		final Instant expiresAt;
+
+		final String refreshHash;
+
+		Entry(byte[] response, Instant expiresAt, String refreshHash) {
+			this.response = response;
+			this.expiresAt = expiresAt;
+			this.refreshHash = refreshHash;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.token;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.util.Assert;
+
+import com.c4_soft.oauth2.rfc7662.IntrospectionClaimNames;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Serializes the introspection response of an active access token, once, when it is issued
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class IntrospectionResponseSerializer {
+	private final boolean authoritiesClaim;
+
+	private final ObjectMapper objectMapper;
+
+	/**
+	 * @param authoritiesClaim if user authorities (filtered by token scopes) should be added to responses
+	 * @param objectMapper serializes responses
+	 */
+	public IntrospectionResponseSerializer(boolean authoritiesClaim, ObjectMapper objectMapper) {
+		Assert.notNull(objectMapper, "objectMapper can't be null");
+		this.authoritiesClaim = authoritiesClaim;
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * @param authoritiesClaim if user authorities (filtered by token scopes) should be added to responses
+	 */
+	public IntrospectionResponseSerializer(boolean authoritiesClaim) {
+		this(authoritiesClaim, new ObjectMapper());
+	}
+
+	public byte[] serialize(OAuth2AccessToken token, OAuth2Authentication authentication) {
+		final Map<String, Object> attributes = new LinkedHashMap<>();
+		attributes.put(IntrospectionClaimNames.ACTIVE.value, true);
+		attributes.putAll(token.getAdditionalInformation());
+		attributes.put(IntrospectionClaimNames.SUBJECT.value, authentication.getName());
+		attributes.put(IntrospectionClaimNames.USERNAME.value, authentication.getName());
+		if (token.getExpiration() != null) {
+			attributes.put(IntrospectionClaimNames.EXPIRES_AT.value, token.getExpiration().getTime() / 1000);
+		}
+
+		final Set<String> scopes = token.getScope();
+		attributes.put(IntrospectionClaimNames.SCOPE.value, scopes.stream().collect(Collectors.joining(" ")));
+
+		if (authoritiesClaim && authentication.getAuthorities().size() > 0) {
+			attributes.put(
+					"authorities",
+					authentication.getAuthorities()
+							.stream()
+							.map(GrantedAuthority::getAuthority)
+							.filter(a -> scopes.contains(a.split(":")[0]))
+							.collect(Collectors.toCollection(TreeSet::new)));
+		}
+
+		try {
+			return objectMapper.writeValueAsBytes(attributes);
+		} catch (final JsonProcessingException e) {
+			throw new IllegalStateException("Could not serialize introspection response", e);
+		}
+	}
+}
@@ -0,0 +1,1106 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.token;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.common.util.SerializationUtils;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AuthenticationKeyGenerator;
+import org.springframework.security.oauth2.provider.token.DefaultAuthenticationKeyGenerator;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.util.Assert;
+
+/**
+ * <p>File-backed {@link TokenStore}: tokens survive restarts and heap usage does not depend on the count of tokens.</p>
+ *
+ * <ul>
+ * <li>each store or remove operation appends a record to a memory-mapped, append-only segment file (tokens and
+ * authentications are serialized the same way as {@code JdbcTokenStore} does)</li>
+ * <li>records are located by {@link OffHeapHashIndex}es (mapped files too) by access token, refresh token,
+ * authentication key and refresh token to access token</li>
+ * <li>when the active segment is full, a new one is started, and the oldest segment is compacted if less than half of
+ * its records are live (neither replaced, removed nor expired): live records are copied to the active segment and the
+ * file is deleted. {@link #compact()} does the same for all sealed segments</li>
+ * <li>on {@link #close() close}, indexes and segments are flushed and a checkpoint is written: next start just maps
+ * files (milliseconds, whatever the count of tokens). After a crash (no checkpoint), indexes are rebuilt from segments,
+ * stopping at the first torn or corrupted record (records have a length, written last, and a CRC)</li>
+ * </ul>
+ *
+ * <p>Records are in OS page cache as soon as written: a process crash loses nothing. OS crash durability is up to the
+ * last {@link #flush()} (segments are also flushed when sealed).</p>
+ *
+ * <p>Access token records also hold the introspection response, serialized once when the token is stored:
+ * {@link #introspect(String)} copies it from the segment, deserializing nothing.</p>
+ *
+ * <p>Reads share a lock and writes are exclusive. Expired tokens are never returned. Searches by client and user scan
+ * all live records.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class MappedTokenStore implements IntrospectingTokenStore, Closeable {
+	static final int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+
+	static final byte ACCESS_PUT = 1;
+
+	static final byte ACCESS_REMOVE = 2;
+
+	static final byte REFRESH_PUT = 3;
+
+	static final byte REFRESH_REMOVE = 4;
+
+	/**
+	 * Record string fields, in encoding order
+	 */
+	private static final int KEY = 0;
+
+	private static final int AUTHENTICATION_KEY = 1;
+
+	private static final int REFRESH_VALUE = 2;
+
+	private static final Log LOG = LogFactory.getLog(MappedTokenStore.class);
+
+	private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d{8})\\.log");
+
+	private static final long META_MAGIC = 0x4334_544f_4b45_4e01L;
+
+	private static final int META_BYTES = 32;
+
+	private static final double COMPACTION_THRESHOLD = .5;
+
+	private final Path directory;
+
+	private final int segmentBytes;
+
+	private final Clock clock;
+
+	private final AuthenticationKeyGenerator authenticationKeyGenerator;
+
+	private final IntrospectionResponseSerializer introspectionSerializer;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+
+	private final FileChannel metaChannel;
+
+	private final MappedByteBuffer meta;
+
+	private final OffHeapHashIndex accessIndex;
+
+	private final OffHeapHashIndex refreshIndex;
+
+	private final OffHeapHashIndex authenticationIndex;
+
+	private final OffHeapHashIndex refreshToAccessIndex;
+
+	private Segment active;
+
+	private boolean compacting = false;
+
+	/**
+	 * @param directory where segments, indexes and checkpoint are stored (created if missing)
+	 * @param segmentBytes segment files size (a record can't be bigger)
+	 * @param clock time source for tokens expiration
+	 * @param authenticationKeyGenerator same as {@code InMemoryTokenStore#setAuthenticationKeyGenerator}
+	 * @param introspectionSerializer writes introspection responses stored with access tokens
+	 * @throws IOException if files can't be created, read or mapped
+	 */
+	public MappedTokenStore(
+			Path directory,
+			int segmentBytes,
+			Clock clock,
+			AuthenticationKeyGenerator authenticationKeyGenerator,
+			IntrospectionResponseSerializer introspectionSerializer) throws IOException {
+		Assert.notNull(directory, "directory can't be null");
+		Assert.isTrue(segmentBytes >= 4096, "segmentBytes must be at least 4096");
+		Assert.notNull(clock, "clock can't be null");
+		Assert.notNull(authenticationKeyGenerator, "authenticationKeyGenerator can't be null");
+		Assert.notNull(introspectionSerializer, "introspectionSerializer can't be null");
+		this.directory = Files.createDirectories(directory);
+		this.segmentBytes = segmentBytes;
+		this.clock = clock;
+		this.authenticationKeyGenerator = authenticationKeyGenerator;
+		this.introspectionSerializer = introspectionSerializer;
+
+		final long start = System.nanoTime();
+		try (Stream<Path> files = Files.list(this.directory)) {
+			for (final Path file : (Iterable<Path>) files::iterator) {
+				final Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+				if (matcher.matches()) {
+					final int id = Integer.parseInt(matcher.group(1));
+					segments.put(id, Segment.open(id, file));
+				}
+			}
+		}
+
+		metaChannel = FileChannel.open(
+				directory.resolve("store.meta"),
+				StandardOpenOption.CREATE,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		meta = metaChannel.map(MapMode.READ_WRITE, 0, META_BYTES);
+		final boolean checkpointed = meta.getLong(0) == META_MAGIC
+				&& meta.getInt(8) == 1
+				&& !segments.isEmpty()
+				&& meta.getInt(12) == segments.lastKey();
+
+		accessIndex = OffHeapHashIndex.open(directory.resolve("access.idx"), checkpointed);
+		refreshIndex = OffHeapHashIndex.open(directory.resolve("refresh.idx"), checkpointed);
+		authenticationIndex = OffHeapHashIndex.open(directory.resolve("authentication.idx"), checkpointed);
+		refreshToAccessIndex = OffHeapHashIndex.open(directory.resolve("refresh-access.idx"), checkpointed);
+
+		if (checkpointed) {
+			active = segments.lastEntry().getValue();
+			active.writePosition = meta.getInt(16);
+		} else {
+			rebuildIndexes();
+		}
+		if (active == null) {
+			active = createSegment(1);
+		}
+
+		meta.putLong(0, META_MAGIC);
+		meta.putInt(8, 0);
+		meta.force();
+
+		LOG.info(
+				String.format(
+						"Token store opened from %s in %d ms (%s, %d access tokens, %d segments)",
+						directory,
+						(System.nanoTime() - start) / 1000000,
+						checkpointed ? "checkpoint" : "rebuilt indexes",
+						accessIndex.size(),
+						segments.size()));
+	}
+
+	/**
+	 * Introspection responses with authorities claim
+	 * @param directory where segments, indexes and checkpoint are stored (created if missing)
+	 * @param segmentBytes segment files size (a record can't be bigger)
+	 * @param clock time source for tokens expiration
+	 * @param authenticationKeyGenerator same as {@code InMemoryTokenStore#setAuthenticationKeyGenerator}
+	 * @throws IOException if files can't be created, read or mapped
+	 */
+	public MappedTokenStore(
+			Path directory,
+			int segmentBytes,
+			Clock clock,
+			AuthenticationKeyGenerator authenticationKeyGenerator) throws IOException {
+		this(directory, segmentBytes, clock, authenticationKeyGenerator, new IntrospectionResponseSerializer(true));
+	}
+
+	/**
+	 * 64MB segments, system UTC clock and default authentication key generator
+	 * @param directory where segments, indexes and checkpoint are stored (created if missing)
+	 * @param introspectionSerializer writes introspection responses stored with access tokens
+	 * @throws IOException if files can't be created, read or mapped
+	 */
+	public MappedTokenStore(Path directory, IntrospectionResponseSerializer introspectionSerializer)
+			throws IOException {
+		this(
+				directory,
+				DEFAULT_SEGMENT_BYTES,
+				Clock.systemUTC(),
+				new DefaultAuthenticationKeyGenerator(),
+				introspectionSerializer);
+	}
+
+	/**
+	 * 64MB segments, system UTC clock, default authentication key generator and introspection responses with
+	 * authorities claim
+	 * @param directory where segments, indexes and checkpoint are stored (created if missing)
+	 * @throws IOException if files can't be created, read or mapped
+	 */
+	public MappedTokenStore(Path directory) throws IOException {
+		this(directory, new IntrospectionResponseSerializer(true));
+	}
+
+	@Override
+	public void storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+		final long expiresAt = token.getExpiration() == null ? Long.MAX_VALUE : token.getExpiration().getTime();
+		if (expiresAt <= clock.millis()) {
+			removeAccessToken(token);
+			return;
+		}
+		final byte[] payload = Record.payload(token, authentication);
+		final byte[] response = introspectionSerializer.serialize(token, authentication);
+		final String refreshValue = token.getRefreshToken() == null ? "" : token.getRefreshToken().getValue();
+		write(() -> {
+			final Record record = new Record(
+					ACCESS_PUT,
+					expiresAt,
+					token.getValue(),
+					authenticationKeyGenerator.extractKey(authentication),
+					refreshValue,
+					payload,
+					response);
+			indexAccess(record, append(record.encode()));
+		});
+	}
+
+	@Override
+	public OAuth2AccessToken readAccessToken(String tokenValue) {
+		final Object[] access = readAccess(tokenValue);
+		return access == null ? null : (OAuth2AccessToken) access[0];
+	}
+
+	@Override
+	public OAuth2Authentication readAuthentication(OAuth2AccessToken token) {
+		return readAuthentication(token.getValue());
+	}
+
+	@Override
+	public OAuth2Authentication readAuthentication(String token) {
+		final Object[] access = readAccess(token);
+		return access == null ? null : (OAuth2Authentication) access[1];
+	}
+
+	@Override
+	public Optional<byte[]> introspect(String tokenValue) {
+		lock.readLock().lock();
+		try {
+			final long location = accessIndex.get(OffHeapHashIndex.hash(tokenValue), matcher(KEY, tokenValue));
+			if (location == OffHeapHashIndex.NO_LOCATION) {
+				return Optional.empty();
+			}
+			final Segment segment = segments.get((int) (location >>> 32));
+			if (segment == null || Record.expiresAt(segment.buffer, (int) location) <= clock.millis()) {
+				return Optional.empty();
+			}
+			final byte[] response = Record.response(segment.buffer, (int) location);
+			if (response != null) {
+				return Optional.of(response);
+			}
+			// record written before responses were stored with tokens
+			final Object[] access = read(location).deserializePayload();
+			return Optional.of(
+					introspectionSerializer.serialize((OAuth2AccessToken) access[0], (OAuth2Authentication) access[1]));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void removeAccessToken(OAuth2AccessToken token) {
+		write(() -> removeAccess(token.getValue(), true));
+	}
+
+	@Override
+	public void storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+		final long expiresAt = refreshToken instanceof ExpiringOAuth2RefreshToken
+				&& ((ExpiringOAuth2RefreshToken) refreshToken).getExpiration() != null
+						? ((ExpiringOAuth2RefreshToken) refreshToken).getExpiration().getTime()
+						: Long.MAX_VALUE;
+		final byte[] payload = Record.payload(refreshToken, authentication);
+		write(() -> {
+			final Record record = new Record(REFRESH_PUT, expiresAt, refreshToken.getValue(), "", "", payload);
+			final long location = append(record.encode());
+			refreshIndex.put(OffHeapHashIndex.hash(record.key), location, matcher(KEY, record.key));
+		});
+	}
+
+	@Override
+	public OAuth2RefreshToken readRefreshToken(String tokenValue) {
+		final Object[] refresh = readRefresh(tokenValue);
+		return refresh == null ? null : (OAuth2RefreshToken) refresh[0];
+	}
+
+	@Override
+	public OAuth2Authentication readAuthenticationForRefreshToken(OAuth2RefreshToken token) {
+		final Object[] refresh = readRefresh(token.getValue());
+		return refresh == null ? null : (OAuth2Authentication) refresh[1];
+	}
+
+	@Override
+	public void removeRefreshToken(OAuth2RefreshToken token) {
+		write(() -> {
+			append(new Record(REFRESH_REMOVE, Long.MAX_VALUE, token.getValue(), "", "", new byte[0]).encode());
+			unindexRefresh(token.getValue());
+		});
+	}
+
+	@Override
+	public void removeAccessTokenUsingRefreshToken(OAuth2RefreshToken refreshToken) {
+		write(() -> {
+			final String refreshValue = refreshToken.getValue();
+			final long location = refreshToAccessIndex
+					.get(OffHeapHashIndex.hash(refreshValue), matcher(REFRESH_VALUE, refreshValue));
+			if (location == OffHeapHashIndex.NO_LOCATION) {
+				return;
+			}
+			final Record record = read(location);
+			if (record != null && record.type == ACCESS_PUT && record.refreshValue.equals(refreshToken.getValue())) {
+				removeAccess(record.key, true);
+			}
+		});
+	}
+
+	@Override
+	public OAuth2AccessToken getAccessToken(OAuth2Authentication authentication) {
+		final String authenticationKey = authenticationKeyGenerator.extractKey(authentication);
+		lock.readLock().lock();
+		try {
+			final long location = authenticationIndex
+					.get(OffHeapHashIndex.hash(authenticationKey), matcher(AUTHENTICATION_KEY, authenticationKey));
+			if (location == OffHeapHashIndex.NO_LOCATION) {
+				return null;
+			}
+			final Record record = read(location);
+			if (record == null || record.type != ACCESS_PUT || !record.authenticationKey.equals(authenticationKey)
+					|| record.isExpired(clock.millis())) {
+				return null;
+			}
+			return (OAuth2AccessToken) record.deserializePayload()[0];
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Collection<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String userName) {
+		return findAccessTokens(
+				authentication -> clientId.equals(authentication.getOAuth2Request().getClientId())
+						&& !authentication.isClientOnly()
+						&& userName.equals(authentication.getUserAuthentication().getName()));
+	}
+
+	@Override
+	public Collection<OAuth2AccessToken> findTokensByClientId(String clientId) {
+		return findAccessTokens(authentication -> clientId.equals(authentication.getOAuth2Request().getClientId()));
+	}
+
+	/**
+	 * Compacts sealed segments with less than half of live records
+	 * @return count of compacted (and deleted) segments
+	 */
+	public int compact() {
+		final int[] compacted = new int[1];
+		write(() -> compacted[0] = compactSealedSegments(Integer.MAX_VALUE));
+		return compacted[0];
+	}
+
+	/**
+	 * Forces segments and indexes content to storage
+	 */
+	public void flush() {
+		write(() -> {
+			for (final Segment segment : segments.values()) {
+				segment.buffer.force();
+			}
+			accessIndex.force();
+			refreshIndex.force();
+			authenticationIndex.force();
+			refreshToAccessIndex.force();
+		});
+	}
+
+	/**
+	 * @return count of access tokens in the store (including expired ones not compacted yet)
+	 */
+	public int getAccessTokenCount() {
+		lock.readLock().lock();
+		try {
+			return accessIndex.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return count of segment files
+	 */
+	public int getSegmentCount() {
+		lock.readLock().lock();
+		try {
+			return segments.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Flushes everything and writes a checkpoint for next start to skip indexes rebuild
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.writeLock().lock();
+		try {
+			flush();
+			for (final Segment segment : segments.values()) {
+				segment.channel.close();
+			}
+			accessIndex.close();
+			refreshIndex.close();
+			authenticationIndex.close();
+			refreshToAccessIndex.close();
+			meta.putInt(12, active.id);
+			meta.putInt(16, active.writePosition);
+			meta.putInt(8, 1);
+			meta.force();
+			metaChannel.close();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private Object[] readAccess(String tokenValue) {
+		lock.readLock().lock();
+		try {
+			final long location = accessIndex.get(OffHeapHashIndex.hash(tokenValue), matcher(KEY, tokenValue));
+			if (location == OffHeapHashIndex.NO_LOCATION) {
+				return null;
+			}
+			final Record record = read(location);
+			if (record == null || record.type != ACCESS_PUT || !record.key.equals(tokenValue)
+					|| record.isExpired(clock.millis())) {
+				return null;
+			}
+			return record.deserializePayload();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private Object[] readRefresh(String tokenValue) {
+		lock.readLock().lock();
+		try {
+			final long location = refreshIndex.get(OffHeapHashIndex.hash(tokenValue), matcher(KEY, tokenValue));
+			if (location == OffHeapHashIndex.NO_LOCATION) {
+				return null;
+			}
+			final Record record = read(location);
+			if (record == null || record.type != REFRESH_PUT || !record.key.equals(tokenValue)
+					|| record.isExpired(clock.millis())) {
+				return null;
+			}
+			return record.deserializePayload();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private Collection<OAuth2AccessToken> findAccessTokens(Predicate<OAuth2Authentication> filter) {
+		final List<OAuth2AccessToken> found = new ArrayList<>();
+		lock.readLock().lock();
+		try {
+			final long now = clock.millis();
+			for (final Segment segment : segments.values()) {
+				segment.forEach(segment == active ? active.writePosition : segment.capacity(), (record, location) -> {
+					if (record.type == ACCESS_PUT && !record.isExpired(now)
+							&& accessIndex.contains(OffHeapHashIndex.hash(record.key), location)) {
+						final Object[] access = record.deserializePayload();
+						if (filter.test((OAuth2Authentication) access[1])) {
+							found.add((OAuth2AccessToken) access[0]);
+						}
+					}
+				});
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			lock.readLock().unlock();
+		}
+		return found;
+	}
+
+	private void indexAccess(Record record, long location) throws IOException {
+		final long hash = OffHeapHashIndex.hash(record.key);
+		final OffHeapHashIndex.KeyMatcher key = matcher(KEY, record.key);
+		final long previous = accessIndex.get(hash, key);
+		final Record previousRecord = previous == OffHeapHashIndex.NO_LOCATION ? null : read(previous);
+		if (previousRecord != null) {
+			unindexAccessLinks(previousRecord, previous);
+		}
+		accessIndex.put(hash, location, key);
+		authenticationIndex.put(
+				OffHeapHashIndex.hash(record.authenticationKey),
+				location,
+				matcher(AUTHENTICATION_KEY, record.authenticationKey));
+		if (!record.refreshValue.isEmpty()) {
+			refreshToAccessIndex.put(
+					OffHeapHashIndex.hash(record.refreshValue),
+					location,
+					matcher(REFRESH_VALUE, record.refreshValue));
+		}
+	}
+
+	private void removeAccess(String tokenValue, boolean log) throws IOException {
+		final long hash = OffHeapHashIndex.hash(tokenValue);
+		final OffHeapHashIndex.KeyMatcher key = matcher(KEY, tokenValue);
+		if (accessIndex.get(hash, key) == OffHeapHashIndex.NO_LOCATION) {
+			return;
+		}
+		if (log) {
+			// appending may trigger a compaction which moves the removed record: locate it after that
+			append(new Record(ACCESS_REMOVE, Long.MAX_VALUE, tokenValue, "", "", new byte[0]).encode());
+		}
+		final long location = accessIndex.get(hash, key);
+		final Record record = read(location);
+		accessIndex.remove(hash, location);
+		if (record != null) {
+			unindexAccessLinks(record, location);
+		}
+	}
+
+	private void unindexAccessLinks(Record record, long location) {
+		authenticationIndex.remove(OffHeapHashIndex.hash(record.authenticationKey), location);
+		if (!record.refreshValue.isEmpty()) {
+			refreshToAccessIndex.remove(OffHeapHashIndex.hash(record.refreshValue), location);
+		}
+	}
+
+	private void unindexRefresh(String refreshValue) {
+		final long hash = OffHeapHashIndex.hash(refreshValue);
+		final long location = refreshIndex.get(hash, matcher(KEY, refreshValue));
+		if (location != OffHeapHashIndex.NO_LOCATION) {
+			refreshIndex.remove(hash, location);
+		}
+		final long accessLocation = refreshToAccessIndex.get(hash, matcher(REFRESH_VALUE, refreshValue));
+		if (accessLocation != OffHeapHashIndex.NO_LOCATION) {
+			refreshToAccessIndex.remove(hash, accessLocation);
+		}
+	}
+
+	/**
+	 * Replays all segments (oldest first) into empty indexes. Scan of a segment stops at its first invalid record,
+	 * which, for the last segment, is where appending resumes.
+	 */
+	private void rebuildIndexes() throws IOException {
+		accessIndex.clear();
+		refreshIndex.clear();
+		authenticationIndex.clear();
+		refreshToAccessIndex.clear();
+		final long now = clock.millis();
+		for (final Segment segment : segments.values()) {
+			final int end = segment.forEach(segment.capacity(), (record, location) -> {
+				switch (record.type) {
+				case ACCESS_PUT:
+					if (record.isExpired(now)) {
+						removeAccess(record.key, false);
+					} else {
+						indexAccess(record, location);
+					}
+					break;
+				case ACCESS_REMOVE:
+					removeAccess(record.key, false);
+					break;
+				case REFRESH_PUT:
+					if (record.isExpired(now)) {
+						unindexRefresh(record.key);
+					} else {
+						refreshIndex.put(OffHeapHashIndex.hash(record.key), location, matcher(KEY, record.key));
+					}
+					break;
+				case REFRESH_REMOVE:
+					unindexRefresh(record.key);
+					break;
+				default:
+				}
+			});
+			if (segment.id == segments.lastKey()) {
+				segment.truncate(end);
+				active = segment;
+			} else if (end < segment.capacity() && segment.buffer.getInt(end) != 0) {
+				LOG.warn(String.format("Corrupted record in %s at %d: end of segment ignored", segment.path, end));
+			}
+		}
+	}
+
+	/**
+	 * @param maxScanned count of sealed segments to scan, oldest first (tokens expire mostly in issuance order)
+	 * @return count of compacted (and deleted) segments
+	 */
+	private int compactSealedSegments(int maxScanned) throws IOException {
+		if (compacting) {
+			return 0;
+		}
+		compacting = true;
+		try {
+			final long now = clock.millis();
+			int compacted = 0;
+			final List<Segment> sealed = new ArrayList<>(segments.headMap(active.id).values());
+			for (final Segment segment : sealed.subList(0, Math.min(maxScanned, sealed.size()))) {
+				final long[] liveBytes = new long[1];
+				segment.forEach(segment.capacity(), (record, location) -> {
+					if (isLive(record, location, now)) {
+						liveBytes[0] += record.length();
+					}
+				});
+				if (liveBytes[0] >= segment.capacity() * COMPACTION_THRESHOLD) {
+					continue;
+				}
+				final boolean oldest = segment.id == segments.firstKey();
+				segment.forEach(segment.capacity(), (record, location) -> {
+					if (isLive(record, location, now)) {
+						relocate(record, location, append(record.encode()));
+					} else if (record.type == ACCESS_PUT) {
+						// expired or replaced: replaying an expired record removes the token too
+						if (accessIndex.remove(OffHeapHashIndex.hash(record.key), location)) {
+							unindexAccessLinks(record, location);
+						}
+					} else if (record.type == REFRESH_PUT) {
+						refreshIndex.remove(OffHeapHashIndex.hash(record.key), location);
+					} else if (!oldest && isUnmatchedRemoval(record)) {
+						// an older segment might still hold a put for this key
+						append(record.encode());
+					}
+				});
+				segments.remove(segment.id);
+				segment.channel.close();
+				Files.deleteIfExists(segment.path);
+				++compacted;
+			}
+			return compacted;
+		} finally {
+			compacting = false;
+		}
+	}
+
+	private boolean isLive(Record record, long location, long now) {
+		if (record.isExpired(now)) {
+			return false;
+		}
+		if (record.type == ACCESS_PUT) {
+			return accessIndex.contains(OffHeapHashIndex.hash(record.key), location);
+		}
+		if (record.type == REFRESH_PUT) {
+			return refreshIndex.contains(OffHeapHashIndex.hash(record.key), location);
+		}
+		return false;
+	}
+
+	/**
+	 * A removal is useless once the key was put again (the newer put supersedes older ones on replay)
+	 */
+	private boolean isUnmatchedRemoval(Record record) {
+		if (record.type == ACCESS_REMOVE) {
+			return accessIndex.get(OffHeapHashIndex.hash(record.key), matcher(KEY, record.key))
+					== OffHeapHashIndex.NO_LOCATION;
+		}
+		if (record.type == REFRESH_REMOVE) {
+			return refreshIndex.get(OffHeapHashIndex.hash(record.key), matcher(KEY, record.key))
+					== OffHeapHashIndex.NO_LOCATION;
+		}
+		return false;
+	}
+
+	private void relocate(Record record, long from, long to) {
+		if (record.type == ACCESS_PUT) {
+			accessIndex.relocate(OffHeapHashIndex.hash(record.key), from, to);
+			authenticationIndex.relocate(OffHeapHashIndex.hash(record.authenticationKey), from, to);
+			if (!record.refreshValue.isEmpty()) {
+				refreshToAccessIndex.relocate(OffHeapHashIndex.hash(record.refreshValue), from, to);
+			}
+		} else {
+			refreshIndex.relocate(OffHeapHashIndex.hash(record.key), from, to);
+		}
+	}
+
+	/**
+	 * @param encoded record, with a zeroed length in its first 4 bytes
+	 * @return appended record location
+	 */
+	private long append(ByteBuffer encoded) throws IOException {
+		final int length = encoded.remaining();
+		if (length > segmentBytes) {
+			throw new IllegalArgumentException("Token record is bigger than segment size: " + length);
+		}
+		if (active.writePosition + length > active.capacity()) {
+			active.buffer.force();
+			active = createSegment(active.id + 1);
+			// only the oldest segment is scanned to keep rolls cheap: compact() scans them all
+			compactSealedSegments(1);
+		}
+		final int offset = active.writePosition;
+		final ByteBuffer target = active.buffer.duplicate();
+		target.position(offset + Integer.BYTES);
+		encoded.position(Integer.BYTES);
+		target.put(encoded);
+		// length is written last: a torn record reads as end of segment
+		active.buffer.putInt(offset, length - Integer.BYTES);
+		active.writePosition += length;
+		return location(active.id, offset);
+	}
+
+	/**
+	 * @param field {@link #KEY}, {@link #AUTHENTICATION_KEY} or {@link #REFRESH_VALUE}
+	 * @param value searched value
+	 * @return matcher comparing this field of indexed records with the value, in place (nothing decoded)
+	 */
+	private OffHeapHashIndex.KeyMatcher matcher(int field, String value) {
+		final byte[] expected = value.getBytes(StandardCharsets.UTF_8);
+		return location -> {
+			final Segment segment = segments.get((int) (location >>> 32));
+			return segment != null && Record.fieldEquals(segment.buffer, (int) location, field, expected);
+		};
+	}
+
+	/**
+	 * @return record at location, or null if it is not readable anymore
+	 */
+	private Record read(long location) {
+		final Segment segment = segments.get((int) (location >>> 32));
+		return segment == null ? null : Record.decode(segment.buffer, (int) location);
+	}
+
+	private Segment createSegment(int id) throws IOException {
+		final Segment segment =
+				Segment.create(id, directory.resolve(String.format("segment-%08d.log", id)), segmentBytes);
+		segments.put(id, segment);
+		return segment;
+	}
+
+	private void write(IOAction action) {
+		lock.writeLock().lock();
+		try {
+			action.run();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private static long location(int segmentId, int offset) {
+		return ((long) segmentId << 32) | offset;
+	}
+
+	@FunctionalInterface
+	private static interface IOAction {
+		void run() throws IOException;
+	}
+
+	@FunctionalInterface
+	private static interface RecordVisitor {
+		void visit(Record record, long location) throws IOException;
+	}
+
+	private static final class Segment {
+		final int id;
+
+		final Path path;
+
+		final FileChannel channel;
+
+		final MappedByteBuffer buffer;
+
+		int writePosition;
+
+		private Segment(int id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+			this.id = id;
+			this.path = path;
+			this.channel = channel;
+			this.buffer = buffer;
+		}
+
+		static Segment open(int id, Path path) throws IOException {
+			final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			return new Segment(id, path, channel, channel.map(MapMode.READ_WRITE, 0, channel.size()));
+		}
+
+		static Segment create(int id, Path path, int bytes) throws IOException {
+			final FileChannel channel = FileChannel.open(
+					path,
+					StandardOpenOption.CREATE_NEW,
+					StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			return new Segment(id, path, channel, channel.map(MapMode.READ_WRITE, 0, bytes));
+		}
+
+		int capacity() {
+			return buffer.capacity();
+		}
+
+		/**
+		 * Visits valid records until {@code end} or first invalid record
+		 * @return position after last valid record
+		 */
+		int forEach(int end, RecordVisitor visitor) throws IOException {
+			int position = 0;
+			while (position + Integer.BYTES <= end) {
+				final int length = buffer.getInt(position);
+				if (length <= 0 || position + Integer.BYTES + length > end) {
+					break;
+				}
+				final Record record = Record.decode(buffer, position);
+				if (record == null) {
+					break;
+				}
+				visitor.visit(record, location(id, position));
+				position += Integer.BYTES + length;
+			}
+			return position;
+		}
+
+		/**
+		 * Clears what follows last valid record (torn write remains), where appending resumes
+		 */
+		void truncate(int end) {
+			writePosition = end;
+			final ByteBuffer tail = buffer.duplicate();
+			tail.position(end);
+			final byte[] zeros = new byte[8192];
+			while (tail.remaining() > 0) {
+				tail.put(zeros, 0, Math.min(zeros.length, tail.remaining()));
+			}
+		}
+	}
+
+	/**
+	 * {@code int length | int crc32 | byte type | long expiresAt | key | authenticationKey | refreshValue | payload |
+	 * response} where strings are UTF-8 bytes prefixed by an unsigned short length, payload and introspection response
+	 * by an int length. Length counts bytes after itself and CRC covers bytes after itself. Records written before
+	 * responses were stored end after payload.
+	 */
+	private static final class Record {
+		final byte type;
+
+		final long expiresAt;
+
+		final String key;
+
+		final String authenticationKey;
+
+		final String refreshValue;
+
+		final byte[] payload;
+
+		final byte[] response;
+
+		Record(
+				byte type,
+				long expiresAt,
+				String key,
+				String authenticationKey,
+				String refreshValue,
+				byte[] payload,
+				byte[] response) {
+			this.type = type;
+			this.expiresAt = expiresAt;
+			this.key = key;
+			this.authenticationKey = authenticationKey;
+			this.refreshValue = refreshValue;
+			this.payload = payload;
+			this.response = response;
+		}
+
+		Record(byte type, long expiresAt, String key, String authenticationKey, String refreshValue, byte[] payload) {
+			this(type, expiresAt, key, authenticationKey, refreshValue, payload, new byte[0]);
+		}
+
+		boolean isExpired(long now) {
+			return expiresAt <= now;
+		}
+
+		/**
+		 * @return token and authentication
+		 */
+		Object[] deserializePayload() {
+			final ByteBuffer buffer = ByteBuffer.wrap(payload);
+			final byte[] token = new byte[buffer.getInt()];
+			buffer.get(token);
+			final byte[] authentication = new byte[buffer.remaining()];
+			buffer.get(authentication);
+			return new Object[] { SerializationUtils.deserialize(token), SerializationUtils.deserialize(authentication) };
+		}
+
+		/**
+		 * Token and authentication are serialized separately, as {@code JdbcTokenStore} does (safe deserialization
+		 * does not accept arrays)
+		 */
+		static byte[] payload(Object token, OAuth2Authentication authentication) {
+			final byte[] tokenBytes = SerializationUtils.serialize(token);
+			final byte[] authenticationBytes = SerializationUtils.serialize(authentication);
+			return ByteBuffer.allocate(Integer.BYTES + tokenBytes.length + authenticationBytes.length)
+					.putInt(tokenBytes.length)
+					.put(tokenBytes)
+					.put(authenticationBytes)
+					.array();
+		}
+
+		int length() {
+			return Integer.BYTES + Integer.BYTES + 1 + Long.BYTES + 3 * Short.BYTES + utf8(key).length
+					+ utf8(authenticationKey).length + utf8(refreshValue).length + Integer.BYTES + payload.length
+					+ Integer.BYTES + response.length;
+		}
+
+		/**
+		 * @return a buffer positioned at 0, length field left to 0 for appender to write it last
+		 */
+		ByteBuffer encode() {
+			final byte[] keyBytes = utf8(key);
+			final byte[] authenticationKeyBytes = utf8(authenticationKey);
+			final byte[] refreshBytes = utf8(refreshValue);
+			final ByteBuffer buffer = ByteBuffer.allocate(
+					Integer.BYTES + Integer.BYTES + 1 + Long.BYTES + 3 * Short.BYTES + keyBytes.length
+							+ authenticationKeyBytes.length + refreshBytes.length + Integer.BYTES + payload.length
+							+ Integer.BYTES + response.length);
+			buffer.putInt(0);
+			buffer.putInt(0);
+			buffer.put(type);
+			buffer.putLong(expiresAt);
+			putString(buffer, keyBytes);
+			putString(buffer, authenticationKeyBytes);
+			putString(buffer, refreshBytes);
+			buffer.putInt(payload.length);
+			buffer.put(payload);
+			buffer.putInt(response.length);
+			buffer.put(response);
+
+			final CRC32 crc = new CRC32();
+			crc.update(buffer.array(), 2 * Integer.BYTES, buffer.capacity() - 2 * Integer.BYTES);
+			buffer.putInt(Integer.BYTES, (int) crc.getValue());
+			buffer.flip();
+			return buffer;
+		}
+
+		/**
+		 * @return decoded record, or null if it is torn or corrupted
+		 */
+		static Record decode(ByteBuffer source, int offset) {
+			final ByteBuffer buffer = source.duplicate();
+			final int length = buffer.getInt(offset);
+			if (length < Integer.BYTES + 1 + Long.BYTES + 3 * Short.BYTES + Integer.BYTES
+					|| offset + Integer.BYTES + length > buffer.capacity()) {
+				return null;
+			}
+			final byte[] bytes = new byte[length];
+			buffer.position(offset + Integer.BYTES);
+			buffer.get(bytes);
+			final CRC32 crc = new CRC32();
+			crc.update(bytes, Integer.BYTES, length - Integer.BYTES);
+			final ByteBuffer record = ByteBuffer.wrap(bytes);
+			if (record.getInt() != (int) crc.getValue()) {
+				return null;
+			}
+			final byte type = record.get();
+			final long expiresAt = record.getLong();
+			final String key = getString(record);
+			final String authenticationKey = getString(record);
+			final String refreshValue = getString(record);
+			final byte[] payload = new byte[record.getInt()];
+			record.get(payload);
+			final byte[] response = new byte[record.remaining() >= Integer.BYTES ? record.getInt() : 0];
+			record.get(response);
+			return new Record(type, expiresAt, key, authenticationKey, refreshValue, payload, response);
+		}
+
+		/**
+		 * @param source segment buffer
+		 * @param offset offset of an indexed (and so already validated) record
+		 * @return record expiration, read in place
+		 */
+		static long expiresAt(ByteBuffer source, int offset) {
+			return source.getLong(offset + Integer.BYTES + Integer.BYTES + 1);
+		}
+
+		/**
+		 * @param source segment buffer
+		 * @param offset offset of an indexed (and so already validated) record
+		 * @return copy of introspection response, or null if the record has none
+		 */
+		static byte[] response(ByteBuffer source, int offset) {
+			final int end = offset + Integer.BYTES + source.getInt(offset);
+			int position = offset + Integer.BYTES + Integer.BYTES + 1 + Long.BYTES;
+			for (int i = 0; i <= REFRESH_VALUE; ++i) {
+				position += Short.BYTES + (source.getShort(position) & 0xffff);
+			}
+			position += Integer.BYTES + source.getInt(position);
+			if (position + Integer.BYTES > end) {
+				return null;
+			}
+			final int length = source.getInt(position);
+			if (length == 0) {
+				return null;
+			}
+			final byte[] response = new byte[length];
+			final ByteBuffer buffer = source.duplicate();
+			buffer.position(position + Integer.BYTES);
+			buffer.get(response);
+			return response;
+		}
+
+		/**
+		 * Compares a string field of an indexed (and so already validated) record without decoding it
+		 * @param source segment buffer
+		 * @param offset record offset
+		 * @param field index of the string field
+		 * @param expected UTF-8 bytes
+		 * @return if the field has these bytes
+		 */
+		static boolean fieldEquals(ByteBuffer source, int offset, int field, byte[] expected) {
+			int position = offset + Integer.BYTES + Integer.BYTES + 1 + Long.BYTES;
+			for (int i = 0; i < field; ++i) {
+				position += Short.BYTES + (source.getShort(position) & 0xffff);
+			}
+			if ((source.getShort(position) & 0xffff) != expected.length) {
+				return false;
+			}
+			position += Short.BYTES;
+			for (int i = 0; i < expected.length; ++i) {
+				if (source.get(position + i) != expected[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static byte[] utf8(String value) {
+			return value.getBytes(StandardCharsets.UTF_8);
+		}
+
+		private static void putString(ByteBuffer buffer, byte[] bytes) {
+			Assert.isTrue(bytes.length <= 0xffff, "token values and authentication keys are limited to 65535 bytes");
+			buffer.putShort((short) bytes.length);
+			buffer.put(bytes);
+		}
+
+		private static String getString(ByteBuffer buffer) {
+			final byte[] bytes = new byte[buffer.getShort() & 0xffff];
+			buffer.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.token;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>Open-addressing hash table from 64 bits key hashes to 64 bits record locations, in a memory-mapped file: it uses
+ * no heap whatever the count of entries and survives restarts.</p>
+ *
+ * <p>Keys themselves are not stored: lookups and insertions take a {@link KeyMatcher} telling if the record at a
+ * location is for the searched key. Slots with the same hash but another key are probed past, so that distinct keys
+ * with colliding hashes (or hashes colliding with reserved markers) both keep their entry. Removals and relocations
+ * are by exact location.</p>
+ *
+ * <p>Not thread-safe: {@link MappedTokenStore} guards it with its read-write lock.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+final class OffHeapHashIndex implements Closeable {
+	static final long NO_LOCATION = 0L;
+
+	private static final long MAGIC = 0x4334_4f48_4958_0001L;
+
+	private static final int HEADER_BYTES = 64;
+
+	private static final int SLOT_BYTES = 16;
+
+	private static final long EMPTY = 0L;
+
+	private static final long TOMBSTONE = 1L;
+
+	private static final int MIN_CAPACITY = 1 << 10;
+
+	private final Path path;
+
+	private FileChannel channel;
+
+	private MappedByteBuffer buffer;
+
+	private int capacity;
+
+	private int size;
+
+	private int used;
+
+	private OffHeapHashIndex(Path path, FileChannel channel, MappedByteBuffer buffer) {
+		this.path = path;
+		this.channel = channel;
+		this.buffer = buffer;
+		this.capacity = buffer.getInt(8);
+		this.size = buffer.getInt(12);
+		this.used = buffer.getInt(16);
+	}
+
+	/**
+	 * @param path index file
+	 * @param reuse if an existing file content should be kept (otherwise the index is created empty)
+	 * @return a mapped index
+	 * @throws IOException if file can't be mapped
+	 */
+	static OffHeapHashIndex open(Path path, boolean reuse) throws IOException {
+		if (reuse && Files.exists(path)) {
+			final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			final MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, channel.size());
+			if (channel.size() >= HEADER_BYTES && buffer.getLong(0) == MAGIC
+					&& channel.size() == HEADER_BYTES + (long) buffer.getInt(8) * SLOT_BYTES) {
+				return new OffHeapHashIndex(path, channel, buffer);
+			}
+			channel.close();
+		}
+		create(path, MIN_CAPACITY);
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		return new OffHeapHashIndex(path, channel, channel.map(MapMode.READ_WRITE, 0, channel.size()));
+	}
+
+	/**
+	 * @param hash key hash
+	 * @param key matches records of the searched key
+	 * @return location stored for this key or {@link #NO_LOCATION}
+	 */
+	long get(long hash, KeyMatcher key) {
+		final int slot = find(normalize(hash), key);
+		return slot < 0 ? NO_LOCATION : locationAt(slot);
+	}
+
+	/**
+	 * @param hash key hash
+	 * @param location record location
+	 * @return if this location is stored for this hash
+	 */
+	boolean contains(long hash, long location) {
+		return find(normalize(hash), stored -> stored == location) >= 0;
+	}
+
+	/**
+	 * @param hash key hash
+	 * @param location record location (not {@link #NO_LOCATION})
+	 * @param key matches records of the key stored at {@code location}: its entry, if any, is updated
+	 * @throws IOException if the index has to grow and new file can't be mapped
+	 */
+	void put(long hash, long location, KeyMatcher key) throws IOException {
+		final long h = normalize(hash);
+		int slot = slot(h);
+		int firstTombstone = -1;
+		for (int i = 0; i < capacity; ++i) {
+			final long stored = hashAt(slot);
+			if (stored == h && key.matches(locationAt(slot))) {
+				setLocationAt(slot, location);
+				return;
+			}
+			if (stored == TOMBSTONE && firstTombstone < 0) {
+				firstTombstone = slot;
+			}
+			if (stored == EMPTY) {
+				break;
+			}
+			slot = (slot + 1) & (capacity - 1);
+		}
+		if (firstTombstone >= 0) {
+			slot = firstTombstone;
+		} else {
+			++used;
+		}
+		setAt(slot, h, location);
+		++size;
+		writeCounters();
+		if (used * 10L > capacity * 7L) {
+			rehash(size * 4L > capacity ? capacity * 2 : capacity);
+		}
+	}
+
+	/**
+	 * @param hash key hash
+	 * @param location stored location of the entry to remove
+	 * @return if an entry was removed
+	 */
+	boolean remove(long hash, long location) {
+		final int slot = find(normalize(hash), stored -> stored == location);
+		if (slot < 0) {
+			return false;
+		}
+		setAt(slot, TOMBSTONE, NO_LOCATION);
+		--size;
+		writeCounters();
+		return true;
+	}
+
+	/**
+	 * Points the entry at {@code from} location to {@code to}, if any
+	 * @param hash key hash
+	 * @param from current location
+	 * @param to new location
+	 */
+	void relocate(long hash, long from, long to) {
+		final int slot = find(normalize(hash), stored -> stored == from);
+		if (slot >= 0) {
+			setLocationAt(slot, to);
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	void clear() throws IOException {
+		rehash(MIN_CAPACITY, true);
+	}
+
+	void force() {
+		buffer.force();
+	}
+
+	@Override
+	public void close() throws IOException {
+		force();
+		channel.close();
+	}
+
+	/**
+	 * @param h normalized hash
+	 * @param matcher tells if a location stored with this hash is the searched one
+	 * @return matching slot, or -1
+	 */
+	private int find(long h, KeyMatcher matcher) {
+		int slot = slot(h);
+		for (int i = 0; i < capacity; ++i) {
+			final long stored = hashAt(slot);
+			if (stored == EMPTY) {
+				return -1;
+			}
+			if (stored == h && matcher.matches(locationAt(slot))) {
+				return slot;
+			}
+			slot = (slot + 1) & (capacity - 1);
+		}
+		return -1;
+	}
+
+	private void rehash(int newCapacity) throws IOException {
+		rehash(newCapacity, false);
+	}
+
+	private void rehash(int newCapacity, boolean empty) throws IOException {
+		final Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		create(tmp, newCapacity);
+		final FileChannel newChannel = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		final MappedByteBuffer newBuffer = newChannel.map(MapMode.READ_WRITE, 0, newChannel.size());
+		int newSize = 0;
+		if (!empty) {
+			for (int slot = 0; slot < capacity; ++slot) {
+				final long h = hashAt(slot);
+				if (h == EMPTY || h == TOMBSTONE) {
+					continue;
+				}
+				int target = (int) (mix(h) & (newCapacity - 1));
+				while (newBuffer.getLong(HEADER_BYTES + target * SLOT_BYTES) != EMPTY) {
+					target = (target + 1) & (newCapacity - 1);
+				}
+				newBuffer.putLong(HEADER_BYTES + target * SLOT_BYTES, h);
+				newBuffer.putLong(HEADER_BYTES + target * SLOT_BYTES + 8, locationAt(slot));
+				++newSize;
+			}
+		}
+		newBuffer.putInt(12, newSize);
+		newBuffer.putInt(16, newSize);
+		newBuffer.force();
+		newChannel.close();
+		channel.close();
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		buffer = channel.map(MapMode.READ_WRITE, 0, channel.size());
+		capacity = newCapacity;
+		size = newSize;
+		used = newSize;
+	}
+
+	private static void create(Path path, int capacity) throws IOException {
+		try (FileChannel channel = FileChannel.open(
+				path,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			final MappedByteBuffer buffer =
+					channel.map(MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * SLOT_BYTES);
+			buffer.putLong(0, MAGIC);
+			buffer.putInt(8, capacity);
+			buffer.putInt(12, 0);
+			buffer.putInt(16, 0);
+			buffer.force();
+		}
+	}
+
+	private void writeCounters() {
+		buffer.putInt(12, size);
+		buffer.putInt(16, used);
+	}
+
+	private int slot(long h) {
+		return (int) (mix(h) & (capacity - 1));
+	}
+
+	private long hashAt(int slot) {
+		return buffer.getLong(HEADER_BYTES + slot * SLOT_BYTES);
+	}
+
+	private long locationAt(int slot) {
+		return buffer.getLong(HEADER_BYTES + slot * SLOT_BYTES + 8);
+	}
+
+	private void setLocationAt(int slot, long location) {
+		buffer.putLong(HEADER_BYTES + slot * SLOT_BYTES + 8, location);
+	}
+
+	private void setAt(int slot, long h, long location) {
+		buffer.putLong(HEADER_BYTES + slot * SLOT_BYTES + 8, location);
+		buffer.putLong(HEADER_BYTES + slot * SLOT_BYTES, h);
+	}
+
+	/**
+	 * @param h a normalized hash
+	 * @return bits spread over the whole long (slots are picked from low bits)
+	 */
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * Empty and tombstone markers can't be used as hashes
+	 */
+	private static long normalize(long hash) {
+		return hash == EMPTY || hash == TOMBSTONE ? hash + 2 : hash;
+	}
+
+	/**
+	 * @param key string to hash
+	 * @return 64 bits FNV-1a hash of the string chars
+	 */
+	static long hash(String key) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); ++i) {
+			final char c = key.charAt(i);
+			h ^= c & 0xff;
+			h *= 0x100000001b3L;
+			h ^= c >>> 8;
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+	/**
+	 * Tells if the record at a location is for the searched key
+	 */
+	@FunctionalInterface
+	static interface KeyMatcher {
+		boolean matches(long location);
+	}
+}
@@ -15,77 +15,45 @@
  */
 package com.c4_soft.springaddons.sample.authorization.web;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.context.annotation.Profile;
-import org.springframework.core.env.Environment;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.oauth2.common.OAuth2AccessToken;
-import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.http.MediaType;
 import org.springframework.security.oauth2.provider.endpoint.FrameworkEndpoint;
-import org.springframework.security.oauth2.provider.token.TokenStore;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
-import com.c4_soft.oauth2.rfc7662.IntrospectionClaimNames;
+import com.c4_soft.springaddons.sample.authorization.token.IntrospectingTokenStore;
+import com.c4_soft.springaddons.sample.authorization.token.IntrospectionPrecomputingTokenStore;
+import com.c4_soft.springaddons.sample.authorization.token.MappedTokenStore;
 
 /**
  * Legacy Authorization Server (spring-security-oauth2) does not support any
  * Token Introspection endpoint.
  *
  * This class adds ad-hoc support in order to better support the other samples
- * in the repo.
+ * in the repo. Responses are precomputed by {@link IntrospectionPrecomputingTokenStore} or stored in
+ * {@link MappedTokenStore} records.
  */
 @FrameworkEndpoint
 @RequestMapping("/introspect")
 @Profile("!jwt")
 class IntrospectEndpoint {
-	final TokenStore tokenStore;
-	final boolean authoritiesClaim;
+	final IntrospectingTokenStore tokenStore;
 
-	public IntrospectEndpoint(TokenStore tokenStore, Environment env) {
+	public IntrospectEndpoint(IntrospectingTokenStore tokenStore) {
 		this.tokenStore = tokenStore;
-		this.authoritiesClaim = Stream.of(env.getActiveProfiles()).noneMatch("jpa"::equals);
 	}
 
+	/**
+	 * @param token access token to introspect
+	 * @return introspection response serialized when the token was issued
+	 */
 	@CrossOrigin(origins = "https://localhost:8090")
-	@PostMapping
+	@PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
 	@ResponseBody
-	@Cacheable("introspection-tokens")
-	public Map<String, Object> introspect(@RequestParam("token") String token) {
-		final OAuth2AccessToken accessToken = tokenStore.readAccessToken(token);
-
-		if (accessToken == null || accessToken.isExpired()) {
-			return Map.of(IntrospectionClaimNames.ACTIVE.value, false);
-		}
-
-		final OAuth2Authentication authentication = tokenStore.readAuthentication(token);
-
-		final Map<String, Object> attributes = new HashMap<>(accessToken.getAdditionalInformation());
-
-		attributes.put(IntrospectionClaimNames.SUBJECT.value, authentication.getName());
-		attributes.put(IntrospectionClaimNames.USERNAME.value, authentication.getName());
-
-		final Set<String> scopes = accessToken.getScope();
-		attributes.put(IntrospectionClaimNames.SCOPE.value, scopes.stream().collect(Collectors.joining(" ")));
-
-		if (authoritiesClaim && authentication.getAuthorities().size() > 0) {
-			attributes.put("authorities", authentication.getAuthorities().stream()
-					.map(GrantedAuthority::getAuthority)
-					.filter(a -> scopes.contains(a.split(":")[0]))
-					.collect(Collectors.toSet()));
-		}
-
-		attributes.put(IntrospectionClaimNames.ACTIVE.value, true);
-
-		return attributes;
+	public byte[] introspect(@RequestParam("token") String token) {
+		return tokenStore.introspect(token).orElse(IntrospectingTokenStore.INACTIVE);
 	}
-}
\ No newline at end of file
+}
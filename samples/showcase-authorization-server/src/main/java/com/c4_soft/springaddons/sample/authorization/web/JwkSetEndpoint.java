@@ -15,49 +15,48 @@
  */
 package com.c4_soft.springaddons.sample.authorization.web;
 
-import java.security.KeyPair;
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
-import java.util.Map;
-import java.util.UUID;
+import java.time.Duration;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.oauth2.provider.endpoint.FrameworkEndpoint;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.ResponseBody;
 
-import com.nimbusds.jose.jwk.JWK;
-import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.KeyUse;
-import com.nimbusds.jose.jwk.RSAKey;
+import com.c4_soft.springaddons.sample.authorization.key.RotatingKeyManager;
 
 /**
  * Legacy Authorization Server (spring-security-oauth2) does not support any <a href target="_blank"
  * href="https://tools.ietf.org/html/rfc7517#section-5">JWK Set</a> endpoint.
  *
  * This class adds ad-hoc support in order to better support the other samples in the repo.
+ *
+ * The document is serialized by {@link RotatingKeyManager} once per keys change, with public keys only and their
+ * <a target="_blank" href="https://tools.ietf.org/html/rfc7638">RFC 7638 thumbprints</a> as key IDs, with a strong
+ * ETag and a max-age. Requests with a matching {@code If-None-Match} get a 304 with no body.
  */
 @FrameworkEndpoint
 @Profile("jwt")
 class JwkSetEndpoint {
-	KeyPair keyPair;
+	private final RotatingKeyManager keyManager;
+
+	private final CacheControl cacheControl;
 
-	public JwkSetEndpoint(KeyPair keyPair) {
-		this.keyPair = keyPair;
+	public JwkSetEndpoint(RotatingKeyManager keyManager, @Value("${showcase.jwks.max-age:PT5M}") Duration maxAge) {
+		this.keyManager = keyManager;
+		this.cacheControl = CacheControl.maxAge(maxAge).cachePublic();
 	}
 
+	/**
+	 * @return precomputed JWK set, or 304 (handled by Spring MVC from ETag) if client's copy is still valid
+	 */
 	@CrossOrigin
-	@GetMapping("/.well-known/jwks.json")
-	@ResponseBody
-	public Map<String, Object> getKey() {
-		JWK jwk =
-				new RSAKey
-						.Builder((RSAPublicKey) keyPair.getPublic())
-						.privateKey((RSAPrivateKey) keyPair.getPrivate())
-						.keyUse(KeyUse.SIGNATURE)
-						.keyID(UUID.randomUUID().toString())
-						.build();
-		return new JWKSet(jwk).toJSONObject();
+	@GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<byte[]> getKeys() {
+		final RotatingKeyManager.KeySet keySet = keyManager.getKeySet();
+		return ResponseEntity.ok().eTag(keySet.getEtag()).cacheControl(cacheControl).body(keySet.getJwkSet());
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.claims;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class CompactJwtPayloadWriterTests {
+	private static final Date EXPIRATION = Date.from(Instant.parse("2019-12-01T11:00:00Z"));
+
+	private static final List<GrantedAuthority> ADMIN_AUTHORITIES = AuthorityUtils.createAuthorityList(
+			"showcase:ROLE_USER",
+			"showcase:AUTHORIZED_PERSONNEL",
+			"other:ROLE_ADMIN",
+			"unrequested:ROLE_ADMIN");
+
+	final ObjectMapper objectMapper = new ObjectMapper();
+
+	ScopedAuthoritiesIndex index;
+
+	IndexingUserDetailsManager users;
+
+	@Before
+	public void setUp() {
+		index = new ScopedAuthoritiesIndex();
+		users = new IndexingUserDetailsManager(new InMemoryUserDetailsManager(), index);
+		users.createUser(User.withUsername("admin").password("password").authorities(ADMIN_AUTHORITIES).build());
+	}
+
+	@Test
+	public void passwordGrantClaimsAreTheSameAsDefaultConverterOnes() throws Exception {
+		final var token = accessToken("jti-1");
+		final var indexed = userAuthentication("admin", "showcase other", ADMIN_AUTHORITIES);
+		final var notIndexed = userAuthentication("unknown", "showcase other", ADMIN_AUTHORITIES);
+
+		assertSameClaims(token, indexed, true);
+		assertSameClaims(token, notIndexed, true);
+		assertSameClaims(token, indexed, false);
+		assertThat(claims(new CompactJwtPayloadWriter(index, true).encode(token, indexed)).get("authorities"))
+				.isEqualTo(Set.of("showcase:ROLE_USER", "showcase:AUTHORIZED_PERSONNEL", "other:ROLE_ADMIN"));
+	}
+
+	@Test
+	public void refreshTokenClaimsAreTheSameAsDefaultConverterOnes() throws Exception {
+		final var token = accessToken("refresh-jti");
+		token.setExpiration(null);
+		token.setAdditionalInformation(Map.of("jti", "refresh-jti", "ati", "access-jti"));
+
+		assertSameClaims(token, userAuthentication("admin", "showcase", ADMIN_AUTHORITIES), true);
+	}
+
+	@Test
+	public void clientCredentialsClaimsAreTheSameAsDefaultConverterOnes() throws Exception {
+		final var request = new OAuth2Request(
+				Map.of("grant_type", "client_credentials"),
+				"showcase-resource-server",
+				AuthorityUtils.createAuthorityList("INTROSPECTION_CLIENT"),
+				true,
+				Set.of("showcase"),
+				Set.of("showcase-api"),
+				null,
+				Set.of(),
+				Map.of());
+
+		assertSameClaims(accessToken("jti-2"), new OAuth2Authentication(request, null), true);
+	}
+
+	@Test
+	public void authoritiesFollowUserUpdatesAndSpecialCharsAreEscaped() throws Exception {
+		final var writer = new CompactJwtPayloadWriter(index, true);
+		final var authentication = userAuthentication("admin", "showcase", ADMIN_AUTHORITIES);
+		assertThat(claims(writer.encode(accessToken("jti"), authentication)).get("authorities"))
+				.isEqualTo(Set.of("showcase:ROLE_USER", "showcase:AUTHORIZED_PERSONNEL"));
+
+		users.updateUser(
+				User.withUsername("admin")
+						.password("password")
+						.authorities("showcase:ROLE_USER", "showcase:\"quoted\"\\")
+						.build());
+
+		assertThat(claims(writer.encode(accessToken("jti"), authentication)).get("authorities"))
+				.isEqualTo(Set.of("showcase:ROLE_USER", "showcase:\"quoted\"\\"));
+
+		users.deleteUser("admin");
+		assertThat(index.get("admin")).isNull();
+	}
+
+	@Test
+	public void cachedAuthoritiesPerScopeStringAreBounded() {
+		// User sorts authorities
+		final var authorities = index.get("admin");
+		for (int i = 0; i < 2 * ScopedAuthoritiesIndex.MAX_CACHED_SCOPE_STRINGS_PER_USER; ++i) {
+			assertThat(authorities.authoritiesJson("showcase scope-" + i))
+					.isEqualTo("\"showcase:AUTHORIZED_PERSONNEL\",\"showcase:ROLE_USER\"");
+		}
+		assertThat(authorities.authoritiesJson("other showcase other"))
+				.isEqualTo("\"other:ROLE_ADMIN\",\"showcase:AUTHORIZED_PERSONNEL\",\"showcase:ROLE_USER\"");
+		assertThat(authorities.authoritiesJson("none")).isEmpty();
+		assertThat(authorities.authoritiesJson(null)).isEmpty();
+	}
+
+	private void assertSameClaims(
+			DefaultOAuth2AccessToken token,
+			OAuth2Authentication authentication,
+			boolean authoritiesClaim) throws Exception {
+		final var defaultConverter = new DefaultAccessTokenConverter();
+		defaultConverter.setUserTokenConverter(new SubjectAttributeUserTokenConverter(authoritiesClaim));
+		final String expected =
+				objectMapper.writeValueAsString(defaultConverter.convertAccessToken(token, authentication));
+
+		final String actual = new CompactJwtPayloadWriter(index, authoritiesClaim).encode(token, authentication);
+
+		assertThat(claims(actual)).isEqualTo(claims(expected));
+	}
+
+	/**
+	 * @return parsed claims, with arrays as sets (default converter uses hash sets)
+	 */
+	private Map<String, Object> claims(String json) throws Exception {
+		final Map<String, Object> claims = objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {
+		});
+		return claims.entrySet()
+				.stream()
+				.collect(
+						Collectors.toMap(
+								Map.Entry::getKey,
+								e -> e.getValue() instanceof Collection ? new HashSet<>((Collection<?>) e.getValue())
+										: e.getValue()));
+	}
+
+	private static DefaultOAuth2AccessToken accessToken(String jti) {
+		final var token = new DefaultOAuth2AccessToken(jti);
+		token.setScope(Set.of("showcase", "other"));
+		token.setExpiration(EXPIRATION);
+		token.setAdditionalInformation(Map.of("jti", jti));
+		return token;
+	}
+
+	private static OAuth2Authentication userAuthentication(
+			String username,
+			String scope,
+			Collection<? extends GrantedAuthority> authorities) {
+		final Map<String, String> parameters = new LinkedHashMap<>();
+		parameters.put("grant_type", "password");
+		parameters.put("username", username);
+		parameters.put("scope", scope);
+		final var request = new OAuth2Request(
+				parameters,
+				"user-agent",
+				AuthorityUtils.NO_AUTHORITIES,
+				true,
+				Set.of(scope.split(" ")),
+				Set.of(),
+				null,
+				Set.of(),
+				Map.of());
+		final var user = new UsernamePasswordAuthenticationToken(username, null, authorities);
+		user.setDetails(parameters);
+		return new OAuth2Authentication(request, user);
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.claims;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.util.JsonParser;
+import org.springframework.security.oauth2.common.util.JsonParserFactory;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter;
+
+import com.c4_soft.springaddons.sample.authorization.key.JwtPayloadEncoder;
+import com.c4_soft.springaddons.sample.authorization.key.KeyRotatingJwtAccessTokenConverter;
+import com.c4_soft.springaddons.sample.authorization.key.RotatingKeyManager;
+import com.nimbusds.jose.JWSAlgorithm;
+
+/**
+ * <p>Access token minting (claims, JSON payload, JWS assembly and signature) with default claims maps and with
+ * {@link CompactJwtPayloadWriter}. ES256 keys, so that signature does not hide payload cost. From samples
+ * directory:</p>
+ *
+ * <pre>
+ * mvn -pl showcase-authorization-server test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main JwtMintingBenchmark -prof gc"
+ * </pre>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtMintingBenchmark {
+	@Param({ "default", "compact" })
+	String payload;
+
+	KeyRotatingJwtAccessTokenConverter converter;
+
+	JwtPayloadEncoder payloadEncoder;
+
+	DefaultOAuth2AccessToken token;
+
+	OAuth2Authentication authentication;
+
+	@Setup
+	public void setUp() {
+		final var authorities = AuthorityUtils
+				.createAuthorityList("showcase:ROLE_USER", "showcase:AUTHORIZED_PERSONNEL", "other:ROLE_ADMIN");
+		final var index = new ScopedAuthoritiesIndex();
+		index.put("admin", authorities);
+
+		converter = new KeyRotatingJwtAccessTokenConverter(
+				new RotatingKeyManager(Duration.ofDays(7), Duration.ofDays(30), JWSAlgorithm.ES256));
+		final var accessTokenConverter = new DefaultAccessTokenConverter();
+		accessTokenConverter.setUserTokenConverter(new SubjectAttributeUserTokenConverter(true));
+		converter.setAccessTokenConverter(accessTokenConverter);
+		final JsonParser jsonParser = JsonParserFactory.create();
+		payloadEncoder = "compact".equals(payload)
+				? new CompactJwtPayloadWriter(index, true)
+				: (t, a) -> jsonParser.formatMap(accessTokenConverter.convertAccessToken(t, a));
+		converter.setPayloadEncoder(payloadEncoder);
+
+		final Map<String, String> parameters = new LinkedHashMap<>();
+		parameters.put("grant_type", "password");
+		parameters.put("username", "admin");
+		parameters.put("scope", "showcase");
+		final var request = new OAuth2Request(
+				parameters,
+				"user-agent",
+				AuthorityUtils.NO_AUTHORITIES,
+				true,
+				Set.of("showcase"),
+				Set.of(),
+				null,
+				Set.of(),
+				Map.of());
+		final var user = new UsernamePasswordAuthenticationToken("admin", null, authorities);
+		user.setDetails(parameters);
+		authentication = new OAuth2Authentication(request, user);
+
+		token = new DefaultOAuth2AccessToken("c5a1b7ae-2d5b-4a8e-9b1c-2f3e4d5c6b7a");
+		token.setScope(Set.of("showcase"));
+		token.setExpiration(Date.from(Instant.now().plusSeconds(3600)));
+	}
+
+	/**
+	 * Payload JSON only (no signature)
+	 */
+	@Benchmark
+	public String payload() {
+		return payloadEncoder.encode(token, authentication);
+	}
+
+	@Benchmark
+	public OAuth2AccessToken mint() {
+		return converter.enhance(token, authentication);
+	}
+}
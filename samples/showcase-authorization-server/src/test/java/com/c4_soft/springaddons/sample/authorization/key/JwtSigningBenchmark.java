@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.key;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.jwt.crypto.sign.RsaSigner;
+import org.springframework.security.jwt.crypto.sign.Signer;
+
+/**
+ * <p>Compares JWT signing with spring-security-jwt {@link RsaSigner} (new {@code Signature} per token) and
+ * {@link CachedSignatureSigner}. From samples directory:</p>
+ *
+ * <pre>
+ * mvn -pl showcase-authorization-server test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main JwtSigningBenchmark"
+ * </pre>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtSigningBenchmark {
+	static final String CLAIMS = "{\"sub\":\"admin\",\"scope\":[\"showcase\"],\"exp\":1575194400,"
+			+ "\"authorities\":[\"showcase:ROLE_USER\"],\"client_id\":\"user-agent\"}";
+
+	@Param({ "rsa-signer", "cached-signature" })
+	String signerType;
+
+	Signer signer;
+
+	@Setup
+	public void setUp() throws Exception {
+		final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+		generator.initialize(2048);
+		final KeyPair keyPair = generator.generateKeyPair();
+		signer = "rsa-signer".equals(signerType)
+				? new RsaSigner((RSAPrivateKey) keyPair.getPrivate())
+				: new CachedSignatureSigner("SHA256withRSA", keyPair.getPrivate());
+	}
+
+	@Benchmark
+	public String sign() {
+		return JwtHelper.encode(CLAIMS, signer).getEncoded();
+	}
+}
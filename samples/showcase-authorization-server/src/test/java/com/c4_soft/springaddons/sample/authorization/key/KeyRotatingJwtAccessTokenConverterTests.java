@@ -0,0 +1,186 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.key;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+import com.c4_soft.springaddons.sample.authorization.MutableClock;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jwt.SignedJWT;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class KeyRotatingJwtAccessTokenConverterTests {
+	private static final Instant NOW = Instant.parse("2019-12-01T10:00:00Z");
+
+	MutableClock clock;
+
+	RotatingKeyManager keyManager;
+
+	KeyRotatingJwtAccessTokenConverter converter;
+
+	JwtTokenStore tokenStore;
+
+	@Before
+	public void setUp() {
+		clock = new MutableClock(NOW);
+		keyManager = new RotatingKeyManager(
+				clock,
+				Duration.ofDays(1),
+				Duration.ofHours(2),
+				RotatingKeyManager::generateRsaKey);
+		converter = new KeyRotatingJwtAccessTokenConverter(keyManager);
+		converter.afterPropertiesSet();
+		tokenStore = new JwtTokenStore(converter);
+	}
+
+	@Test
+	public void tokensAreSignedWithCurrentKeyAndVerifiedUntilItIsRetired() {
+		final String kid = keyManager.getCurrent().getKid();
+		final String jwt = issue("admin");
+
+		assertThat(JwtHelper.headers(jwt)).containsEntry("kid", kid).containsEntry("alg", "RS256");
+		assertThat(tokenStore.readAuthentication(jwt).getName()).isEqualTo("admin");
+
+		clock.set(NOW.plus(Duration.ofDays(1)));
+		keyManager.maintain();
+		assertThat(JwtHelper.headers(issue("admin"))).doesNotContainEntry("kid", kid);
+		assertThat(tokenStore.readAuthentication(jwt).getName()).isEqualTo("admin");
+
+		clock.set(NOW.plus(Duration.ofDays(1)).plus(Duration.ofHours(2)));
+		keyManager.maintain();
+		assertThatThrownBy(() -> tokenStore.readAuthentication(jwt)).isInstanceOf(InvalidTokenException.class);
+	}
+
+	@Test
+	public void tamperedTokenIsRejected() {
+		final String jwt = issue("admin");
+		final String[] parts = jwt.split("\\.");
+		final String tampered = parts[0] + "." + parts[1].substring(1) + "." + parts[2];
+
+		assertThatThrownBy(() -> tokenStore.readAuthentication(tampered)).isInstanceOf(InvalidTokenException.class);
+	}
+
+	@Test
+	public void es256TokensAreVerifiableWithPublishedJwk() throws Exception {
+		useKeys(RotatingKeyManager::generateEcKey);
+		final String jwt = issue("admin");
+
+		final SignedJWT parsed = SignedJWT.parse(jwt);
+		assertThat(parsed.getHeader().getAlgorithm().getName()).isEqualTo("ES256");
+		assertThat(parsed.verify(new ECDSAVerifier((ECKey) keyManager.getCurrent().getPublicJwk()))).isTrue();
+		assertThat(tokenStore.readAuthentication(jwt).getName()).isEqualTo("admin");
+	}
+
+	@Test
+	public void eddsaTokensAreSignedAndVerified() throws Exception {
+		Assume.assumeTrue("Ed25519 requires Java 15+", RotatingKeyManager.isSupported(JWSAlgorithm.EdDSA));
+		useKeys(RotatingKeyManager::generateEd25519Key);
+		final String jwt = issue("admin");
+
+		assertThat(SignedJWT.parse(jwt).getHeader().getAlgorithm().getName()).isEqualTo("EdDSA");
+		assertThat(keyManager.getCurrent().getPublicJwk().toJSONObject()).containsEntry("crv", "Ed25519");
+		assertThat(tokenStore.readAuthentication(jwt).getName()).isEqualTo("admin");
+	}
+
+	@Test
+	public void algHeaderOtherThanKeyOneIsRejected() {
+		final String jwt = issue("admin");
+		final String header = new String(Base64.getUrlDecoder().decode(jwt.split("\\.")[0]), StandardCharsets.UTF_8);
+		final String forged = Base64.getUrlEncoder()
+				.withoutPadding()
+				.encodeToString(header.replace("RS256", "HS256").getBytes(StandardCharsets.UTF_8))
+				+ jwt.substring(jwt.indexOf('.'));
+
+		assertThatThrownBy(() -> tokenStore.readAuthentication(forged)).isInstanceOf(InvalidTokenException.class);
+	}
+
+	@Test
+	public void cachedSignaturesAreThreadSafe() throws Exception {
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		final List<Future<String>> tokens = new ArrayList<>();
+		for (int i = 0; i < 200; ++i) {
+			final String username = "user-" + i;
+			tokens.add(executor.submit(() -> issue(username)));
+		}
+		executor.shutdown();
+		for (int i = 0; i < 200; ++i) {
+			assertThat(tokenStore.readAuthentication(tokens.get(i).get()).getName()).isEqualTo("user-" + i);
+		}
+	}
+
+	private void useKeys(Function<Instant, SigningKey> keyGenerator) {
+		keyManager = new RotatingKeyManager(clock, Duration.ofDays(1), Duration.ofHours(2), keyGenerator);
+		converter = new KeyRotatingJwtAccessTokenConverter(keyManager);
+		tokenStore = new JwtTokenStore(converter);
+	}
+
+	private String issue(String username) {
+		final var token = new DefaultOAuth2AccessToken("opaque");
+		token.setScope(Set.of("showcase"));
+		return converter.enhance(token, authentication(username)).getValue();
+	}
+
+	private static OAuth2Authentication authentication(String username) {
+		final var request = new OAuth2Request(
+				Map.of(),
+				"user-agent",
+				AuthorityUtils.NO_AUTHORITIES,
+				true,
+				Set.of("showcase"),
+				Set.of(),
+				null,
+				Set.of(),
+				Map.of());
+		return new OAuth2Authentication(
+				request,
+				new UsernamePasswordAuthenticationToken(
+						username,
+						null,
+						AuthorityUtils.createAuthorityList("showcase:ROLE_USER")));
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.key;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.c4_soft.springaddons.sample.authorization.MutableClock;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class RotatingKeyManagerTests {
+	private static final Instant NOW = Instant.parse("2019-12-01T10:00:00Z");
+
+	MutableClock clock;
+
+	RotatingKeyManager keyManager;
+
+	@Before
+	public void setUp() {
+		clock = new MutableClock(NOW);
+		keyManager = new RotatingKeyManager(
+				clock,
+				Duration.ofDays(1),
+				Duration.ofHours(2),
+				RotatingKeyManager::generateRsaKey);
+	}
+
+	@Test
+	public void nextKeyIsPublishedBeforeItSigns() throws Exception {
+		final SigningKey first = keyManager.getCurrent();
+
+		assertThat(kids(keyManager.getKeySet())).hasSize(2).startsWith(first.getKid());
+		final String next = kids(keyManager.getKeySet())[1];
+
+		clock.set(NOW.plus(Duration.ofDays(1)).minusMillis(1));
+		final RotatingKeyManager.KeySet beforeRotation = keyManager.getKeySet();
+		keyManager.maintain();
+		assertThat(keyManager.getKeySet()).isSameAs(beforeRotation);
+
+		clock.set(NOW.plus(Duration.ofDays(1)));
+		keyManager.maintain();
+
+		assertThat(keyManager.getCurrent().getKid()).isEqualTo(next);
+		assertThat(kids(keyManager.getKeySet())).hasSize(3).startsWith(next).endsWith(first.getKid());
+		assertThat(keyManager.getKey(first.getKid())).contains(first);
+		assertThat(keyManager.getKeySet().getEtag()).isNotEqualTo(beforeRotation.getEtag());
+	}
+
+	@Test
+	public void rotatedOutKeyReleasesPooledSignatures() {
+		final SigningKey first = keyManager.getCurrent();
+		final CachedSignatureSigner signer = (CachedSignatureSigner) first.getSigner();
+		signer.sign(new byte[] { 1 });
+		assertThat(signer.getPooledCount()).isEqualTo(1);
+
+		clock.set(NOW.plus(Duration.ofDays(1)));
+		keyManager.maintain();
+
+		assertThat(signer.getPooledCount()).isZero();
+		// a token issued with the key fetched just before rotation is still signed (and verifiable)
+		first.getVerifier().verify(new byte[] { 2 }, signer.sign(new byte[] { 2 }));
+		assertThat(signer.getPooledCount()).isZero();
+		assertThat(((CachedSignatureSigner) keyManager.getCurrent().getSigner()).getPooledCount()).isZero();
+	}
+
+	@Test
+	public void signaturesInFlightWhenClearedAreNotPooled() throws Exception {
+		final CachedSignatureSigner signer = (CachedSignatureSigner) keyManager.getCurrent().getSigner();
+		final AtomicBoolean isCleared = new AtomicBoolean(false);
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<?>> signing = new ArrayList<>();
+			for (int i = 0; i < 4; ++i) {
+				signing.add(executor.submit(() -> {
+					while (!isCleared.get()) {
+						signer.sign(new byte[] { 1 });
+					}
+					// instances in flight when clear() was called are offered back
+					for (int n = 0; n < 16; ++n) {
+						signer.sign(new byte[] { 2 });
+					}
+				}));
+			}
+			Thread.sleep(50);
+			signer.clear();
+			isCleared.set(true);
+			for (final Future<?> future : signing) {
+				future.get(10, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(signer.getPooledCount()).isZero();
+	}
+
+	@Test
+	public void retiredKeyIsDroppedAfterMaxTokenLifetime() throws Exception {
+		final SigningKey first = keyManager.getCurrent();
+		clock.set(NOW.plus(Duration.ofDays(1)));
+		keyManager.maintain();
+
+		clock.set(NOW.plus(Duration.ofDays(1)).plus(Duration.ofHours(2)).minusMillis(1));
+		keyManager.maintain();
+		assertThat(keyManager.getKey(first.getKid())).isPresent();
+
+		clock.set(NOW.plus(Duration.ofDays(1)).plus(Duration.ofHours(2)));
+		keyManager.maintain();
+		assertThat(keyManager.getKey(first.getKid())).isEmpty();
+		assertThat(kids(keyManager.getKeySet())).hasSize(2).doesNotContain(first.getKid());
+	}
+
+	@Test
+	public void publishedKeysArePublicWithThumbprintIds() throws Exception {
+		for (final JWK jwk : JWKSet.parse(new String(keyManager.getKeySet().getJwkSet())).getKeys()) {
+			assertThat(jwk.isPrivate()).isFalse();
+			assertThat(jwk.getKeyID()).isEqualTo(jwk.computeThumbprint().toString());
+		}
+		assertThat(keyManager.getKey(null)).isEmpty();
+	}
+
+	@Test
+	public void ellipticCurveKeysArePublishedWithTheirCurveAndAlgorithm() throws Exception {
+		Assume.assumeTrue("Ed25519 requires Java 15+", RotatingKeyManager.isSupported(JWSAlgorithm.EdDSA));
+		final var ec = new RotatingKeyManager(Duration.ofDays(1), Duration.ofHours(2), JWSAlgorithm.ES256);
+		final var ed = new RotatingKeyManager(Duration.ofDays(1), Duration.ofHours(2), JWSAlgorithm.EdDSA);
+
+		for (final JWK jwk : JWKSet.parse(new String(ec.getKeySet().getJwkSet())).getKeys()) {
+			assertThat(jwk.isPrivate()).isFalse();
+			assertThat(jwk.toJSONObject()).containsEntry("kty", "EC").containsEntry("crv", "P-256")
+					.containsEntry("alg", "ES256");
+		}
+		for (final JWK jwk : JWKSet.parse(new String(ed.getKeySet().getJwkSet())).getKeys()) {
+			assertThat(jwk.isPrivate()).isFalse();
+			assertThat(jwk.getKeyID()).isEqualTo(jwk.computeThumbprint().toString());
+			assertThat(jwk.toJSONObject()).containsEntry("kty", "OKP").containsEntry("crv", "Ed25519")
+					.containsEntry("alg", "EdDSA");
+		}
+	}
+
+	@Test
+	public void algorithmNotSupportedByJcaProviderIsRejectedBeforeGeneratingKeys() {
+		assertThat(RotatingKeyManager.isSupported(JWSAlgorithm.RS256)).isTrue();
+		assertThat(RotatingKeyManager.isSupported(JWSAlgorithm.ES256)).isTrue();
+		assertThat(RotatingKeyManager.isJcaSupported("NoSuchCurve")).isFalse();
+		assertThatThrownBy(() -> RotatingKeyManager.requireJcaSupport("NoSuchCurve"))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("showcase.jwt.signing-algorithm");
+	}
+
+	private static String[] kids(RotatingKeyManager.KeySet keySet) throws Exception {
+		return JWKSet.parse(new String(keySet.getJwkSet()))
+				.getKeys()
+				.stream()
+				.map(JWK::getKeyID)
+				.toArray(String[]::new);
+	}
+}
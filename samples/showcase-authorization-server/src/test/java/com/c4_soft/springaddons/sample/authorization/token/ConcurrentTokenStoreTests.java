@@ -0,0 +1,176 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.token;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.DefaultAuthenticationKeyGenerator;
+
+import com.c4_soft.springaddons.sample.authorization.MutableClock;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class ConcurrentTokenStoreTests {
+	private static final Instant NOW = Instant.parse("2019-12-01T10:00:00Z");
+
+	MutableClock clock;
+
+	ConcurrentTokenStore store;
+
+	@Before
+	public void setUp() {
+		clock = new MutableClock(NOW);
+		store = new ConcurrentTokenStore(clock, Duration.ofSeconds(1), 4, new DefaultAuthenticationKeyGenerator());
+	}
+
+	@Test
+	public void accessTokenIsIndexedByValueAuthenticationClientAndUser() {
+		final var alice = authentication("user-agent", "alice");
+		final var token = accessToken("access", Duration.ofMinutes(5), null);
+		store.storeAccessToken(token, alice);
+
+		assertThat(store.readAccessToken("access")).isSameAs(token);
+		assertThat(store.readAuthentication("access")).isSameAs(alice);
+		assertThat(store.getAccessToken(authentication("user-agent", "alice"))).isSameAs(token);
+		assertThat(store.findTokensByClientId("user-agent")).containsExactly(token);
+		assertThat(store.findTokensByClientIdAndUserName("user-agent", "alice")).containsExactly(token);
+		assertThat(store.findTokensByClientIdAndUserName("user-agent", "bob")).isEmpty();
+
+		store.removeAccessToken(token);
+
+		assertThat(store.readAccessToken("access")).isNull();
+		assertThat(store.getAccessToken(alice)).isNull();
+		assertThat(store.findTokensByClientId("user-agent")).isEmpty();
+		assertThat(store.findTokensByClientIdAndUserName("user-agent", "alice")).isEmpty();
+	}
+
+	@Test
+	public void accessTokenCanBeRemovedUsingRefreshToken() {
+		final var alice = authentication("user-agent", "alice");
+		final var refreshToken = new DefaultExpiringOAuth2RefreshToken("refresh", Date.from(NOW.plusSeconds(3600)));
+		store.storeAccessToken(accessToken("access", Duration.ofMinutes(5), refreshToken), alice);
+		store.storeRefreshToken(refreshToken, alice);
+
+		assertThat(store.readRefreshToken("refresh")).isSameAs(refreshToken);
+		assertThat(store.readAuthenticationForRefreshToken(refreshToken)).isSameAs(alice);
+
+		store.removeAccessTokenUsingRefreshToken(refreshToken);
+
+		assertThat(store.readAccessToken("access")).isNull();
+		assertThat(store.readRefreshToken("refresh")).isSameAs(refreshToken);
+	}
+
+	@Test
+	public void expiredTokensAreRemovedFromAllIndexes() {
+		final var alice = authentication("user-agent", "alice");
+		final var refreshToken = new DefaultExpiringOAuth2RefreshToken("refresh", Date.from(NOW.plusSeconds(60)));
+		store.storeAccessToken(accessToken("short", Duration.ofSeconds(10), refreshToken), alice);
+		store.storeRefreshToken(refreshToken, alice);
+		store.storeAccessToken(accessToken("long", Duration.ofMinutes(5), null), authentication("user-agent", "bob"));
+
+		clock.set(NOW.plusSeconds(10));
+		store.purge();
+
+		assertThat(store.readAccessToken("short")).isNull();
+		assertThat(store.getAccessToken(alice)).isNull();
+		assertThat(store.findTokensByClientId("user-agent")).extracting(OAuth2AccessToken::getValue)
+				.containsExactly("long");
+		assertThat(store.getAccessTokenCount()).isEqualTo(1);
+		assertThat(store.getRefreshTokenCount()).isEqualTo(1);
+
+		clock.set(NOW.plusSeconds(60));
+		store.purge();
+		assertThat(store.readRefreshToken("refresh")).isNull();
+		assertThat(store.getRefreshTokenCount()).isZero();
+	}
+
+	@Test
+	public void alreadyExpiredTokenIsNotStored() {
+		store.storeAccessToken(
+				accessToken("expired", Duration.ofSeconds(-1), null),
+				authentication("user-agent", "alice"));
+
+		assertThat(store.readAccessToken("expired")).isNull();
+		assertThat(store.findTokensByClientId("user-agent")).isEmpty();
+	}
+
+	@Test
+	public void concurrentIssuancesAreAllIndexed() throws InterruptedException {
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 1000; ++i) {
+			final String value = "access-" + i;
+			final var authentication = authentication("user-agent", "user-" + i % 10);
+			executor.execute(
+					() -> store.storeAccessToken(accessToken(value, Duration.ofMinutes(5), null), authentication));
+		}
+		executor.shutdown();
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(store.getAccessTokenCount()).isEqualTo(1000);
+		assertThat(store.findTokensByClientId("user-agent")).hasSize(1000);
+		assertThat(store.findTokensByClientIdAndUserName("user-agent", "user-3")).hasSize(100);
+	}
+
+	private DefaultOAuth2AccessToken accessToken(
+			String value,
+			Duration validity,
+			DefaultExpiringOAuth2RefreshToken refreshToken) {
+		final var token = new DefaultOAuth2AccessToken(value);
+		token.setExpiration(Date.from(clock.instant().plus(validity)));
+		token.setScope(Set.of("showcase"));
+		token.setRefreshToken(refreshToken);
+		return token;
+	}
+
+	private static OAuth2Authentication authentication(String clientId, String username) {
+		final var request = new OAuth2Request(
+				Map.of(),
+				clientId,
+				AuthorityUtils.NO_AUTHORITIES,
+				true,
+				Set.of("showcase"),
+				Set.of(),
+				null,
+				Set.of(),
+				Map.of());
+		return new OAuth2Authentication(
+				request,
+				new UsernamePasswordAuthenticationToken(
+						username,
+						null,
+						AuthorityUtils.createAuthorityList("showcase:ROLE_USER")));
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.token;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.store.InMemoryTokenStore;
+
+import com.c4_soft.springaddons.sample.authorization.MutableClock;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class IntrospectionPrecomputingTokenStoreTests {
+	private static final Instant NOW = Instant.parse("2019-12-01T10:00:00Z");
+
+	MutableClock clock;
+
+	IntrospectionPrecomputingTokenStore store;
+
+	@Before
+	public void setUp() {
+		clock = new MutableClock(NOW);
+		store = new IntrospectionPrecomputingTokenStore(
+				new InMemoryTokenStore(),
+				true,
+				new ObjectMapper(),
+				clock,
+				Duration.ofSeconds(1));
+	}
+
+	@Test
+	public void responseIsSerializedAtIssueTime() throws IOException {
+		store.storeAccessToken(token("access", Duration.ofMinutes(5), null), authentication("admin"));
+
+		@SuppressWarnings("unchecked")
+		final Map<String, Object> actual = new ObjectMapper().readValue(store.introspect("access").get(), Map.class);
+
+		assertThat(actual).containsEntry("active", true)
+				.containsEntry("sub", "admin")
+				.containsEntry("username", "admin")
+				.containsEntry("scope", "showcase")
+				.containsEntry("exp", (int) NOW.plus(Duration.ofMinutes(5)).getEpochSecond());
+		assertThat(actual.get("authorities")).asList().containsExactly("showcase:ROLE_USER");
+		assertThat(store.introspect("access").get()).isSameAs(store.introspect("access").get());
+	}
+
+	@Test
+	public void unknownTokenIsInactive() {
+		assertThat(store.introspect("unknown")).isEmpty();
+		assertThat(store.introspect(null)).isEmpty();
+		assertThat(new String(IntrospectionPrecomputingTokenStore.INACTIVE)).isEqualTo("{\"active\":false}");
+	}
+
+	@Test
+	public void responseDropsOutExactlyAtExpiry() {
+		store.storeAccessToken(token("access", Duration.ofSeconds(30), null), authentication("admin"));
+
+		clock.set(NOW.plusSeconds(30).minusMillis(1));
+		assertThat(store.introspect("access")).isPresent();
+
+		clock.set(NOW.plusSeconds(30));
+		assertThat(store.introspect("access")).isEmpty();
+		assertThat(store.size()).isZero();
+	}
+
+	@Test
+	public void removedTokensAreInactive() {
+		store.storeAccessToken(token("access-1", Duration.ofMinutes(5), null), authentication("admin"));
+		store.storeAccessToken(token("access-2", Duration.ofMinutes(5), "refresh-2"), authentication("user"));
+
+		store.removeAccessToken(token("access-1", Duration.ofMinutes(5), null));
+		store.removeAccessTokenUsingRefreshToken(new DefaultOAuth2RefreshToken("refresh-2"));
+
+		assertThat(store.introspect("access-1")).isEmpty();
+		assertThat(store.introspect("access-2")).isEmpty();
+		assertThat(store.size()).isZero();
+	}
+
+	@Test
+	public void tokensIssuedBeforeDecorationArePrecomputedOnFirstIntrospection() {
+		final var delegate = new InMemoryTokenStore();
+		delegate.storeAccessToken(token("persisted", Duration.ofMinutes(5), null), authentication("admin"));
+		delegate.storeAccessToken(token("expired", Duration.ofSeconds(-1), null), authentication("admin"));
+		store = new IntrospectionPrecomputingTokenStore(
+				delegate,
+				true,
+				new ObjectMapper(),
+				clock,
+				Duration.ofSeconds(1));
+
+		assertThat(store.introspect("persisted")).isPresent();
+		assertThat(store.introspect("expired")).isEmpty();
+		assertThat(store.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void tokenRemovedWhilePrecomputingFromDelegateIsInactive() {
+		final var delegate = new InMemoryTokenStore() {
+			@Override
+			public OAuth2Authentication readAuthentication(String token) {
+				final OAuth2Authentication authentication = super.readAuthentication(token);
+				// revoked after the token was read, but before its response is cached
+				store.removeAccessToken(readAccessToken(token));
+				return authentication;
+			}
+		};
+		delegate.storeAccessToken(token("persisted", Duration.ofMinutes(5), "refresh"), authentication("admin"));
+		store = new IntrospectionPrecomputingTokenStore(
+				delegate,
+				true,
+				new ObjectMapper(),
+				clock,
+				Duration.ofSeconds(1));
+
+		assertThat(store.introspect("persisted")).isEmpty();
+		assertThat(store.introspect("persisted")).isEmpty();
+		assertThat(store.size()).isZero();
+	}
+
+	private DefaultOAuth2AccessToken token(String value, Duration validity, String refreshToken) {
+		final var token = new DefaultOAuth2AccessToken(value);
+		token.setExpiration(Date.from(clock.instant().plus(validity)));
+		token.setScope(Set.of("showcase"));
+		if (refreshToken != null) {
+			token.setRefreshToken(new DefaultOAuth2RefreshToken(refreshToken));
+		}
+		return token;
+	}
+
+	private static OAuth2Authentication authentication(String username) {
+		final var request = new OAuth2Request(
+				Map.of(),
+				"user-agent",
+				AuthorityUtils.NO_AUTHORITIES,
+				true,
+				Set.of("showcase"),
+				Set.of(),
+				null,
+				Set.of(),
+				Map.of());
+		return new OAuth2Authentication(
+				request,
+				new UsernamePasswordAuthenticationToken(
+						username,
+						null,
+						AuthorityUtils.createAuthorityList("showcase:ROLE_USER", "other:ROLE_ADMIN")));
+	}
+}
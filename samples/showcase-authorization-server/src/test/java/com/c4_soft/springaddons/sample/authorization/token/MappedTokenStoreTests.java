@@ -0,0 +1,343 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.token;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.DefaultAuthenticationKeyGenerator;
+
+import com.c4_soft.springaddons.sample.authorization.MutableClock;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class MappedTokenStoreTests {
+	private static final Instant NOW = Instant.parse("2019-12-01T10:00:00Z");
+
+	private static final int SEGMENT_BYTES = 16 * 1024;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	MutableClock clock;
+
+	Path directory;
+
+	MappedTokenStore store;
+
+	@Before
+	public void setUp() throws IOException {
+		clock = new MutableClock(NOW);
+		directory = folder.getRoot().toPath();
+		store = open();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		store.close();
+	}
+
+	@Test
+	public void accessTokenIsReadableByValueAuthenticationClientAndUser() {
+		final var token = accessToken("access", Duration.ofMinutes(5), null);
+		store.storeAccessToken(token, authentication("user-agent", "alice"));
+
+		assertThat(store.readAccessToken("access")).isEqualTo(token);
+		assertThat(store.readAuthentication("access").getName()).isEqualTo("alice");
+		assertThat(store.getAccessToken(authentication("user-agent", "alice"))).isEqualTo(token);
+		assertThat(store.findTokensByClientId("user-agent")).containsExactly(token);
+		assertThat(store.findTokensByClientIdAndUserName("user-agent", "alice")).containsExactly(token);
+		assertThat(store.findTokensByClientIdAndUserName("user-agent", "bob")).isEmpty();
+		assertThat(store.readAccessToken("unknown")).isNull();
+
+		store.removeAccessToken(token);
+
+		assertThat(store.readAccessToken("access")).isNull();
+		assertThat(store.getAccessToken(authentication("user-agent", "alice"))).isNull();
+		assertThat(store.findTokensByClientId("user-agent")).isEmpty();
+	}
+
+	@Test
+	public void accessTokenCanBeRemovedUsingRefreshToken() {
+		final var alice = authentication("user-agent", "alice");
+		final var refreshToken = new DefaultExpiringOAuth2RefreshToken("refresh", Date.from(NOW.plusSeconds(3600)));
+		store.storeAccessToken(accessToken("access", Duration.ofMinutes(5), refreshToken), alice);
+		store.storeRefreshToken(refreshToken, alice);
+
+		assertThat(store.readRefreshToken("refresh")).isEqualTo(refreshToken);
+		assertThat(store.readAuthenticationForRefreshToken(refreshToken).getName()).isEqualTo("alice");
+
+		store.removeAccessTokenUsingRefreshToken(refreshToken);
+
+		assertThat(store.readAccessToken("access")).isNull();
+		assertThat(store.readRefreshToken("refresh")).isEqualTo(refreshToken);
+
+		store.removeRefreshToken(refreshToken);
+
+		assertThat(store.readRefreshToken("refresh")).isNull();
+	}
+
+	@Test
+	public void tokensSurviveCleanRestart() throws IOException {
+		store.storeAccessToken(accessToken("kept", Duration.ofMinutes(5), null), authentication("user-agent", "alice"));
+		final var removed = accessToken("removed", Duration.ofMinutes(5), null);
+		store.storeAccessToken(removed, authentication("user-agent", "bob"));
+		store.removeAccessToken(removed);
+
+		store.close();
+		store = open();
+
+		assertThat(store.readAccessToken("kept").getValue()).isEqualTo("kept");
+		assertThat(store.readAccessToken("removed")).isNull();
+		assertThat(store.getAccessTokenCount()).isEqualTo(1);
+
+		store.storeAccessToken(accessToken("after", Duration.ofMinutes(5), null), authentication("user-agent", "bob"));
+		assertThat(store.findTokensByClientId("user-agent")).extracting(OAuth2AccessToken::getValue)
+				.containsExactlyInAnyOrder("kept", "after");
+	}
+
+	@Test
+	public void introspectionResponseIsStoredWithAccessToken() throws IOException {
+		store.storeAccessToken(accessToken("kept", Duration.ofMinutes(5), null), authentication("user-agent", "alice"));
+		final var removed = accessToken("removed", Duration.ofMinutes(5), null);
+		store.storeAccessToken(removed, authentication("user-agent", "bob"));
+		store.storeAccessToken(accessToken("short", Duration.ofSeconds(10), null), authentication("user-agent", "bob"));
+		store.removeAccessToken(removed);
+
+		store.close();
+		store = open();
+
+		assertThat(new String(store.introspect("kept").get())).isEqualTo(
+				"{\"active\":true,\"sub\":\"alice\",\"username\":\"alice\",\"exp\":1575194700,"
+						+ "\"scope\":\"showcase\",\"authorities\":[\"showcase:ROLE_USER\"]}");
+		assertThat(store.introspect("removed")).isEmpty();
+		assertThat(store.introspect("short")).isPresent();
+		assertThat(store.introspect("unknown")).isEmpty();
+
+		clock.set(NOW.plusSeconds(10));
+
+		assertThat(store.introspect("short")).isEmpty();
+		assertThat(store.introspect("kept")).isPresent();
+	}
+
+	@Test
+	public void indexesAreRebuiltAfterCrashIgnoringTornRecord() throws IOException {
+		store.storeAccessToken(accessToken("first", Duration.ofMinutes(5), null), authentication("user-agent", "alice"));
+		store.storeAccessToken(accessToken("second", Duration.ofMinutes(5), null), authentication("user-agent", "bob"));
+		store.flush();
+		corruptLastRecord();
+
+		// no close: checkpoint is missing, as after a process crash
+		final MappedTokenStore recovered = open();
+		try {
+			assertThat(recovered.readAccessToken("first").getValue()).isEqualTo("first");
+			assertThat(recovered.readAccessToken("second")).isNull();
+			assertThat(recovered.getAccessTokenCount()).isEqualTo(1);
+
+			recovered.storeAccessToken(
+					accessToken("third", Duration.ofMinutes(5), null),
+					authentication("user-agent", "carol"));
+			assertThat(recovered.readAccessToken("third").getValue()).isEqualTo("third");
+		} finally {
+			recovered.close();
+		}
+		store = open();
+		assertThat(store.findTokensByClientId("user-agent")).extracting(OAuth2AccessToken::getValue)
+				.containsExactlyInAnyOrder("first", "third");
+	}
+
+	@Test
+	public void expiredTokensAreNotReadAndTheirSegmentsAreCompacted() {
+		for (int i = 0; i < 100; ++i) {
+			store.storeAccessToken(
+					accessToken("short-" + i, Duration.ofSeconds(10), null),
+					authentication("user-agent", "user-" + i));
+		}
+		store.storeAccessToken(accessToken("long", Duration.ofHours(1), null), authentication("user-agent", "alice"));
+		final int segmentsBefore = store.getSegmentCount();
+		assertThat(segmentsBefore).isGreaterThan(2);
+
+		clock.set(NOW.plusSeconds(10));
+
+		assertThat(store.readAccessToken("short-0")).isNull();
+		assertThat(store.compact()).isPositive();
+		assertThat(store.getSegmentCount()).isLessThan(segmentsBefore);
+		assertThat(store.readAccessToken("long").getValue()).isEqualTo("long");
+		assertThat(store.getAccessToken(authentication("user-agent", "alice")).getValue()).isEqualTo("long");
+		assertThat(store.findTokensByClientId("user-agent")).extracting(OAuth2AccessToken::getValue)
+				.containsExactly("long");
+		// expired tokens in active segment are released only once it is sealed and compacted
+		assertThat(store.getAccessTokenCount()).isLessThan(10);
+	}
+
+	@Test
+	public void compactedTokensSurviveCrash() throws IOException {
+		store.storeAccessToken(accessToken("long", Duration.ofHours(1), null), authentication("user-agent", "alice"));
+		for (int i = 0; i < 100; ++i) {
+			final var token = accessToken("revoked-" + i, Duration.ofHours(1), null);
+			store.storeAccessToken(token, authentication("user-agent", "user-" + i));
+			store.removeAccessToken(token);
+		}
+		store.compact();
+		store.flush();
+
+		final MappedTokenStore recovered = open();
+		try {
+			assertThat(recovered.readAccessToken("long").getValue()).isEqualTo("long");
+			assertThat(recovered.readAccessToken("revoked-0")).isNull();
+			assertThat(recovered.getAccessTokenCount()).isEqualTo(1);
+		} finally {
+			recovered.close();
+		}
+		store = open();
+	}
+
+	@Test
+	public void indexSurvivesGrowth() throws IOException {
+		final Path indexFile = directory.resolve("test.idx");
+		// location i + 100 is the record of key i
+		final LongFunction<OffHeapHashIndex.KeyMatcher> key = k -> location -> location == k + 100;
+		try (OffHeapHashIndex index = OffHeapHashIndex.open(indexFile, false)) {
+			for (long i = 2; i < 5002; ++i) {
+				index.put(i, i + 100, key.apply(i));
+			}
+			assertThat(index.remove(42, 142)).isTrue();
+			assertThat(index.size()).isEqualTo(4999);
+			assertThat(index.get(2, key.apply(2))).isEqualTo(102);
+			assertThat(index.get(42, key.apply(42))).isEqualTo(OffHeapHashIndex.NO_LOCATION);
+			assertThat(index.remove(43, 1)).isFalse();
+			index.relocate(43, 143, 7);
+			assertThat(index.get(43, location -> location == 7)).isEqualTo(7);
+			assertThat(index.contains(43, 143)).isFalse();
+		}
+		try (OffHeapHashIndex index = OffHeapHashIndex.open(indexFile, true)) {
+			assertThat(index.size()).isEqualTo(4999);
+			assertThat(index.get(5001, key.apply(5001))).isEqualTo(5101);
+		}
+	}
+
+	@Test
+	public void keysWithCollidingHashesKeepTheirOwnEntry() throws IOException {
+		try (OffHeapHashIndex index = OffHeapHashIndex.open(directory.resolve("test.idx"), false)) {
+			// "a" and "b" share hash 7; 0 is a reserved marker, normalized to 2, so "c" and "d" collide too
+			index.put(7, 10, location -> location == 10);
+			index.put(7, 20, location -> location == 20);
+			index.put(0, 30, location -> location == 30);
+			index.put(2, 40, location -> location == 40);
+			assertThat(index.size()).isEqualTo(4);
+
+			assertThat(index.get(7, location -> location == 10 || location == 11)).isEqualTo(10);
+			assertThat(index.get(7, location -> location == 20)).isEqualTo(20);
+			assertThat(index.get(2, location -> location == 30)).isEqualTo(30);
+			assertThat(index.get(0, location -> location == 40)).isEqualTo(40);
+			assertThat(index.get(7, location -> false)).isEqualTo(OffHeapHashIndex.NO_LOCATION);
+
+			// "a" is stored again: its entry is updated, "b" one is untouched
+			index.put(7, 11, location -> location == 10);
+			assertThat(index.size()).isEqualTo(4);
+			assertThat(index.get(7, location -> location == 11)).isEqualTo(11);
+			assertThat(index.contains(7, 10)).isFalse();
+
+			assertThat(index.remove(7, 11)).isTrue();
+			assertThat(index.get(7, location -> location == 20)).isEqualTo(20);
+			index.relocate(7, 20, 21);
+			assertThat(index.contains(7, 21)).isTrue();
+			assertThat(index.size()).isEqualTo(3);
+		}
+	}
+
+	private MappedTokenStore open() throws IOException {
+		return new MappedTokenStore(directory, SEGMENT_BYTES, clock, new DefaultAuthenticationKeyGenerator());
+	}
+
+	/**
+	 * Flips a byte in the last record of first segment, as a write torn by a crash would leave it
+	 */
+	private void corruptLastRecord() throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(directory.resolve("segment-00000001.log").toFile(), "rw")) {
+			long position = 0;
+			long last = 0;
+			int length;
+			while ((length = readInt(file, position)) > 0) {
+				last = position;
+				position += Integer.BYTES + length;
+			}
+			final long lastLength = readInt(file, last);
+			file.seek(last + lastLength);
+			final int value = file.read();
+			file.seek(last + lastLength);
+			file.write(value ^ 0xff);
+		}
+	}
+
+	private static int readInt(RandomAccessFile file, long position) throws IOException {
+		file.seek(position);
+		return file.readInt();
+	}
+
+	private DefaultOAuth2AccessToken accessToken(
+			String value,
+			Duration validity,
+			DefaultExpiringOAuth2RefreshToken refreshToken) {
+		final var token = new DefaultOAuth2AccessToken(value);
+		token.setExpiration(Date.from(clock.instant().plus(validity)));
+		token.setScope(Set.of("showcase"));
+		token.setRefreshToken(refreshToken);
+		return token;
+	}
+
+	private static OAuth2Authentication authentication(String clientId, String username) {
+		final var request = new OAuth2Request(
+				Map.of(),
+				clientId,
+				AuthorityUtils.NO_AUTHORITIES,
+				true,
+				Set.of("showcase"),
+				Set.of(),
+				null,
+				Set.of(),
+				Map.of());
+		return new OAuth2Authentication(
+				request,
+				new UsernamePasswordAuthenticationToken(
+						username,
+						null,
+						AuthorityUtils.createAuthorityList("showcase:ROLE_USER")));
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.token;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.security.oauth2.provider.token.store.InMemoryTokenStore;
+
+/**
+ * <p>Compares {@link InMemoryTokenStore} and {@link ConcurrentTokenStore} throughput for token issuance (store, then
+ * revoke to keep store size steady) and introspection (token and authentication reads among 10k active tokens).</p>
+ *
+ * <p>{@link #main(String[])} runs the suite with 1, 2, 4, 8, 16 and 32 threads. From samples directory:</p>
+ *
+ * <pre>
+ * mvn -pl showcase-authorization-server test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath com.c4_soft.springaddons.sample.authorization.token.TokenStoreBenchmark"
+ * </pre>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenStoreBenchmark {
+	static final int ACTIVE_TOKENS = 10000;
+
+	static final int USERS = 100;
+
+	@Param({ "in-memory", "concurrent" })
+	String store;
+
+	TokenStore tokenStore;
+
+	List<OAuth2Authentication> authentications;
+
+	List<String> activeTokens;
+
+	@Setup
+	public void setUp() {
+		tokenStore = "concurrent".equals(store) ? new ConcurrentTokenStore() : new InMemoryTokenStore();
+		authentications = new ArrayList<>(USERS);
+		for (int i = 0; i < USERS; ++i) {
+			authentications.add(authentication("user-" + i));
+		}
+		activeTokens = new ArrayList<>(ACTIVE_TOKENS);
+		for (int i = 0; i < ACTIVE_TOKENS; ++i) {
+			final String value = UUID.randomUUID().toString();
+			tokenStore.storeAccessToken(accessToken(value), authentications.get(i % USERS));
+			activeTokens.add(value);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Caller {
+		final String prefix = UUID.randomUUID().toString();
+
+		int next;
+
+		String nextValue() {
+			return prefix + ++next;
+		}
+
+		int nextIndex(int bound) {
+			next = (next + 1) % bound;
+			return next;
+		}
+	}
+
+	@Benchmark
+	public void issue(Caller caller) {
+		final DefaultOAuth2AccessToken token = accessToken(caller.nextValue());
+		tokenStore.storeAccessToken(token, authentications.get(caller.next % USERS));
+		tokenStore.removeAccessToken(token);
+	}
+
+	@Benchmark
+	public void introspect(Caller caller, Blackhole blackhole) {
+		final String value = activeTokens.get(caller.nextIndex(ACTIVE_TOKENS));
+		blackhole.consume(tokenStore.readAccessToken(value));
+		blackhole.consume(tokenStore.readAuthentication(value));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		for (final int threads : new int[] { 1, 2, 4, 8, 16, 32 }) {
+			new Runner(new OptionsBuilder().include(TokenStoreBenchmark.class.getSimpleName()).threads(threads).build())
+					.run();
+		}
+	}
+
+	private static DefaultOAuth2AccessToken accessToken(String value) {
+		final var token = new DefaultOAuth2AccessToken(value);
+		token.setExpiration(new Date(System.currentTimeMillis() + 3600000));
+		token.setScope(Set.of("showcase"));
+		return token;
+	}
+
+	private static OAuth2Authentication authentication(String username) {
+		final var request = new OAuth2Request(
+				Map.of(),
+				"user-agent",
+				AuthorityUtils.NO_AUTHORITIES,
+				true,
+				Set.of("showcase"),
+				Set.of(),
+				null,
+				Set.of(),
+				Map.of());
+		return new OAuth2Authentication(
+				request,
+				new UsernamePasswordAuthenticationToken(
+						username,
+						null,
+						AuthorityUtils.createAuthorityList("showcase:ROLE_USER")));
+	}
+}
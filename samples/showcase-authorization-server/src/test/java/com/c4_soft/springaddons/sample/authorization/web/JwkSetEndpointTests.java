@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.authorization.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.security.oauth2.provider.endpoint.FrameworkEndpointHandlerMapping;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import com.c4_soft.springaddons.sample.authorization.key.RotatingKeyManager;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class JwkSetEndpointTests {
+	AnnotationConfigWebApplicationContext context;
+
+	MockMvc mockMvc;
+
+	@Before
+	public void setUp() {
+		context = new AnnotationConfigWebApplicationContext();
+		context.setServletContext(new MockServletContext());
+		context.register(JwkSetEndpointTestConfig.class);
+		context.refresh();
+		mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+	}
+
+	@After
+	public void tearDown() {
+		context.close();
+	}
+
+	@Test
+	public void jwkSetIsPublicWithThumbprintKeyIdAndSameForEachRequest() throws Exception {
+		final MvcResult first = mockMvc.perform(get("/.well-known/jwks.json"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=300, public"))
+				.andReturn();
+		final MvcResult second = mockMvc.perform(get("/.well-known/jwks.json")).andReturn();
+
+		final JWKSet jwkSet = JWKSet.parse(first.getResponse().getContentAsString());
+		final RotatingKeyManager keyManager = context.getBean(RotatingKeyManager.class);
+		assertThat(jwkSet.getKeys()).hasSize(2);
+		final JWK jwk = jwkSet.getKeys().get(0);
+		assertThat(jwk.isPrivate()).isFalse();
+		assertThat(jwk.getKeyID()).isEqualTo(jwk.computeThumbprint().toString())
+				.isEqualTo(keyManager.getCurrent().getKid());
+		assertThat(second.getResponse().getContentAsByteArray()).isEqualTo(first.getResponse().getContentAsByteArray());
+		assertThat(second.getResponse().getHeader(HttpHeaders.ETAG))
+				.isEqualTo(first.getResponse().getHeader(HttpHeaders.ETAG))
+				.startsWith("\"");
+	}
+
+	@Test
+	public void matchingIfNoneMatchIsNotModified() throws Exception {
+		final String etag =
+				mockMvc.perform(get("/.well-known/jwks.json")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		final MvcResult notModified = mockMvc
+				.perform(get("/.well-known/jwks.json").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, etag))
+				.andReturn();
+		assertThat(notModified.getResponse().getContentAsByteArray()).isEmpty();
+
+		mockMvc.perform(get("/.well-known/jwks.json").header(HttpHeaders.IF_NONE_MATCH, "\"other\""))
+				.andExpect(status().isOk());
+	}
+
+	/**
+	 * Framework endpoints are not detected by standalone MockMvc
+	 */
+	@Configuration
+	@EnableWebMvc
+	static class JwkSetEndpointTestConfig {
+		@Bean
+		FrameworkEndpointHandlerMapping frameworkEndpointHandlerMapping() {
+			return new FrameworkEndpointHandlerMapping();
+		}
+
+		@Bean
+		RotatingKeyManager rotatingKeyManager() {
+			return new RotatingKeyManager(Duration.ofDays(7), Duration.ofDays(30));
+		}
+
+		@Bean
+		JwkSetEndpoint jwkSetEndpoint(RotatingKeyManager keyManager) {
+			return new JwkSetEndpoint(keyManager, Duration.ofMinutes(5));
+		}
+	}
+}
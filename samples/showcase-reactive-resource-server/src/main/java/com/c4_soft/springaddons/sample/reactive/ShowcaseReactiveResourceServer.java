@@ -13,14 +13,14 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package com.c4_soft.springaddons.sample.e2e;
+package com.c4_soft.springaddons.sample.reactive;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
-@SpringBootApplication(scanBasePackageClasses = ShowcaseApplication.class)
-public class ShowcaseApplication {
+@SpringBootApplication(scanBasePackageClasses = ShowcaseReactiveResourceServer.class)
+public class ShowcaseReactiveResourceServer {
 	public static void main(String[] args) {
-		SpringApplication.run(ShowcaseApplication.class, args);
+		SpringApplication.run(ShowcaseReactiveResourceServer.class, args);
 	}
 }
@@ -13,28 +13,24 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package com.c4_soft.springaddons.sample.authorization.config;
-
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
+package com.c4_soft.springaddons.sample.reactive.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.Profile;
 
+import com.c4_soft.springaddons.security.oauth2.server.resource.json.ClaimSetModule;
+
+/**
+ * {@code /claims} claim-sets are written by a dedicated serializer (registered claim names and {@code authorities}
+ * encoded once, retained JWT payloads copied as is) rather than walked as any other map
+ *
+ * @author Jérôme Wacongne &lt;ch4mp&#64;c4-soft.com&gt;
+ */
 @Configuration
-@Profile("jwt")
-class KeyPairConfig {
+public class JacksonConfig {
 
 	@Bean
-	KeyPair keyPair() {
-		try {
-			KeyPairGenerator gen = KeyPairGenerator.getInstance("RSA");
-			gen.initialize(2048);
-			KeyPair keyPair = gen.generateKeyPair();
-			return keyPair;
-		} catch (final Exception e) {
-			throw new IllegalArgumentException(e);
-		}
+	public ClaimSetModule claimSetModule() {
+		return new ClaimSetModule("authorities");
 	}
-}
\ No newline at end of file
+}
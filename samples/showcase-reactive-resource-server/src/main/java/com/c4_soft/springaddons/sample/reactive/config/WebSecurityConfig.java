@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.reactive.config;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.security.web.server.savedrequest.NoOpServerRequestCache;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.ReactiveJwtClaimSetAuthenticationManager;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.embedded.ScopePrefixAuthoritiesClaim2GrantedAuthoritySetConverter;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.embedded.WithAuthoritiesJwtClaimSet;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.jose.JwsAlgorithmsJwtDecoder;
+import com.c4_soft.springaddons.security.oauth2.server.resource.ratelimit.ClaimSetRateLimiter;
+import com.c4_soft.springaddons.security.oauth2.server.resource.ratelimit.RateLimitMetrics;
+import com.c4_soft.springaddons.security.oauth2.server.resource.ratelimit.RateLimitsEndpoint;
+import com.c4_soft.springaddons.security.oauth2.server.resource.ratelimit.TokenBucketRateLimiter;
+import com.c4_soft.springaddons.security.oauth2.server.resource.web.AuthenticationErrorResponses;
+import com.c4_soft.springaddons.security.oauth2.server.resource.web.RateLimitingWebFilter;
+import com.c4_soft.springaddons.security.oauth2.server.resource.web.ServerAuthenticationErrorHandler;
+
+/**
+ * <p>WebFlux counterpart of servlet showcase resource-server security with <b>jwt</b> profile and embedded
+ * authorities: claim-set authentication from authorization-server JWTs, {@code showcase:} prefixed
+ * {@code authorities} claim entries as granted authorities, same access rules.</p>
+ *
+ * <p>Bearer only: no session, no security-context persistence, no request cache, no CSRF. Actuator end-points have
+ * their own filter-chain, with basic authentication of the management user.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp&#64;c4-soft.com&gt;
+ */
+@Configuration
+@EnableWebFluxSecurity
+public class WebSecurityConfig {
+	private static final String AUTHORITIES_CLAIM_NAME = "authorities";
+
+	@Bean
+	public ReactiveJwtDecoder jwtDecoder(
+			@Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri) {
+		return JwsAlgorithmsJwtDecoder.withJwkSetUri(jwkSetUri).buildReactive();
+	}
+
+	@Bean
+	public ReactiveAuthenticationManager authenticationManager(ReactiveJwtDecoder jwtDecoder) {
+		// JWT payload is retained in claim-set for /claims to write it as is
+		return ReactiveJwtClaimSetAuthenticationManager.retainingPayload(
+				jwtDecoder,
+				WithAuthoritiesJwtClaimSet.builder(AUTHORITIES_CLAIM_NAME)::build,
+				new EmbeddedAuthoritiesConverter());
+	}
+
+	/**
+	 * Per-user rate limit (token subject, as all showcase users share the same client)
+	 */
+	@Bean
+	public ClaimSetRateLimiter claimSetRateLimiter(
+			@Value("${showcase.rate-limits.capacity:1000}") long capacity,
+			@Value("${showcase.rate-limits.refill-period:1s}") Duration refillPeriod) {
+		return new ClaimSetRateLimiter(
+				ClaimSetRateLimiter::subject,
+				new TokenBucketRateLimiter("default", capacity, refillPeriod));
+	}
+
+	@Bean
+	public RateLimitsEndpoint rateLimitsEndpoint(ClaimSetRateLimiter claimSetRateLimiter) {
+		return new RateLimitsEndpoint(claimSetRateLimiter);
+	}
+
+	@Bean
+	public RateLimitMetrics rateLimitMetrics(ClaimSetRateLimiter claimSetRateLimiter) {
+		return new RateLimitMetrics(claimSetRateLimiter);
+	}
+
+	@Bean
+	@Order(Ordered.HIGHEST_PRECEDENCE)
+	public SecurityWebFilterChain actuatorFilterChain(
+			ServerHttpSecurity http,
+			@Value("${showcase.management.username}") String actuatorUsername,
+			@Value("${showcase.management.password}") String actuatorPassword) {
+		// not a bean, which would compete with bearer authentication manager, and no BCrypt on event-loop threads
+		final var actuatorAuthenticationManager = new UserDetailsRepositoryReactiveAuthenticationManager(
+				new MapReactiveUserDetailsService(
+						User.withUsername(actuatorUsername)
+								.password("{noop}" + actuatorPassword)
+								.authorities("ACTUATOR")
+								.build()));
+
+		// @formatter:off
+		http
+			.securityMatcher(ServerWebExchangeMatchers.pathMatchers("/actuator/**"))
+			.csrf().disable()
+			.formLogin().disable()
+			.logout().disable()
+			.securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+			.requestCache().requestCache(NoOpServerRequestCache.getInstance()).and()
+			.httpBasic().authenticationManager(actuatorAuthenticationManager).and()
+			.authorizeExchange()
+				.anyExchange().hasAuthority("ACTUATOR");
+		// @formatter:on
+
+		return http.build();
+	}
+
+	@Bean
+	public SecurityWebFilterChain springSecurityFilterChain(
+			ServerHttpSecurity http,
+			ReactiveAuthenticationManager authenticationManager,
+			ClaimSetRateLimiter claimSetRateLimiter) {
+		// 401 and 403 responses are encoded once, at startup
+		final var errorHandler = new ServerAuthenticationErrorHandler(new AuthenticationErrorResponses("showcase"));
+
+		// @formatter:off
+		http
+			.csrf().disable()
+			.httpBasic().disable()
+			.formLogin().disable()
+			.logout().disable()
+			.securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+			.requestCache().requestCache(NoOpServerRequestCache.getInstance()).and()
+			.authorizeExchange()
+				.pathMatchers("/restricted/**").hasAuthority("AUTHORIZED_PERSONNEL")
+				.anyExchange().hasRole("USER").and()
+			.oauth2ResourceServer()
+				.authenticationEntryPoint(errorHandler)
+				.accessDeniedHandler(errorHandler)
+				.jwt().authenticationManager(authenticationManager).and().and()
+			.addFilterAt(new RateLimitingWebFilter(claimSetRateLimiter), SecurityWebFiltersOrder.AUTHORIZATION);
+		// @formatter:on
+
+		return http.build();
+	}
+
+	/**
+	 * Not a bean: WebFlux would register it in its conversion service
+	 */
+	private static class EmbeddedAuthoritiesConverter implements Converter<Map<String, Object>, Set<GrantedAuthority>> {
+		private final ScopePrefixAuthoritiesClaim2GrantedAuthoritySetConverter<WithAuthoritiesJwtClaimSet> delegate =
+				new ScopePrefixAuthoritiesClaim2GrantedAuthoritySetConverter<>();
+
+		@Override
+		public Set<GrantedAuthority> convert(Map<String, Object> claims) {
+			return delegate.convert(new WithAuthoritiesJwtClaimSet(claims, AUTHORITIES_CLAIM_NAME));
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.reactive.web;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.c4_soft.oauth2.ClaimSet;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.OAuth2ClaimSetAuthentication;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Same end-points as servlet showcase resource-server
+ *
+ * @author Jérôme Wacongne &lt;ch4mp&#64;c4-soft.com&gt;
+ */
+@RestController
+@RequestMapping("/")
+public class ShowcaseController {
+	@GetMapping("greeting")
+	public Mono<String> getGreeting(Authentication authentication) {
+		return Mono.just(String.format("Hello, %s!", authentication.getName()));
+	}
+
+	@GetMapping("restricted")
+	public Mono<String> getRestrictedGreeting(Authentication authentication) {
+		return Mono.just("Welcome to restricted area.");
+	}
+
+	@GetMapping("claims")
+	public Mono<ClaimSet> getJwtClaims(Authentication auth) {
+		if(auth instanceof OAuth2ClaimSetAuthentication<?>) {
+			return Mono.just(((OAuth2ClaimSetAuthentication<?>) auth).getClaimSet());
+		}
+		return Mono.error(new RuntimeException("Authentication of unsupported type: " + auth.getClass()));
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.reactive.web;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.c4_soft.springaddons.test.security.web.reactive.server.ReactiveJwtClaimSetAuthenticationUnitTestingSupport;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp&#64;c4-soft.com&gt;
+ */
+@RunWith(SpringRunner.class)
+public class ShowcaseControllerTests extends ReactiveJwtClaimSetAuthenticationUnitTestingSupport {
+	private final ShowcaseController controller = new ShowcaseController();
+
+	@Test
+	public void demoFlowApi() {
+		webTestClient(controller).with(authentication().name("ch4mpy").authorities("ROLE_USER")).get("/greeting")
+				.expectStatus().isOk()
+				.expectBody(String.class).isEqualTo("Hello, ch4mpy!");
+
+		webTestClient(controller).with(authentication().authorities("ROLE_USER", "AUTHORIZED_PERSONNEL"))
+				.get("/restricted")
+				.expectStatus().isOk()
+				.expectBody(String.class).isEqualTo("Welcome to restricted area.");
+
+		webTestClient(controller).with(authentication().name("ch4mpy")).get("/claims")
+				.expectStatus().isOk()
+				.expectBody().json("{\"sub\":\"ch4mpy\"}");
+	}
+}
@@ -28,7 +28,7 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import com.c4_soft.oauth2.rfc7519.JwtClaimSet;
 import com.c4_soft.oauth2.rfc7662.IntrospectionClaimSet;
 import com.c4_soft.springaddons.sample.resource.jpa.JpaGrantedAuthoritiesConverter;
-import com.c4_soft.springaddons.sample.resource.jpa.UserAuthorityRepository;
+import com.c4_soft.springaddons.sample.resource.jpa.UserAuthoritiesStore;
 import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.embedded.WithAuthoritiesClaimSet;
 import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.embedded.WithAuthoritiesIntrospectionClaimSet;
 import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.embedded.WithAuthoritiesJwtClaimSet;
@@ -88,9 +88,9 @@ public class AuthoritiesConverterConfig {
 	@Bean("authoritiesConverter")
 	@Profile("jpa & !jwt")
 	public Converter<Map<String, Object>, Set<GrantedAuthority>> jpaIntrospectionAuthoritiesConverter(
-			UserAuthorityRepository userAuthoritiesRepo,
+			UserAuthoritiesStore userAuthoritiesStore,
 			Converter<Map<String, Object>, IntrospectionClaimSet> claimsExtractor) {
-		return new JpaGrantedAuthoritiesConverter<>(userAuthoritiesRepo, claimsExtractor);
+		return new JpaGrantedAuthoritiesConverter<>(userAuthoritiesStore, claimsExtractor);
 	}
 
 	/*
@@ -105,9 +105,9 @@ public class AuthoritiesConverterConfig {
 	@Bean("authoritiesConverter")
 	@Profile("jpa & jwt")
 	public Converter<Map<String, Object>, Set<GrantedAuthority>> jpaJwtAuthoritiesConverter(
-			UserAuthorityRepository userAuthoritiesRepo,
+			UserAuthoritiesStore userAuthoritiesStore,
 			Converter<Map<String, Object>, JwtClaimSet> claimsExtractor) {
-		return new JpaGrantedAuthoritiesConverter<>(userAuthoritiesRepo, claimsExtractor);
+		return new JpaGrantedAuthoritiesConverter<>(userAuthoritiesStore, claimsExtractor);
 	}
 
 	private static class IntrospectionClaimsExtractor implements Converter<Map<String, Object>, IntrospectionClaimSet> {
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.resource.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.c4_soft.springaddons.security.oauth2.server.resource.json.ClaimSetModule;
+
+/**
+ * {@code /claims} claim-sets are written by a dedicated serializer (registered claim names and {@code authorities}
+ * encoded once, retained JWT payloads copied as is) rather than walked as any other map
+ *
+ * @author Jérôme Wacongne &lt;ch4mp&#64;c4-soft.com&gt;
+ */
+@Configuration
+public class JacksonConfig {
+
+	@Bean
+	public ClaimSetModule claimSetModule() {
+		return new ClaimSetModule("authorities");
+	}
+}
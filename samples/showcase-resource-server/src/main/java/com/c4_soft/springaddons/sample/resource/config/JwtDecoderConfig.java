@@ -0,0 +1,35 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.resource.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.jose.JwsAlgorithmsJwtDecoder;
+
+/**
+ * JWT decoder accepting RS256, ES256 and EdDSA signatures from authorization-server JWK set, whichever
+ * {@code showcase.jwt.signing-algorithm} it is configured with (replaces Spring Boot RS256 only default decoder).
+ *
+ * @author Jérôme Wacongne &lt;ch4mp&#64;c4-soft.com&gt;
+ */
+@Configuration
+public class JwtDecoderConfig {
+
+	@Bean
+	public JwtDecoder jwtDecoder(@Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri) {
+		return JwsAlgorithmsJwtDecoder.withJwkSetUri(jwkSetUri).build();
+	}
+}
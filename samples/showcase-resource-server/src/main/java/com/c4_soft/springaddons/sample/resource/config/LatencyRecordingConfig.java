@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.resource.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.c4_soft.springaddons.security.oauth2.server.resource.metrics.LatencyHistogramsEndpoint;
+import com.c4_soft.springaddons.security.oauth2.server.resource.metrics.RouteLatencyRecorders;
+import com.c4_soft.springaddons.security.oauth2.server.resource.web.LatencyRecordingFilter;
+
+/**
+ * Latency histograms of showcase end-points, by authentication type, read (and reset) at {@code /actuator/latencies}.
+ * The recording filter runs before spring-security one: authentication and rejected requests are measured too.
+ *
+ * @author Jérôme Wacongne &lt;ch4mp&#64;c4-soft.com&gt;
+ */
+@Configuration
+public class LatencyRecordingConfig {
+
+	@Bean
+	public RouteLatencyRecorders routeLatencyRecorders(@Value("${showcase.jpa:false}") boolean isJpa) {
+		return new RouteLatencyRecorders(isJpa ? "jpa" : "embedded", "/greeting", "/restricted/**", "/claims");
+	}
+
+	@Bean
+	public FilterRegistrationBean<LatencyRecordingFilter>
+			latencyRecordingFilter(RouteLatencyRecorders routeLatencyRecorders) {
+		final var registration = new FilterRegistrationBean<>(new LatencyRecordingFilter(routeLatencyRecorders));
+		registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+		return registration;
+	}
+
+	@Bean
+	public LatencyHistogramsEndpoint latencyHistogramsEndpoint(RouteLatencyRecorders routeLatencyRecorders) {
+		return new LatencyHistogramsEndpoint(routeLatencyRecorders);
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.resource.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.c4_soft.springaddons.security.oauth2.server.resource.ratelimit.ClaimSetRateLimiter;
+import com.c4_soft.springaddons.security.oauth2.server.resource.ratelimit.RateLimitMetrics;
+import com.c4_soft.springaddons.security.oauth2.server.resource.ratelimit.RateLimitsEndpoint;
+import com.c4_soft.springaddons.security.oauth2.server.resource.ratelimit.TokenBucketRateLimiter;
+
+/**
+ * Per-user rate limits (token subject, as all showcase users share the same client), from
+ * {@code showcase.rate-limits}. Buckets are reported at {@code /actuator/ratelimits} and allowed / rejected requests
+ * counts at {@code /actuator/metrics/ratelimit.requests}. The filter itself is added to
+ * spring-security filter-chain by {@link WebSecurityConfig}, once the request is authenticated.
+ *
+ * @author Jérôme Wacongne &lt;ch4mp&#64;c4-soft.com&gt;
+ */
+@Configuration
+public class RateLimitingConfig {
+
+	@Bean
+	public ClaimSetRateLimiter claimSetRateLimiter(ShowcaseResourceServerProperties showcaseProperties) {
+		final var rateLimits = showcaseProperties.getRateLimits();
+		final Map<String, TokenBucketRateLimiter> scopeLimiters = new LinkedHashMap<>();
+		rateLimits.getScopes().forEach((scope, limit) -> scopeLimiters.put(
+				scope,
+				new TokenBucketRateLimiter(scope, limit.getCapacity(), limit.getRefillPeriod())));
+		return new ClaimSetRateLimiter(
+				ClaimSetRateLimiter::subject,
+				new TokenBucketRateLimiter("default", rateLimits.getCapacity(), rateLimits.getRefillPeriod()),
+				scopeLimiters);
+	}
+
+	@Bean
+	public RateLimitsEndpoint rateLimitsEndpoint(ClaimSetRateLimiter claimSetRateLimiter) {
+		return new RateLimitsEndpoint(claimSetRateLimiter);
+	}
+
+	@Bean
+	public RateLimitMetrics rateLimitMetrics(ClaimSetRateLimiter claimSetRateLimiter) {
+		return new RateLimitMetrics(claimSetRateLimiter);
+	}
+}
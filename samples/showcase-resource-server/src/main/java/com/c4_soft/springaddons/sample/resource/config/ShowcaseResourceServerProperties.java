@@ -15,7 +15,12 @@
  */
 package com.c4_soft.springaddons.sample.resource.config;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
@@ -33,10 +38,14 @@ public class ShowcaseResourceServerProperties {
 	@Valid
 	private final ShowcaseResourceServerProperties.Management management;
 
+	@Valid
+	private final ShowcaseResourceServerProperties.RateLimits rateLimits;
+
 	public ShowcaseResourceServerProperties() {
 		super();
 		introspection = new Introspection();
 		management = new Management();
+		rateLimits = new RateLimits();
 	}
 
 	public ShowcaseResourceServerProperties.Introspection getIntrospection() {
@@ -47,6 +56,10 @@ public class ShowcaseResourceServerProperties {
 		return management;
 	}
 
+	public ShowcaseResourceServerProperties.RateLimits getRateLimits() {
+		return rateLimits;
+	}
+
 	static class Introspection {
 
 		@NotNull
@@ -101,6 +114,12 @@ public class ShowcaseResourceServerProperties {
 		@Size(min = 1)
 		private String password;
 
+		/**
+		 * How long a successful actuator basic-auth password verification is remembered (zero to disable)
+		 */
+		@NotNull
+		private Duration credentialsCacheTtl = Duration.ofMinutes(1);
+
 		public String getUsername() {
 			return username;
 		}
@@ -117,5 +136,54 @@ public class ShowcaseResourceServerProperties {
 			this.password = password;
 		}
 
+		public Duration getCredentialsCacheTtl() {
+			return credentialsCacheTtl;
+		}
+
+		public void setCredentialsCacheTtl(Duration credentialsCacheTtl) {
+			this.credentialsCacheTtl = credentialsCacheTtl;
+		}
+
+	}
+
+	static class RateLimit {
+
+		/**
+		 * Max requests in a burst, also number of requests allowed per refill period
+		 */
+		@Min(1)
+		private long capacity = 1000;
+
+		@NotNull
+		private Duration refillPeriod = Duration.ofSeconds(1);
+
+		public long getCapacity() {
+			return capacity;
+		}
+
+		public void setCapacity(long capacity) {
+			this.capacity = capacity;
+		}
+
+		public Duration getRefillPeriod() {
+			return refillPeriod;
+		}
+
+		public void setRefillPeriod(Duration refillPeriod) {
+			this.refillPeriod = refillPeriod;
+		}
+	}
+
+	static class RateLimits extends RateLimit {
+
+		/**
+		 * Limits overriding the default one for tokens granted a scope, first matching scope wins
+		 */
+		@Valid
+		private final Map<String, RateLimit> scopes = new LinkedHashMap<>();
+
+		public Map<String, RateLimit> getScopes() {
+			return scopes;
+		}
 	}
 }
\ No newline at end of file
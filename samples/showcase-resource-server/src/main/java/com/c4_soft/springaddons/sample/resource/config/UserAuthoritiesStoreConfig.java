@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.c4_soft.springaddons.sample.resource.config;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.c4_soft.springaddons.sample.resource.jpa.SchemaVerifier;
+import com.c4_soft.springaddons.sample.resource.jpa.UserAuthoritiesStore;
+import com.c4_soft.springaddons.sample.resource.jpa.UserAuthority;
+import com.c4_soft.springaddons.sample.resource.jpa.UserAuthorityChangeRepository;
+import com.c4_soft.springaddons.sample.resource.jpa.UserAuthorityRepository;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation.LocalRevocationEventBus;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation.RevocationEventSource;
+
+/**
+ * In-memory authorities index for "jpa" profile, refreshed from the database change markers every
+ * {@code showcase.authorities-refresh-delay-ms} (10 seconds by default). Markers are kept for
+ * {@code showcase.authorities-changes-retention} (1 hour by default) and subjects without authorities are remembered
+ * for {@code showcase.authorities-empty-result-ttl} (30 seconds by default). Startup fails if {@code user_authority}
+ * table has no index for subject lookups.
+ *
+ * @author Jérôme Wacongne &lt;ch4mp&#64;c4-soft.com&gt;
+ */
+@Configuration
+@Profile("jpa")
+@EnableScheduling
+public class UserAuthoritiesStoreConfig {
+
+	@Bean
+	public UserAuthoritiesStore userAuthoritiesStore(
+			UserAuthorityRepository userAuthoritiesRepo,
+			UserAuthorityChangeRepository userAuthorityChangesRepo,
+			PlatformTransactionManager transactionManager,
+			@Value("${showcase.authorities-changes-retention:PT1H}") Duration changesRetention,
+			@Value("${showcase.authorities-empty-result-ttl:PT30S}") Duration emptyResultTtl) {
+		return new UserAuthoritiesStore(
+				userAuthoritiesRepo,
+				userAuthorityChangesRepo,
+				transactionManager,
+				UserAuthoritiesStore.DEFAULT_IN_LIST_SIZE,
+				changesRetention,
+				emptyResultTtl,
+				Clock.systemUTC());
+	}
+
+	@Bean
+	public RevocationEventSource revocationEventSource(UserAuthoritiesStore userAuthoritiesStore) {
+		final var revocationEventSource = new LocalRevocationEventBus();
+		revocationEventSource.subscribe(userAuthoritiesStore);
+		return revocationEventSource;
+	}
+
+	@Bean
+	public SchemaVerifier schemaVerifier(DataSource dataSource) {
+		return new SchemaVerifier(dataSource);
+	}
+
+	/**
+	 * Once started only: data.sql runs after JPA repositories (and the store) are initialized
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void warmUpUserAuthoritiesStore(ApplicationReadyEvent event) {
+		final var context = event.getApplicationContext();
+		context.getBean(SchemaVerifier.class).requireIndexed(UserAuthority.TABLE_NAME, UserAuthority.SUBJECT_COLUMN_NAME);
+		context.getBean(UserAuthoritiesStore.class).warmUp();
+	}
+}
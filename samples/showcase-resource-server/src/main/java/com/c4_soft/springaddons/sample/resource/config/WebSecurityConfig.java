@@ -16,6 +16,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Stream;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -31,23 +32,38 @@ import org.springframework.security.config.annotation.web.configurers.oauth2.ser
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
-import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
-import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.oauth2.server.resource.web.BearerTokenAuthenticationFilter;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 
+import com.c4_soft.springaddons.sample.resource.security.CachingPasswordEncoder;
 import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.IntrospectionClaimSetAuthenticationManager;
 import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.JwtClaimSetAuthenticationManager;
 import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.embedded.WithAuthoritiesIntrospectionClaimSet;
 import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.embedded.WithAuthoritiesJwtClaimSet;
+import com.c4_soft.springaddons.security.oauth2.server.resource.config.BearerOnlyConfigurer;
+import com.c4_soft.springaddons.security.oauth2.server.resource.ratelimit.ClaimSetRateLimiter;
+import com.c4_soft.springaddons.security.oauth2.server.resource.web.AuthenticationErrorHandler;
+import com.c4_soft.springaddons.security.oauth2.server.resource.web.AuthenticationErrorResponses;
+import com.c4_soft.springaddons.security.oauth2.server.resource.web.PathPatternRequestMatcher;
+import com.c4_soft.springaddons.security.oauth2.server.resource.web.RateLimitingFilter;
 
 @Configuration
 @EnableWebSecurity
 @EnableGlobalMethodSecurity(prePostEnabled = true)
 @EnableConfigurationProperties(ShowcaseResourceServerProperties.class)
 public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
+	private static final RequestMatcher ACTUATOR = new PathPatternRequestMatcher("/actuator/**");
+
+	private static final RequestMatcher RESTRICTED = new PathPatternRequestMatcher("/restricted/**");
+
+	// 401 and 403 responses are encoded once, at startup
+	private static final AuthenticationErrorHandler ERROR_HANDLER =
+			new AuthenticationErrorHandler(new AuthenticationErrorResponses("showcase"));
 
 	private final Environment env;
 
@@ -57,55 +73,72 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
 	private final Converter<Map<String, Object>, Set<GrantedAuthority>> authoritiesConverter;
 
+	private final PasswordEncoder passwordEncoder;
+
+	private final UserDetails actuatorUser;
+
+	private final ObjectProvider<ClaimSetRateLimiter> rateLimiter;
+
 	@Autowired
 	public WebSecurityConfig(
 			Environment env,
 			ShowcaseResourceServerProperties showcaseProperties,
 			JwtDecoder jwtDecoder,
-			Converter<Map<String, Object>, Set<GrantedAuthority>> authoritiesConverter) {
+			Converter<Map<String, Object>, Set<GrantedAuthority>> authoritiesConverter,
+			ObjectProvider<ClaimSetRateLimiter> rateLimiter) {
 		super();
 		this.env = env;
 		this.showcaseProperties = showcaseProperties;
 		this.jwtDecoder = jwtDecoder;
 		this.authoritiesConverter = authoritiesConverter;
+		this.rateLimiter = rateLimiter;
+		this.passwordEncoder = new CachingPasswordEncoder(
+				new BCryptPasswordEncoder(),
+				showcaseProperties.getManagement().getCredentialsCacheTtl());
+		// hashed once at startup, not on each actuator request
+		this.actuatorUser = User.builder()
+				.username(showcaseProperties.getManagement().getUsername())
+				.password(passwordEncoder.encode(showcaseProperties.getManagement().getPassword()))
+				.authorities(Set.of(new SimpleGrantedAuthority("ACTUATOR")))
+				.build();
 	}
 
+	/**
+	 * BCrypt, with successful verifications remembered for {@code showcase.management.credentials-cache-ttl}:
+	 * metrics scrapers hitting actuator endpoints every few seconds pay one BCrypt verification per TTL
+	 */
 	@Bean
 	public PasswordEncoder passwordEncoder() {
-		return new BCryptPasswordEncoder();
+		return passwordEncoder;
 	}
 
 	@Override
 	protected void configure(HttpSecurity http) throws Exception {
 		// @formatter:off
 		http
-			.sessionManagement().disable()
-			.csrf()
-				.ignoringAntMatchers("/actuator/**")
-				.csrfTokenRepository(new CookieCsrfTokenRepository()).and()
-			.requestMatcher(new AntPathRequestMatcher("/actuator/**"))
-				.httpBasic().and()
-				.userDetailsService(username -> {
-					if(showcaseProperties.getManagement().getUsername().equals(username)) {
-						return User.builder()
-								.passwordEncoder(passwordEncoder()::encode)
-								.username(username)
-								.password(showcaseProperties.getManagement().getPassword())
-								.authorities(Set.of(new SimpleGrantedAuthority("ACTUATOR")))
-								.build();
-					}
-					throw new UsernameNotFoundException("unknown user: " + username);})
-				.authorizeRequests().antMatchers("/actuator/**").hasAuthority("ACTUATOR").and()
-			.requestMatcher(new AntPathRequestMatcher("/**"))
-				.authorizeRequests()
-					.antMatchers("/restricted/**").hasAuthority("AUTHORIZED_PERSONNEL")
-					.anyRequest().hasRole("USER").and();
+			.apply(new BearerOnlyConfigurer<>()).and()
+			.httpBasic().and()
+			.userDetailsService(username -> {
+				if(actuatorUser.getUsername().equals(username)) {
+					// a copy: credentials of authenticated principal are erased
+					return User.withUserDetails(actuatorUser).build();
+				}
+				throw new UsernameNotFoundException("unknown user: " + username);})
+			.authorizeRequests()
+				.requestMatchers(ACTUATOR).hasAuthority("ACTUATOR")
+				.requestMatchers(RESTRICTED).hasAuthority("AUTHORIZED_PERSONNEL")
+				.anyRequest().hasRole("USER");
 		// @formatter:on
 
+		// not a bean: servlet container would also register it outside spring-security filter-chain
+		rateLimiter.ifAvailable(
+				limiter -> http.addFilterAfter(new RateLimitingFilter(limiter), BearerTokenAuthenticationFilter.class));
+
 		configure(http.oauth2ResourceServer());
 	}
 
 	private void configure(OAuth2ResourceServerConfigurer<HttpSecurity> resourceServerHttpSecurity) {
+		resourceServerHttpSecurity.authenticationEntryPoint(ERROR_HANDLER).accessDeniedHandler(ERROR_HANDLER);
 		if (Stream.of(env.getActiveProfiles()).anyMatch("jwt"::equals)) {
 			resourceServerHttpSecurity.jwt().authenticationManager(authenticationManager());
 		} else {
@@ -116,7 +149,8 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 	@Override
 	public AuthenticationManager authenticationManager() {
 		if (Stream.of(env.getActiveProfiles()).anyMatch("jwt"::equals)) {
-			return new JwtClaimSetAuthenticationManager<>(
+			// JWT payload is retained in claim-set for /claims to write it as is
+			return JwtClaimSetAuthenticationManager.retainingPayload(
 					jwtDecoder,
 					WithAuthoritiesJwtClaimSet.builder("authorities")::build,
 					authoritiesConverter);
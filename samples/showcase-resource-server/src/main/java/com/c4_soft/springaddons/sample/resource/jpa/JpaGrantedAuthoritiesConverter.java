@@ -13,16 +13,12 @@
 package com.c4_soft.springaddons.sample.resource.jpa;
 
 import java.security.Principal;
-import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.transaction.annotation.Transactional;
 
 import com.c4_soft.oauth2.ClaimSet;
 
@@ -34,20 +30,19 @@ public class JpaGrantedAuthoritiesConverter<T extends ClaimSet & Principal>
 		implements
 		Converter<Map<String, Object>, Set<GrantedAuthority>> {
 
-	private final UserAuthorityRepository authoritiesRepo;
+	private final UserAuthoritiesStore authoritiesStore;
 
 	private final Converter<Map<String, Object>, T> claimsExtractor;
 
 	@Autowired
 	public JpaGrantedAuthoritiesConverter(
-			UserAuthorityRepository authoritiesRepo,
+			UserAuthoritiesStore authoritiesStore,
 			Converter<Map<String, Object>, T> claimsExtractor) {
-		this.authoritiesRepo = authoritiesRepo;
+		this.authoritiesStore = authoritiesStore;
 		this.claimsExtractor = claimsExtractor;
 	}
 
 	@Override
-	@Transactional(readOnly = true)
 	public Set<GrantedAuthority> convert(Map<String, Object> claimsMap) {
 		final var claims = claimsExtractor.convert(claimsMap);
 		final Set<String> scopes = claims.getAsStringSet(claims.containsKey("scope") ? "scope" : "scp");
@@ -55,11 +50,7 @@ public class JpaGrantedAuthoritiesConverter<T extends ClaimSet & Principal>
 			return Set.of();
 		}
 
-		final Collection<UserAuthority> authorities = authoritiesRepo.findByIdUserSubject(claims.getName());
-		return authorities.stream()
-				.map(UserAuthority::getAuthority)
-				.map(SimpleGrantedAuthority::new)
-				.collect(Collectors.toSet());
+		return authoritiesStore.getAuthorities(claims.getName());
 	}
 
 }
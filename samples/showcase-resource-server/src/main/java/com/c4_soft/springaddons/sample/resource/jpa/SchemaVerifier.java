@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.resource.jpa;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.util.Assert;
+
+/**
+ * <p>Checks, from JDBC metadata of the configured database, that lookups on a column can use an index, whatever the
+ * way the schema was created (Hibernate DDL generation, scripts, DBA...).</p>
+ *
+ * <p>A column is considered indexed if it is the leading column of any index (including primary key and unique
+ * constraints ones): an index on {@code (a, b)} serves lookups on {@code a}, not on {@code b}.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class SchemaVerifier {
+
+	private final DataSource dataSource;
+
+	public SchemaVerifier(DataSource dataSource) {
+		Assert.notNull(dataSource, "dataSource can't be null");
+		this.dataSource = dataSource;
+	}
+
+	/**
+	 * @param table table name, case-insensitive unless quoted at creation
+	 * @param column column name, case-insensitive
+	 * @return if {@code column} is the first column of an index on {@code table}
+	 * @throws IllegalStateException if database metadata can't be read
+	 */
+	public boolean isIndexed(String table, String column) {
+		Assert.hasLength(table, "table can't be empty");
+		Assert.hasLength(column, "column can't be empty");
+		try (Connection connection = dataSource.getConnection()) {
+			final DatabaseMetaData metaData = connection.getMetaData();
+			try (ResultSet indexes =
+					metaData.getIndexInfo(connection.getCatalog(), null, storedIdentifier(metaData, table), false, true)) {
+				while (indexes.next()) {
+					if (indexes.getShort("ORDINAL_POSITION") == 1
+							&& column.equalsIgnoreCase(indexes.getString("COLUMN_NAME"))) {
+						return true;
+					}
+				}
+			}
+			return false;
+		} catch (final SQLException e) {
+			throw new IllegalStateException("Could not read indexes of " + table, e);
+		}
+	}
+
+	/**
+	 * @param table table name, case-insensitive unless quoted at creation
+	 * @param column column name, case-insensitive
+	 * @throws IllegalStateException if {@code column} is not the first column of any index on {@code table}
+	 */
+	public void requireIndexed(String table, String column) {
+		if (!isIndexed(table, column)) {
+			throw new IllegalStateException(
+					String.format(
+							"No index on %s.%s: lookups on this column scan the whole table. Create one starting with %s.",
+							table,
+							column,
+							column));
+		}
+	}
+
+	private static String storedIdentifier(DatabaseMetaData metaData, String identifier) throws SQLException {
+		if (metaData.storesUpperCaseIdentifiers()) {
+			return identifier.toUpperCase();
+		}
+		if (metaData.storesLowerCaseIdentifiers()) {
+			return identifier.toLowerCase();
+		}
+		return identifier;
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.resource.jpa;
+
+/**
+ * Read-only (subject, authority) projection of a {@link UserAuthority} row: built by a JPQL constructor expression, it
+ * is never attached to the persistence context.
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public final class SubjectAuthority {
+	private final String subject;
+
+	private final String authority;
+
+	public SubjectAuthority(String subject, String authority) {
+		this.subject = subject;
+		this.authority = authority;
+	}
+
+	public String getSubject() {
+		return subject;
+	}
+
+	public String getAuthority() {
+		return authority;
+	}
+}
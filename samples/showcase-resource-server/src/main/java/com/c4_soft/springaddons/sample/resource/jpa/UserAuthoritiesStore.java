@@ -0,0 +1,487 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.resource.jpa;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation.RevocationEvent;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation.RevocationListener;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * <p>In-memory subject to authorities index, in front of {@link UserAuthorityRepository}.</p>
+ *
+ * <ul>
+ * <li>all rows are loaded by {@link #warmUp()}: authenticating a known subject does not hit the database</li>
+ * <li>authorities sets are immutable and shared, and each distinct authority is a single {@link GrantedAuthority}
+ * instance whatever the count of subjects it is granted to</li>
+ * <li>{@link #grant(String, String)} and {@link #revoke(String, String)} write through the repository, update this
+ * instance index and append a {@link UserAuthorityChange} marker</li>
+ * <li>{@link #refresh()} reloads subjects modified by other instances since last marker it saw (one query per
+ * {@code inListSize} subjects) and deletes markers older than {@code changesRetention} it already saw. An instance
+ * which did not refresh for longer than that retention loads everything again.</li>
+ * <li>subjects without authorities are not indexed: the empty result is remembered for {@code emptyResultTtl} only, so
+ * that unknown subjects neither grow the index nor hit the database on each request</li>
+ * <li>subject {@link RevocationEvent}s drop the subject entry, which is reloaded on next access</li>
+ * <li>{@link #getAuthorities(Collection)} resolves many subjects at once (bulk authorization): index misses are
+ * queried with chunked {@code IN} lists and added to the index, for authentication to benefit from it too</li>
+ * <li>database reads are indexed only if no change to the subject was reported since they started: a slow miss can't
+ * write back authorities a concurrent {@link #revoke(String, String) revoke} or {@link #refresh()} replaced (subjects
+ * are spread over versioned stripes, and a read which lost the race drops the entry instead)</li>
+ * <li>{@link #warmUp()} loads new maps and then swaps them in: requests keep being served from the index meanwhile</li>
+ * </ul>
+ *
+ * <p>Change markers ids are expected to be visible in increasing order: with concurrent writers on a database which
+ * does not guarantee it, re-read a few markers before the last one seen.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class UserAuthoritiesStore implements RevocationListener, MeterBinder {
+	static final String CACHE_NAME = "users-authorities";
+
+	public static final int DEFAULT_IN_LIST_SIZE = 500;
+
+	public static final Duration DEFAULT_CHANGES_RETENTION = Duration.ofHours(1);
+
+	public static final Duration DEFAULT_EMPTY_RESULT_TTL = Duration.ofSeconds(30);
+
+	/**
+	 * Rough estimates (compressed oops) used by {@link #estimateFootprint()}
+	 */
+	private static final long MAP_ENTRY_BYTES = 32;
+	private static final long SET_BYTES = 16;
+	private static final long REFERENCE_BYTES = 4;
+	private static final long STRING_BYTES = 40;
+	private static final long AUTHORITY_BYTES = 16;
+	private static final long LONG_BYTES = 16;
+
+	private static final int STRIPES = 64;
+
+	private final UserAuthorityRepository authoritiesRepo;
+
+	private final UserAuthorityChangeRepository changesRepo;
+
+	private final TransactionTemplate transaction;
+
+	private final TransactionTemplate readOnlyTransaction;
+
+	private final int inListSize;
+
+	private final Duration changesRetention;
+
+	private final long emptyResultTtlMillis;
+
+	private final Clock clock;
+
+	private volatile Map<String, Set<GrantedAuthority>> authoritiesBySubject = new ConcurrentHashMap<>();
+
+	/**
+	 * Subjects without authorities, with the time (epoch millis) until which that is trusted
+	 */
+	private volatile Map<String, Long> emptyUntil = new ConcurrentHashMap<>();
+
+	/**
+	 * Index writes of a stripe subjects are serialized by the stripe lock, and its version is bumped each time one of
+	 * its subjects is known to have changed
+	 */
+	private final Object[] stripeLocks = new Object[STRIPES];
+
+	private final AtomicLongArray stripeVersions = new AtomicLongArray(STRIPES);
+
+	private final Map<String, GrantedAuthority> authoritiesPool = new ConcurrentHashMap<>();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private volatile long lastChangeId = 0L;
+
+	private Instant lastRefresh = Instant.MIN;
+
+	public UserAuthoritiesStore(
+			UserAuthorityRepository authoritiesRepo,
+			UserAuthorityChangeRepository changesRepo,
+			PlatformTransactionManager transactionManager) {
+		this(authoritiesRepo, changesRepo, transactionManager, DEFAULT_IN_LIST_SIZE);
+	}
+
+	/**
+	 * @param authoritiesRepo user authorities repository
+	 * @param changesRepo change markers repository
+	 * @param transactionManager transaction manager for writes and streamed reads
+	 * @param inListSize maximum count of subjects per {@code IN} list when resolving many subjects at once
+	 */
+	public UserAuthoritiesStore(
+			UserAuthorityRepository authoritiesRepo,
+			UserAuthorityChangeRepository changesRepo,
+			PlatformTransactionManager transactionManager,
+			int inListSize) {
+		this(
+				authoritiesRepo,
+				changesRepo,
+				transactionManager,
+				inListSize,
+				DEFAULT_CHANGES_RETENTION,
+				DEFAULT_EMPTY_RESULT_TTL,
+				Clock.systemUTC());
+	}
+
+	/**
+	 * @param authoritiesRepo user authorities repository
+	 * @param changesRepo change markers repository
+	 * @param transactionManager transaction manager for writes and streamed reads
+	 * @param inListSize maximum count of subjects per {@code IN} list when resolving or refreshing many subjects
+	 * @param changesRetention how long change markers are kept, must be far longer than refresh period
+	 * @param emptyResultTtl how long a subject is known to have no authority
+	 * @param clock time source
+	 */
+	public UserAuthoritiesStore(
+			UserAuthorityRepository authoritiesRepo,
+			UserAuthorityChangeRepository changesRepo,
+			PlatformTransactionManager transactionManager,
+			int inListSize,
+			Duration changesRetention,
+			Duration emptyResultTtl,
+			Clock clock) {
+		Assert.isTrue(inListSize > 0, "inListSize must be positive");
+		Assert.notNull(changesRetention, "changesRetention can't be null");
+		Assert.notNull(emptyResultTtl, "emptyResultTtl can't be null");
+		Assert.notNull(clock, "clock can't be null");
+		this.authoritiesRepo = authoritiesRepo;
+		this.changesRepo = changesRepo;
+		this.transaction = new TransactionTemplate(transactionManager);
+		this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+		this.readOnlyTransaction.setReadOnly(true);
+		this.inListSize = inListSize;
+		this.changesRetention = changesRetention;
+		this.emptyResultTtlMillis = emptyResultTtl.toMillis();
+		this.clock = clock;
+		for (int i = 0; i < STRIPES; ++i) {
+			stripeLocks[i] = new Object();
+		}
+	}
+
+	/**
+	 * Loads all user authorities in memory
+	 */
+	public synchronized void warmUp() {
+		// read marker first: changes committed while loading are reloaded by next refresh
+		final Instant now = clock.instant();
+		final long marker = changesRepo.findLastId();
+		final long[] versions = new long[STRIPES];
+		for (int stripe = 0; stripe < STRIPES; ++stripe) {
+			versions[stripe] = stripeVersions.get(stripe);
+		}
+		final Map<String, Set<String>> loaded = group(authoritiesRepo.findAllSubjectAuthorities());
+		final Map<String, Set<GrantedAuthority>> index = new ConcurrentHashMap<>(loaded.size() * 4 / 3 + 1);
+		loaded.forEach((subject, authorities) -> index.put(subject, toGrantedAuthorities(authorities)));
+		authoritiesBySubject = index;
+		emptyUntil = new ConcurrentHashMap<>();
+		// changes reported while loading went to the replaced map: loaded entries of their stripes might be stale
+		for (int stripe = 0; stripe < STRIPES; ++stripe) {
+			final int changed = stripe;
+			synchronized (stripeLocks[changed]) {
+				if (stripeVersions.get(changed) != versions[changed]) {
+					index.keySet().removeIf(subject -> stripe(subject) == changed);
+				}
+			}
+		}
+		lastChangeId = marker;
+		lastRefresh = now;
+	}
+
+	/**
+	 * Reloads subjects modified since last refresh (by this instance or any other), then deletes markers seen and
+	 * older than retention period
+	 */
+	@Scheduled(fixedDelayString = "${showcase.authorities-refresh-delay-ms:10000}")
+	public synchronized void refresh() {
+		final Instant now = clock.instant();
+		final Instant retentionLimit = now.minus(changesRetention);
+		if (lastRefresh.isBefore(retentionLimit)) {
+			// markers this instance did not see might have been deleted already
+			warmUp();
+			return;
+		}
+		final long nowMillis = now.toEpochMilli();
+		emptyUntil.values().removeIf(until -> until <= nowMillis);
+
+		final Collection<UserAuthorityChange> changes = changesRepo.findByIdGreaterThanOrderByIdAsc(lastChangeId);
+		if (!changes.isEmpty()) {
+			final Set<String> subjects = changes.stream()
+					.map(UserAuthorityChange::getUserSubject)
+					.collect(Collectors.toCollection(LinkedHashSet::new));
+			inChunks(subjects, chunk -> {
+				chunk.forEach(this::invalidate);
+				final long[] versions = versions(chunk);
+				final Map<String, Set<String>> reloaded = group(authoritiesRepo.findAuthoritiesBySubjectIn(chunk));
+				for (int i = 0; i < chunk.size(); ++i) {
+					index(chunk.get(i), reloaded.getOrDefault(chunk.get(i), Set.of()), versions[i], nowMillis);
+				}
+			});
+			lastChangeId = changes.stream().mapToLong(UserAuthorityChange::getId).max().getAsLong();
+		}
+		final long seen = lastChangeId;
+		transaction.execute(status -> changesRepo.deleteSeenBefore(seen, retentionLimit));
+		lastRefresh = now;
+	}
+
+	/**
+	 * @param subject user subject
+	 * @return an immutable set, shared by all callers (empty if subject has no authority)
+	 */
+	public Set<GrantedAuthority> getAuthorities(String subject) {
+		final Set<GrantedAuthority> cached = lookup(subject);
+		if (cached != null) {
+			hits.incrementAndGet();
+			return cached;
+		}
+		misses.incrementAndGet();
+		return reload(subject);
+	}
+
+	/**
+	 * Resolves authorities of many subjects with one query per {@code inListSize} subjects missing from the index (instead
+	 * of one per subject). Resolved subjects are added to the index.
+	 * @param subjects users subjects
+	 * @return subject to authorities map, with an entry for each (distinct) requested subject
+	 */
+	public Map<String, Set<GrantedAuthority>> getAuthorities(Collection<String> subjects) {
+		Assert.notNull(subjects, "subjects can't be null");
+		final Map<String, Set<GrantedAuthority>> resolved = new HashMap<>(subjects.size() * 4 / 3 + 1);
+		final Set<String> missing = new LinkedHashSet<>();
+		for (final String subject : subjects) {
+			final Set<GrantedAuthority> cached = lookup(subject);
+			if (cached != null) {
+				resolved.put(subject, cached);
+			} else {
+				missing.add(subject);
+			}
+		}
+		hits.addAndGet(resolved.size());
+		misses.addAndGet(missing.size());
+
+		inChunks(missing, chunk -> resolve(chunk, resolved));
+		return resolved;
+	}
+
+	public void grant(String subject, String authority) {
+		transaction.execute(status -> {
+			authoritiesRepo.save(new UserAuthority(subject, authority));
+			return changesRepo.save(new UserAuthorityChange(subject, clock.instant()));
+		});
+		invalidate(subject);
+		reload(subject);
+	}
+
+	public void revoke(String subject, String authority) {
+		transaction.execute(status -> {
+			authoritiesRepo.deleteById(new UserAuthorityId(subject, authority));
+			return changesRepo.save(new UserAuthorityChange(subject, clock.instant()));
+		});
+		invalidate(subject);
+		reload(subject);
+	}
+
+	@Override
+	public void onRevocation(RevocationEvent event) {
+		if (event.getTarget() == RevocationEvent.Target.SUBJECT) {
+			final int stripe = stripe(event.getValue());
+			synchronized (stripeLocks[stripe]) {
+				stripeVersions.incrementAndGet(stripe);
+				authoritiesBySubject.remove(event.getValue());
+				emptyUntil.remove(event.getValue());
+			}
+		}
+	}
+
+	/**
+	 * @return count of subjects in the index (subjects without authorities are not)
+	 */
+	public int size() {
+		return authoritiesBySubject.size();
+	}
+
+	/**
+	 * @return rough estimate of the heap retained by the index, in bytes
+	 */
+	public long estimateFootprint() {
+		long bytes = authoritiesPool.size() * (MAP_ENTRY_BYTES + AUTHORITY_BYTES + STRING_BYTES);
+		for (final Map.Entry<String, Set<GrantedAuthority>> entry : authoritiesBySubject.entrySet()) {
+			bytes += MAP_ENTRY_BYTES + STRING_BYTES + entry.getKey().length() + SET_BYTES
+					+ entry.getValue().size() * REFERENCE_BYTES;
+		}
+		for (final String subject : emptyUntil.keySet()) {
+			bytes += MAP_ENTRY_BYTES + STRING_BYTES + subject.length() + LONG_BYTES;
+		}
+		return bytes;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("cache.size", this, UserAuthoritiesStore::size)
+				.tag("cache", CACHE_NAME)
+				.description("The number of subjects in the authorities index")
+				.register(registry);
+		Gauge.builder("cache.footprint", this, UserAuthoritiesStore::estimateFootprint)
+				.tag("cache", CACHE_NAME)
+				.description("Estimated heap retained by the authorities index")
+				.baseUnit("bytes")
+				.register(registry);
+		FunctionCounter.builder("cache.gets", hits, AtomicLong::get)
+				.tags("cache", CACHE_NAME, "result", "hit")
+				.description("The number of times authorities were served from the index")
+				.register(registry);
+		FunctionCounter.builder("cache.gets", misses, AtomicLong::get)
+				.tags("cache", CACHE_NAME, "result", "miss")
+				.description("The number of times authorities were queried from the database")
+				.register(registry);
+	}
+
+	private Set<GrantedAuthority> lookup(String subject) {
+		final Set<GrantedAuthority> cached = authoritiesBySubject.get(subject);
+		if (cached != null) {
+			return cached;
+		}
+		final Long until = emptyUntil.get(subject);
+		return until != null && until > clock.millis() ? Set.of() : null;
+	}
+
+	private Set<GrantedAuthority> reload(String subject) {
+		final long version = stripeVersions.get(stripe(subject));
+		return index(subject, authoritiesRepo.findAuthoritiesBySubject(subject), version, clock.millis());
+	}
+
+	private void resolve(List<String> subjects, Map<String, Set<GrantedAuthority>> resolved) {
+		final long[] versions = versions(subjects);
+		final Map<String, Set<String>> rows = readOnlyTransaction.execute(status -> {
+			try (Stream<SubjectAuthority> stream = authoritiesRepo.streamAuthoritiesBySubjectIn(subjects)) {
+				return group(stream);
+			}
+		});
+		final long now = clock.millis();
+		for (int i = 0; i < subjects.size(); ++i) {
+			final String subject = subjects.get(i);
+			resolved.put(subject, index(subject, rows.getOrDefault(subject, Set.of()), versions[i], now));
+		}
+	}
+
+	/**
+	 * @param version subject stripe version read before querying {@code authorities} from the database
+	 * @return authorities as read, whether they were indexed or not
+	 */
+	private Set<GrantedAuthority> index(String subject, Collection<String> authorities, long version, long now) {
+		final Set<GrantedAuthority> granted = authorities.isEmpty() ? Set.of() : toGrantedAuthorities(authorities);
+		final int stripe = stripe(subject);
+		synchronized (stripeLocks[stripe]) {
+			if (stripeVersions.get(stripe) != version) {
+				// a change to this subject (or another one of the stripe) was reported while reading: rows might be
+				// stale, next access reads them again
+				authoritiesBySubject.remove(subject);
+				emptyUntil.remove(subject);
+			} else if (granted.isEmpty()) {
+				authoritiesBySubject.remove(subject);
+				emptyUntil.put(subject, now + emptyResultTtlMillis);
+			} else {
+				emptyUntil.remove(subject);
+				authoritiesBySubject.put(subject, granted);
+			}
+		}
+		return granted;
+	}
+
+	/**
+	 * Database reads of this subject started before are not indexed
+	 */
+	private void invalidate(String subject) {
+		final int stripe = stripe(subject);
+		synchronized (stripeLocks[stripe]) {
+			stripeVersions.incrementAndGet(stripe);
+		}
+	}
+
+	private long[] versions(List<String> subjects) {
+		final long[] versions = new long[subjects.size()];
+		for (int i = 0; i < versions.length; ++i) {
+			versions[i] = stripeVersions.get(stripe(subjects.get(i)));
+		}
+		return versions;
+	}
+
+	private static int stripe(String subject) {
+		final int hash = subject.hashCode();
+		return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+	}
+
+	private void inChunks(Collection<String> subjects, Consumer<List<String>> action) {
+		final List<String> chunk = new ArrayList<>(Math.min(inListSize, subjects.size()));
+		for (final String subject : subjects) {
+			chunk.add(subject);
+			if (chunk.size() == inListSize) {
+				action.accept(chunk);
+				chunk.clear();
+			}
+		}
+		if (!chunk.isEmpty()) {
+			action.accept(chunk);
+		}
+	}
+
+	private static Map<String, Set<String>> group(Collection<SubjectAuthority> rows) {
+		return group(rows.stream());
+	}
+
+	private static Map<String, Set<String>> group(Stream<SubjectAuthority> rows) {
+		final Map<String, Set<String>> grouped = new HashMap<>();
+		rows.forEach(
+				row -> grouped.computeIfAbsent(row.getSubject(), subject -> new LinkedHashSet<>())
+						.add(row.getAuthority()));
+		return grouped;
+	}
+
+	private Set<GrantedAuthority> toGrantedAuthorities(Collection<String> authorities) {
+		return authorities.stream()
+				.map(authority -> authoritiesPool.computeIfAbsent(authority, SimpleGrantedAuthority::new))
+				.collect(Collectors.toUnmodifiableSet());
+	}
+}
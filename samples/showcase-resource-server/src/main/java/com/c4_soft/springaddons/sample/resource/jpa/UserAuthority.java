@@ -19,15 +19,28 @@ import java.io.Serializable;
 
 import javax.persistence.EmbeddedId;
 import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
 
 /**
+ * <p>Composite primary key columns order is up to the JPA provider (Hibernate sorts embedded id properties by name,
+ * making {@code authority} the leading column): lookups by subject are backed by a dedicated index, which
+ * {@link SchemaVerifier} checks at startup.</p>
+ *
  * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
  *
  */
 @Entity
+@Table(
+		name = UserAuthority.TABLE_NAME,
+		indexes = @Index(name = "idx_user_authority_subject", columnList = UserAuthority.SUBJECT_COLUMN_NAME))
 public class UserAuthority implements Serializable {
 	private static final long serialVersionUID = 856612234908842436L;
 
+	public static final String TABLE_NAME = "user_authority";
+
+	public static final String SUBJECT_COLUMN_NAME = "user_subject";
+
 	@EmbeddedId
 	private UserAuthorityId id;
 
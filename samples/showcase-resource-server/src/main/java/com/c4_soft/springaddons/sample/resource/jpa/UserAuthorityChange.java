@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.resource.jpa;
+
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+
+/**
+ * Change marker: a row is appended each time authorities of a subject are modified, so that
+ * {@link UserAuthoritiesStore}s (of all instances) reload only modified subjects. Markers are deleted once older than
+ * a retention period.
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+@Entity
+public class UserAuthorityChange {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(name = "user_subject", nullable = false)
+	private String userSubject;
+
+	@Column(name = "changed_at", nullable = false)
+	private Instant changedAt;
+
+	public UserAuthorityChange(String userSubject, Instant changedAt) {
+		super();
+		this.userSubject = userSubject;
+		this.changedAt = changedAt;
+	}
+
+	protected UserAuthorityChange() {}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getUserSubject() {
+		return userSubject;
+	}
+
+	public Instant getChangedAt() {
+		return changedAt;
+	}
+}
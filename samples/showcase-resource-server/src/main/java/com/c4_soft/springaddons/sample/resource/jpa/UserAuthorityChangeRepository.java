@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.resource.jpa;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public interface UserAuthorityChangeRepository extends CrudRepository<UserAuthorityChange, Long> {
+
+	List<UserAuthorityChange> findByIdGreaterThanOrderByIdAsc(Long id);
+
+	@Query("select coalesce(max(c.id), 0) from UserAuthorityChange c")
+	Long findLastId();
+
+	/**
+	 * @return smallest marker id, 0 if there is none
+	 */
+	@Query("select coalesce(min(c.id), 0) from UserAuthorityChange c")
+	Long findFirstId();
+
+	/**
+	 * Bulk delete (no entity loaded): to be called within a transaction
+	 * @param id last marker seen
+	 * @param changedAt retention limit
+	 * @return count of deleted markers
+	 */
+	@Modifying
+	@Query("delete from UserAuthorityChange c where c.id <= :id and c.changedAt < :changedAt")
+	int deleteSeenBefore(@Param("id") Long id, @Param("changedAt") Instant changedAt);
+
+}
@@ -28,7 +28,7 @@ import javax.persistence.Embeddable;
 public class UserAuthorityId implements Serializable {
 	private static final long serialVersionUID = -7586573368559768273L;
 
-	@Column(name = "user_subject", nullable = false)
+	@Column(name = UserAuthority.SUBJECT_COLUMN_NAME, nullable = false)
 	private String userSubject;
 
 	@Column(nullable = false)
@@ -15,10 +15,19 @@
  */
 package com.c4_soft.springaddons.sample.resource.jpa;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 /**
  * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
@@ -26,7 +35,45 @@ import org.springframework.data.repository.CrudRepository;
  */
 public interface UserAuthorityRepository extends CrudRepository<UserAuthority, UserAuthorityId>{
 
-	@Cacheable("users-authorities")
 	Collection<UserAuthority> findByIdUserSubject(String subject);
 
+	/**
+	 * Entity-free lookup: selects authority column only (no {@link UserAuthority} instantiation, dirty-checking or
+	 * persistence-context bookkeeping)
+	 * @param subject user subject
+	 * @return authorities granted to the subject
+	 */
+	@Query("select a.id.authority from UserAuthority a where a.id.userSubject = :subject")
+	@QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+	List<String> findAuthoritiesBySubject(@Param("subject") String subject);
+
+	/**
+	 * Entity-free lookup for several subjects in a single query
+	 * @param subjects users subjects (mind database limits for {@code IN} lists size)
+	 * @return (subject, authority) pairs for all requested subjects
+	 */
+	@Query("select new com.c4_soft.springaddons.sample.resource.jpa.SubjectAuthority(a.id.userSubject, a.id.authority) "
+			+ "from UserAuthority a where a.id.userSubject in :subjects")
+	@QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+	List<SubjectAuthority> findAuthoritiesBySubjectIn(@Param("subjects") Collection<String> subjects);
+
+	/**
+	 * Same as {@link #findAuthoritiesBySubjectIn(Collection)}, but rows are streamed from the JDBC result set instead of
+	 * being collected in a list. Must be consumed (and closed) within a transaction.
+	 * @param subjects users subjects (mind database limits for {@code IN} lists size)
+	 * @return (subject, authority) pairs for all requested subjects
+	 */
+	@Query("select new com.c4_soft.springaddons.sample.resource.jpa.SubjectAuthority(a.id.userSubject, a.id.authority) "
+			+ "from UserAuthority a where a.id.userSubject in :subjects")
+	@QueryHints({ @QueryHint(name = HINT_READONLY, value = "true"), @QueryHint(name = HINT_FETCH_SIZE, value = "512") })
+	Stream<SubjectAuthority> streamAuthoritiesBySubjectIn(@Param("subjects") Collection<String> subjects);
+
+	/**
+	 * @return all (subject, authority) pairs, without loading entities
+	 */
+	@Query("select new com.c4_soft.springaddons.sample.resource.jpa.SubjectAuthority(a.id.userSubject, a.id.authority) "
+			+ "from UserAuthority a")
+	@QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+	List<SubjectAuthority> findAllSubjectAuthorities();
+
 }
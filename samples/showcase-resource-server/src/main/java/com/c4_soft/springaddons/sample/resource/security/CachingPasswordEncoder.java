@@ -0,0 +1,142 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.resource.security;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.Assert;
+
+/**
+ * <p>{@link PasswordEncoder} remembering successful verifications for a short time: clients sending the same
+ * credentials over and over (metrics scrapers on actuator basic-auth endpoints for instance) pay the (deliberately
+ * slow) BCrypt verification once per {@code ttl} instead of once per request.</p>
+ *
+ * <p>Cache keys are HMAC-SHA256 of submitted password and expected hash, with a random key generated at
+ * instantiation: neither passwords nor reusable digests are kept in memory. Changing the stored hash invalidates
+ * entries. Failed verifications are never cached: brute force still costs a BCrypt verification per attempt.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp&#64;c4-soft.com&gt;
+ */
+public class CachingPasswordEncoder implements PasswordEncoder {
+	private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+	private final PasswordEncoder delegate;
+
+	private final long ttlMillis;
+
+	private final int maxEntries;
+
+	private final Clock clock;
+
+	private final ThreadLocal<Mac> mac;
+
+	private final Map<ByteBuffer, Long> expiryByCredentials = new ConcurrentHashMap<>();
+
+	/**
+	 * @param delegate actual password encoder
+	 * @param ttl how long a successful verification is remembered
+	 * @param maxEntries cache size limit (expired entries are purged when it is reached, and then all if needed)
+	 * @param clock time source
+	 */
+	public CachingPasswordEncoder(PasswordEncoder delegate, Duration ttl, int maxEntries, Clock clock) {
+		Assert.notNull(delegate, "delegate can't be null");
+		Assert.isTrue(ttl != null && !ttl.isNegative(), "ttl can't be negative");
+		Assert.isTrue(maxEntries > 0, "maxEntries must be positive");
+		Assert.notNull(clock, "clock can't be null");
+		this.delegate = delegate;
+		this.ttlMillis = ttl.toMillis();
+		this.maxEntries = maxEntries;
+		this.clock = clock;
+
+		final byte[] key = new byte[32];
+		new SecureRandom().nextBytes(key);
+		final SecretKeySpec secretKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+		this.mac = ThreadLocal.withInitial(() -> {
+			try {
+				final Mac instance = Mac.getInstance(HMAC_ALGORITHM);
+				instance.init(secretKey);
+				return instance;
+			} catch (final GeneralSecurityException e) {
+				throw new IllegalStateException(HMAC_ALGORITHM + " is not available", e);
+			}
+		});
+	}
+
+	/**
+	 * System UTC clock and up to 1024 cached verifications
+	 * @param delegate actual password encoder
+	 * @param ttl how long a successful verification is remembered
+	 */
+	public CachingPasswordEncoder(PasswordEncoder delegate, Duration ttl) {
+		this(delegate, ttl, 1024, Clock.systemUTC());
+	}
+
+	@Override
+	public String encode(CharSequence rawPassword) {
+		return delegate.encode(rawPassword);
+	}
+
+	@Override
+	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		if (rawPassword == null || encodedPassword == null || ttlMillis == 0) {
+			return delegate.matches(rawPassword, encodedPassword);
+		}
+		final ByteBuffer key = credentialsKey(rawPassword, encodedPassword);
+		final long now = clock.millis();
+		final Long expiry = expiryByCredentials.get(key);
+		if (expiry != null && now < expiry) {
+			return true;
+		}
+		if (!delegate.matches(rawPassword, encodedPassword)) {
+			expiryByCredentials.remove(key);
+			return false;
+		}
+		if (expiryByCredentials.size() >= maxEntries) {
+			expiryByCredentials.values().removeIf(e -> e <= now);
+			if (expiryByCredentials.size() >= maxEntries) {
+				expiryByCredentials.clear();
+			}
+		}
+		expiryByCredentials.put(key, now + ttlMillis);
+		return true;
+	}
+
+	@Override
+	public boolean upgradeEncoding(String encodedPassword) {
+		return delegate.upgradeEncoding(encodedPassword);
+	}
+
+	int size() {
+		return expiryByCredentials.size();
+	}
+
+	private ByteBuffer credentialsKey(CharSequence rawPassword, String encodedPassword) {
+		final Mac instance = mac.get();
+		instance.update(StandardCharsets.UTF_8.encode(CharBuffer.wrap(rawPassword)));
+		instance.update((byte) 0);
+		instance.update(encodedPassword.getBytes(StandardCharsets.UTF_8));
+		return ByteBuffer.wrap(instance.doFinal());
+	}
+}
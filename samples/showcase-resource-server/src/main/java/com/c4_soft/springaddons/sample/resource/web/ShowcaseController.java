@@ -15,14 +15,14 @@
  */
 package com.c4_soft.springaddons.sample.resource.web;
 
-import java.util.Map;
-
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.server.resource.authentication.AbstractOAuth2TokenAuthenticationToken;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.c4_soft.oauth2.ClaimSet;
+import com.c4_soft.oauth2.UnmodifiableClaimSet;
 import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.OAuth2ClaimSetAuthentication;
 
 @RestController
@@ -39,9 +39,9 @@ public class ShowcaseController {
 	}
 
 	@GetMapping("claims")
-	public Map<String, Object> getJwtClaims(Authentication auth) {
+	public ClaimSet getJwtClaims(Authentication auth) {
 		if(auth instanceof AbstractOAuth2TokenAuthenticationToken<?>) {
-			return ((AbstractOAuth2TokenAuthenticationToken<?>) auth).getTokenAttributes();
+			return new UnmodifiableClaimSet(((AbstractOAuth2TokenAuthenticationToken<?>) auth).getTokenAttributes());
 		}
 		if(auth instanceof OAuth2ClaimSetAuthentication<?>) {
 			return ((OAuth2ClaimSetAuthentication<?>) auth).getClaimSet();
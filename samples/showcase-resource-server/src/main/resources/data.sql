@@ -2,4 +2,4 @@ INSERT INTO User_Authority(user_subject, authority) VALUES ('user', 'ROLE_USER')
 INSERT INTO User_Authority(user_subject, authority) VALUES ('admin', 'ROLE_USER');
 INSERT INTO User_Authority(user_subject, authority) VALUES ('admin', 'ROLE_ADMIN');
 INSERT INTO User_Authority(user_subject, authority) VALUES ('jpa', 'ROLE_USER');
-INSERT INTO User_Authority(user_subject, authority) VALUES ('jpa', 'AUTHORIZED_PERSONEL');
\ No newline at end of file
+INSERT INTO User_Authority(user_subject, authority) VALUES ('jpa', 'AUTHORIZED_PERSONNEL');
\ No newline at end of file
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.resource.jpa;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class SchemaVerifierTests {
+
+	@Autowired
+	DataSource dataSource;
+
+	SchemaVerifier verifier;
+
+	@Before
+	public void setUp() {
+		verifier = new SchemaVerifier(dataSource);
+	}
+
+	@Test
+	public void userSubjectLookupsAreIndexed() {
+		assertThat(verifier.isIndexed(UserAuthority.TABLE_NAME, UserAuthority.SUBJECT_COLUMN_NAME)).isTrue();
+		verifier.requireIndexed("USER_AUTHORITY", "USER_SUBJECT");
+	}
+
+	@Test
+	public void primaryKeyLeadingColumnIsIndexed() {
+		assertThat(verifier.isIndexed("user_authority_change", "id")).isTrue();
+	}
+
+	@Test
+	public void nonLeadingOrUnindexedColumnsAreReported() {
+		assertThat(verifier.isIndexed("user_authority_change", "user_subject")).isFalse();
+		assertThat(verifier.isIndexed("no_such_table", "user_subject")).isFalse();
+		assertThatThrownBy(() -> verifier.requireIndexed("user_authority_change", "user_subject"))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("user_authority_change.user_subject");
+	}
+}
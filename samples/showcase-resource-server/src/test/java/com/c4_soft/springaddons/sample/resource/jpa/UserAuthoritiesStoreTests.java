@@ -0,0 +1,283 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.resource.jpa;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.c4_soft.springaddons.sample.resource.MutableClock;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation.RevocationEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class UserAuthoritiesStoreTests {
+	private static final Instant NOW = Instant.parse("2019-11-26T08:00:00Z");
+
+	@Autowired
+	UserAuthorityRepository authoritiesRepo;
+
+	@Autowired
+	UserAuthorityChangeRepository changesRepo;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	MutableClock clock;
+
+	UserAuthoritiesStore store;
+
+	@Before
+	public void setUp() {
+		clock = new MutableClock(NOW);
+		store = newStore(UserAuthoritiesStore.DEFAULT_IN_LIST_SIZE);
+		store.warmUp();
+	}
+
+	@Test
+	public void warmUpLoadsAllSubjectsAndSharesAuthorityInstances() {
+		assertThat(store.size()).isEqualTo(3);
+		assertThat(store.getAuthorities("admin")).extracting(GrantedAuthority::getAuthority)
+				.containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+
+		final GrantedAuthority userRoleOfAdmin = find(store, "admin", "ROLE_USER");
+		final GrantedAuthority userRoleOfUser = find(store, "user", "ROLE_USER");
+		assertThat(userRoleOfAdmin).isSameAs(userRoleOfUser);
+	}
+
+	@Test
+	public void grantAndRevokeWriteThrough() {
+		store.grant("user", "AUTHORIZED_PERSONNEL");
+		assertThat(store.getAuthorities("user")).contains(new SimpleGrantedAuthority("AUTHORIZED_PERSONNEL"));
+		assertThat(authoritiesRepo.findByIdUserSubject("user")).hasSize(2);
+
+		store.revoke("user", "AUTHORIZED_PERSONNEL");
+		assertThat(store.getAuthorities("user")).containsExactly(new SimpleGrantedAuthority("ROLE_USER"));
+	}
+
+	@Test
+	public void refreshReloadsSubjectsModifiedByOtherInstances() {
+		final var otherInstance = new UserAuthoritiesStore(authoritiesRepo, changesRepo, transactionManager);
+		otherInstance.grant("user", "ROLE_ADMIN");
+		assertThat(store.getAuthorities("user")).containsExactly(new SimpleGrantedAuthority("ROLE_USER"));
+
+		store.refresh();
+
+		assertThat(store.getAuthorities("user")).extracting(GrantedAuthority::getAuthority)
+				.containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+	}
+
+	@Test
+	public void refreshReloadsModifiedSubjectsInChunks() {
+		final var chunkedStore = newStore(1);
+		chunkedStore.warmUp();
+		final var otherInstance = newStore(1);
+		otherInstance.grant("user", "ROLE_ADMIN");
+		otherInstance.revoke("admin", "ROLE_ADMIN");
+		otherInstance.grant("new", "ROLE_USER");
+
+		chunkedStore.refresh();
+
+		assertThat(chunkedStore.getAuthorities("user")).hasSize(2);
+		assertThat(chunkedStore.getAuthorities("admin")).containsExactly(new SimpleGrantedAuthority("ROLE_USER"));
+		assertThat(chunkedStore.getAuthorities("new")).containsExactly(new SimpleGrantedAuthority("ROLE_USER"));
+		assertThat(chunkedStore.size()).isEqualTo(4);
+	}
+
+	@Test
+	public void refreshDeletesSeenMarkersOlderThanRetention() {
+		store.grant("user", "ROLE_ADMIN");
+		clock.set(NOW.plus(Duration.ofMinutes(30)));
+		store.refresh();
+		assertThat(changesRepo.count()).isEqualTo(1);
+
+		final var otherInstance = newStore(UserAuthoritiesStore.DEFAULT_IN_LIST_SIZE);
+		otherInstance.grant("jpa", "ROLE_ADMIN");
+		clock.set(NOW.plus(Duration.ofMinutes(75)));
+		store.refresh();
+
+		assertThat(changesRepo.findAll()).extracting(UserAuthorityChange::getUserSubject).containsExactly("jpa");
+		assertThat(store.getAuthorities("jpa")).hasSize(3);
+	}
+
+	@Test
+	public void storeNotRefreshedForLongerThanRetentionLoadsEverything() {
+		store.getAuthorities("unknown");
+		authoritiesRepo.save(new UserAuthority("unknown", "ROLE_USER"));
+		clock.set(NOW.plus(UserAuthoritiesStore.DEFAULT_CHANGES_RETENTION).plusSeconds(1));
+
+		store.refresh();
+
+		assertThat(store.size()).isEqualTo(4);
+		assertThat(store.getAuthorities("unknown")).containsExactly(new SimpleGrantedAuthority("ROLE_USER"));
+	}
+
+	@Test
+	public void emptyResultsAreNotIndexedAndExpire() {
+		assertThat(store.getAuthorities("unknown")).isEmpty();
+		assertThat(store.size()).isEqualTo(3);
+
+		authoritiesRepo.save(new UserAuthority("unknown", "ROLE_USER"));
+		clock.set(NOW.plus(UserAuthoritiesStore.DEFAULT_EMPTY_RESULT_TTL).minusMillis(1));
+		assertThat(store.getAuthorities("unknown")).isEmpty();
+
+		clock.set(NOW.plus(UserAuthoritiesStore.DEFAULT_EMPTY_RESULT_TTL));
+		assertThat(store.getAuthorities("unknown")).containsExactly(new SimpleGrantedAuthority("ROLE_USER"));
+		assertThat(store.size()).isEqualTo(4);
+	}
+
+	@Test
+	public void subjectRevocationDropsEntry() {
+		store.onRevocation(RevocationEvent.ofSubject("admin"));
+		assertThat(store.size()).isEqualTo(2);
+
+		assertThat(store.getAuthorities("admin")).hasSize(2);
+		assertThat(store.size()).isEqualTo(3);
+	}
+
+	@Test
+	public void batchResolutionQueriesMissingSubjectsInChunksAndFillsIndex() {
+		final var coldStore = new UserAuthoritiesStore(authoritiesRepo, changesRepo, transactionManager, 2);
+		coldStore.getAuthorities("user");
+
+		final var actual = coldStore.getAuthorities(List.of("user", "admin", "jpa", "unknown", "admin"));
+
+		assertThat(actual).containsOnlyKeys("user", "admin", "jpa", "unknown");
+		assertThat(actual.get("admin")).extracting(GrantedAuthority::getAuthority)
+				.containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+		assertThat(actual.get("jpa")).hasSize(2);
+		assertThat(actual.get("unknown")).isEmpty();
+		assertThat(coldStore.size()).isEqualTo(3);
+		assertThat(coldStore.getAuthorities("jpa")).isSameAs(actual.get("jpa"));
+	}
+
+	@Test
+	public void metricsReportHitsMissesAndFootprint() {
+		final var registry = new SimpleMeterRegistry();
+		store.bindTo(registry);
+
+		store.getAuthorities("admin");
+		store.getAuthorities("admin");
+		store.getAuthorities("unknown");
+
+		assertThat(registry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(2);
+		assertThat(registry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+		assertThat(registry.get("cache.size").gauge().value()).isEqualTo(3);
+		assertThat(registry.get("cache.footprint").gauge().value()).isPositive();
+	}
+
+	@Test
+	public void missReadBeforeConcurrentRevokeIsNotIndexed() {
+		final var slowRepo = mock(UserAuthorityRepository.class, delegatesTo(authoritiesRepo));
+		final var racingStore = newStore(slowRepo, UserAuthoritiesStore.DEFAULT_IN_LIST_SIZE);
+		doAnswer(invocation -> {
+			final var read = authoritiesRepo.findAuthoritiesBySubject(invocation.getArgument(0));
+			// revoke commits (and reloads) after the miss read its rows, but before it indexes them
+			doAnswer(delegatesTo(authoritiesRepo)).when(slowRepo).findAuthoritiesBySubject(anyString());
+			racingStore.revoke("admin", "ROLE_ADMIN");
+			return read;
+		}).when(slowRepo).findAuthoritiesBySubject(anyString());
+
+		assertThat(racingStore.getAuthorities("admin")).extracting(GrantedAuthority::getAuthority)
+				.containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+
+		assertThat(racingStore.getAuthorities("admin")).extracting(GrantedAuthority::getAuthority)
+				.containsExactly("ROLE_USER");
+	}
+
+	@Test
+	public void warmUpDoesNotIndexRowsChangedWhileLoading() {
+		final var slowRepo = mock(UserAuthorityRepository.class, delegatesTo(authoritiesRepo));
+		final var racingStore = newStore(slowRepo, UserAuthoritiesStore.DEFAULT_IN_LIST_SIZE);
+		racingStore.warmUp();
+		doAnswer(invocation -> {
+			final var loaded = authoritiesRepo.findAllSubjectAuthorities();
+			racingStore.revoke("admin", "ROLE_ADMIN");
+			return loaded;
+		}).when(slowRepo).findAllSubjectAuthorities();
+
+		racingStore.warmUp();
+
+		assertThat(racingStore.getAuthorities("admin")).extracting(GrantedAuthority::getAuthority)
+				.containsExactly("ROLE_USER");
+	}
+
+	@Test
+	public void batchResolutionReadBeforeConcurrentGrantIsNotIndexed() {
+		final var slowRepo = mock(UserAuthorityRepository.class, delegatesTo(authoritiesRepo));
+		final var racingStore = newStore(slowRepo, UserAuthoritiesStore.DEFAULT_IN_LIST_SIZE);
+		doAnswer(invocation -> {
+			final List<SubjectAuthority> read;
+			try (var stream = authoritiesRepo.streamAuthoritiesBySubjectIn(invocation.getArgument(0))) {
+				read = stream.collect(Collectors.toList());
+			}
+			racingStore.grant("unknown", "ROLE_USER");
+			return read.stream();
+		}).when(slowRepo).streamAuthoritiesBySubjectIn(any());
+
+		assertThat(racingStore.getAuthorities(List.of("unknown")).get("unknown")).isEmpty();
+
+		assertThat(racingStore.getAuthorities("unknown")).extracting(GrantedAuthority::getAuthority)
+				.containsExactly("ROLE_USER");
+	}
+
+	private UserAuthoritiesStore newStore(int inListSize) {
+		return newStore(authoritiesRepo, inListSize);
+	}
+
+	private UserAuthoritiesStore newStore(UserAuthorityRepository authoritiesRepo, int inListSize) {
+		return new UserAuthoritiesStore(
+				authoritiesRepo,
+				changesRepo,
+				transactionManager,
+				inListSize,
+				UserAuthoritiesStore.DEFAULT_CHANGES_RETENTION,
+				UserAuthoritiesStore.DEFAULT_EMPTY_RESULT_TTL,
+				clock);
+	}
+
+	private static GrantedAuthority find(UserAuthoritiesStore store, String subject, String authority) {
+		return store.getAuthorities(subject)
+				.stream()
+				.filter(a -> a.getAuthority().equals(authority))
+				.findAny()
+				.orElseThrow();
+	}
+}
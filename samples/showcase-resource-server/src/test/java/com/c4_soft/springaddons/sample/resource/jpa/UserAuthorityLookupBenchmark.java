@@ -0,0 +1,168 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.resource.jpa;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * <p>Compares {@link UserAuthority} entities loading with projections for single and multiple subjects lookups,
+ * against embedded H2.</p>
+ *
+ * <p>From samples directory:</p>
+ *
+ * <pre>
+ * mvn -pl showcase-resource-server test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main UserAuthorityLookupBenchmark -prof gc"
+ * </pre>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserAuthorityLookupBenchmark {
+	static final int AUTHORITIES_PER_SUBJECT = 5;
+
+	static final int BATCH_SIZE = 100;
+
+	@Param({ "1000", "10000" })
+	int subjectsCount;
+
+	ConfigurableApplicationContext context;
+
+	UserAuthorityRepository repo;
+
+	TransactionTemplate readOnlyTransaction;
+
+	int next;
+
+	@Setup
+	public void setUp() {
+		context = new SpringApplicationBuilder(BenchmarkConfig.class)
+				.web(WebApplicationType.NONE)
+				.properties(
+						"spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_ON_EXIT=FALSE",
+						"spring.datasource.initialization-mode=never",
+						"logging.level.root=WARN")
+				.run();
+		repo = context.getBean(UserAuthorityRepository.class);
+		readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		readOnlyTransaction.setReadOnly(true);
+
+		final List<Object[]> rows = new ArrayList<>(subjectsCount * AUTHORITIES_PER_SUBJECT);
+		for (int i = 0; i < subjectsCount; ++i) {
+			for (int j = 0; j < AUTHORITIES_PER_SUBJECT; ++j) {
+				rows.add(new Object[] { subject(i), "AUTHORITY_" + j });
+			}
+		}
+		context.getBean(JdbcTemplate.class)
+				.batchUpdate("INSERT INTO user_authority(user_subject, authority) VALUES (?, ?)", rows);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	/**
+	 * What {@code JpaGrantedAuthoritiesConverter} used to do: load entities in a read-only transaction, then map
+	 */
+	@Benchmark
+	public Set<String> entity() {
+		final String subject = nextSubject();
+		return readOnlyTransaction.execute(
+				status -> repo.findByIdUserSubject(subject)
+						.stream()
+						.map(UserAuthority::getAuthority)
+						.collect(Collectors.toSet()));
+	}
+
+	@Benchmark
+	public List<String> projection() {
+		return repo.findAuthoritiesBySubject(nextSubject());
+	}
+
+	@Benchmark
+	public List<Set<String>> entitiesOneSubjectAtATime() {
+		final Collection<String> subjects = nextSubjects();
+		return readOnlyTransaction.execute(
+				status -> subjects.stream()
+						.map(
+								subject -> repo.findByIdUserSubject(subject)
+										.stream()
+										.map(UserAuthority::getAuthority)
+										.collect(Collectors.toSet()))
+						.collect(Collectors.toList()));
+	}
+
+	@Benchmark
+	public List<SubjectAuthority> projectionBatch() {
+		return repo.findAuthoritiesBySubjectIn(nextSubjects());
+	}
+
+	private String nextSubject() {
+		next = (next + 1) % subjectsCount;
+		return subject(next);
+	}
+
+	private Collection<String> nextSubjects() {
+		return IntStream.range(0, BATCH_SIZE).mapToObj(i -> nextSubject()).collect(Collectors.toList());
+	}
+
+	private static String subject(int i) {
+		return "user-" + i;
+	}
+
+	@SpringBootConfiguration
+	@EnableAutoConfiguration
+	@EntityScan(basePackageClasses = UserAuthority.class)
+	@EnableJpaRepositories(basePackageClasses = UserAuthorityRepository.class)
+	static class BenchmarkConfig {
+	}
+}
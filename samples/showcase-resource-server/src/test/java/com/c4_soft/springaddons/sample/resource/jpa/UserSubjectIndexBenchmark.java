@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.resource.jpa;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Subject lookup latency on a 1M rows {@code user_authority} table (embedded H2, plain JDBC), with and without
+ * {@code user_subject} index. The table is created as Hibernate does: composite primary key led by
+ * {@code authority}, which does not help subject lookups.</p>
+ *
+ * <p>From samples directory:</p>
+ *
+ * <pre>
+ * mvn -pl showcase-resource-server test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main UserSubjectIndexBenchmark"
+ * </pre>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserSubjectIndexBenchmark {
+	static final int AUTHORITIES_PER_SUBJECT = 5;
+
+	@Param({ "1000000" })
+	int rowsCount;
+
+	@Param({ "false", "true" })
+	boolean indexed;
+
+	Connection connection;
+
+	PreparedStatement lookup;
+
+	int subjectsCount;
+
+	int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		connection = DriverManager.getConnection("jdbc:h2:mem:index-benchmark;DB_CLOSE_DELAY=-1", "sa", "");
+		try (Statement ddl = connection.createStatement()) {
+			ddl.execute("DROP TABLE IF EXISTS user_authority");
+			ddl.execute(
+					"CREATE TABLE user_authority (authority VARCHAR(255) NOT NULL, user_subject VARCHAR(255) NOT NULL, "
+							+ "PRIMARY KEY (authority, user_subject))");
+		}
+
+		subjectsCount = rowsCount / AUTHORITIES_PER_SUBJECT;
+		connection.setAutoCommit(false);
+		try (PreparedStatement insert =
+				connection.prepareStatement("INSERT INTO user_authority(authority, user_subject) VALUES (?, ?)")) {
+			for (int i = 0; i < subjectsCount; ++i) {
+				for (int j = 0; j < AUTHORITIES_PER_SUBJECT; ++j) {
+					insert.setString(1, "AUTHORITY_" + j);
+					insert.setString(2, "user-" + i);
+					insert.addBatch();
+				}
+				if (i % 1000 == 999) {
+					insert.executeBatch();
+				}
+			}
+			insert.executeBatch();
+		}
+		connection.commit();
+		connection.setAutoCommit(true);
+
+		if (indexed) {
+			try (Statement ddl = connection.createStatement()) {
+				ddl.execute("CREATE INDEX idx_user_authority_subject ON user_authority(user_subject)");
+			}
+		}
+
+		lookup = connection.prepareStatement("SELECT authority FROM user_authority WHERE user_subject = ?");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		lookup.close();
+		try (Statement ddl = connection.createStatement()) {
+			ddl.execute("DROP TABLE user_authority");
+		}
+		connection.close();
+	}
+
+	@Benchmark
+	public List<String> lookupBySubject() throws SQLException {
+		next = (next + 7919) % subjectsCount;
+		lookup.setString(1, "user-" + next);
+		final List<String> authorities = new ArrayList<>(AUTHORITIES_PER_SUBJECT);
+		try (ResultSet rs = lookup.executeQuery()) {
+			while (rs.next()) {
+				authorities.add(rs.getString(1));
+			}
+		}
+		return authorities;
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.sample.resource.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.c4_soft.springaddons.sample.resource.MutableClock;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp&#64;c4-soft.com&gt;
+ */
+public class CachingPasswordEncoderTests {
+	private static final Instant NOW = Instant.parse("2019-12-01T10:00:00Z");
+
+	MutableClock clock;
+
+	CountingPasswordEncoder delegate;
+
+	CachingPasswordEncoder encoder;
+
+	@Before
+	public void setUp() {
+		clock = new MutableClock(NOW);
+		delegate = new CountingPasswordEncoder();
+		encoder = new CachingPasswordEncoder(delegate, Duration.ofMinutes(1), 4, clock);
+	}
+
+	@Test
+	public void successfulVerificationIsRememberedUntilTtl() {
+		final String encoded = encoder.encode("secret");
+
+		assertThat(encoder.matches("secret", encoded)).isTrue();
+		clock.set(NOW.plusSeconds(59));
+		assertThat(encoder.matches("secret", encoded)).isTrue();
+		assertThat(delegate.verifications).isEqualTo(1);
+
+		clock.set(NOW.plusSeconds(60));
+		assertThat(encoder.matches("secret", encoded)).isTrue();
+		assertThat(delegate.verifications).isEqualTo(2);
+	}
+
+	@Test
+	public void failedVerificationsAreNeverCached() {
+		final String encoded = encoder.encode("secret");
+		assertThat(encoder.matches("secret", encoded)).isTrue();
+
+		assertThat(encoder.matches("wrong", encoded)).isFalse();
+		assertThat(encoder.matches("wrong", encoded)).isFalse();
+		assertThat(delegate.verifications).isEqualTo(3);
+	}
+
+	@Test
+	public void changedHashIsVerifiedAgain() {
+		assertThat(encoder.matches("secret", encoder.encode("secret"))).isTrue();
+
+		assertThat(encoder.matches("secret", "{other}secret")).isFalse();
+		assertThat(encoder.matches("secret", encoder.encode("secret"))).isTrue();
+		assertThat(delegate.verifications).isEqualTo(2);
+	}
+
+	@Test
+	public void cacheSizeIsBounded() {
+		for (int i = 0; i < 10; ++i) {
+			final String password = "secret-" + i;
+			assertThat(encoder.matches(password, encoder.encode(password))).isTrue();
+			assertThat(encoder.size()).isLessThanOrEqualTo(4);
+		}
+		assertThat(encoder.matches("secret-9", encoder.encode("secret-9"))).isTrue();
+		assertThat(delegate.verifications).isEqualTo(10);
+	}
+
+	/**
+	 * Prefixes raw passwords (a stand-in for slow BCrypt) and counts verifications
+	 */
+	private static final class CountingPasswordEncoder implements PasswordEncoder {
+		int verifications = 0;
+
+		@Override
+		public String encode(CharSequence rawPassword) {
+			return "{counting}" + rawPassword;
+		}
+
+		@Override
+		public boolean matches(CharSequence rawPassword, String encodedPassword) {
+			++verifications;
+			return encode(rawPassword).equals(encodedPassword);
+		}
+	}
+}
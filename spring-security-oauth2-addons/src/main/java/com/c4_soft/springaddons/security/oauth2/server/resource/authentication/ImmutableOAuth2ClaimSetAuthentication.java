@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+
+import com.c4_soft.oauth2.UnmodifiableClaimSet;
+
+/**
+ * <p>{@link OAuth2ClaimSetAuthentication} which is frozen once built: {@link #setDetails(Object)} and
+ * {@link #setAuthenticated(boolean)} throw.</p>
+ *
+ * <p>As claim-set and authorities are unmodifiable too, instances are thread-safe and can be cached and shared across
+ * concurrent requests and {@link SecurityContext}s.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ * @param <T> OAuth2 claim set type
+ */
+public class ImmutableOAuth2ClaimSetAuthentication<T extends UnmodifiableClaimSet & Principal> extends OAuth2ClaimSetAuthentication<T> {
+	private static final long serialVersionUID = 2868498327459405425L;
+
+	/**
+	 * false while parent constructor runs (which sets details and authenticated status), true forever after
+	 */
+	private final boolean frozen;
+
+	public ImmutableOAuth2ClaimSetAuthentication(T claims, Set<GrantedAuthority> authorities) {
+		super(claims, Set.copyOf(authorities));
+		this.frozen = true;
+	}
+
+	public ImmutableOAuth2ClaimSetAuthentication(T claims, Converter<Map<String, Object>, Set<GrantedAuthority>> authoritiesConverter) {
+		this(claims, authoritiesConverter.convert(claims));
+	}
+
+	/**
+	 * @param <T> OAuth2 claim set type
+	 * @param authentication authentication to freeze
+	 * @return {@code authentication} itself if already immutable, a frozen copy otherwise
+	 */
+	public static <T extends UnmodifiableClaimSet & Principal> ImmutableOAuth2ClaimSetAuthentication<T> of(OAuth2ClaimSetAuthentication<T> authentication) {
+		if (authentication instanceof ImmutableOAuth2ClaimSetAuthentication) {
+			return (ImmutableOAuth2ClaimSetAuthentication<T>) authentication;
+		}
+		return new ImmutableOAuth2ClaimSetAuthentication<>(authentication.getClaimSet(), Set.copyOf(authentication.getAuthorities()));
+	}
+
+	@Override
+	public void setDetails(Object details) {
+		if (frozen) {
+			throw new UnsupportedOperationException("ImmutableOAuth2ClaimSetAuthentication details can't be modified");
+		}
+		super.setDetails(details);
+	}
+
+	@Override
+	public void setAuthenticated(boolean authenticated) {
+		if (frozen) {
+			throw new UnsupportedOperationException("ImmutableOAuth2ClaimSetAuthentication authenticated status can't be modified");
+		}
+		super.setAuthenticated(authenticated);
+	}
+}
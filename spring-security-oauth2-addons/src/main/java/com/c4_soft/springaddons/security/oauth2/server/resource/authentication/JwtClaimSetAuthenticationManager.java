@@ -1,7 +1,10 @@
 package com.c4_soft.springaddons.security.oauth2.server.resource.authentication;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiFunction;
 
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.security.core.GrantedAuthority;
@@ -13,7 +16,8 @@ import com.c4_soft.oauth2.rfc7519.JwtClaimSet;
 
 public class JwtClaimSetAuthenticationManager<T extends JwtClaimSet> extends AbstractClaimSetAuthenticationManager<T> {
 	private final JwtDecoder jwtDecoder;
-	private final Converter<Map<String, Object>, T> typedClaimsExtractor;
+	private final BiFunction<Map<String, Object>, byte[], T> typedClaimsExtractor;
+	private final boolean retainPayload;
 
 	/**
 	 * Regarding {@code typedClaimsExtractor}, a simple reference to a constructor (like {@code JwtClaimSet::new}) or
@@ -27,15 +31,53 @@ public class JwtClaimSetAuthenticationManager<T extends JwtClaimSet> extends Abs
 			JwtDecoder jwtDecoder,
 			Converter<Map<String, Object>, T> typedClaimsExtractor,
 			Converter<Map<String, Object>, Set<GrantedAuthority>> authoritiesConverter) {
+		this(jwtDecoder, (claims, payload) -> typedClaimsExtractor.convert(claims), false, authoritiesConverter);
+	}
+
+	private JwtClaimSetAuthenticationManager(
+			JwtDecoder jwtDecoder,
+			BiFunction<Map<String, Object>, byte[], T> typedClaimsExtractor,
+			boolean retainPayload,
+			Converter<Map<String, Object>, Set<GrantedAuthority>> authoritiesConverter) {
 		super(authoritiesConverter);
 		this.jwtDecoder = jwtDecoder;
 		this.typedClaimsExtractor = typedClaimsExtractor;
+		this.retainPayload = retainPayload;
+	}
+
+	/**
+	 * Claim-sets built by this manager retain the JWT payload (JSON), for it to be written back as is, without claims
+	 * re-encoding (see {@code ClaimSetSerializer}). Regarding {@code typedClaimsExtractor}, something like
+	 * {@code WithAuthoritiesJwtClaimSet.builder("authorities")::build} should be enough.
+	 *
+	 * @param <T> claim-set type
+	 * @param jwtDecoder regular Spring application JWT decoder
+	 * @param typedClaimsExtractor builds {@code JwtClaimSet} implementation from claims and payload
+	 * @param authoritiesConverter retrieves authorities set from token claims
+	 * @return an authentication-manager retaining JWT payloads in claim-sets
+	 */
+	public static <T extends JwtClaimSet> JwtClaimSetAuthenticationManager<T> retainingPayload(
+			JwtDecoder jwtDecoder,
+			BiFunction<Map<String, Object>, byte[], T> typedClaimsExtractor,
+			Converter<Map<String, Object>, Set<GrantedAuthority>> authoritiesConverter) {
+		return new JwtClaimSetAuthenticationManager<>(jwtDecoder, typedClaimsExtractor, true, authoritiesConverter);
 	}
 
 	@Override
 	protected T extractClaims(BearerTokenAuthenticationToken bearer) {
 		final Jwt jwt = jwtDecoder.decode(bearer.getToken());
-		return typedClaimsExtractor.convert(jwt.getClaims());
+		return typedClaimsExtractor.apply(jwt.getClaims(), retainPayload ? payload(jwt.getTokenValue()) : null);
+	}
+
+	/**
+	 * @param token JWS compact serialization, already validated by a JWT decoder
+	 * @return UTF-8 JSON payload, as issued
+	 */
+	static byte[] payload(String token) {
+		final int start = token.indexOf('.') + 1;
+		final int end = token.indexOf('.', start);
+		return Base64.getUrlDecoder()
+				.decode(token.substring(start, end).getBytes(StandardCharsets.US_ASCII));
 	}
 
 }
@@ -43,7 +43,7 @@ public class OAuth2ClaimSetAuthentication<T extends UnmodifiableClaimSet & Princ
 
 	private final T claimSet;
 
-	private OAuth2ClaimSetAuthentication(T principal, Set<GrantedAuthority> authorities) {
+	public OAuth2ClaimSetAuthentication(T principal, Set<GrantedAuthority> authorities) {
 		super(authorities);
 		this.claimSet = principal;
 		setDetails(principal);
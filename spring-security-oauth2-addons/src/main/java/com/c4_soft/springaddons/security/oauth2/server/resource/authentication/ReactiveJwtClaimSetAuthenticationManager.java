@@ -0,0 +1,120 @@
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.BearerTokenError;
+import org.springframework.security.oauth2.server.resource.BearerTokenErrorCodes;
+import org.springframework.util.Assert;
+
+import com.c4_soft.oauth2.rfc7519.JwtClaimSet;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link JwtClaimSetAuthenticationManager}, for WebFlux resource-servers: same claim-set and
+ * authorities conversion, but with a {@link ReactiveJwtDecoder}. Decoding errors are reported as {@code invalid_token}
+ * {@link OAuth2AuthenticationException}, as with Spring {@code JwtReactiveAuthenticationManager}.
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ * @param <T> claim-set type
+ */
+public class ReactiveJwtClaimSetAuthenticationManager<T extends JwtClaimSet> implements ReactiveAuthenticationManager {
+	private final ReactiveJwtDecoder jwtDecoder;
+	private final BiFunction<Map<String, Object>, byte[], T> typedClaimsExtractor;
+	private final boolean retainPayload;
+	private final Converter<Map<String, Object>, Set<GrantedAuthority>> authoritiesConverter;
+
+	/**
+	 * @param jwtDecoder regular Spring application reactive JWT decoder
+	 * @param typedClaimsExtractor casts {@code Map<String, Object>} into {@code JwtClaimSet} implementation
+	 * @param authoritiesConverter retrieves authorities set from token claims
+	 */
+	public ReactiveJwtClaimSetAuthenticationManager(
+			ReactiveJwtDecoder jwtDecoder,
+			Converter<Map<String, Object>, T> typedClaimsExtractor,
+			Converter<Map<String, Object>, Set<GrantedAuthority>> authoritiesConverter) {
+		this(jwtDecoder, extractor(typedClaimsExtractor), false, authoritiesConverter);
+	}
+
+	private ReactiveJwtClaimSetAuthenticationManager(
+			ReactiveJwtDecoder jwtDecoder,
+			BiFunction<Map<String, Object>, byte[], T> typedClaimsExtractor,
+			boolean retainPayload,
+			Converter<Map<String, Object>, Set<GrantedAuthority>> authoritiesConverter) {
+		Assert.notNull(jwtDecoder, "jwtDecoder can't be null");
+		Assert.notNull(typedClaimsExtractor, "typedClaimsExtractor can't be null");
+		Assert.notNull(authoritiesConverter, "authoritiesConverter can't be null");
+		this.jwtDecoder = jwtDecoder;
+		this.typedClaimsExtractor = typedClaimsExtractor;
+		this.retainPayload = retainPayload;
+		this.authoritiesConverter = authoritiesConverter;
+	}
+
+	/**
+	 * Reactive counterpart of {@link JwtClaimSetAuthenticationManager#retainingPayload}
+	 *
+	 * @param <T> claim-set type
+	 * @param jwtDecoder regular Spring application reactive JWT decoder
+	 * @param typedClaimsExtractor builds {@code JwtClaimSet} implementation from claims and payload
+	 * @param authoritiesConverter retrieves authorities set from token claims
+	 * @return an authentication-manager retaining JWT payloads in claim-sets
+	 */
+	public static <T extends JwtClaimSet> ReactiveJwtClaimSetAuthenticationManager<T> retainingPayload(
+			ReactiveJwtDecoder jwtDecoder,
+			BiFunction<Map<String, Object>, byte[], T> typedClaimsExtractor,
+			Converter<Map<String, Object>, Set<GrantedAuthority>> authoritiesConverter) {
+		return new ReactiveJwtClaimSetAuthenticationManager<>(
+				jwtDecoder,
+				typedClaimsExtractor,
+				true,
+				authoritiesConverter);
+	}
+
+	@Override
+	public Mono<Authentication> authenticate(Authentication authentication) {
+		if (!(authentication instanceof BearerTokenAuthenticationToken)) {
+			return Mono.empty();
+		}
+		final BearerTokenAuthenticationToken bearer = (BearerTokenAuthenticationToken) authentication;
+
+		return jwtDecoder.decode(bearer.getToken())
+				.<Authentication>map(
+						jwt -> new OAuth2ClaimSetAuthentication<>(claims(jwt), authoritiesConverter))
+				.onErrorMap(JwtException.class, ReactiveJwtClaimSetAuthenticationManager::invalidToken);
+	}
+
+	private T claims(Jwt jwt) {
+		return typedClaimsExtractor.apply(
+				jwt.getClaims(),
+				retainPayload ? JwtClaimSetAuthenticationManager.payload(jwt.getTokenValue()) : null);
+	}
+
+	private static <T> BiFunction<Map<String, Object>, byte[], T> extractor(
+			Converter<Map<String, Object>, T> typedClaimsExtractor) {
+		Assert.notNull(typedClaimsExtractor, "typedClaimsExtractor can't be null");
+		return (claims, payload) -> typedClaimsExtractor.convert(claims);
+	}
+
+	private static OAuth2AuthenticationException invalidToken(JwtException e) {
+		final BearerTokenError error = new BearerTokenError(
+				BearerTokenErrorCodes.INVALID_TOKEN,
+				HttpStatus.UNAUTHORIZED,
+				e.getMessage(),
+				"https://tools.ietf.org/html/rfc6750#section-3.1");
+		return new OAuth2AuthenticationException(error, e.getMessage(), e);
+	}
+
+}
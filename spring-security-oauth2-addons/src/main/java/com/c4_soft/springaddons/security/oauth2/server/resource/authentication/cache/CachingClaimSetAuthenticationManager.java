@@ -0,0 +1,247 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication.cache;
+
+import java.security.Principal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.server.resource.BearerTokenAuthenticationToken;
+import org.springframework.util.Assert;
+
+import com.c4_soft.oauth2.ExpiryTimingWheel;
+import com.c4_soft.oauth2.TokenHash;
+import com.c4_soft.oauth2.UnmodifiableClaimSet;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.AbstractClaimSetAuthenticationManager;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.ImmutableOAuth2ClaimSetAuthentication;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.OAuth2ClaimSetAuthentication;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation.RevocationEvent;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation.RevocationIndex;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation.RevocationListener;
+
+/**
+ * <p>Caches authentications built by a delegate, keyed by {@link TokenHash token hash}, until token expiration.</p>
+ *
+ * <p>Each entry lives until token {@code exp} claim or {@code maxTimeToLive} after it was cached, whichever comes
+ * first (so that, with introspection, a revoked token is not accepted for more than {@code maxTimeToLive}). Purge is
+ * driven by an {@link ExpiryTimingWheel}: no scan and no thread, expired entries are evicted by the requests (or by
+ * whatever calls {@link #purge()}). Entry deadline is also checked on each hit, so that an entry is never served after
+ * it expired, even between two wheel ticks.</p>
+ *
+ * <p>Only successful authentications are cached. Cached authentications are
+ * {@link ImmutableOAuth2ClaimSetAuthentication immutable} and shared by all requests presenting the same token.</p>
+ *
+ * <p>Entries are also indexed by {@code jti} and {@code sub}: subscribe the cache to a revocation event source to
+ * evict revoked tokens (or all tokens of a subject) without scanning. An authentication built while a revocation was
+ * received is served to the request which triggered it but is not kept in cache (whatever was revoked).</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ * @param <T> OAuth2 claim set type
+ */
+public class CachingClaimSetAuthenticationManager<T extends UnmodifiableClaimSet & Principal>
+		implements
+		AuthenticationManager,
+		RevocationListener {
+
+	private final AbstractClaimSetAuthenticationManager<T> delegate;
+
+	private final Duration maxTimeToLive;
+
+	private final Clock clock;
+
+	private final Map<String, Entry<T>> cache = new ConcurrentHashMap<>();
+
+	private final RevocationIndex revocationIndex = new RevocationIndex();
+
+	/**
+	 * Incremented before each revocation is applied: tells if one was received while the delegate was authenticating
+	 */
+	private final AtomicLong revocations = new AtomicLong();
+
+	/**
+	 * Entries themselves are scheduled (not token hashes): a late expiry can't evict a fresher entry for the same token
+	 */
+	private final ExpiryTimingWheel<Entry<T>> expiries;
+
+	/**
+	 * @param delegate actually builds authentications on cache misses
+	 * @param maxTimeToLive maximum time an authentication is served from cache (whatever token expiration)
+	 * @param clock time source
+	 * @param tick cache purge granularity
+	 */
+	public CachingClaimSetAuthenticationManager(
+			AbstractClaimSetAuthenticationManager<T> delegate,
+			Duration maxTimeToLive,
+			Clock clock,
+			Duration tick) {
+		Assert.notNull(delegate, "delegate can't be null");
+		Assert.notNull(maxTimeToLive, "maxTimeToLive can't be null");
+		Assert.isTrue(!maxTimeToLive.isNegative() && !maxTimeToLive.isZero(), "maxTimeToLive must be positive");
+		Assert.notNull(clock, "clock can't be null");
+		this.delegate = delegate;
+		this.maxTimeToLive = maxTimeToLive;
+		this.clock = clock;
+		this.expiries = new ExpiryTimingWheel<Entry<T>>(clock, tick, this::evict);
+	}
+
+	/**
+	 * System UTC clock and one second purge granularity
+	 * @param delegate actually builds authentications on cache misses
+	 * @param maxTimeToLive maximum time an authentication is served from cache (whatever token expiration)
+	 */
+	public CachingClaimSetAuthenticationManager(AbstractClaimSetAuthenticationManager<T> delegate, Duration maxTimeToLive) {
+		this(delegate, maxTimeToLive, Clock.systemUTC(), Duration.ofSeconds(1));
+	}
+
+	@Override
+	public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+		if (!(authentication instanceof BearerTokenAuthenticationToken)) {
+			return null;
+		}
+		expiries.advance();
+		final String hash = TokenHash.of(((BearerTokenAuthenticationToken) authentication).getToken());
+		final Instant now = clock.instant();
+
+		final Entry<T> cached = cache.get(hash);
+		if (cached != null) {
+			if (now.isBefore(cached.expiresAt)) {
+				return cached.authentication;
+			}
+			expiries.cancel(cached);
+			evict(cached);
+		}
+
+		final long revocationsBefore = revocations.get();
+		final OAuth2ClaimSetAuthentication<T> computed = delegate.authenticate(authentication);
+		if (computed == null) {
+			return null;
+		}
+		final ImmutableOAuth2ClaimSetAuthentication<T> frozen = ImmutableOAuth2ClaimSetAuthentication.of(computed);
+		final Instant maxExpiresAt = now.plus(maxTimeToLive);
+		final Instant tokenExpiresAt = Expiry.of(frozen.getClaimSet());
+		final Entry<T> entry = new Entry<>(
+				hash,
+				frozen,
+				tokenExpiresAt == null || tokenExpiresAt.isAfter(maxExpiresAt) ? maxExpiresAt : tokenExpiresAt);
+
+		// insert and index before scheduling: wheel expiry can't then run before the entry is present
+		Entry<T> current = cache.putIfAbsent(hash, entry);
+		while (current != null) {
+			if (!current.expiresAt.isBefore(entry.expiresAt)) {
+				// a concurrent request cached an entry living as long or longer: keep it
+				return frozen;
+			}
+			if (cache.replace(hash, current, entry)) {
+				expiries.cancel(current);
+				break;
+			}
+			current = cache.putIfAbsent(hash, entry);
+		}
+		// entries for the same token have same jti and sub: index rows are shared, not de-indexed on replacement
+		revocationIndex.add(hash, frozen.getClaimSet());
+		if (!expiries.schedule(entry, entry.expiresAt)) {
+			evict(entry);
+		}
+		// checked once indexed: a revocation received later finds the entry, an earlier one moved the counter
+		if (revocations.get() != revocationsBefore) {
+			expiries.cancel(entry);
+			evict(entry);
+		}
+		return frozen;
+	}
+
+	/**
+	 * @param tokenHash {@link TokenHash#of(String)} of the token to evict
+	 */
+	public void invalidate(String tokenHash) {
+		final Entry<T> entry = cache.get(tokenHash);
+		if (entry != null) {
+			expiries.cancel(entry);
+			evict(entry);
+		}
+	}
+
+	/**
+	 * Evicts all entries
+	 */
+	public void invalidateAll() {
+		expiries.clear();
+		cache.clear();
+		revocationIndex.clear();
+	}
+
+	@Override
+	public void onRevocation(RevocationEvent event) {
+		revocations.incrementAndGet();
+		for (final String hash : revocationIndex.tokenHashes(event)) {
+			invalidate(hash);
+		}
+	}
+
+	/**
+	 * Evicts expired entries. Not required (requests do it already), but can be scheduled to release memory when no
+	 * request is received.
+	 */
+	public void purge() {
+		expiries.advance();
+	}
+
+	/**
+	 * @return count of cached authentications
+	 */
+	public int size() {
+		return cache.size();
+	}
+
+	/**
+	 * Removes the entry only if it is still the cached one for its token
+	 */
+	private void evict(Entry<T> entry) {
+		if (cache.remove(entry.tokenHash, entry)) {
+			revocationIndex.remove(entry.tokenHash, entry.authentication.getClaimSet());
+			// index rows are shared with an entry cached for the same token in the meantime: restore them
+			final Entry<T> current = cache.get(entry.tokenHash);
+			if (current != null) {
+				revocationIndex.add(current.tokenHash, current.authentication.getClaimSet());
+			}
+		}
+	}
+
+	/**
+	 * Identity equality: scheduled in the expiry wheel
+	 */
+	private static final class Entry<T extends UnmodifiableClaimSet & Principal> {
+		final String tokenHash;
+
+		final ImmutableOAuth2ClaimSetAuthentication<T> authentication;
+
+		final Instant expiresAt;
+
+		Entry(String tokenHash, ImmutableOAuth2ClaimSetAuthentication<T> authentication, Instant expiresAt) {
+			this.tokenHash = tokenHash;
+			this.authentication = authentication;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication.cache;
+
+import java.time.Instant;
+
+import com.c4_soft.oauth2.ClaimSet;
+import com.c4_soft.oauth2.rfc7519.JwtRegisteredClaimNames;
+import com.c4_soft.oauth2.rfc7662.IntrospectionClaimNames;
+
+/**
+ * Reads token expiration from JWT ({@link JwtRegisteredClaimNames#EXPIRATION_TIME}) as well as introspection
+ * ({@link IntrospectionClaimNames#EXPIRES_AT}) claim-sets: both are {@code exp}.
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+final class Expiry {
+	private Expiry() {
+	}
+
+	/**
+	 * @param claims JWT or introspection claim-set
+	 * @return token expiration instant or null if the token has no {@code exp} claim
+	 */
+	static Instant of(ClaimSet claims) {
+		return claims.getAsInstant(JwtRegisteredClaimNames.EXPIRATION_TIME.value);
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication.cache;
+
+import java.security.Principal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.server.resource.BearerTokenAuthenticationToken;
+import org.springframework.util.Assert;
+
+import com.c4_soft.oauth2.ExpiryTimingWheel;
+import com.c4_soft.oauth2.TokenHash;
+import com.c4_soft.oauth2.UnmodifiableClaimSet;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.AbstractClaimSetAuthenticationManager;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.ImmutableOAuth2ClaimSetAuthentication;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.OAuth2ClaimSetAuthentication;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation.RevocationEvent;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation.RevocationIndex;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation.RevocationListener;
+
+/**
+ * <p>Serves fully built authentications for a set of known, long-lived tokens (machine-to-machine clients using
+ * {@code client_credentials} for instance).</p>
+ *
+ * <p>Tokens are registered either by value (authentication is computed immediately) or by {@link TokenHash hash}
+ * (authentication is computed the first time the token is presented). Precomputed authentications are held in an
+ * immutable lookup table which is replaced on each change: authenticating a registered token is a single hash lookup,
+ * with no decoding, introspection or authorities conversion. Served authentications are
+ * {@link ImmutableOAuth2ClaimSetAuthentication immutable}: the same instance is shared by all requests.</p>
+ *
+ * <p>Entries are dropped once the token {@code exp} claim is reached, as are the registered hashes: an expired token
+ * will never be valid again, clients have to register the new one. Expirations are indexed in an
+ * {@link ExpiryTimingWheel}, advanced by requests and {@link #refresh()}.</p>
+ *
+ * <p>Revoked tokens (by hash, {@code jti} or {@code sub}) are unregistered, see {@link #onRevocation(RevocationEvent)}.</p>
+ *
+ * <p>Tokens which are not registered are just forwarded to the delegate.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ * @param <T> OAuth2 claim set type
+ */
+public class PrecomputedClaimSetAuthenticationManager<T extends UnmodifiableClaimSet & Principal>
+		implements
+		AuthenticationManager,
+		RevocationListener {
+
+	private final AbstractClaimSetAuthenticationManager<T> delegate;
+
+	private final Clock clock;
+
+	private final Set<String> registeredHashes = ConcurrentHashMap.newKeySet();
+
+	private final RevocationIndex revocationIndex = new RevocationIndex();
+
+	private final ExpiryTimingWheel<String> expiries;
+
+	private volatile Map<String, ImmutableOAuth2ClaimSetAuthentication<T>> table = Map.of();
+
+	public PrecomputedClaimSetAuthenticationManager(AbstractClaimSetAuthenticationManager<T> delegate, Clock clock) {
+		Assert.notNull(delegate, "delegate can't be null");
+		Assert.notNull(clock, "clock can't be null");
+		this.delegate = delegate;
+		this.clock = clock;
+		this.expiries = new ExpiryTimingWheel<>(clock, Duration.ofSeconds(1), this::remove);
+	}
+
+	public PrecomputedClaimSetAuthenticationManager(AbstractClaimSetAuthenticationManager<T> delegate) {
+		this(delegate, Clock.systemUTC());
+	}
+
+	/**
+	 * Registers a token and immediately builds its authentication
+	 * @param token raw token value
+	 * @return precomputed authentication
+	 * @throws AuthenticationException if delegate fails to authenticate the token
+	 */
+	public ImmutableOAuth2ClaimSetAuthentication<T> register(String token) throws AuthenticationException {
+		final String hash = TokenHash.of(token);
+		registeredHashes.add(hash);
+		final ImmutableOAuth2ClaimSetAuthentication<T> authentication =
+				ImmutableOAuth2ClaimSetAuthentication.of(delegate.authenticate(new BearerTokenAuthenticationToken(token)));
+		install(hash, authentication);
+		return authentication;
+	}
+
+	/**
+	 * Registers a token by its hash only: authentication is built (once) the first time the token is presented
+	 * @param tokenHash {@link TokenHash#of(String)} of the token
+	 */
+	public void registerHash(String tokenHash) {
+		Assert.hasLength(tokenHash, "tokenHash can't be empty");
+		registeredHashes.add(tokenHash);
+	}
+
+	/**
+	 * @param tokenHash {@link TokenHash#of(String)} of the token to forget about
+	 */
+	public void unregisterHash(String tokenHash) {
+		remove(tokenHash);
+	}
+
+	/**
+	 * @return hashes of the tokens currently registered (whether authentication is already computed or not)
+	 */
+	public Set<String> getRegisteredHashes() {
+		return Set.copyOf(registeredHashes);
+	}
+
+	/**
+	 * Drops expired entries (and matching registered hashes) from the lookup table. Not required (requests do it
+	 * already), but can be scheduled to release memory when no request is received.
+	 */
+	public void refresh() {
+		expiries.advance();
+	}
+
+	/**
+	 * Unregisters revoked tokens. Tokens registered by hash and not presented yet can only be revoked by hash (claims
+	 * are unknown until authentication is computed).
+	 */
+	@Override
+	public void onRevocation(RevocationEvent event) {
+		for (final String hash : revocationIndex.tokenHashes(event)) {
+			remove(hash);
+		}
+	}
+
+	@Override
+	public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+		if (!(authentication instanceof BearerTokenAuthenticationToken)) {
+			return null;
+		}
+		expiries.advance();
+		final String hash = TokenHash.of(((BearerTokenAuthenticationToken) authentication).getToken());
+
+		final ImmutableOAuth2ClaimSetAuthentication<T> precomputed = table.get(hash);
+		if (precomputed != null) {
+			if (!isExpired(precomputed, clock.instant())) {
+				return precomputed;
+			}
+			// expired since last wheel tick
+			remove(hash);
+		}
+
+		final OAuth2ClaimSetAuthentication<T> computed = delegate.authenticate(authentication);
+		if (computed == null || !registeredHashes.contains(hash)) {
+			return computed;
+		}
+		final ImmutableOAuth2ClaimSetAuthentication<T> frozen = ImmutableOAuth2ClaimSetAuthentication.of(computed);
+		install(hash, frozen);
+		return frozen;
+	}
+
+	private synchronized void install(String hash, ImmutableOAuth2ClaimSetAuthentication<T> authentication) {
+		if (!registeredHashes.contains(hash) || isExpired(authentication, clock.instant())) {
+			return;
+		}
+		final Map<String, ImmutableOAuth2ClaimSetAuthentication<T>> copy = new HashMap<>(table);
+		copy.put(hash, authentication);
+		table = Map.copyOf(copy);
+		revocationIndex.add(hash, authentication.getClaimSet());
+		final Instant expiresAt = Expiry.of(authentication.getClaimSet());
+		if (expiresAt != null) {
+			expiries.schedule(hash, expiresAt);
+		}
+	}
+
+	private synchronized void remove(String hash) {
+		registeredHashes.remove(hash);
+		expiries.cancel(hash);
+		final ImmutableOAuth2ClaimSetAuthentication<T> removed = table.get(hash);
+		if (removed != null) {
+			final Map<String, ImmutableOAuth2ClaimSetAuthentication<T>> copy = new HashMap<>(table);
+			copy.remove(hash);
+			table = Map.copyOf(copy);
+			revocationIndex.remove(hash, removed.getClaimSet());
+		}
+	}
+
+	private static boolean isExpired(OAuth2ClaimSetAuthentication<?> authentication, Instant now) {
+		final Instant expiresAt = Expiry.of(authentication.getClaimSet());
+		return expiresAt != null && !now.isBefore(expiresAt);
+	}
+}
@@ -30,7 +30,11 @@ public class WithAuthoritiesJwtClaimSet extends JwtClaimSet implements WithAutho
 	private final String authoritiesClaimName;
 
 	public WithAuthoritiesJwtClaimSet(Map<String, Object> claims, String authoritiesClaimName) {
-		super(claims);
+		this(claims, authoritiesClaimName, null);
+	}
+
+	public WithAuthoritiesJwtClaimSet(Map<String, Object> claims, String authoritiesClaimName, byte[] payload) {
+		super(claims, payload);
 		this.authoritiesClaimName = authoritiesClaimName;
 	}
 
@@ -75,5 +79,14 @@ public class WithAuthoritiesJwtClaimSet extends JwtClaimSet implements WithAutho
 			return new WithAuthoritiesJwtClaimSet(claims, authoritiesClaimName);
 		}
 
+		/**
+		 * @param claims decoded claims
+		 * @param payload UTF-8 JSON JWT payload claims were decoded from, retained to be written back as is
+		 * @return claim-set retaining its payload
+		 */
+		public WithAuthoritiesJwtClaimSet build(Map<String, Object> claims, byte[] payload) {
+			return new WithAuthoritiesJwtClaimSet(claims, authoritiesClaimName, payload);
+		}
+
 	}
 }
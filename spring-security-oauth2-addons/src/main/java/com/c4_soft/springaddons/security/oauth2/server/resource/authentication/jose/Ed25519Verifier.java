@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication.jose;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Set;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.util.Base64URL;
+
+/**
+ * <p>EdDSA (Ed25519 curve) {@link JWSVerifier} backed by JCA provider, which supports Ed25519 since Java 15. Nimbus
+ * own verifier requires Google Tink. Check {@link #isSupported()} before use on older JVMs.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class Ed25519Verifier implements JWSVerifier {
+	static final String JCA_ALGORITHM = "Ed25519";
+
+	/**
+	 * DER prefix of X.509 SubjectPublicKeyInfo for Ed25519 keys (OID 1.3.101.112), followed by the 32 key bytes
+	 */
+	private static final byte[] X509_PREFIX =
+			{ 0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70, 0x03, 0x21, 0x00 };
+
+	private static final boolean IS_SUPPORTED = isJcaSupported(JCA_ALGORITHM);
+
+	private final PublicKey publicKey;
+
+	private final JCAContext jcaContext = new JCAContext();
+
+	/**
+	 * @param publicKey Ed25519 JCA public key
+	 */
+	public Ed25519Verifier(PublicKey publicKey) {
+		this.publicKey = publicKey;
+	}
+
+	@Override
+	public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+		return Set.of(JWSAlgorithm.EdDSA);
+	}
+
+	@Override
+	public JCAContext getJCAContext() {
+		return jcaContext;
+	}
+
+	@Override
+	public boolean verify(JWSHeader header, byte[] signingInput, Base64URL signature) throws JOSEException {
+		if (!JWSAlgorithm.EdDSA.equals(header.getAlgorithm())) {
+			throw new JOSEException("Unsupported JWS algorithm: " + header.getAlgorithm());
+		}
+		try {
+			final Signature verifier = Signature.getInstance(JCA_ALGORITHM);
+			verifier.initVerify(publicKey);
+			verifier.update(signingInput);
+			return verifier.verify(signature.decode());
+		} catch (final GeneralSecurityException e) {
+			throw new JOSEException("Ed25519 signature verification failed: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @return whether JCA provider can verify Ed25519 signatures (default one can since Java 15)
+	 */
+	public static boolean isSupported() {
+		return IS_SUPPORTED;
+	}
+
+	static boolean isJcaSupported(String algorithm) {
+		try {
+			KeyFactory.getInstance(algorithm);
+			Signature.getInstance(algorithm);
+			return true;
+		} catch (final NoSuchAlgorithmException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @param jwk Ed25519 octet key pair
+	 * @return JCA public key
+	 * @throws JOSEException if the curve is not Ed25519 or JCA provider does not support it (before Java 15)
+	 */
+	public static PublicKey toPublicKey(OctetKeyPair jwk) throws JOSEException {
+		if (!Curve.Ed25519.equals(jwk.getCurve())) {
+			throw new JOSEException("Unsupported curve: " + jwk.getCurve());
+		}
+		final byte[] x = jwk.getDecodedX();
+		final byte[] encoded = new byte[X509_PREFIX.length + x.length];
+		System.arraycopy(X509_PREFIX, 0, encoded, 0, X509_PREFIX.length);
+		System.arraycopy(x, 0, encoded, X509_PREFIX.length, x.length);
+		try {
+			return KeyFactory.getInstance(JCA_ALGORITHM).generatePublic(new X509EncodedKeySpec(encoded));
+		} catch (final GeneralSecurityException e) {
+			throw new JOSEException("Ed25519 is not supported by JCA provider: " + e.getMessage(), e);
+		}
+	}
+}
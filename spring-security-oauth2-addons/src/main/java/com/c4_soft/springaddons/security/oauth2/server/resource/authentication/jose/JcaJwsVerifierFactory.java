@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication.jose;
+
+import java.security.Key;
+import java.security.PublicKey;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.factories.DefaultJWSVerifierFactory;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.proc.JWSVerifierFactory;
+
+/**
+ * Nimbus {@link DefaultJWSVerifierFactory} plus EdDSA with {@link Ed25519Verifier}, if JCA provider supports it.
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class JcaJwsVerifierFactory implements JWSVerifierFactory {
+	private final DefaultJWSVerifierFactory delegate = new DefaultJWSVerifierFactory();
+
+	private final boolean isEd25519Supported;
+
+	private final Set<JWSAlgorithm> supportedAlgorithms;
+
+	public JcaJwsVerifierFactory() {
+		this(Ed25519Verifier.isSupported());
+	}
+
+	JcaJwsVerifierFactory(boolean isEd25519Supported) {
+		this.isEd25519Supported = isEd25519Supported;
+		final Set<JWSAlgorithm> algorithms = new HashSet<>(delegate.supportedJWSAlgorithms());
+		if (isEd25519Supported) {
+			algorithms.add(JWSAlgorithm.EdDSA);
+		}
+		this.supportedAlgorithms = Set.copyOf(algorithms);
+	}
+
+	@Override
+	public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+		return supportedAlgorithms;
+	}
+
+	@Override
+	public JCAContext getJCAContext() {
+		return delegate.getJCAContext();
+	}
+
+	@Override
+	public JWSVerifier createJWSVerifier(JWSHeader header, Key key) throws JOSEException {
+		if (JWSAlgorithm.EdDSA.equals(header.getAlgorithm())) {
+			if (!isEd25519Supported) {
+				throw new JOSEException("EdDSA is not supported by JCA provider (Ed25519 requires Java 15+)");
+			}
+			if (!(key instanceof PublicKey)) {
+				throw new JOSEException("EdDSA verification requires a public key");
+			}
+			return new Ed25519Verifier((PublicKey) key);
+		}
+		return delegate.createJWSVerifier(header, key);
+	}
+}
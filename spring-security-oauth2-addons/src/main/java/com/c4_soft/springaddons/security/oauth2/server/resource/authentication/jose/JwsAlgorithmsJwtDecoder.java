@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication.jose;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.util.Assert;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.RemoteJWKSet;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * <p>Builds {@link NimbusJwtDecoder} instances accepting tokens signed with any of several JWS algorithms, RSA as well
+ * as elliptic curves ones, out of a single JWK set:</p>
+ * <pre>
+ * JwtDecoder jwtDecoder = JwsAlgorithmsJwtDecoder.withJwkSetUri(jwkSetUri).build();
+ * ReactiveJwtDecoder reactiveJwtDecoder = JwsAlgorithmsJwtDecoder.withJwkSetUri(jwkSetUri).buildReactive();
+ * </pre>
+ *
+ * <p>By default, RS256, ES256 and EdDSA (Ed25519 curve) are accepted, so that an authorization-server can switch to
+ * smaller and cheaper to verify elliptic curve signatures without resource-servers noticing. Ed25519 verification
+ * relies on JCA provider, which supports it since Java 15: on older JVMs, EdDSA is silently dropped from default
+ * algorithms, and building a decoder explicitly accepting it fails.</p>
+ *
+ * <p>Decoded tokens are validated with Spring default JWT validators (timestamps), as with
+ * {@link NimbusJwtDecoder#withJwkSetUri(String)}: {@code JwtClaimSetAuthenticationManager} can use it unchanged.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public final class JwsAlgorithmsJwtDecoder {
+	public static final Set<JWSAlgorithm> DEFAULT_ALGORITHMS =
+			Set.of(JWSAlgorithm.RS256, JWSAlgorithm.ES256, JWSAlgorithm.EdDSA);
+
+	private JwsAlgorithmsJwtDecoder() {
+	}
+
+	/**
+	 * @param jwkSetUri authorization-server JWK set endpoint
+	 * @return a builder for a decoder fetching (and caching) keys from this URI
+	 */
+	public static Builder withJwkSetUri(String jwkSetUri) {
+		Assert.hasText(jwkSetUri, "jwkSetUri can't be empty");
+		try {
+			return new Builder(new RemoteJWKSet<>(new URL(jwkSetUri)));
+		} catch (final MalformedURLException e) {
+			throw new IllegalArgumentException("Invalid JWK set URI: " + jwkSetUri, e);
+		}
+	}
+
+	/**
+	 * @param jwkSource where to find keys
+	 * @return a builder for a decoder using this JWK source
+	 */
+	public static Builder withJwkSource(JWKSource<SecurityContext> jwkSource) {
+		Assert.notNull(jwkSource, "jwkSource can't be null");
+		return new Builder(jwkSource);
+	}
+
+	public static final class Builder {
+		private final JWKSource<SecurityContext> jwkSource;
+
+		private Set<JWSAlgorithm> algorithms = DEFAULT_ALGORITHMS;
+
+		/**
+		 * Not initialized here: reactor is an optional dependency, only needed by {@link #buildReactive()}
+		 */
+		private Scheduler scheduler;
+
+		private Builder(JWKSource<SecurityContext> jwkSource) {
+			this.jwkSource = jwkSource;
+		}
+
+		/**
+		 * @param algorithms JWS algorithms to accept (replaces defaults)
+		 * @return this builder
+		 */
+		public Builder jwsAlgorithms(JWSAlgorithm... algorithms) {
+			Assert.notEmpty(algorithms, "algorithms can't be empty");
+			this.algorithms = new LinkedHashSet<>(Set.of(algorithms));
+			return this;
+		}
+
+		/**
+		 * @param scheduler where {@link #buildReactive() reactive} decoders process tokens (defaults to
+		 * {@link Schedulers#boundedElastic()})
+		 * @return this builder
+		 */
+		public Builder scheduler(Scheduler scheduler) {
+			Assert.notNull(scheduler, "scheduler can't be null");
+			this.scheduler = scheduler;
+			return this;
+		}
+
+		public JwtDecoder build() {
+			return new NimbusJwtDecoder(processor());
+		}
+
+		/**
+		 * <p>Same decoder for WebFlux resource-servers.</p>
+		 *
+		 * <p>Tokens are processed on the {@link #scheduler(Scheduler) scheduler}, bounded elastic by default, and not
+		 * on the subscribing thread: {@link RemoteJWKSet} caches keys but fetches them with a blocking HTTP call at
+		 * first use and each time an unknown {@code kid} shows up (after authorization-server keys rotation), which
+		 * must not happen on an event-loop thread.</p>
+		 *
+		 * @return a reactive decoder
+		 */
+		public ReactiveJwtDecoder buildReactive() {
+			final DefaultJWTProcessor<SecurityContext> processor = processor();
+			final Scheduler processingScheduler = scheduler == null ? Schedulers.boundedElastic() : scheduler;
+			return new NimbusReactiveJwtDecoder(
+					jwt -> Mono.fromCallable(() -> processor.process(jwt, null)).subscribeOn(processingScheduler));
+		}
+
+		private DefaultJWTProcessor<SecurityContext> processor() {
+			final boolean isEd25519Supported = Ed25519Verifier.isSupported();
+			final Set<JWSAlgorithm> accepted =
+					acceptedAlgorithms(algorithms, algorithms == DEFAULT_ALGORITHMS, isEd25519Supported);
+			final DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+			processor.setJWSKeySelector(new JwsAlgorithmsKeySelector<>(accepted, jwkSource));
+			processor.setJWSVerifierFactory(new JcaJwsVerifierFactory(isEd25519Supported));
+			// Spring validates claims itself (with its own JwtTimestampValidator)
+			processor.setJWTClaimsSetVerifier((claims, context) -> {
+			});
+			return processor;
+		}
+	}
+
+	/**
+	 * @param algorithms requested algorithms
+	 * @param isDefault if {@code algorithms} are defaults, and not explicitly requested ones
+	 * @param isEd25519Supported if JCA provider supports Ed25519
+	 * @return algorithms to accept
+	 * @throws IllegalStateException if EdDSA was explicitly requested but JCA provider does not support Ed25519
+	 */
+	static Set<JWSAlgorithm> acceptedAlgorithms(
+			Set<JWSAlgorithm> algorithms,
+			boolean isDefault,
+			boolean isEd25519Supported) {
+		if (isEd25519Supported || !algorithms.contains(JWSAlgorithm.EdDSA)) {
+			return algorithms;
+		}
+		if (!isDefault) {
+			throw new IllegalStateException(
+					"EdDSA is not supported by JCA provider (Ed25519 requires Java 15+): "
+							+ "accept RS256 or ES256 instead");
+		}
+		return algorithms.stream()
+				.filter(alg -> !JWSAlgorithm.EdDSA.equals(alg))
+				.collect(Collectors.toCollection(LinkedHashSet::new));
+	}
+}
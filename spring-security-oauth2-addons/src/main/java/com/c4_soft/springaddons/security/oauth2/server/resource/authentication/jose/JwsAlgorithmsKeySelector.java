@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication.jose;
+
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.util.Assert;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.KeyType;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+
+/**
+ * <p>Selects JWS verification keys for any of RSA, EC and Ed25519 algorithms, from a single JWK set: the key type
+ * (and curve) is picked from the token header {@code alg}, the key itself from {@code kid}.</p>
+ *
+ * <p>Nimbus {@code JWSVerificationKeySelector} is bound to a single algorithm and, in the version managed by Spring
+ * Boot, can't match Ed25519 keys.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ * @param <C> security context type
+ */
+public class JwsAlgorithmsKeySelector<C extends SecurityContext> implements JWSKeySelector<C> {
+	private final Set<JWSAlgorithm> algorithms;
+
+	private final JWKSource<C> jwkSource;
+
+	/**
+	 * @param algorithms accepted JWS algorithms
+	 * @param jwkSource where to look for keys
+	 */
+	public JwsAlgorithmsKeySelector(Set<JWSAlgorithm> algorithms, JWKSource<C> jwkSource) {
+		Assert.notEmpty(algorithms, "algorithms can't be empty");
+		Assert.notNull(jwkSource, "jwkSource can't be null");
+		this.algorithms = Set.copyOf(algorithms);
+		this.jwkSource = jwkSource;
+	}
+
+	public Set<JWSAlgorithm> getAlgorithms() {
+		return algorithms;
+	}
+
+	@Override
+	public List<? extends Key> selectJWSKeys(JWSHeader header, C context) throws KeySourceException {
+		final JWSAlgorithm alg = header.getAlgorithm();
+		if (!algorithms.contains(alg)) {
+			return Collections.emptyList();
+		}
+		final JWKMatcher matcher = matcher(header);
+		if (matcher == null) {
+			return Collections.emptyList();
+		}
+
+		final List<JWK> jwks = jwkSource.get(new JWKSelector(matcher), context);
+		final List<Key> keys = new ArrayList<>(jwks.size());
+		for (final JWK jwk : jwks) {
+			try {
+				keys.add(toPublicKey(jwk));
+			} catch (final JOSEException e) {
+				// key is unusable on this JVM (e.g. Ed25519 before Java 15): skip it like any other non-matching key
+			}
+		}
+		return keys;
+	}
+
+	private static JWKMatcher matcher(JWSHeader header) {
+		final JWSAlgorithm alg = header.getAlgorithm();
+		final JWKMatcher.Builder builder = new JWKMatcher.Builder()
+				.keyID(header.getKeyID())
+				.keyUses(KeyUse.SIGNATURE, null)
+				.algorithms(alg, null);
+		if (JWSAlgorithm.Family.RSA.contains(alg)) {
+			return builder.keyType(KeyType.RSA).build();
+		}
+		if (JWSAlgorithm.Family.EC.contains(alg)) {
+			final Set<Curve> curves = Curve.forJWSAlgorithm(alg);
+			return curves == null ? null : builder.keyType(KeyType.EC).curves(curves).build();
+		}
+		if (JWSAlgorithm.EdDSA.equals(alg)) {
+			return builder.keyType(KeyType.OKP).curves(Curve.Ed25519).build();
+		}
+		return null;
+	}
+
+	private static Key toPublicKey(JWK jwk) throws JOSEException {
+		if (jwk instanceof RSAKey) {
+			return ((RSAKey) jwk).toRSAPublicKey();
+		}
+		if (jwk instanceof ECKey) {
+			return ((ECKey) jwk).toECPublicKey();
+		}
+		if (jwk instanceof OctetKeyPair) {
+			return Ed25519Verifier.toPublicKey((OctetKeyPair) jwk);
+		}
+		throw new JOSEException("Unsupported JWK type: " + jwk.getKeyType());
+	}
+}
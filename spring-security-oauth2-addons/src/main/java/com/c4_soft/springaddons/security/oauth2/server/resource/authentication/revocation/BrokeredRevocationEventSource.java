@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.Assert;
+
+/**
+ * <p>{@link RevocationEventSource} spanning a cluster: published events are broadcast through a
+ * {@link RevocationBroker} and events received from the broker are dispatched to local listeners.</p>
+ *
+ * <p>Published events are also applied locally right away, so that the publishing node does not depend on broker
+ * latency (or availability).</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class BrokeredRevocationEventSource implements RevocationEventSource {
+	private static final Log LOGGER = LogFactory.getLog(BrokeredRevocationEventSource.class);
+
+	private final RevocationBroker broker;
+
+	private final LocalRevocationEventBus local = new LocalRevocationEventBus();
+
+	public BrokeredRevocationEventSource(RevocationBroker broker) {
+		Assert.notNull(broker, "broker can't be null");
+		this.broker = broker;
+		broker.onMessage(this::receive);
+	}
+
+	@Override
+	public void subscribe(RevocationListener listener) {
+		local.subscribe(listener);
+	}
+
+	@Override
+	public void unsubscribe(RevocationListener listener) {
+		local.unsubscribe(listener);
+	}
+
+	@Override
+	public void publish(RevocationEvent event) {
+		local.publish(event);
+		broker.send(event.toString());
+	}
+
+	private void receive(String message) {
+		final RevocationEvent event;
+		try {
+			event = RevocationEvent.parse(message);
+		} catch (final IllegalArgumentException e) {
+			LOGGER.warn("Ignoring malformed revocation message: " + message);
+			return;
+		}
+		local.publish(event);
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.util.Assert;
+
+/**
+ * In-JVM {@link RevocationEventSource}: events are dispatched synchronously, on publisher thread, to all listeners.
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class LocalRevocationEventBus implements RevocationEventSource {
+
+	private final CopyOnWriteArrayList<RevocationListener> listeners = new CopyOnWriteArrayList<>();
+
+	@Override
+	public void subscribe(RevocationListener listener) {
+		Assert.notNull(listener, "listener can't be null");
+		listeners.addIfAbsent(listener);
+	}
+
+	@Override
+	public void unsubscribe(RevocationListener listener) {
+		listeners.remove(listener);
+	}
+
+	@Override
+	public void publish(RevocationEvent event) {
+		Assert.notNull(event, "event can't be null");
+		for (final RevocationListener listener : listeners) {
+			listener.onRevocation(event);
+		}
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation;
+
+import java.util.function.Consumer;
+
+/**
+ * <p>Adapter to an external publish / subscribe transport (Redis channel, Kafka topic, JMS topic, ...) shared by all
+ * nodes of a cluster.</p>
+ *
+ * <p>Messages are serialized {@link RevocationEvent}s. A message sent by a node should be delivered to all nodes
+ * (including the sender, which is harmless as revocation is idempotent).</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public interface RevocationBroker {
+
+	/**
+	 * @param message serialized revocation event to broadcast
+	 */
+	void send(String message);
+
+	/**
+	 * @param handler to be called with each received message
+	 */
+	void onMessage(Consumer<String> handler);
+}
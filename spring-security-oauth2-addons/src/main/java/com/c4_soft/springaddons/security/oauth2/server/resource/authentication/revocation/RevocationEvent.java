@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation;
+
+import java.util.Objects;
+
+import org.springframework.util.Assert;
+
+import com.c4_soft.oauth2.TokenHash;
+
+/**
+ * <p>Notifies that a token (or all tokens with an ID or issued to a subject) must not be served from caches
+ * anymore.</p>
+ *
+ * <p>Events are serialized as {@code <target>:<value>} (for instance {@code sub:ch4mpy}) when sent to an external
+ * {@link RevocationBroker}.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public final class RevocationEvent {
+
+	private final Target target;
+
+	private final String value;
+
+	private RevocationEvent(Target target, String value) {
+		Assert.notNull(target, "target can't be null");
+		Assert.hasLength(value, "value can't be empty");
+		this.target = target;
+		this.value = value;
+	}
+
+	/**
+	 * @param tokenHash {@link TokenHash#of(String)} of the revoked token
+	 * @return event revoking a single token
+	 */
+	public static RevocationEvent ofTokenHash(String tokenHash) {
+		return new RevocationEvent(Target.TOKEN_HASH, tokenHash);
+	}
+
+	/**
+	 * @param jti {@code jti} claim of the revoked token(s)
+	 * @return event revoking tokens by ID
+	 */
+	public static RevocationEvent ofJti(String jti) {
+		return new RevocationEvent(Target.JTI, jti);
+	}
+
+	/**
+	 * @param subject {@code sub} claim of the revoked tokens
+	 * @return event revoking all tokens issued to a subject (and its cached authorities)
+	 */
+	public static RevocationEvent ofSubject(String subject) {
+		return new RevocationEvent(Target.SUBJECT, subject);
+	}
+
+	/**
+	 * @param serialized event as produced by {@link #toString()}
+	 * @return parsed event
+	 * @throws IllegalArgumentException if {@code serialized} is malformed
+	 */
+	public static RevocationEvent parse(String serialized) {
+		Assert.notNull(serialized, "serialized event can't be null");
+		final int separator = serialized.indexOf(':');
+		Assert.isTrue(separator > 0, () -> "malformed revocation event: " + serialized);
+		return new RevocationEvent(Target.of(serialized.substring(0, separator)), serialized.substring(separator + 1));
+	}
+
+	public Target getTarget() {
+		return target;
+	}
+
+	public String getValue() {
+		return value;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof RevocationEvent)) {
+			return false;
+		}
+		final RevocationEvent other = (RevocationEvent) obj;
+		return target == other.target && value.equals(other.value);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(target, value);
+	}
+
+	@Override
+	public String toString() {
+		return target.prefix + ":" + value;
+	}
+
+	public static enum Target {
+		TOKEN_HASH("hash"),
+		JTI("jti"),
+		SUBJECT("sub");
+
+		private final String prefix;
+
+		Target(String prefix) {
+			this.prefix = prefix;
+		}
+
+		static Target of(String prefix) {
+			for (final Target target : values()) {
+				if (target.prefix.equals(prefix)) {
+					return target;
+				}
+			}
+			throw new IllegalArgumentException("unknown revocation target: " + prefix);
+		}
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation;
+
+/**
+ * Dispatches {@link RevocationEvent}s to subscribed caches: {@link LocalRevocationEventBus} within a JVM,
+ * {@link BrokeredRevocationEventSource} across a cluster.
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public interface RevocationEventSource {
+
+	void subscribe(RevocationListener listener);
+
+	void unsubscribe(RevocationListener listener);
+
+	/**
+	 * @param event revocation to dispatch to all listeners (of all nodes, if the source spans a cluster)
+	 */
+	void publish(RevocationEvent event);
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.c4_soft.oauth2.ClaimSet;
+import com.c4_soft.oauth2.TokenHash;
+import com.c4_soft.oauth2.rfc7519.JwtRegisteredClaimNames;
+import com.c4_soft.oauth2.rfc7662.IntrospectionClaimNames;
+
+/**
+ * <p>Secondary indexes of a cache keyed by {@link TokenHash token hash}: {@code jti} to hashes and {@code sub} to
+ * hashes, so that a {@link RevocationEvent} is resolved to the entries to evict without scanning the cache.</p>
+ *
+ * <p>JWT ({@link JwtRegisteredClaimNames}) and introspection ({@link IntrospectionClaimNames}) claim-sets use the
+ * same {@code jti} and {@code sub} claim names.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class RevocationIndex {
+
+	private final Map<String, Set<String>> hashesByJti = new ConcurrentHashMap<>();
+
+	private final Map<String, Set<String>> hashesBySubject = new ConcurrentHashMap<>();
+
+	/**
+	 * @param tokenHash cache key
+	 * @param claims claims of the cached token
+	 */
+	public void add(String tokenHash, ClaimSet claims) {
+		add(hashesByJti, claims.getAsString(JwtRegisteredClaimNames.JWT_ID.value), tokenHash);
+		add(hashesBySubject, claims.getAsString(JwtRegisteredClaimNames.SUBJECT.value), tokenHash);
+	}
+
+	/**
+	 * @param tokenHash evicted cache key
+	 * @param claims claims of the evicted token
+	 */
+	public void remove(String tokenHash, ClaimSet claims) {
+		remove(hashesByJti, claims.getAsString(JwtRegisteredClaimNames.JWT_ID.value), tokenHash);
+		remove(hashesBySubject, claims.getAsString(JwtRegisteredClaimNames.SUBJECT.value), tokenHash);
+	}
+
+	/**
+	 * @param event revocation
+	 * @return hashes of the indexed tokens matching the event (a snapshot, safe to iterate while evicting)
+	 */
+	public Set<String> tokenHashes(RevocationEvent event) {
+		switch (event.getTarget()) {
+		case TOKEN_HASH:
+			return Set.of(event.getValue());
+		case JTI:
+			return snapshot(hashesByJti.get(event.getValue()));
+		case SUBJECT:
+			return snapshot(hashesBySubject.get(event.getValue()));
+		default:
+			return Set.of();
+		}
+	}
+
+	public void clear() {
+		hashesByJti.clear();
+		hashesBySubject.clear();
+	}
+
+	private static void add(Map<String, Set<String>> index, String key, String tokenHash) {
+		if (key == null) {
+			return;
+		}
+		index.compute(key, (k, hashes) -> {
+			final Set<String> set = hashes == null ? ConcurrentHashMap.newKeySet() : hashes;
+			set.add(tokenHash);
+			return set;
+		});
+	}
+
+	private static void remove(Map<String, Set<String>> index, String key, String tokenHash) {
+		if (key == null) {
+			return;
+		}
+		index.computeIfPresent(key, (k, hashes) -> {
+			hashes.remove(tokenHash);
+			return hashes.isEmpty() ? null : hashes;
+		});
+	}
+
+	private static Set<String> snapshot(Set<String> hashes) {
+		return hashes == null ? Set.of() : Set.copyOf(hashes);
+	}
+}
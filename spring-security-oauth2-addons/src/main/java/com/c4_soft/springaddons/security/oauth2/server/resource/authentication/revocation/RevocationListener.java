@@ -0,0 +1,33 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation;
+
+/**
+ * Implemented by claim-set and authorities caches to evict revoked entries.
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+@FunctionalInterface
+public interface RevocationListener {
+
+	/**
+	 * Called for each revocation, possibly concurrently with requests: must be thread-safe, fast and idempotent (the
+	 * same event can be received more than once with some brokers).
+	 * @param event revocation to apply
+	 */
+	void onRevocation(RevocationEvent event);
+}
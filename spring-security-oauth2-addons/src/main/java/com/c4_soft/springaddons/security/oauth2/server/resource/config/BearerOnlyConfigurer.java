@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.config;
+
+import org.springframework.security.config.annotation.web.HttpSecurityBuilder;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.context.NullSecurityContextRepository;
+import org.springframework.security.web.savedrequest.NullRequestCache;
+import org.springframework.security.web.savedrequest.RequestCache;
+
+/**
+ * <p>Filter-chain settings for APIs authenticated with bearer tokens only (plus, possibly, HTTP basic), where each
+ * request carries its credentials:</p>
+ * <ul>
+ * <li>sessions are never created nor read ({@link SessionCreationPolicy#STATELESS})</li>
+ * <li>security context is neither loaded from nor saved to anything ({@link NullSecurityContextRepository}): no
+ * session lookup, no response wrapping to save the context on commit</li>
+ * <li>no request cache (nothing is saved to be replayed after a login page)</li>
+ * <li>no CSRF protection: there is no cookie or session based authentication to abuse, and no token to generate,
+ * store in a cookie and compare on each request</li>
+ * <li>no logout filter: there is no session to invalidate</li>
+ * </ul>
+ *
+ * <pre>
+ * http.apply(new BearerOnlyConfigurer&lt;&gt;());
+ * http.authorizeRequests().requestMatchers(PathPatternRequestMatcher.anyOf("/actuator/**")).hasAuthority("ACTUATOR");
+ * http.oauth2ResourceServer().jwt();
+ * </pre>
+ *
+ * <p>Applied during {@link #init(HttpSecurityBuilder) init}, after {@code WebSecurityConfigurerAdapter::configure}:
+ * it overrides whatever was set there for the features above.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ * @param <H> security builder type ({@link HttpSecurity} most of the time)
+ */
+public class BearerOnlyConfigurer<H extends HttpSecurityBuilder<H>>
+		extends
+		AbstractHttpConfigurer<BearerOnlyConfigurer<H>, H> {
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void init(H http) throws Exception {
+		if (!(http instanceof HttpSecurity)) {
+			throw new IllegalArgumentException("BearerOnlyConfigurer can only be applied to HttpSecurity");
+		}
+		final HttpSecurity httpSecurity = (HttpSecurity) http;
+		httpSecurity.sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
+		httpSecurity.securityContext().securityContextRepository(new NullSecurityContextRepository());
+		// exception translation still reads the shared cache: it must not default to the session one
+		httpSecurity.setSharedObject(RequestCache.class, new NullRequestCache());
+		httpSecurity.requestCache().disable();
+		httpSecurity.csrf().disable();
+		httpSecurity.logout().disable();
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.json;
+
+import com.c4_soft.oauth2.ClaimSet;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+/**
+ * Registers {@link ClaimSetSerializer}. Spring Boot adds {@code Module} beans to the {@code ObjectMapper} it
+ * configures for both servlet and reactive web applications.
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class ClaimSetModule extends SimpleModule {
+	private static final long serialVersionUID = -1693436420716404236L;
+
+	/**
+	 * @param privateClaimNames names of frequent claims, like "authorities", to encode once
+	 */
+	public ClaimSetModule(String... privateClaimNames) {
+		super(ClaimSetModule.class.getSimpleName());
+		addSerializer(ClaimSet.class, new ClaimSetSerializer(privateClaimNames));
+	}
+}
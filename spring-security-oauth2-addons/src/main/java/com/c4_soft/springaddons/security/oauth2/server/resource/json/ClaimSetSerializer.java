@@ -0,0 +1,227 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.c4_soft.oauth2.ClaimSet;
+import com.c4_soft.oauth2.UnmodifiableClaimSet;
+import com.c4_soft.oauth2.rfc7519.JwtRegisteredClaimNames;
+import com.c4_soft.oauth2.rfc7662.IntrospectionClaimNames;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * <p>Writes {@link ClaimSet} straight to the JSON generator, rather than having Jackson walk it as any other
+ * {@code Map}:</p>
+ * <ul>
+ * <li>registered claim names (RFC 7519 and RFC 7662) and provided private ones are encoded once, at construction</li>
+ * <li>claim values of the types found in decoded tokens (strings, numbers, booleans, instants, URLs, collections and
+ * nested maps) are written without serializer lookup. Instants are written as NumericDate (seconds since epoch), as
+ * in tokens. Other values are handed to Jackson</li>
+ * <li>{@link UnmodifiableClaimSet} retaining its payload (see
+ * {@code JwtClaimSetAuthenticationManager.retainingPayload(...)}) is written as is: no claims re-encoding at
+ * all</li>
+ * </ul>
+ * <p>Jackson picks this serializer according to declared type: controllers should declare {@code ClaimSet} (or a
+ * sub-type) return type, not {@code Map}.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class ClaimSetSerializer extends StdSerializer<ClaimSet> {
+	private static final long serialVersionUID = 4170853358364367282L;
+
+	private final Map<String, SerializableString> names;
+
+	/**
+	 * @param privateClaimNames names of frequent claims, like "authorities", to encode once too
+	 */
+	public ClaimSetSerializer(String... privateClaimNames) {
+		super(ClaimSet.class);
+		this.names = Stream.of(
+				Stream.of(JwtRegisteredClaimNames.values()).map(name -> name.value),
+				Stream.of(IntrospectionClaimNames.values()).map(name -> name.value),
+				Stream.of(privateClaimNames))
+				.flatMap(Function.identity())
+				.distinct()
+				.collect(Collectors.toMap(Function.identity(), SerializedString::new));
+	}
+
+	@Override
+	public void serialize(ClaimSet value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+		final byte[] payload =
+				value instanceof UnmodifiableClaimSet ? ((UnmodifiableClaimSet) value).getPayload() : null;
+		if (payload != null) {
+			gen.writeRawValue(new RawJson(payload));
+			return;
+		}
+		gen.writeStartObject(value);
+		for (final Map.Entry<String, Object> claim : value.entrySet()) {
+			final SerializableString name = names.get(claim.getKey());
+			if (name == null) {
+				gen.writeFieldName(claim.getKey());
+			} else {
+				gen.writeFieldName(name);
+			}
+			writeClaimValue(claim.getValue(), gen, provider);
+		}
+		gen.writeEndObject();
+	}
+
+	private static void writeClaimValue(Object value, JsonGenerator gen, SerializerProvider provider)
+			throws IOException {
+		if (value == null) {
+			gen.writeNull();
+		} else if (value instanceof String) {
+			gen.writeString((String) value);
+		} else if (value instanceof Boolean) {
+			gen.writeBoolean((Boolean) value);
+		} else if (value instanceof Long) {
+			gen.writeNumber((Long) value);
+		} else if (value instanceof Integer) {
+			gen.writeNumber((Integer) value);
+		} else if (value instanceof Instant) {
+			gen.writeNumber(((Instant) value).getEpochSecond());
+		} else if (value instanceof URL || value instanceof URI) {
+			gen.writeString(value.toString());
+		} else if (value instanceof Collection<?>) {
+			gen.writeStartArray();
+			for (final Object element : (Collection<?>) value) {
+				writeClaimValue(element, gen, provider);
+			}
+			gen.writeEndArray();
+		} else if (value instanceof Map<?, ?>) {
+			gen.writeStartObject(value);
+			for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				gen.writeFieldName(String.valueOf(entry.getKey()));
+				writeClaimValue(entry.getValue(), gen, provider);
+			}
+			gen.writeEndObject();
+		} else {
+			provider.defaultSerializeValue(value, gen);
+		}
+	}
+
+	/**
+	 * UTF-8 JSON document, copied as is to byte based generators. Text based ones (and quoted forms, which raw values
+	 * never use) get it decoded.
+	 */
+	private static final class RawJson implements SerializableString {
+		private final byte[] utf8;
+
+		private SerializedString decoded;
+
+		RawJson(byte[] utf8) {
+			this.utf8 = utf8;
+		}
+
+		private SerializedString decoded() {
+			if (decoded == null) {
+				decoded = new SerializedString(new String(utf8, StandardCharsets.UTF_8));
+			}
+			return decoded;
+		}
+
+		@Override
+		public String getValue() {
+			return decoded().getValue();
+		}
+
+		@Override
+		public int charLength() {
+			return decoded().charLength();
+		}
+
+		@Override
+		public char[] asQuotedChars() {
+			return decoded().asQuotedChars();
+		}
+
+		@Override
+		public byte[] asUnquotedUTF8() {
+			return utf8;
+		}
+
+		@Override
+		public byte[] asQuotedUTF8() {
+			return decoded().asQuotedUTF8();
+		}
+
+		@Override
+		public int appendQuotedUTF8(byte[] buffer, int offset) {
+			return decoded().appendQuotedUTF8(buffer, offset);
+		}
+
+		@Override
+		public int appendQuoted(char[] buffer, int offset) {
+			return decoded().appendQuoted(buffer, offset);
+		}
+
+		@Override
+		public int appendUnquotedUTF8(byte[] buffer, int offset) {
+			if (utf8.length > buffer.length - offset) {
+				return -1;
+			}
+			System.arraycopy(utf8, 0, buffer, offset, utf8.length);
+			return utf8.length;
+		}
+
+		@Override
+		public int appendUnquoted(char[] buffer, int offset) {
+			return decoded().appendUnquoted(buffer, offset);
+		}
+
+		@Override
+		public int writeQuotedUTF8(OutputStream out) throws IOException {
+			return decoded().writeQuotedUTF8(out);
+		}
+
+		@Override
+		public int writeUnquotedUTF8(OutputStream out) throws IOException {
+			out.write(utf8);
+			return utf8.length;
+		}
+
+		@Override
+		public int putQuotedUTF8(ByteBuffer buffer) throws IOException {
+			return decoded().putQuotedUTF8(buffer);
+		}
+
+		@Override
+		public int putUnquotedUTF8(ByteBuffer buffer) throws IOException {
+			if (utf8.length > buffer.remaining()) {
+				return -1;
+			}
+			buffer.put(utf8);
+			return utf8.length;
+		}
+	}
+}
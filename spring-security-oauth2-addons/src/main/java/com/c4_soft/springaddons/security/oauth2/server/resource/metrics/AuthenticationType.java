@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.metrics;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * <p>How a request is authenticated, as can be told from its {@code Authorization} header only: no token decoding
+ * nor security-context access, so that it can be determined before (and whatever the outcome of) authentication.</p>
+ *
+ * <p>A bearer with exactly two dots is a JWS (compact serialization): other bearers are considered opaque
+ * (introspected) tokens.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public enum AuthenticationType {
+	NONE, BASIC, JWT, OPAQUE, OTHER;
+
+	private static final String BEARER = "Bearer ";
+
+	private static final String BASIC_PREFIX = "Basic ";
+
+	private final String label = name().toLowerCase();
+
+	/**
+	 * @return lower-case name, as reported
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * @param authorization {@code Authorization} header value
+	 * @return authentication type
+	 */
+	public static AuthenticationType of(@Nullable String authorization) {
+		if (authorization == null || authorization.isEmpty()) {
+			return NONE;
+		}
+		if (authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+			return dots(authorization, BEARER.length()) == 2 ? JWT : OPAQUE;
+		}
+		if (authorization.regionMatches(true, 0, BASIC_PREFIX, 0, BASIC_PREFIX.length())) {
+			return BASIC;
+		}
+		return OTHER;
+	}
+
+	private static int dots(String value, int from) {
+		int count = 0;
+		for (int i = from; i < value.length(); ++i) {
+			if (value.charAt(i) == '.' && ++count > 2) {
+				return count;
+			}
+		}
+		return count;
+	}
+}
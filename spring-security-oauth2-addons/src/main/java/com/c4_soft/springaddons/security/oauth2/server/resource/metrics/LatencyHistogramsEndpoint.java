@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.metrics;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.util.Assert;
+
+import com.c4_soft.springaddons.security.oauth2.server.resource.metrics.RouteLatencyRecorders.IntervalHistogram;
+
+/**
+ * <p>{@code latencies} actuator end-point: reports {@link RouteLatencyRecorders} interval histograms, that is
+ * latencies recorded since previous read, by route and then by authentication type.</p>
+ *
+ * <p>Each histogram comes with its interval bounds (epoch milliseconds), count, mean and percentiles in
+ * microseconds, and the histogram itself, compressed and base64 encoded as in HdrHistogram logs (decode it with
+ * {@link Histogram#decodeFromCompressedByteBuffer(ByteBuffer, long)} to merge intervals or compute other
+ * percentiles).</p>
+ *
+ * <p>Each read resets the interval: there should be a single scraper.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+@Endpoint(id = "latencies")
+public class LatencyHistogramsEndpoint {
+	private final RouteLatencyRecorders recorders;
+
+	public LatencyHistogramsEndpoint(RouteLatencyRecorders recorders) {
+		Assert.notNull(recorders, "recorders can't be null");
+		this.recorders = recorders;
+	}
+
+	@ReadOperation
+	public Map<String, Object> latencies() {
+		final Map<String, Map<String, Object>> routes = new LinkedHashMap<>();
+		for (final IntervalHistogram histogram : recorders.intervalHistograms()) {
+			routes.computeIfAbsent(histogram.getRoute(), route -> new LinkedHashMap<>())
+					.put(histogram.getAuthenticationType().getLabel(), report(histogram.getLatencies()));
+		}
+		final Map<String, Object> latencies = new LinkedHashMap<>();
+		latencies.put("authorities", recorders.getAuthorities());
+		latencies.put("unit", "us");
+		latencies.put("routes", routes);
+		return latencies;
+	}
+
+	private static Map<String, Object> report(Histogram latencies) {
+		final Map<String, Object> report = new LinkedHashMap<>();
+		report.put("start", latencies.getStartTimeStamp());
+		report.put("end", latencies.getEndTimeStamp());
+		report.put("count", latencies.getTotalCount());
+		report.put("mean", latencies.getTotalCount() == 0 ? 0 : Math.round(latencies.getMean()));
+		report.put("p50", latencies.getValueAtPercentile(50));
+		report.put("p90", latencies.getValueAtPercentile(90));
+		report.put("p99", latencies.getValueAtPercentile(99));
+		report.put("p999", latencies.getValueAtPercentile(99.9));
+		report.put("max", latencies.getMaxValue());
+		report.put("histogram", encode(latencies));
+		return report;
+	}
+
+	private static String encode(Histogram latencies) {
+		final ByteBuffer buffer = ByteBuffer.allocate(latencies.getNeededByteBufferCapacity());
+		final int length = latencies.encodeIntoCompressedByteBuffer(buffer);
+		return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+	}
+}
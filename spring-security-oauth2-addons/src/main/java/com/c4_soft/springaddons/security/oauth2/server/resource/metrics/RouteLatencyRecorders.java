@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.http.server.PathContainer;
+import org.springframework.util.Assert;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+/**
+ * <p>Latency recorders per route and per {@link AuthenticationType}, for a fixed set of routes declared with path
+ * patterns (parsed once). Requests matching none of the patterns are recorded under {@value #OTHER_ROUTE}.</p>
+ *
+ * <p>Recording is an array access and a write to an HdrHistogram {@link Recorder} (wait-free): no meter registry
+ * lookup nor tags allocation. Recorders are created on first request of a given route and authentication type, so
+ * that unused combinations cost no histogram memory.</p>
+ *
+ * <p>{@link #intervalHistograms()} swaps recorders buffers and returns what was recorded since previous call: it is
+ * meant for a single reader (a metrics scraper).</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class RouteLatencyRecorders {
+	public static final String OTHER_ROUTE = "other";
+
+	private static final PathPatternParser PARSER = new PathPatternParser();
+
+	private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+	private static final AuthenticationType[] TYPES = AuthenticationType.values();
+
+	private final String authorities;
+
+	private final PathPattern[] patterns;
+
+	private final String[] routes;
+
+	private final int significantDigits;
+
+	private final AtomicReferenceArray<Recorder> recorders;
+
+	/**
+	 * @param authorities how this server resolves authorities (for instance {@code embedded} or {@code jpa}),
+	 *        reported with histograms so that servers deployed with different modes can be compared
+	 * @param significantDigits HdrHistogram precision (from 0 to 5): 2 is 1% precision with a few KB per histogram
+	 * @param routes path patterns of the routes to record latencies for, in matching order
+	 */
+	public RouteLatencyRecorders(String authorities, int significantDigits, String... routes) {
+		Assert.hasText(authorities, "authorities can't be empty");
+		Assert.isTrue(significantDigits >= 0 && significantDigits <= 5, "significantDigits must be between 0 and 5");
+		Assert.notNull(routes, "routes can't be null");
+		this.authorities = authorities;
+		this.significantDigits = significantDigits;
+		this.patterns = new PathPattern[routes.length];
+		this.routes = new String[routes.length + 1];
+		for (int i = 0; i < routes.length; ++i) {
+			this.patterns[i] = PARSER.parse(routes[i]);
+			this.routes[i] = routes[i];
+		}
+		this.routes[routes.length] = OTHER_ROUTE;
+		this.recorders = new AtomicReferenceArray<>(this.routes.length * TYPES.length);
+	}
+
+	/**
+	 * 1% precision
+	 *
+	 * @param authorities how this server resolves authorities (for instance {@code embedded} or {@code jpa})
+	 * @param routes path patterns of the routes to record latencies for, in matching order
+	 */
+	public RouteLatencyRecorders(String authorities, String... routes) {
+		this(authorities, 2, routes);
+	}
+
+	public String getAuthorities() {
+		return authorities;
+	}
+
+	/**
+	 * @param path request path within application
+	 * @return index of the first route matching the path ({@value #OTHER_ROUTE} one if none does)
+	 */
+	public int route(PathContainer path) {
+		for (int i = 0; i < patterns.length; ++i) {
+			if (patterns[i].matches(path)) {
+				return i;
+			}
+		}
+		return patterns.length;
+	}
+
+	/**
+	 * @param route index returned by {@link #route(PathContainer)}
+	 * @param type how the request was authenticated
+	 * @param nanos request latency
+	 */
+	public void record(int route, AuthenticationType type, long nanos) {
+		final int index = route * TYPES.length + type.ordinal();
+		Recorder recorder = recorders.get(index);
+		if (recorder == null) {
+			recorders.compareAndSet(index, null, new Recorder(HIGHEST_TRACKABLE_MICROS, significantDigits));
+			recorder = recorders.get(index);
+		}
+		recorder.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, Math.max(0, nanos / 1000)));
+	}
+
+	/**
+	 * @return latencies (microseconds) recorded since previous call, for each route and authentication type which
+	 *         received at least one request since startup
+	 */
+	public synchronized List<IntervalHistogram> intervalHistograms() {
+		final List<IntervalHistogram> histograms = new ArrayList<>();
+		for (int i = 0; i < recorders.length(); ++i) {
+			final Recorder recorder = recorders.get(i);
+			if (recorder != null) {
+				histograms.add(
+						new IntervalHistogram(
+								routes[i / TYPES.length],
+								TYPES[i % TYPES.length],
+								recorder.getIntervalHistogram()));
+			}
+		}
+		return histograms;
+	}
+
+	public static class IntervalHistogram {
+		private final String route;
+
+		private final AuthenticationType authenticationType;
+
+		private final Histogram latencies;
+
+		IntervalHistogram(String route, AuthenticationType authenticationType, Histogram latencies) {
+			this.route = route;
+			this.authenticationType = authenticationType;
+			this.latencies = latencies;
+		}
+
+		/**
+		 * @return path pattern, or {@value RouteLatencyRecorders#OTHER_ROUTE}
+		 */
+		public String getRoute() {
+			return route;
+		}
+
+		public AuthenticationType getAuthenticationType() {
+			return authenticationType;
+		}
+
+		/**
+		 * @return latencies in microseconds, with interval start and end time-stamps
+		 */
+		public Histogram getLatencies() {
+			return latencies;
+		}
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.ratelimit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+import com.c4_soft.oauth2.ClaimSet;
+import com.c4_soft.oauth2.rfc7519.JwtRegisteredClaimNames;
+import com.c4_soft.oauth2.rfc7662.IntrospectionClaimNames;
+import com.c4_soft.oauth2.rfc7662.IntrospectionClaimSet;
+
+/**
+ * <p>Rate limits authenticated requests by a key taken from the claim-set: client ({@link #clientId(ClaimSet)}) or
+ * {@link #subject(ClaimSet)}.</p>
+ *
+ * <p>Limits are configurable per scope: the limiter of the first configured scope granted to the token applies,
+ * default one otherwise. Scope claim is scanned in place (space separated string or collection), without
+ * splitting it into a set.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class ClaimSetRateLimiter {
+	private static final String AUTHORIZED_PARTY = "azp";
+
+	private final Function<ClaimSet, String> keyResolver;
+
+	private final TokenBucketRateLimiter defaultLimiter;
+
+	private final Map<String, TokenBucketRateLimiter> scopeLimiters;
+
+	/**
+	 * @param keyResolver rate-limit key from claims, something like {@code ClaimSetRateLimiter::clientId} or
+	 * {@code ClaimSetRateLimiter::subject}. Requests for which it returns null are not limited.
+	 * @param defaultLimiter applies to tokens granted none of {@code scopeLimiters} scopes
+	 * @param scopeLimiters limiters by scope, in priority order
+	 */
+	public ClaimSetRateLimiter(
+			Function<ClaimSet, String> keyResolver,
+			TokenBucketRateLimiter defaultLimiter,
+			Map<String, TokenBucketRateLimiter> scopeLimiters) {
+		Assert.notNull(keyResolver, "keyResolver can't be null");
+		Assert.notNull(defaultLimiter, "defaultLimiter can't be null");
+		Assert.notNull(scopeLimiters, "scopeLimiters can't be null");
+		// an empty scope would never be found in scope claim, and scanning for it would not progress
+		scopeLimiters.keySet().forEach(scope -> Assert.hasText(scope, "scopeLimiters scopes can't be empty"));
+		this.keyResolver = keyResolver;
+		this.defaultLimiter = defaultLimiter;
+		this.scopeLimiters = Collections.unmodifiableMap(new LinkedHashMap<>(scopeLimiters));
+	}
+
+	public ClaimSetRateLimiter(Function<ClaimSet, String> keyResolver, TokenBucketRateLimiter defaultLimiter) {
+		this(keyResolver, defaultLimiter, Collections.emptyMap());
+	}
+
+	/**
+	 * @param claims authenticated request claims
+	 * @return 0 if the request is granted, otherwise how many milliseconds to wait before retrying
+	 */
+	public long tryAcquire(ClaimSet claims) {
+		final String key = keyResolver.apply(claims);
+		if (key == null) {
+			return 0L;
+		}
+		return limiter(claims).tryAcquire(key);
+	}
+
+	public TokenBucketRateLimiter getDefaultLimiter() {
+		return defaultLimiter;
+	}
+
+	/**
+	 * @return limiters by scope, in priority order
+	 */
+	public Map<String, TokenBucketRateLimiter> getScopeLimiters() {
+		return scopeLimiters;
+	}
+
+	/**
+	 * @return default limiter and then scope ones
+	 */
+	public Collection<TokenBucketRateLimiter> getLimiters() {
+		final List<TokenBucketRateLimiter> limiters = new ArrayList<>(scopeLimiters.size() + 1);
+		limiters.add(defaultLimiter);
+		limiters.addAll(scopeLimiters.values());
+		return limiters;
+	}
+
+	TokenBucketRateLimiter limiter(ClaimSet claims) {
+		if (scopeLimiters.isEmpty()) {
+			return defaultLimiter;
+		}
+		final Object scopeClaim = claims.get(IntrospectionClaimNames.SCOPE.value);
+		for (final Map.Entry<String, TokenBucketRateLimiter> scopeLimiter : scopeLimiters.entrySet()) {
+			if (isGranted(scopeClaim, scopeLimiter.getKey())) {
+				return scopeLimiter.getValue();
+			}
+		}
+		return defaultLimiter;
+	}
+
+	/**
+	 * @param claims authenticated request claims
+	 * @return introspection {@code client_id}, JWT {@code azp} or {@code client_id}, or {@code sub} if the token
+	 * tells nothing about the client it was issued to
+	 */
+	public static String clientId(ClaimSet claims) {
+		final String clientId = claims instanceof IntrospectionClaimSet
+				? ((IntrospectionClaimSet) claims).getClientId()
+				: claims.getAsString(AUTHORIZED_PARTY);
+		if (clientId != null) {
+			return clientId;
+		}
+		final String clientIdClaim = claims.getAsString(IntrospectionClaimNames.CLIENT_ID.value);
+		return clientIdClaim == null ? subject(claims) : clientIdClaim;
+	}
+
+	/**
+	 * @param claims authenticated request claims
+	 * @return {@code sub} claim
+	 */
+	public static String subject(ClaimSet claims) {
+		return claims.getAsString(JwtRegisteredClaimNames.SUBJECT.value);
+	}
+
+	private static boolean isGranted(@Nullable Object scopeClaim, String scope) {
+		if (scopeClaim instanceof Collection<?>) {
+			for (final Object granted : (Collection<?>) scopeClaim) {
+				if (granted != null && isGranted(granted.toString(), scope)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		return scopeClaim != null && isGranted(scopeClaim.toString(), scope);
+	}
+
+	private static boolean isGranted(String scopes, String scope) {
+		int from = 0;
+		int index;
+		while ((index = scopes.indexOf(scope, from)) >= 0) {
+			final int end = index + scope.length();
+			final boolean isWordStart = index == 0 || scopes.charAt(index - 1) == ' ';
+			final boolean isWordEnd = end == scopes.length() || scopes.charAt(end) == ' ';
+			if (isWordStart && isWordEnd) {
+				return true;
+			}
+			from = end;
+		}
+		return false;
+	}
+}
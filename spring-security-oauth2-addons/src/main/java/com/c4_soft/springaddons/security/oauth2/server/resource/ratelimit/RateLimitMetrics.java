@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.ratelimit;
+
+import java.util.Map;
+
+import org.springframework.util.Assert;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * <p>Publishes {@link ClaimSetRateLimiter} limiters counters to Micrometer, tagged with {@code limiter} name and
+ * {@code scope} ({@value #DEFAULT_SCOPE} for the default limiter):</p>
+ * <ul>
+ * <li>{@code ratelimit.requests}, with {@code result} tag {@code allowed} or {@code rejected}</li>
+ * <li>{@code ratelimit.evictions}: idle buckets removed</li>
+ * <li>{@code ratelimit.keys}: keys currently having a bucket</li>
+ * </ul>
+ *
+ * <p>Counters are read from limiters when the registry publishes: nothing is added to the rate-limited request
+ * path. Spring Boot binds {@link MeterBinder} beans to its registry.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class RateLimitMetrics implements MeterBinder {
+	static final String DEFAULT_SCOPE = "none";
+
+	private final ClaimSetRateLimiter rateLimiter;
+
+	public RateLimitMetrics(ClaimSetRateLimiter rateLimiter) {
+		Assert.notNull(rateLimiter, "rateLimiter can't be null");
+		this.rateLimiter = rateLimiter;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		bind(registry, rateLimiter.getDefaultLimiter(), DEFAULT_SCOPE);
+		for (final Map.Entry<String, TokenBucketRateLimiter> scopeLimiter : rateLimiter.getScopeLimiters().entrySet()) {
+			bind(registry, scopeLimiter.getValue(), scopeLimiter.getKey());
+		}
+	}
+
+	private static void bind(MeterRegistry registry, TokenBucketRateLimiter limiter, String scope) {
+		final Tags tags = Tags.of("limiter", limiter.getName(), "scope", scope);
+		FunctionCounter.builder("ratelimit.requests", limiter, TokenBucketRateLimiter::getGranted)
+				.tags(tags.and("result", "allowed"))
+				.description("The number of requests which got a token from their bucket")
+				.register(registry);
+		FunctionCounter.builder("ratelimit.requests", limiter, TokenBucketRateLimiter::getRejected)
+				.tags(tags.and("result", "rejected"))
+				.description("The number of requests rejected because their bucket was empty")
+				.register(registry);
+		FunctionCounter.builder("ratelimit.evictions", limiter, TokenBucketRateLimiter::getEvicted)
+				.tags(tags)
+				.description("The number of idle buckets removed")
+				.register(registry);
+		Gauge.builder("ratelimit.keys", limiter, TokenBucketRateLimiter::getTrackedKeys)
+				.tags(tags)
+				.description("The number of keys with a bucket")
+				.register(registry);
+	}
+}
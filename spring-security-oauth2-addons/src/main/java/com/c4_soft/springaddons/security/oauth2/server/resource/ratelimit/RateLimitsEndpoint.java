@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.ratelimit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.util.Assert;
+
+/**
+ * {@code ratelimits} actuator end-point: for each {@link ClaimSetRateLimiter} limiter, its configuration and the
+ * number of keys currently tracked. Granted, rejected and evicted counts are published by {@link RateLimitMetrics}.
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+@Endpoint(id = "ratelimits")
+public class RateLimitsEndpoint {
+	private final ClaimSetRateLimiter rateLimiter;
+
+	public RateLimitsEndpoint(ClaimSetRateLimiter rateLimiter) {
+		Assert.notNull(rateLimiter, "rateLimiter can't be null");
+		this.rateLimiter = rateLimiter;
+	}
+
+	@ReadOperation
+	public Map<String, Object> rateLimits() {
+		final Map<String, Object> limiters = new LinkedHashMap<>();
+		for (final TokenBucketRateLimiter limiter : rateLimiter.getLimiters()) {
+			final Map<String, Object> report = new LinkedHashMap<>();
+			report.put("capacity", limiter.getCapacity());
+			report.put("refillPeriod", limiter.getRefillPeriod().toString());
+			report.put("trackedKeys", limiter.getTrackedKeys());
+			limiters.put(limiter.getName(), report);
+		}
+		return limiters;
+	}
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.ratelimit;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.util.Assert;
+
+/**
+ * <p>Token bucket per key: up to {@code capacity} requests in a burst, refilled at {@code capacity} tokens per
+ * {@code refillPeriod}.</p>
+ *
+ * <p>Lock-free: each bucket is a single {@code AtomicLong}, updated with a compare-and-set, holding the time at which
+ * it will be full again (generic cell rate algorithm, equivalent to a token bucket without a tokens count nor a
+ * refill timestamp to keep consistent).</p>
+ *
+ * <p>Buckets are spread over shards (concurrent maps). Buckets which have been full for {@code idleTimeout} are
+ * evicted, which changes nothing for their keys as a new bucket is full too. Each shard is swept at most once per
+ * {@code idleTimeout}, by the first request landing in it once due: there is no eviction thread. Call
+ * {@link #evictIdle()} from a shared scheduler if memory should be released while no request is received.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class TokenBucketRateLimiter {
+	/**
+	 * Marks a bucket which was removed from its shard: requests which fetched it before have to fetch a new one
+	 */
+	private static final long EVICTED = Long.MIN_VALUE;
+
+	private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final String name;
+
+	private final long capacity;
+
+	private final Duration refillPeriod;
+
+	private final long refillPeriodNanos;
+
+	private final long emissionIntervalNanos;
+
+	private final long idleTimeoutNanos;
+
+	private final Clock clock;
+
+	private final Shard[] shards;
+
+	private final LongAdder granted = new LongAdder();
+
+	private final LongAdder rejected = new LongAdder();
+
+	private final LongAdder evicted = new LongAdder();
+
+	/**
+	 * @param name limiter name, as reported in metrics
+	 * @param capacity max requests in a burst, also number of tokens added per {@code refillPeriod}
+	 * @param refillPeriod time to refill an empty bucket
+	 * @param idleTimeout how long a bucket is kept once full again
+	 * @param shardCount number of shards, rounded up to a power of 2
+	 * @param clock time source
+	 */
+	public TokenBucketRateLimiter(
+			String name,
+			long capacity,
+			Duration refillPeriod,
+			Duration idleTimeout,
+			int shardCount,
+			Clock clock) {
+		Assert.hasText(name, "name can't be empty");
+		Assert.isTrue(capacity > 0, "capacity must be positive");
+		Assert.notNull(refillPeriod, "refillPeriod can't be null");
+		Assert.isTrue(refillPeriod.toNanos() >= capacity, "refillPeriod must be at least capacity nanoseconds");
+		Assert.notNull(idleTimeout, "idleTimeout can't be null");
+		Assert.isTrue(shardCount > 0, "shardCount must be positive");
+		Assert.notNull(clock, "clock can't be null");
+		this.name = name;
+		this.capacity = capacity;
+		this.refillPeriod = refillPeriod;
+		this.refillPeriodNanos = refillPeriod.toNanos();
+		this.emissionIntervalNanos = refillPeriodNanos / capacity;
+		this.idleTimeoutNanos = idleTimeout.toNanos();
+		this.clock = clock;
+		this.shards = new Shard[shardCount == 1 ? 1 : Integer.highestOneBit(shardCount - 1) << 1];
+		for (int i = 0; i < shards.length; ++i) {
+			shards[i] = new Shard();
+		}
+	}
+
+	/**
+	 * 16 shards, buckets evicted after being full for a refill period
+	 *
+	 * @param name limiter name, as reported in metrics
+	 * @param capacity max requests in a burst, also number of tokens added per {@code refillPeriod}
+	 * @param refillPeriod time to refill an empty bucket
+	 */
+	public TokenBucketRateLimiter(String name, long capacity, Duration refillPeriod) {
+		this(name, capacity, refillPeriod, refillPeriod, 16, Clock.systemUTC());
+	}
+
+	/**
+	 * @param key rate-limited key (client ID, subject, ...)
+	 * @return 0 if a token was taken, otherwise how many milliseconds to wait before one is available
+	 */
+	public long tryAcquire(String key) {
+		final long now = now();
+		final Shard shard = shards[spread(key.hashCode()) & (shards.length - 1)];
+		shard.evictIdleIfDue(now);
+		while (true) {
+			AtomicLong bucket = shard.buckets.get(key);
+			if (bucket == null) {
+				// full: max(0, now) is now
+				bucket = shard.buckets.computeIfAbsent(key, k -> new AtomicLong(0L));
+			}
+			long fullAt;
+			while ((fullAt = bucket.get()) != EVICTED) {
+				final long next = Math.max(fullAt, now) + emissionIntervalNanos;
+				final long wait = next - now - refillPeriodNanos;
+				if (wait > 0) {
+					rejected.increment();
+					// rounded up: retrying after that delay succeeds (unless another request took the token)
+					return (wait + NANOS_PER_MILLI - 1) / NANOS_PER_MILLI;
+				}
+				if (bucket.compareAndSet(fullAt, next)) {
+					granted.increment();
+					return 0L;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes buckets full for at least {@code idleTimeout} from all shards
+	 */
+	public void evictIdle() {
+		final long now = now();
+		for (final Shard shard : shards) {
+			shard.evictIdle(now);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getCapacity() {
+		return capacity;
+	}
+
+	public Duration getRefillPeriod() {
+		return refillPeriod;
+	}
+
+	/**
+	 * @return number of keys with a bucket
+	 */
+	public int getTrackedKeys() {
+		int size = 0;
+		for (final Shard shard : shards) {
+			size += shard.buckets.size();
+		}
+		return size;
+	}
+
+	public long getGranted() {
+		return granted.sum();
+	}
+
+	public long getRejected() {
+		return rejected.sum();
+	}
+
+	public long getEvicted() {
+		return evicted.sum();
+	}
+
+	private long now() {
+		return TimeUnit.MILLISECONDS.toNanos(clock.millis());
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	private final class Shard {
+		private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+		private final AtomicLong nextEviction = new AtomicLong();
+
+		void evictIdleIfDue(long now) {
+			final long due = nextEviction.get();
+			if (now >= due && nextEviction.compareAndSet(due, now + idleTimeoutNanos)) {
+				evictIdle(now);
+			}
+		}
+
+		void evictIdle(long now) {
+			for (final Map.Entry<String, AtomicLong> entry : buckets.entrySet()) {
+				final long fullAt = entry.getValue().get();
+				if (fullAt != EVICTED && fullAt + idleTimeoutNanos <= now
+						&& entry.getValue().compareAndSet(fullAt, EVICTED)) {
+					buckets.remove(entry.getKey(), entry.getValue());
+					evicted.increment();
+				}
+			}
+		}
+	}
+}
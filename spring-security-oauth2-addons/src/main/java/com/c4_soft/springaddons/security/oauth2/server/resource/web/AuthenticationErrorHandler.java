@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.web;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.security.web.access.AccessDeniedHandler;
+import org.springframework.util.Assert;
+
+import com.c4_soft.springaddons.security.oauth2.server.resource.web.AuthenticationErrorResponses.ErrorResponse;
+
+/**
+ * <p>Writes {@link AuthenticationErrorResponses} pre-encoded status, challenge and body for authentication failures
+ * and access denials. Use it in place of spring-security {@code BearerTokenAuthenticationEntryPoint} and
+ * {@code BearerTokenAccessDeniedHandler}:</p>
+ * <pre>
+ * http.oauth2ResourceServer().authenticationEntryPoint(errorHandler).accessDeniedHandler(errorHandler);
+ * </pre>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class AuthenticationErrorHandler implements AuthenticationEntryPoint, AccessDeniedHandler {
+	private final AuthenticationErrorResponses responses;
+
+	public AuthenticationErrorHandler(AuthenticationErrorResponses responses) {
+		Assert.notNull(responses, "responses can't be null");
+		this.responses = responses;
+	}
+
+	public AuthenticationErrorHandler() {
+		this(new AuthenticationErrorResponses());
+	}
+
+	@Override
+	public void commence(HttpServletRequest request, HttpServletResponse response, AuthenticationException e)
+			throws IOException {
+		write(responses.get(e), response);
+	}
+
+	@Override
+	public void handle(HttpServletRequest request, HttpServletResponse response, AccessDeniedException e)
+			throws IOException {
+		write(responses.insufficientScope(), response);
+	}
+
+	private static void write(ErrorResponse error, HttpServletResponse response) throws IOException {
+		response.setStatus(error.getStatus().value());
+		response.setHeader(HttpHeaders.WWW_AUTHENTICATE, error.getWwwAuthenticate());
+		if (error.getBody().length > 0) {
+			response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+			response.setContentLength(error.getBody().length);
+			response.getOutputStream().write(error.getBody());
+		}
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.web;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.server.resource.BearerTokenErrorCodes;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import com.c4_soft.oauth2.rfc6749.AuthenticationError;
+import com.c4_soft.oauth2.rfc6749.dto.ErrorResponseDto;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+
+/**
+ * <p>Resource-server error responses, encoded once: status, {@code WWW-Authenticate} bearer challenge and
+ * {@link ErrorResponseDto} JSON body for each {@link AuthenticationError} and RFC 6750 error code
+ * ({@code invalid_token} and {@code insufficient_scope}). Rejecting a request then allocates nothing but the response
+ * itself, which matters when most of the traffic is rejected (credential stuffing, expired tokens replay, ...).</p>
+ *
+ * <p>Descriptions are static: unlike spring-security entry-point, exception messages (which can tell why a token
+ * signature or introspection failed) are neither rendered nor leaked.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class AuthenticationErrorResponses {
+	private static final String RFC6749_TOKEN_ERRORS = "https://tools.ietf.org/html/rfc6749#section-5.2";
+
+	private static final String RFC6749_AUTHORIZATION_ERRORS = "https://tools.ietf.org/html/rfc6749#section-4.1.2.1";
+
+	private static final String RFC6750_ERRORS = "https://tools.ietf.org/html/rfc6750#section-3.1";
+
+	private final ErrorResponse unauthenticated;
+
+	private final Map<String, ErrorResponse> responses;
+
+	/**
+	 * @param realm {@code WWW-Authenticate} realm. Might be null.
+	 */
+	public AuthenticationErrorResponses(@Nullable String realm) {
+		final ObjectMapper mapper = new ObjectMapper()
+				.setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE)
+				.setSerializationInclusion(Include.NON_NULL);
+
+		this.unauthenticated =
+				new ErrorResponse(HttpStatus.UNAUTHORIZED, challenge(realm, null, null, null), new byte[0]);
+
+		final var responses = new HashMap<String, ErrorResponse>();
+		responses.put(
+				BearerTokenErrorCodes.INVALID_TOKEN,
+				encode(
+						mapper,
+						realm,
+						HttpStatus.UNAUTHORIZED,
+						BearerTokenErrorCodes.INVALID_TOKEN,
+						"The access token is malformed, expired, revoked or invalid for other reasons",
+						RFC6750_ERRORS));
+		responses.put(
+				BearerTokenErrorCodes.INSUFFICIENT_SCOPE,
+				encode(
+						mapper,
+						realm,
+						HttpStatus.FORBIDDEN,
+						BearerTokenErrorCodes.INSUFFICIENT_SCOPE,
+						"The request requires higher privileges than provided by the access token",
+						RFC6750_ERRORS));
+		for (final AuthenticationError error : AuthenticationError.values()) {
+			responses.putIfAbsent(
+					error.value,
+					encode(mapper, realm, status(error), error.value, null, errorUri(error)));
+		}
+		this.responses = Map.copyOf(responses);
+	}
+
+	public AuthenticationErrorResponses() {
+		this(null);
+	}
+
+	/**
+	 * @return 401 with a bare challenge and no body, as per RFC 6750 when the request holds no credentials
+	 */
+	public ErrorResponse unauthenticated() {
+		return unauthenticated;
+	}
+
+	public ErrorResponse insufficientScope() {
+		return responses.get(BearerTokenErrorCodes.INSUFFICIENT_SCOPE);
+	}
+
+	public ErrorResponse get(AuthenticationError error) {
+		return responses.get(error.value);
+	}
+
+	/**
+	 * @param errorCode RFC 6749 or RFC 6750 error code
+	 * @return pre-encoded response for that code, or {@link #unauthenticated()} one for unknown codes
+	 */
+	public ErrorResponse get(@Nullable String errorCode) {
+		return errorCode == null ? unauthenticated : responses.getOrDefault(errorCode, unauthenticated);
+	}
+
+	/**
+	 * @param e authentication failure
+	 * @return response for the OAuth2 error code of {@link OAuth2AuthenticationException}s, {@link #unauthenticated()}
+	 * one for other exceptions (missing credentials)
+	 */
+	public ErrorResponse get(AuthenticationException e) {
+		if (e instanceof OAuth2AuthenticationException) {
+			return get(((OAuth2AuthenticationException) e).getError().getErrorCode());
+		}
+		return unauthenticated;
+	}
+
+	private static HttpStatus status(AuthenticationError error) {
+		switch (error) {
+		case INVALID_CLIENT:
+			return HttpStatus.UNAUTHORIZED;
+		case ACCESS_DENIED:
+			return HttpStatus.FORBIDDEN;
+		case SERVER_ERROR:
+			return HttpStatus.INTERNAL_SERVER_ERROR;
+		case TEMPORARILY_UNAVAILABLE:
+			return HttpStatus.SERVICE_UNAVAILABLE;
+		default:
+			return HttpStatus.BAD_REQUEST;
+		}
+	}
+
+	private static String errorUri(AuthenticationError error) {
+		switch (error) {
+		case ACCESS_DENIED:
+		case SERVER_ERROR:
+		case TEMPORARILY_UNAVAILABLE:
+		case UNSUPPORTED_RESPONSE_TYPE:
+			return RFC6749_AUTHORIZATION_ERRORS;
+		default:
+			return RFC6749_TOKEN_ERRORS;
+		}
+	}
+
+	private static ErrorResponse encode(
+			ObjectMapper mapper,
+			@Nullable String realm,
+			HttpStatus status,
+			String error,
+			@Nullable String description,
+			String uri) {
+		final ErrorResponseDto dto = ErrorResponseDto.builder()
+				.error(error)
+				.errorDescription(description)
+				.errorUri(URI.create(uri))
+				.build();
+		try {
+			return new ErrorResponse(status, challenge(realm, error, description, uri), mapper.writeValueAsBytes(dto));
+		} catch (final JsonProcessingException e) {
+			throw new IllegalStateException("Failed to encode " + error + " response", e);
+		}
+	}
+
+	/**
+	 * @return bearer challenge as specified by https://tools.ietf.org/html/rfc6750#section-3
+	 */
+	private static String challenge(
+			@Nullable String realm,
+			@Nullable String error,
+			@Nullable String description,
+			@Nullable String uri) {
+		final String parameters = Stream
+				.of(
+						parameter("realm", realm),
+						parameter("error", error),
+						parameter("error_description", description),
+						parameter("error_uri", uri))
+				.filter(Objects::nonNull)
+				.collect(Collectors.joining(", "));
+		return parameters.isEmpty() ? "Bearer" : "Bearer " + parameters;
+	}
+
+	private static String parameter(String name, @Nullable String value) {
+		return StringUtils.hasText(value) ? String.format("%s=\"%s\"", name, value) : null;
+	}
+
+	/**
+	 * Immutable pre-encoded response. Body array is shared by all responses: it must not be modified.
+	 */
+	public static final class ErrorResponse {
+		private final HttpStatus status;
+
+		private final String wwwAuthenticate;
+
+		private final byte[] body;
+
+		private ErrorResponse(HttpStatus status, String wwwAuthenticate, byte[] body) {
+			Assert.notNull(status, "status can't be null");
+			Assert.hasText(wwwAuthenticate, "wwwAuthenticate can't be empty");
+			this.status = status;
+			this.wwwAuthenticate = wwwAuthenticate;
+			this.body = body;
+		}
+
+		public HttpStatus getStatus() {
+			return status;
+		}
+
+		public String getWwwAuthenticate() {
+			return wwwAuthenticate;
+		}
+
+		public byte[] getBody() {
+			return body;
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.web;
+
+import java.io.IOException;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.PathContainer;
+import org.springframework.util.Assert;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.c4_soft.springaddons.security.oauth2.server.resource.metrics.AuthenticationType;
+import com.c4_soft.springaddons.security.oauth2.server.resource.metrics.RouteLatencyRecorders;
+
+/**
+ * <p>Records each request latency into {@link RouteLatencyRecorders}, by route and {@link AuthenticationType}.</p>
+ *
+ * <p>Register it before spring-security filter-chain (for instance with a {@code FilterRegistrationBean} of highest
+ * precedence order) so that recorded latencies include authentication, and requests rejected by security are
+ * recorded too.</p>
+ *
+ * <p>Asynchronous requests are recorded when their async context completes (including on error or timeout), not
+ * when the filter chain returns.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class LatencyRecordingFilter extends OncePerRequestFilter {
+	private final RouteLatencyRecorders recorders;
+
+	public LatencyRecordingFilter(RouteLatencyRecorders recorders) {
+		Assert.notNull(recorders, "recorders can't be null");
+		this.recorders = recorders;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		final long start = System.nanoTime();
+		final int route = recorders.route(
+				PathContainer.parsePath(PathPatternRequestMatcher.pathWithinApplication(request)));
+		final AuthenticationType type = AuthenticationType.of(request.getHeader(HttpHeaders.AUTHORIZATION));
+		boolean isAsyncStarted = false;
+		try {
+			chain.doFilter(request, response);
+			isAsyncStarted = request.isAsyncStarted();
+		} finally {
+			if (isAsyncStarted) {
+				request.getAsyncContext().addListener(new RecordingAsyncListener(route, type, start));
+			} else {
+				recorders.record(route, type, System.nanoTime() - start);
+			}
+		}
+	}
+
+	/**
+	 * {@code onComplete} is always called last, whatever happened before (error, timeout): it is the only one to record
+	 */
+	private final class RecordingAsyncListener implements AsyncListener {
+		private final int route;
+
+		private final AuthenticationType type;
+
+		private final long start;
+
+		RecordingAsyncListener(int route, AuthenticationType type, long start) {
+			this.route = route;
+			this.type = type;
+			this.start = start;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			recorders.record(route, type, System.nanoTime() - start);
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+			// listeners are cleared when async processing is restarted
+			event.getAsyncContext().addListener(this);
+		}
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.web;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.c4_soft.springaddons.security.oauth2.server.resource.metrics.AuthenticationType;
+import com.c4_soft.springaddons.security.oauth2.server.resource.metrics.RouteLatencyRecorders;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * <p>Reactive counterpart of {@link LatencyRecordingFilter}: latency is measured from filter invocation to the
+ * termination (completion, error or cancellation) of the rest of the chain.</p>
+ *
+ * <p>Order it before spring-security {@code WebFilterChainProxy} (for instance with highest precedence) so that
+ * recorded latencies include authentication.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class LatencyRecordingWebFilter implements WebFilter {
+	private final RouteLatencyRecorders recorders;
+
+	public LatencyRecordingWebFilter(RouteLatencyRecorders recorders) {
+		Assert.notNull(recorders, "recorders can't be null");
+		this.recorders = recorders;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		final long start = System.nanoTime();
+		final int route = recorders.route(exchange.getRequest().getPath().pathWithinApplication());
+		final AuthenticationType type =
+				AuthenticationType.of(exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+		return chain.filter(exchange).doFinally(signal -> recorders.record(route, type, System.nanoTime() - start));
+	}
+}
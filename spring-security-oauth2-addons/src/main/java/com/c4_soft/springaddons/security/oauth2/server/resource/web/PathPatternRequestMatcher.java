@@ -0,0 +1,99 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.web;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.lang.Nullable;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.util.Assert;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+/**
+ * <p>{@link RequestMatcher} using a {@link PathPattern} parsed once, when the matcher is created.</p>
+ *
+ * <p>Matching walks the pattern elements against the request path segments: no per-request pattern tokenization nor
+ * string caches as with {@code AntPathMatcher}. Patterns syntax is the one of Spring MVC {@link PathPatternParser}
+ * ({@code /api/**}, {@code /users/{id}}, ...), path is request URI without context path.</p>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class PathPatternRequestMatcher implements RequestMatcher {
+	private static final PathPatternParser PARSER = new PathPatternParser();
+
+	private final HttpMethod method;
+
+	private final PathPattern pattern;
+
+	/**
+	 * @param method HTTP method to match (null for any)
+	 * @param pattern path pattern
+	 */
+	public PathPatternRequestMatcher(@Nullable HttpMethod method, String pattern) {
+		Assert.hasText(pattern, "pattern can't be empty");
+		this.method = method;
+		this.pattern = PARSER.parse(pattern);
+	}
+
+	/**
+	 * @param pattern path pattern, whatever the HTTP method
+	 */
+	public PathPatternRequestMatcher(String pattern) {
+		this(null, pattern);
+	}
+
+	/**
+	 * @param patterns path patterns
+	 * @return a matcher for any of the patterns, whatever the HTTP method
+	 */
+	public static RequestMatcher anyOf(String... patterns) {
+		Assert.notEmpty(patterns, "patterns can't be empty");
+		if (patterns.length == 1) {
+			return new PathPatternRequestMatcher(patterns[0]);
+		}
+		final List<RequestMatcher> matchers =
+				Stream.of(patterns).map(PathPatternRequestMatcher::new).collect(Collectors.toList());
+		return new OrRequestMatcher(matchers);
+	}
+
+	@Override
+	public boolean matches(HttpServletRequest request) {
+		if (method != null && !method.matches(request.getMethod())) {
+			return false;
+		}
+		return pattern.matches(PathContainer.parsePath(pathWithinApplication(request)));
+	}
+
+	static String pathWithinApplication(HttpServletRequest request) {
+		final String uri = request.getRequestURI();
+		final String contextPath = request.getContextPath();
+		return contextPath == null || contextPath.isEmpty() ? uri : uri.substring(contextPath.length());
+	}
+
+	@Override
+	public String toString() {
+		return "PathPattern [" + (method == null ? "" : method + " ") + pattern.getPatternString() + "]";
+	}
+}
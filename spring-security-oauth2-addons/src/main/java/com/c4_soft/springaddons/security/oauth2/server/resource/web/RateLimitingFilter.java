@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.web;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.Assert;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.c4_soft.oauth2.ClaimSet;
+import com.c4_soft.springaddons.security.oauth2.server.resource.ratelimit.ClaimSetRateLimiter;
+
+/**
+ * <p>Rejects requests authenticated with a claim-set (see {@code OAuth2ClaimSetAuthentication}) once its key is out
+ * of tokens: {@code 429 Too Many Requests} with a {@code Retry-After} header (seconds), before controllers (and
+ * authorization) are reached. Other requests pass through.</p>
+ *
+ * <p>Add it to spring-security filter-chain, right after authentication:</p>
+ * <pre>
+ * http.addFilterAfter(new RateLimitingFilter(rateLimiter), BearerTokenAuthenticationFilter.class);
+ * </pre>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class RateLimitingFilter extends OncePerRequestFilter {
+	private final ClaimSetRateLimiter rateLimiter;
+
+	public RateLimitingFilter(ClaimSetRateLimiter rateLimiter) {
+		Assert.notNull(rateLimiter, "rateLimiter can't be null");
+		this.rateLimiter = rateLimiter;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		if (authentication != null && authentication.getPrincipal() instanceof ClaimSet) {
+			final long waitMillis = rateLimiter.tryAcquire((ClaimSet) authentication.getPrincipal());
+			if (waitMillis > 0) {
+				response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+				response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds(waitMillis)));
+				return;
+			}
+		}
+		chain.doFilter(request, response);
+	}
+
+	static long retryAfterSeconds(long waitMillis) {
+		return (waitMillis + TimeUnit.SECONDS.toMillis(1) - 1) / TimeUnit.SECONDS.toMillis(1);
+	}
+}
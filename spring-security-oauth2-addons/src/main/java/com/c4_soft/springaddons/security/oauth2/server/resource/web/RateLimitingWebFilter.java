@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.web;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.c4_soft.oauth2.ClaimSet;
+import com.c4_soft.springaddons.security.oauth2.server.resource.ratelimit.ClaimSetRateLimiter;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * <p>Reactive counterpart of {@link RateLimitingFilter}. Add it to spring-security filter-chain, after
+ * authentication:</p>
+ * <pre>
+ * http.addFilterAt(new RateLimitingWebFilter(rateLimiter), SecurityWebFiltersOrder.AUTHORIZATION);
+ * </pre>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class RateLimitingWebFilter implements WebFilter {
+	private final ClaimSetRateLimiter rateLimiter;
+
+	public RateLimitingWebFilter(ClaimSetRateLimiter rateLimiter) {
+		Assert.notNull(rateLimiter, "rateLimiter can't be null");
+		this.rateLimiter = rateLimiter;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		return ReactiveSecurityContextHolder.getContext()
+				.filter(securityContext -> securityContext.getAuthentication() != null)
+				.map(SecurityContext::getAuthentication)
+				.filter(authentication -> authentication.getPrincipal() instanceof ClaimSet)
+				.map(authentication -> rateLimiter.tryAcquire((ClaimSet) authentication.getPrincipal()))
+				.defaultIfEmpty(0L)
+				.flatMap(waitMillis -> waitMillis > 0 ? reject(exchange, waitMillis) : chain.filter(exchange));
+	}
+
+	private static Mono<Void> reject(ServerWebExchange exchange, long waitMillis) {
+		exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+		exchange.getResponse().getHeaders()
+				.set(HttpHeaders.RETRY_AFTER, Long.toString(RateLimitingFilter.retryAfterSeconds(waitMillis)));
+		return exchange.getResponse().setComplete();
+	}
+}
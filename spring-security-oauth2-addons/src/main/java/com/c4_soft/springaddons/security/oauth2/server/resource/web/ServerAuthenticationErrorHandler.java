@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.web;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.server.ServerAuthenticationEntryPoint;
+import org.springframework.security.web.server.authorization.ServerAccessDeniedHandler;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.c4_soft.springaddons.security.oauth2.server.resource.web.AuthenticationErrorResponses.ErrorResponse;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * <p>Reactive counterpart of {@link AuthenticationErrorHandler}. Body buffers wrap pre-encoded arrays (no copy).</p>
+ * <pre>
+ * http.oauth2ResourceServer().authenticationEntryPoint(errorHandler).accessDeniedHandler(errorHandler);
+ * </pre>
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class ServerAuthenticationErrorHandler implements ServerAuthenticationEntryPoint, ServerAccessDeniedHandler {
+	private final AuthenticationErrorResponses responses;
+
+	public ServerAuthenticationErrorHandler(AuthenticationErrorResponses responses) {
+		Assert.notNull(responses, "responses can't be null");
+		this.responses = responses;
+	}
+
+	public ServerAuthenticationErrorHandler() {
+		this(new AuthenticationErrorResponses());
+	}
+
+	@Override
+	public Mono<Void> commence(ServerWebExchange exchange, AuthenticationException e) {
+		return Mono.defer(() -> write(responses.get(e), exchange.getResponse()));
+	}
+
+	@Override
+	public Mono<Void> handle(ServerWebExchange exchange, AccessDeniedException denied) {
+		return Mono.defer(() -> write(responses.insufficientScope(), exchange.getResponse()));
+	}
+
+	private static Mono<Void> write(ErrorResponse error, ServerHttpResponse response) {
+		response.setStatusCode(error.getStatus());
+		response.getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, error.getWwwAuthenticate());
+		if (error.getBody().length == 0) {
+			return response.setComplete();
+		}
+		response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+		response.getHeaders().setContentLength(error.getBody().length);
+		return response.writeWith(Mono.just(response.bufferFactory().wrap(error.getBody())));
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Set;
+
+import org.junit.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import com.c4_soft.oauth2.rfc7519.JwtClaimSet;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class ImmutableOAuth2ClaimSetAuthenticationTest {
+	final JwtClaimSet claims = JwtClaimSet.builder().subject("ch4mpy").build();
+
+	final Set<GrantedAuthority> authorities = Set.of(new SimpleGrantedAuthority("UNIT"), new SimpleGrantedAuthority("TEST"));
+
+	@Test
+	public void constructorSetsDetailsAndAuthenticatedStatus() {
+		final var actual = new ImmutableOAuth2ClaimSetAuthentication<>(claims, authorities);
+
+		assertThat(actual.getName()).isEqualTo("ch4mpy");
+		assertThat(actual.getDetails()).isSameAs(claims);
+		assertThat(actual.isAuthenticated()).isTrue();
+		assertThat(actual.getAuthorities()).containsExactlyInAnyOrderElementsOf(authorities);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void setDetailsThrows() {
+		new ImmutableOAuth2ClaimSetAuthentication<>(claims, authorities).setDetails("hacked");
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void setAuthenticatedThrows() {
+		new ImmutableOAuth2ClaimSetAuthentication<>(claims, authorities).setAuthenticated(false);
+	}
+
+	@Test
+	public void ofCopiesMutableAuthentications() {
+		final var mutable = new OAuth2ClaimSetAuthentication<>(claims, authorities);
+
+		final var actual = ImmutableOAuth2ClaimSetAuthentication.of(mutable);
+
+		assertThat(actual).isNotSameAs(mutable);
+		assertThat(actual.getClaimSet()).isSameAs(claims);
+		assertThat(actual.getAuthorities()).containsExactlyInAnyOrderElementsOf(authorities);
+	}
+
+	@Test
+	public void ofReturnsImmutableAuthenticationsAsIs() {
+		final var immutable = new ImmutableOAuth2ClaimSetAuthentication<>(claims, authorities);
+
+		assertThat(ImmutableOAuth2ClaimSetAuthentication.of(immutable)).isSameAs(immutable);
+	}
+}
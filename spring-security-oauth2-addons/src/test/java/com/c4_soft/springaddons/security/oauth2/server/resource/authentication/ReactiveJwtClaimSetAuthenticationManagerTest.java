@@ -0,0 +1,78 @@
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.BearerTokenAuthenticationToken;
+
+import com.c4_soft.oauth2.rfc7519.JwtClaimSet;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class ReactiveJwtClaimSetAuthenticationManagerTest {
+	static final ReactiveJwtDecoder DECODER = token -> "invalid".equals(token)
+			? Mono.error(new JwtException("invalid signature"))
+			: Mono.just(Jwt.withTokenValue(token).header("alg", "none").subject(token).build());
+
+	final ReactiveJwtClaimSetAuthenticationManager<JwtClaimSet> manager =
+			new ReactiveJwtClaimSetAuthenticationManager<>(
+					DECODER,
+					JwtClaimSet::new,
+					claims -> Set.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+	@Test
+	public void bearerIsAuthenticatedAsClaimSet() {
+		final var authentication = manager.authenticate(new BearerTokenAuthenticationToken("ch4mpy")).block();
+
+		assertThat(authentication).isInstanceOf(OAuth2ClaimSetAuthentication.class);
+		assertThat(authentication.getName()).isEqualTo("ch4mpy");
+		assertThat(authentication.getAuthorities()).extracting("authority").containsExactly("ROLE_USER");
+	}
+
+	@Test
+	public void payloadIsRetainedOnDemand() {
+		final var payload = "{\"sub\":\"ch4mpy\"}";
+		final var token = "e30." + Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + ".c2lnbmF0dXJl";
+		final var retaining = ReactiveJwtClaimSetAuthenticationManager.retainingPayload(
+				DECODER,
+				JwtClaimSet::new,
+				claims -> Set.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+		final var retained = (OAuth2ClaimSetAuthentication<?>) retaining
+				.authenticate(new BearerTokenAuthenticationToken(token)).block();
+		final var notRetained = (OAuth2ClaimSetAuthentication<?>) manager
+				.authenticate(new BearerTokenAuthenticationToken(token)).block();
+
+		assertThat(new String(((JwtClaimSet) retained.getClaimSet()).getPayload(), StandardCharsets.UTF_8))
+				.isEqualTo(payload);
+		assertThat(((JwtClaimSet) notRetained.getClaimSet()).getPayload()).isNull();
+	}
+
+	@Test
+	public void otherAuthenticationsAreIgnored() {
+		assertThat(manager.authenticate(new UsernamePasswordAuthenticationToken("ch4mpy", "secret")).block()).isNull();
+	}
+
+	@Test
+	public void decodingErrorIsInvalidToken() {
+		assertThatThrownBy(() -> manager.authenticate(new BearerTokenAuthenticationToken("invalid")).block())
+				.isInstanceOf(OAuth2AuthenticationException.class)
+				.hasMessage("invalid signature");
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.server.resource.BearerTokenAuthenticationToken;
+
+import com.c4_soft.oauth2.TokenHash;
+import com.c4_soft.oauth2.rfc7519.JwtClaimSet;
+import com.c4_soft.springaddons.security.oauth2.server.resource.MutableClock;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.AbstractClaimSetAuthenticationManager;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation.RevocationEvent;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class CachingClaimSetAuthenticationManagerTest {
+	static final Instant NOW = Instant.parse("2019-10-01T12:00:00Z");
+
+	CountingClaimSetAuthenticationManager delegate;
+
+	MutableClock clock;
+
+	CachingClaimSetAuthenticationManager<JwtClaimSet> manager;
+
+	@Before
+	public void setUp() {
+		delegate = new CountingClaimSetAuthenticationManager();
+		clock = new MutableClock(NOW);
+		manager = new CachingClaimSetAuthenticationManager<>(delegate, Duration.ofHours(1), clock, Duration.ofSeconds(1));
+	}
+
+	@Test
+	public void sameTokenIsAuthenticatedOnlyOnce() {
+		final var first = manager.authenticate(new BearerTokenAuthenticationToken("300"));
+		final var second = manager.authenticate(new BearerTokenAuthenticationToken("300"));
+
+		assertThat(second).isSameAs(first);
+		assertThat(delegate.calls.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void entryIsEvictedWhenTokenExpires() {
+		manager.authenticate(new BearerTokenAuthenticationToken("300"));
+
+		clock.set(NOW.plusSeconds(299));
+		manager.purge();
+		assertThat(manager.size()).isEqualTo(1);
+
+		clock.set(NOW.plusSeconds(300));
+		manager.purge();
+		assertThat(manager.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void expiredEntryIsNotServedEvenBeforeWheelTick() {
+		manager = new CachingClaimSetAuthenticationManager<>(delegate, Duration.ofHours(1), clock, Duration.ofMinutes(1));
+		manager.authenticate(new BearerTokenAuthenticationToken("270"));
+
+		// wheel will expire the entry at 300s only, but lookup must not serve it after 270s
+		clock.set(NOW.plusSeconds(280));
+		manager.authenticate(new BearerTokenAuthenticationToken("270"));
+
+		assertThat(delegate.calls.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void entryLifeIsCappedByMaxTimeToLive() {
+		manager.authenticate(new BearerTokenAuthenticationToken("86400"));
+
+		clock.set(NOW.plus(Duration.ofHours(1)));
+		manager.purge();
+
+		assertThat(manager.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void invalidatedEntryIsNotServedAnymore() {
+		manager.authenticate(new BearerTokenAuthenticationToken("300"));
+		manager.invalidate(TokenHash.of("300"));
+
+		manager.authenticate(new BearerTokenAuthenticationToken("300"));
+
+		assertThat(delegate.calls.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void revokedSubjectEntriesAreEvicted() {
+		manager.authenticate(new BearerTokenAuthenticationToken("300"));
+		manager.onRevocation(RevocationEvent.ofSubject("ch4mpy"));
+
+		assertThat(manager.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void revocationReceivedWhileDelegateAuthenticatesIsNotLost() throws Exception {
+		delegate.blockFirstCall();
+		final Thread authenticating = new Thread(() -> manager.authenticate(new BearerTokenAuthenticationToken("300")));
+		authenticating.start();
+		delegate.firstCallEntered.await();
+
+		manager.onRevocation(RevocationEvent.ofSubject("ch4mpy"));
+		delegate.firstCallRelease.countDown();
+		authenticating.join();
+
+		assertThat(manager.size()).isEqualTo(0);
+		manager.authenticate(new BearerTokenAuthenticationToken("300"));
+		assertThat(delegate.calls.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void slowAuthenticationDoesNotReplaceFresherEntry() throws Exception {
+		delegate.blockFirstCall();
+		final Thread slow = new Thread(() -> manager.authenticate(new BearerTokenAuthenticationToken("86400")));
+		slow.start();
+		delegate.firstCallEntered.await();
+
+		// slow request entry (capped at NOW + 1h) is outdated before it is cached
+		clock.set(NOW.plus(Duration.ofHours(2)));
+		final var fresh = manager.authenticate(new BearerTokenAuthenticationToken("86400"));
+		delegate.firstCallRelease.countDown();
+		slow.join();
+
+		assertThat(manager.authenticate(new BearerTokenAuthenticationToken("86400"))).isSameAs(fresh);
+		assertThat(delegate.calls.get()).isEqualTo(2);
+
+		clock.set(NOW.plus(Duration.ofHours(3)).minusSeconds(1));
+		manager.purge();
+		assertThat(manager.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void nonBearerAuthenticationsAreIgnored() {
+		assertThat(manager.authenticate(new UsernamePasswordAuthenticationToken("ch4mpy", "password"))).isNull();
+	}
+
+	/**
+	 * Token value is the count of seconds before it expires
+	 */
+	private static class CountingClaimSetAuthenticationManager extends AbstractClaimSetAuthenticationManager<JwtClaimSet> {
+		final AtomicInteger calls = new AtomicInteger();
+
+		final CountDownLatch firstCallEntered = new CountDownLatch(1);
+
+		CountDownLatch firstCallRelease;
+
+		public CountingClaimSetAuthenticationManager() {
+			super(claims -> Set.of(new SimpleGrantedAuthority("USER")));
+		}
+
+		/**
+		 * First call then waits for {@code firstCallRelease} (after counting down {@code firstCallEntered})
+		 */
+		void blockFirstCall() {
+			firstCallRelease = new CountDownLatch(1);
+		}
+
+		@Override
+		protected JwtClaimSet extractClaims(BearerTokenAuthenticationToken bearer) {
+			if (calls.incrementAndGet() == 1 && firstCallRelease != null) {
+				firstCallEntered.countDown();
+				try {
+					firstCallRelease.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return JwtClaimSet.builder()
+					.subject("ch4mpy")
+					.expirationTime(NOW.plusSeconds(Long.parseLong(bearer.getToken())))
+					.build();
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.server.resource.BearerTokenAuthenticationToken;
+
+import com.c4_soft.oauth2.TokenHash;
+import com.c4_soft.oauth2.rfc7519.JwtClaimSet;
+import com.c4_soft.springaddons.security.oauth2.server.resource.MutableClock;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.AbstractClaimSetAuthenticationManager;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class PrecomputedClaimSetAuthenticationManagerTest {
+	static final Instant NOW = Instant.parse("2019-10-01T12:00:00Z");
+
+	CountingClaimSetAuthenticationManager delegate;
+
+	MutableClock clock;
+
+	PrecomputedClaimSetAuthenticationManager<JwtClaimSet> manager;
+
+	@Before
+	public void setUp() {
+		delegate = new CountingClaimSetAuthenticationManager();
+		clock = new MutableClock(NOW);
+		manager = new PrecomputedClaimSetAuthenticationManager<>(delegate, clock);
+	}
+
+	@Test
+	public void registeredTokenIsAuthenticatedOnlyOnce() {
+		final var registered = manager.register("service-token");
+
+		assertThat(manager.authenticate(new BearerTokenAuthenticationToken("service-token"))).isSameAs(registered);
+		assertThat(manager.authenticate(new BearerTokenAuthenticationToken("service-token"))).isSameAs(registered);
+		assertThat(delegate.calls.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void hashRegisteredTokenIsAuthenticatedOnFirstPresentationOnly() {
+		manager.registerHash(TokenHash.of("service-token"));
+		assertThat(delegate.calls.get()).isEqualTo(0);
+
+		final var first = manager.authenticate(new BearerTokenAuthenticationToken("service-token"));
+		final var second = manager.authenticate(new BearerTokenAuthenticationToken("service-token"));
+
+		assertThat(second).isSameAs(first);
+		assertThat(delegate.calls.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void unregisteredTokensAreForwardedToDelegate() {
+		manager.authenticate(new BearerTokenAuthenticationToken("user-token"));
+		manager.authenticate(new BearerTokenAuthenticationToken("user-token"));
+
+		assertThat(delegate.calls.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void expiredEntriesAndHashesAreDropped() {
+		manager.register("service-token");
+		clock.set(NOW.plusSeconds(3600));
+
+		manager.authenticate(new BearerTokenAuthenticationToken("service-token"));
+
+		assertThat(delegate.calls.get()).isEqualTo(2);
+		assertThat(manager.getRegisteredHashes()).isEmpty();
+	}
+
+	@Test
+	public void unregisteredHashIsNotServedAnymore() {
+		manager.register("service-token");
+		manager.unregisterHash(TokenHash.of("service-token"));
+
+		manager.authenticate(new BearerTokenAuthenticationToken("service-token"));
+
+		assertThat(delegate.calls.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void nonBearerAuthenticationsAreIgnored() {
+		assertThat(manager.authenticate(new UsernamePasswordAuthenticationToken("ch4mpy", "password"))).isNull();
+	}
+
+	private static class CountingClaimSetAuthenticationManager extends AbstractClaimSetAuthenticationManager<JwtClaimSet> {
+		final AtomicInteger calls = new AtomicInteger();
+
+		public CountingClaimSetAuthenticationManager() {
+			super(claims -> Set.of(new SimpleGrantedAuthority("SERVICE")));
+		}
+
+		@Override
+		protected JwtClaimSet extractClaims(BearerTokenAuthenticationToken bearer) {
+			calls.incrementAndGet();
+			return JwtClaimSet.builder().subject(bearer.getToken()).expirationTime(NOW.plusSeconds(3600)).build();
+		}
+	}
+}
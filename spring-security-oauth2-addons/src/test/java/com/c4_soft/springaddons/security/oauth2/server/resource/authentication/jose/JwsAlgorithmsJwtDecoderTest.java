@@ -0,0 +1,263 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication.jose;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.BearerTokenAuthenticationToken;
+
+import com.c4_soft.oauth2.rfc7519.JwtClaimSet;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.JwtClaimSetAuthenticationManager;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class JwsAlgorithmsJwtDecoderTest {
+	static KeyPair rsa;
+
+	static KeyPair ec;
+
+	static KeyPair ed25519;
+
+	static JWKSet jwkSet;
+
+	@BeforeClass
+	public static void generateKeys() throws GeneralSecurityException {
+		final KeyPairGenerator rsaGenerator = KeyPairGenerator.getInstance("RSA");
+		rsaGenerator.initialize(2048);
+		rsa = rsaGenerator.generateKeyPair();
+
+		final KeyPairGenerator ecGenerator = KeyPairGenerator.getInstance("EC");
+		ecGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+		ec = ecGenerator.generateKeyPair();
+
+		final var rsaJwk = new RSAKey.Builder((RSAPublicKey) rsa.getPublic()).keyID("rsa").keyUse(KeyUse.SIGNATURE);
+		final var ecJwk = new ECKey.Builder(Curve.P_256, (ECPublicKey) ec.getPublic()).keyID("ec");
+		try {
+			ed25519 = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+			final byte[] encoded = ed25519.getPublic().getEncoded();
+			final var edJwk = new OctetKeyPair.Builder(
+					Curve.Ed25519,
+					Base64URL.encode(Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length))).keyID("ed");
+			jwkSet = new JWKSet(List.of(rsaJwk.build(), ecJwk.build(), edJwk.build()));
+		} catch (final GeneralSecurityException e) {
+			// Ed25519 is available from Java 15 only
+			ed25519 = null;
+			jwkSet = new JWKSet(List.of(rsaJwk.build(), ecJwk.build()));
+		}
+	}
+
+	@Test
+	public void tokensSignedWithAnyDefaultAlgorithmAreDecoded() throws Exception {
+		final JwtDecoder decoder = JwsAlgorithmsJwtDecoder.withJwkSource(new ImmutableJWKSet<>(jwkSet)).build();
+
+		assertThat(decoder.decode(sign(JWSAlgorithm.RS256, "rsa", new RSASSASigner(rsa.getPrivate()))).getSubject())
+				.isEqualTo("ch4mpy");
+		assertThat(decoder.decode(sign(JWSAlgorithm.ES256, "ec", new ECDSASigner(ec.getPrivate(), Curve.P_256)))
+				.getSubject()).isEqualTo("ch4mpy");
+
+		Assume.assumeNotNull(ed25519);
+		assertThat(decoder.decode(sign(JWSAlgorithm.EdDSA, "ed", new JcaEd25519Signer(ed25519.getPrivate())))
+				.getSubject()).isEqualTo("ch4mpy");
+	}
+
+	@Test
+	public void jwtClaimSetAuthenticationManagerIsUnchanged() throws Exception {
+		final var manager = new JwtClaimSetAuthenticationManager<>(
+				JwsAlgorithmsJwtDecoder.withJwkSource(new ImmutableJWKSet<>(jwkSet)).build(),
+				JwtClaimSet::new,
+				claims -> Set.copyOf(AuthorityUtils.createAuthorityList("showcase:AUTHORIZED_PERSONNEL")));
+
+		final var authentication = manager.authenticate(
+				new BearerTokenAuthenticationToken(
+						sign(JWSAlgorithm.ES256, "ec", new ECDSASigner(ec.getPrivate(), Curve.P_256))));
+
+		assertThat(authentication.getName()).isEqualTo("ch4mpy");
+		assertThat(authentication.getAuthorities()).extracting("authority")
+				.containsExactly("showcase:AUTHORIZED_PERSONNEL");
+	}
+
+	@Test
+	public void reactiveDecoderAcceptsAndRejectsSameTokens() throws Exception {
+		final ReactiveJwtDecoder decoder =
+				JwsAlgorithmsJwtDecoder.withJwkSource(new ImmutableJWKSet<>(jwkSet)).buildReactive();
+		final String token = sign(JWSAlgorithm.ES256, "ec", new ECDSASigner(ec.getPrivate(), Curve.P_256));
+		final String wrongKid = sign(JWSAlgorithm.RS256, "ec", new RSASSASigner((RSAPrivateKey) rsa.getPrivate()));
+
+		assertThat(decoder.decode(token).block().getSubject()).isEqualTo("ch4mpy");
+		assertThatThrownBy(() -> decoder.decode(wrongKid).block()).isInstanceOf(JwtException.class);
+	}
+
+	@Test
+	public void reactiveDecoderDoesNotQueryJwkSourceOnSubscribingThread() throws Exception {
+		final ImmutableJWKSet<SecurityContext> keys = new ImmutableJWKSet<>(jwkSet);
+		final List<String> selectingThreads = new CopyOnWriteArrayList<>();
+		final JWKSource<SecurityContext> recordingSource = (selector, context) -> {
+			selectingThreads.add(Thread.currentThread().getName());
+			return keys.get(selector, context);
+		};
+		final Scheduler scheduler = Schedulers.newSingle("jwk-set");
+		try {
+			final ReactiveJwtDecoder decoder =
+					JwsAlgorithmsJwtDecoder.withJwkSource(recordingSource).scheduler(scheduler).buildReactive();
+			final String token = sign(JWSAlgorithm.ES256, "ec", new ECDSASigner(ec.getPrivate(), Curve.P_256));
+
+			assertThat(decoder.decode(token).block().getSubject()).isEqualTo("ch4mpy");
+			assertThat(selectingThreads).isNotEmpty().allMatch(name -> name.startsWith("jwk-set"));
+		} finally {
+			scheduler.dispose();
+		}
+	}
+
+	@Test
+	public void eddsaIsDroppedFromDefaultsButRequiredWhenRequestedIfJcaDoesNotSupportEd25519() {
+		assertThat(JwsAlgorithmsJwtDecoder.acceptedAlgorithms(JwsAlgorithmsJwtDecoder.DEFAULT_ALGORITHMS, true, false))
+				.containsExactlyInAnyOrder(JWSAlgorithm.RS256, JWSAlgorithm.ES256);
+		assertThat(JwsAlgorithmsJwtDecoder.acceptedAlgorithms(JwsAlgorithmsJwtDecoder.DEFAULT_ALGORITHMS, true, true))
+				.contains(JWSAlgorithm.EdDSA);
+		assertThatThrownBy(
+				() -> JwsAlgorithmsJwtDecoder.acceptedAlgorithms(Set.of(JWSAlgorithm.EdDSA), false, false))
+						.isInstanceOf(IllegalStateException.class)
+						.hasMessageContaining("Java 15");
+	}
+
+	@Test
+	public void verifierFactoryRejectsEddsaIfJcaDoesNotSupportEd25519() throws Exception {
+		final JcaJwsVerifierFactory factory = new JcaJwsVerifierFactory(false);
+		final JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.EdDSA).keyID("ed").build();
+
+		assertThat(factory.supportedJWSAlgorithms()).doesNotContain(JWSAlgorithm.EdDSA).contains(JWSAlgorithm.ES256);
+		assertThatThrownBy(() -> factory.createJWSVerifier(header, ec.getPublic())).isInstanceOf(JOSEException.class)
+				.hasMessageContaining("Java 15");
+		assertThat(Ed25519Verifier.isJcaSupported("NoSuchCurve")).isFalse();
+	}
+
+	@Test
+	public void tokenSignedWithNotAcceptedAlgorithmIsRejected() throws Exception {
+		final JwtDecoder decoder = JwsAlgorithmsJwtDecoder.withJwkSource(new ImmutableJWKSet<>(jwkSet))
+				.jwsAlgorithms(JWSAlgorithm.ES256)
+				.build();
+		final String token = sign(JWSAlgorithm.RS256, "rsa", new RSASSASigner(rsa.getPrivate()));
+
+		assertThatThrownBy(() -> decoder.decode(token)).isInstanceOf(JwtException.class);
+	}
+
+	@Test
+	public void tokenWithKeyIdOfAnotherKeyTypeIsRejected() throws Exception {
+		final JwtDecoder decoder = JwsAlgorithmsJwtDecoder.withJwkSource(new ImmutableJWKSet<>(jwkSet)).build();
+		final String token = sign(JWSAlgorithm.RS256, "ec", new RSASSASigner((RSAPrivateKey) rsa.getPrivate()));
+
+		assertThatThrownBy(() -> decoder.decode(token)).isInstanceOf(JwtException.class);
+	}
+
+	@Test
+	public void expiredTokenIsRejected() throws Exception {
+		final JwtDecoder decoder = JwsAlgorithmsJwtDecoder.withJwkSource(new ImmutableJWKSet<>(jwkSet)).build();
+		final var claims = new JWTClaimsSet.Builder().subject("ch4mpy")
+				.expirationTime(Date.from(Instant.now().minusSeconds(3600)))
+				.build();
+		final var jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.ES256).keyID("ec").build(), claims);
+		jwt.sign(new ECDSASigner(ec.getPrivate(), Curve.P_256));
+
+		assertThatThrownBy(() -> decoder.decode(jwt.serialize())).isInstanceOf(JwtException.class);
+	}
+
+	private static String sign(JWSAlgorithm alg, String kid, JWSSigner signer) throws JOSEException {
+		final var claims = new JWTClaimsSet.Builder().subject("ch4mpy")
+				.expirationTime(Date.from(Instant.now().plusSeconds(300)))
+				.build();
+		final var jwt = new SignedJWT(new JWSHeader.Builder(alg).keyID(kid).build(), claims);
+		jwt.sign(signer);
+		return jwt.serialize();
+	}
+
+	private static final class JcaEd25519Signer implements JWSSigner {
+		private final PrivateKey privateKey;
+
+		JcaEd25519Signer(PrivateKey privateKey) {
+			this.privateKey = privateKey;
+		}
+
+		@Override
+		public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+			return Set.of(JWSAlgorithm.EdDSA);
+		}
+
+		@Override
+		public JCAContext getJCAContext() {
+			return new JCAContext();
+		}
+
+		@Override
+		public Base64URL sign(JWSHeader header, byte[] signingInput) throws JOSEException {
+			try {
+				final Signature signature = Signature.getInstance("Ed25519");
+				signature.initSign(privateKey);
+				signature.update(signingInput);
+				return Base64URL.encode(signature.sign());
+			} catch (final GeneralSecurityException e) {
+				throw new JOSEException(e.getMessage(), e);
+			}
+		}
+	}
+}
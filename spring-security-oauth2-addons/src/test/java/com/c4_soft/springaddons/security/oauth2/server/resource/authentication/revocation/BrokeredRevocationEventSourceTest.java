@@ -0,0 +1,185 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.authentication.revocation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.server.resource.BearerTokenAuthenticationToken;
+
+import com.c4_soft.oauth2.TokenHash;
+import com.c4_soft.oauth2.rfc7519.JwtClaimSet;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.AbstractClaimSetAuthenticationManager;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.cache.CachingClaimSetAuthenticationManager;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.cache.PrecomputedClaimSetAuthenticationManager;
+
+/**
+ * Simulates a cluster of three resource-servers sharing an in-memory stand-in for a pub / sub broker
+ *
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class BrokeredRevocationEventSourceTest {
+	static final Instant NOW = Instant.parse("2019-10-01T12:00:00Z");
+
+	InMemoryRevocationBroker broker;
+
+	List<Node> nodes;
+
+	@Before
+	public void setUp() {
+		broker = new InMemoryRevocationBroker();
+		nodes = List.of(new Node(broker), new Node(broker), new Node(broker));
+		for (final Node node : nodes) {
+			node.authenticate("ch4mpy/1");
+			node.authenticate("ch4mpy/2");
+			node.authenticate("other/3");
+		}
+	}
+
+	@Test
+	public void jtiRevocationIsAppliedOnAllNodes() {
+		nodes.get(0).events.publish(RevocationEvent.ofJti("1"));
+
+		for (final Node node : nodes) {
+			assertThat(node.cache.size()).isEqualTo(2);
+		}
+	}
+
+	@Test
+	public void subjectRevocationEvictsAllSubjectTokensOnAllNodes() {
+		nodes.get(1).events.publish(RevocationEvent.ofSubject("ch4mpy"));
+
+		for (final Node node : nodes) {
+			assertThat(node.cache.size()).isEqualTo(1);
+			final int calls = node.delegate.calls;
+			node.cache.authenticate(new BearerTokenAuthenticationToken("other/3"));
+			assertThat(node.delegate.calls).isEqualTo(calls);
+		}
+	}
+
+	@Test
+	public void tokenHashRevocationIsAppliedOnAllNodes() {
+		nodes.get(2).events.publish(RevocationEvent.ofTokenHash(TokenHash.of("other/3")));
+
+		for (final Node node : nodes) {
+			assertThat(node.cache.size()).isEqualTo(2);
+			assertThat(node.precomputed.getRegisteredHashes()).doesNotContain(TokenHash.of("other/3"));
+		}
+	}
+
+	@Test
+	public void precomputedAuthenticationsAreUnregisteredOnRevocation() {
+		nodes.get(0).events.publish(RevocationEvent.ofSubject("ch4mpy"));
+
+		for (final Node node : nodes) {
+			assertThat(node.precomputed.getRegisteredHashes()).containsExactly(TokenHash.of("other/3"));
+		}
+	}
+
+	@Test
+	public void malformedMessagesAreIgnored() {
+		broker.send("not an event");
+		broker.send("unknown:target");
+
+		for (final Node node : nodes) {
+			assertThat(node.cache.size()).isEqualTo(3);
+		}
+	}
+
+	@Test
+	public void eventsSurviveSerialization() {
+		for (final RevocationEvent event : List.of(
+				RevocationEvent.ofTokenHash(TokenHash.of("a")),
+				RevocationEvent.ofJti("a:b"),
+				RevocationEvent.ofSubject("ch4mpy"))) {
+			assertThat(RevocationEvent.parse(event.toString())).isEqualTo(event);
+		}
+	}
+
+	/**
+	 * Stand-in for a topic: delivers each message to all subscribers, sender included
+	 */
+	static class InMemoryRevocationBroker implements RevocationBroker {
+		final List<Consumer<String>> handlers = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void send(String message) {
+			handlers.forEach(handler -> handler.accept(message));
+		}
+
+		@Override
+		public void onMessage(Consumer<String> handler) {
+			handlers.add(handler);
+		}
+	}
+
+	static class Node {
+		final RevocationEventSource events;
+
+		final CountingClaimSetAuthenticationManager delegate = new CountingClaimSetAuthenticationManager();
+
+		final CachingClaimSetAuthenticationManager<JwtClaimSet> cache =
+				new CachingClaimSetAuthenticationManager<>(delegate, Duration.ofHours(1), Clock.fixed(NOW, ZoneOffset.UTC), Duration.ofSeconds(1));
+
+		final PrecomputedClaimSetAuthenticationManager<JwtClaimSet> precomputed =
+				new PrecomputedClaimSetAuthenticationManager<>(delegate, Clock.fixed(NOW, ZoneOffset.UTC));
+
+		Node(RevocationBroker broker) {
+			events = new BrokeredRevocationEventSource(broker);
+			events.subscribe(cache);
+			events.subscribe(precomputed);
+		}
+
+		void authenticate(String token) {
+			cache.authenticate(new BearerTokenAuthenticationToken(token));
+			precomputed.register(token);
+		}
+	}
+
+	/**
+	 * Token value is {@code subject/jti}
+	 */
+	static class CountingClaimSetAuthenticationManager extends AbstractClaimSetAuthenticationManager<JwtClaimSet> {
+		int calls;
+
+		public CountingClaimSetAuthenticationManager() {
+			super(claims -> Set.of(new SimpleGrantedAuthority("USER")));
+		}
+
+		@Override
+		protected JwtClaimSet extractClaims(BearerTokenAuthenticationToken bearer) {
+			++calls;
+			final String[] subjectAndJti = bearer.getToken().split("/");
+			return JwtClaimSet.builder()
+					.subject(subjectAndJti[0])
+					.jwtId(subjectAndJti[1])
+					.expirationTime(NOW.plusSeconds(3600))
+					.build();
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import javax.servlet.Filter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.security.web.authentication.logout.LogoutFilter;
+import org.springframework.security.web.csrf.CsrfFilter;
+import org.springframework.security.web.savedrequest.RequestCacheAwareFilter;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class BearerOnlyConfigurerTest {
+	AnnotationConfigWebApplicationContext context;
+
+	FilterChainProxy springSecurityFilterChain;
+
+	@Before
+	public void setUp() {
+		context = new AnnotationConfigWebApplicationContext();
+		context.setServletContext(new MockServletContext());
+		context.register(BearerOnlySecurityConfig.class);
+		context.refresh();
+		springSecurityFilterChain = context.getBean("springSecurityFilterChain", FilterChainProxy.class);
+	}
+
+	@After
+	public void tearDown() {
+		context.close();
+	}
+
+	@Test
+	public void csrfLogoutAndRequestCacheFiltersAreRemoved() {
+		final List<Filter> filters = springSecurityFilterChain.getFilters("/");
+
+		assertThat(filters).noneMatch(CsrfFilter.class::isInstance);
+		assertThat(filters).noneMatch(LogoutFilter.class::isInstance);
+		assertThat(filters).noneMatch(RequestCacheAwareFilter.class::isInstance);
+	}
+
+	@Test
+	public void authenticatedPostNeitherRequiresCsrfTokenNorCreatesSession() throws Exception {
+		final var request = new MockHttpServletRequest("POST", "/greeting");
+		request.addHeader(HttpHeaders.AUTHORIZATION, basic("user", "password"));
+		final var response = new MockHttpServletResponse();
+		final var chain = new MockFilterChain();
+
+		springSecurityFilterChain.doFilter(request, response, chain);
+
+		assertThat(chain.getRequest()).isNotNull();
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(request.getSession(false)).isNull();
+		assertThat(response.getCookies()).isEmpty();
+	}
+
+	@Test
+	public void unauthorizedRequestIsNotSavedInSession() throws Exception {
+		final var request = new MockHttpServletRequest("GET", "/greeting");
+		final var response = new MockHttpServletResponse();
+		final var chain = new MockFilterChain();
+
+		springSecurityFilterChain.doFilter(request, response, chain);
+
+		assertThat(chain.getRequest()).isNull();
+		assertThat(response.getStatus()).isEqualTo(401);
+		assertThat(request.getSession(false)).isNull();
+	}
+
+	private static String basic(String username, String password) {
+		return "Basic " + Base64.getEncoder()
+				.encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Configuration
+	@EnableWebSecurity
+	static class BearerOnlySecurityConfig extends WebSecurityConfigurerAdapter {
+
+		@Override
+		protected void configure(AuthenticationManagerBuilder auth) throws Exception {
+			auth.inMemoryAuthentication().withUser("user").password("{noop}password").authorities("USER");
+		}
+
+		@Override
+		protected void configure(HttpSecurity http) throws Exception {
+			http.apply(new BearerOnlyConfigurer<>());
+			http.httpBasic();
+			http.authorizeRequests().anyRequest().authenticated();
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.json;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.c4_soft.oauth2.ClaimSet;
+import com.c4_soft.oauth2.ModifiableClaimSet;
+import com.c4_soft.oauth2.rfc7519.JwtClaimSet;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class ClaimSetSerializerTest {
+	static final String PAYLOAD = "{\"sub\" : \"ch4mpy\",  \"exp\":1575194400, \"authorities\":[\"ROLE_USER\"]}";
+
+	final ObjectMapper mapper = new ObjectMapper().registerModule(new ClaimSetModule("authorities"));
+
+	@Test
+	public void claimsAreWrittenAsInTokens() throws Exception {
+		final var claims = new JwtClaimSet(Map.of(
+				"sub", "ch4mpy",
+				"iss", new URL("https://localhost:9443/"),
+				"exp", Instant.ofEpochSecond(1575194400L),
+				"active", true,
+				"authorities", List.of("ROLE_USER", "AUTHORIZED_PERSONNEL"),
+				"address", Map.of("country", "FR", "zip", 75000)));
+
+		final String expected = "{\"sub\":\"ch4mpy\",\"iss\":\"https://localhost:9443/\",\"exp\":1575194400,"
+				+ "\"active\":true,\"authorities\":[\"ROLE_USER\",\"AUTHORIZED_PERSONNEL\"],"
+				+ "\"address\":{\"country\":\"FR\",\"zip\":75000}}";
+		assertThat(mapper.readTree(mapper.writerFor(ClaimSet.class).writeValueAsBytes(claims)))
+				.isEqualTo(mapper.readTree(expected));
+		assertThat(mapper.readTree(mapper.writeValueAsString(claims))).isEqualTo(mapper.readTree(expected));
+	}
+
+	@Test
+	public void modifiableClaimSetIsSerializedToo() throws Exception {
+		final ClaimSet claims = new ModifiableClaimSet().claim("custom", "value").claim("iat", 1575194400L);
+
+		assertThat(mapper.readTree(mapper.writerFor(ClaimSet.class).writeValueAsString(claims)))
+				.isEqualTo(mapper.readTree("{\"custom\":\"value\",\"iat\":1575194400}"));
+	}
+
+	@Test
+	public void retainedPayloadIsWrittenVerbatim() throws Exception {
+		final var claims = new JwtClaimSet(
+				Map.of("sub", "ch4mpy", "exp", Instant.ofEpochSecond(1575194400L)),
+				PAYLOAD.getBytes(StandardCharsets.UTF_8));
+
+		assertThat(new String(mapper.writerFor(ClaimSet.class).writeValueAsBytes(claims), StandardCharsets.UTF_8))
+				.isEqualTo(PAYLOAD);
+		assertThat(mapper.writeValueAsString(Map.of("claims", claims))).isEqualTo("{\"claims\":" + PAYLOAD + "}");
+		assertThat(new String(mapper.writeValueAsBytes(List.of(claims, claims)), StandardCharsets.UTF_8))
+				.isEqualTo("[" + PAYLOAD + "," + PAYLOAD + "]");
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.junit.Test;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class LatencyHistogramsEndpointTest {
+	RouteLatencyRecorders recorders = new RouteLatencyRecorders("jpa", "/greeting", "/claims");
+
+	LatencyHistogramsEndpoint endpoint = new LatencyHistogramsEndpoint(recorders);
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void latenciesAreReportedByRouteAndAuthenticationType() throws Exception {
+		for (int i = 1; i <= 100; ++i) {
+			recorders.record(0, AuthenticationType.JWT, TimeUnit.MILLISECONDS.toNanos(i));
+		}
+		recorders.record(0, AuthenticationType.NONE, TimeUnit.MILLISECONDS.toNanos(1));
+		recorders.record(1, AuthenticationType.OPAQUE, TimeUnit.MILLISECONDS.toNanos(1));
+
+		final Map<String, Object> latencies = endpoint.latencies();
+
+		assertThat(latencies).containsEntry("authorities", "jpa").containsEntry("unit", "us");
+		final var routes = (Map<String, Map<String, Map<String, Object>>>) latencies.get("routes");
+		assertThat(routes).containsOnlyKeys("/greeting", "/claims");
+		assertThat(routes.get("/greeting")).containsOnlyKeys("jwt", "none");
+		assertThat(routes.get("/claims")).containsOnlyKeys("opaque");
+
+		final Map<String, Object> jwt = routes.get("/greeting").get("jwt");
+		assertThat(jwt).containsEntry("count", 100L);
+		assertThat((Long) jwt.get("p50")).isBetween(49_500L, 50_500L);
+		assertThat((Long) jwt.get("p99")).isBetween(98_500L, 99_500L);
+		assertThat((Long) jwt.get("start")).isLessThanOrEqualTo((Long) jwt.get("end"));
+
+		final Histogram decoded = Histogram.decodeFromCompressedByteBuffer(
+				ByteBuffer.wrap(Base64.getDecoder().decode((String) jwt.get("histogram"))),
+				0);
+		assertThat(decoded.getTotalCount()).isEqualTo(100);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void eachReadStartsANewInterval() {
+		recorders.record(0, AuthenticationType.JWT, TimeUnit.MILLISECONDS.toNanos(1));
+		endpoint.latencies();
+
+		final var routes = (Map<String, Map<String, Map<String, Object>>>) endpoint.latencies().get("routes");
+
+		assertThat(routes.get("/greeting").get("jwt")).containsEntry("count", 0L).containsEntry("mean", 0L);
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.springframework.http.server.PathContainer;
+
+import com.c4_soft.springaddons.security.oauth2.server.resource.metrics.RouteLatencyRecorders.IntervalHistogram;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class RouteLatencyRecordersTest {
+	RouteLatencyRecorders recorders = new RouteLatencyRecorders("embedded", "/greeting", "/restricted/**");
+
+	@Test
+	public void firstMatchingRouteIsSelectedAndUnmatchedPathsAreOther() {
+		assertThat(recorders.route(PathContainer.parsePath("/greeting"))).isEqualTo(0);
+		assertThat(recorders.route(PathContainer.parsePath("/restricted"))).isEqualTo(1);
+		assertThat(recorders.route(PathContainer.parsePath("/restricted/greeting"))).isEqualTo(1);
+		assertThat(recorders.route(PathContainer.parsePath("/greeting/other"))).isEqualTo(2);
+	}
+
+	@Test
+	public void authenticationTypeIsToldFromAuthorizationHeader() {
+		assertThat(AuthenticationType.of(null)).isEqualTo(AuthenticationType.NONE);
+		assertThat(AuthenticationType.of("")).isEqualTo(AuthenticationType.NONE);
+		assertThat(AuthenticationType.of("Bearer aaa.bbb.ccc")).isEqualTo(AuthenticationType.JWT);
+		assertThat(AuthenticationType.of("bearer aaa.bbb.ccc")).isEqualTo(AuthenticationType.JWT);
+		assertThat(AuthenticationType.of("Bearer 2b1c6f0e-8b5d")).isEqualTo(AuthenticationType.OPAQUE);
+		assertThat(AuthenticationType.of("Bearer a.b.c.d.e")).isEqualTo(AuthenticationType.OPAQUE);
+		assertThat(AuthenticationType.of("Basic YWN0dWF0b3I6c2VjcmV0")).isEqualTo(AuthenticationType.BASIC);
+		assertThat(AuthenticationType.of("Digest username=x")).isEqualTo(AuthenticationType.OTHER);
+	}
+
+	@Test
+	public void intervalHistogramsHoldLatenciesRecordedSincePreviousCall() {
+		recorders.record(0, AuthenticationType.JWT, TimeUnit.MILLISECONDS.toNanos(2));
+		recorders.record(0, AuthenticationType.JWT, TimeUnit.MILLISECONDS.toNanos(4));
+		recorders.record(2, AuthenticationType.NONE, TimeUnit.MILLISECONDS.toNanos(1));
+
+		final var first = recorders.intervalHistograms();
+
+		assertThat(first).extracting(IntervalHistogram::getRoute).containsExactly("/greeting", "other");
+		assertThat(first).extracting(IntervalHistogram::getAuthenticationType)
+				.containsExactly(AuthenticationType.JWT, AuthenticationType.NONE);
+		assertThat(first.get(0).getLatencies().getTotalCount()).isEqualTo(2);
+		assertThat(first.get(0).getLatencies().getMaxValue()).isBetween(3960L, 4040L);
+
+		recorders.record(0, AuthenticationType.JWT, TimeUnit.MILLISECONDS.toNanos(1));
+		final var second = recorders.intervalHistograms();
+
+		assertThat(second).hasSize(2);
+		assertThat(second.get(0).getLatencies().getTotalCount()).isEqualTo(1);
+		assertThat(second.get(1).getLatencies().getTotalCount()).isZero();
+	}
+
+	@Test
+	public void outOfRangeLatenciesAreClamped() {
+		recorders.record(1, AuthenticationType.OPAQUE, -1);
+		recorders.record(1, AuthenticationType.OPAQUE, TimeUnit.HOURS.toNanos(1));
+
+		final var latencies = recorders.intervalHistograms().get(0).getLatencies();
+
+		assertThat(latencies.getTotalCount()).isEqualTo(2);
+		assertThat(latencies.getMinValue()).isZero();
+		assertThat(latencies.highestEquivalentValue(latencies.getMaxValue()))
+				.isGreaterThanOrEqualTo(TimeUnit.MINUTES.toMicros(1));
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.c4_soft.oauth2.rfc7519.JwtClaimSet;
+import com.c4_soft.oauth2.rfc7662.IntrospectionClaimSet;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class ClaimSetRateLimiterTest {
+	TokenBucketRateLimiter defaultLimiter = new TokenBucketRateLimiter("default", 1, Duration.ofDays(1));
+
+	TokenBucketRateLimiter adminLimiter = new TokenBucketRateLimiter("admin", 2, Duration.ofDays(1));
+
+	TokenBucketRateLimiter readLimiter = new TokenBucketRateLimiter("read", 3, Duration.ofDays(1));
+
+	ClaimSetRateLimiter rateLimiter = new ClaimSetRateLimiter(
+			ClaimSetRateLimiter::clientId,
+			defaultLimiter,
+			scopeLimiters(adminLimiter, readLimiter));
+
+	@Test
+	public void clientIdIsTakenFromIntrospectionOrAuthorizedPartyOrClientIdClaimAndFallsBackToSubject() {
+		assertThat(ClaimSetRateLimiter.clientId(new IntrospectionClaimSet(Map.of("client_id", "a", "sub", "s"))))
+				.isEqualTo("a");
+		assertThat(ClaimSetRateLimiter.clientId(new JwtClaimSet(Map.of("azp", "b", "client_id", "c", "sub", "s"))))
+				.isEqualTo("b");
+		assertThat(ClaimSetRateLimiter.clientId(new JwtClaimSet(Map.of("client_id", "c", "sub", "s"))))
+				.isEqualTo("c");
+		assertThat(ClaimSetRateLimiter.clientId(new JwtClaimSet(Map.of("sub", "s")))).isEqualTo("s");
+		assertThat(ClaimSetRateLimiter.subject(new JwtClaimSet(Map.of("azp", "b", "sub", "s")))).isEqualTo("s");
+	}
+
+	@Test
+	public void firstConfiguredScopeGrantedToTokenSelectsLimiter() {
+		assertThat(rateLimiter.limiter(new JwtClaimSet(Map.of("scope", "read admin")))).isSameAs(adminLimiter);
+		assertThat(rateLimiter.limiter(new JwtClaimSet(Map.of("scope", List.of("read", "admin")))))
+				.isSameAs(adminLimiter);
+		assertThat(rateLimiter.limiter(new JwtClaimSet(Map.of("scope", "openid read")))).isSameAs(readLimiter);
+		assertThat(rateLimiter.limiter(new JwtClaimSet(Map.of("scope", "reader administrator"))))
+				.isSameAs(defaultLimiter);
+		assertThat(rateLimiter.limiter(new JwtClaimSet(Map.of("sub", "s")))).isSameAs(defaultLimiter);
+	}
+
+	@Test
+	public void emptyScopesAreRejected() {
+		for (final String scope : List.of("", " ")) {
+			assertThatThrownBy(
+					() -> new ClaimSetRateLimiter(ClaimSetRateLimiter::clientId, defaultLimiter, Map.of(scope, readLimiter)))
+							.isInstanceOf(IllegalArgumentException.class);
+		}
+	}
+
+	@Test
+	public void eachKeyIsLimitedByItsOwnBucket() {
+		final var first = new JwtClaimSet(Map.of("azp", "first", "scope", "read"));
+		final var second = new JwtClaimSet(Map.of("azp", "second", "scope", "read"));
+
+		for (int i = 0; i < 3; ++i) {
+			assertThat(rateLimiter.tryAcquire(first)).isZero();
+		}
+		assertThat(rateLimiter.tryAcquire(first)).isPositive();
+		assertThat(rateLimiter.tryAcquire(second)).isZero();
+		assertThat(readLimiter.getTrackedKeys()).isEqualTo(2);
+	}
+
+	@Test
+	public void claimSetsWithoutKeyAreNotLimited() {
+		final var limiter = new ClaimSetRateLimiter(ClaimSetRateLimiter::subject, defaultLimiter);
+		final var anonymous = new JwtClaimSet(Map.of("scope", "read"));
+
+		for (int i = 0; i < 3; ++i) {
+			assertThat(limiter.tryAcquire(anonymous)).isZero();
+		}
+		assertThat(defaultLimiter.getTrackedKeys()).isZero();
+	}
+
+	@Test
+	public void endpointReportsEachLimiterBuckets() {
+		rateLimiter.tryAcquire(new JwtClaimSet(Map.of("sub", "ch4mpy")));
+		rateLimiter.tryAcquire(new JwtClaimSet(Map.of("sub", "ch4mpy")));
+
+		final Map<String, Object> report = new RateLimitsEndpoint(rateLimiter).rateLimits();
+
+		assertThat(report).containsOnlyKeys("default", "admin", "read");
+		assertThat(report.get("default"))
+				.isEqualTo(Map.of("capacity", 1L, "refillPeriod", "PT24H", "trackedKeys", 1));
+	}
+
+	@Test
+	public void metricsAreTaggedByLimiterScopeAndResult() {
+		final var registry = new SimpleMeterRegistry();
+		new RateLimitMetrics(rateLimiter).bindTo(registry);
+
+		rateLimiter.tryAcquire(new JwtClaimSet(Map.of("sub", "ch4mpy")));
+		rateLimiter.tryAcquire(new JwtClaimSet(Map.of("sub", "ch4mpy")));
+		rateLimiter.tryAcquire(new JwtClaimSet(Map.of("sub", "ch4mpy", "scope", "read")));
+
+		assertThat(
+				registry.get("ratelimit.requests")
+						.tags("limiter", "default", "scope", RateLimitMetrics.DEFAULT_SCOPE, "result", "allowed")
+						.functionCounter()
+						.count()).isEqualTo(1.);
+		assertThat(
+				registry.get("ratelimit.requests")
+						.tags("limiter", "default", "scope", RateLimitMetrics.DEFAULT_SCOPE, "result", "rejected")
+						.functionCounter()
+						.count()).isEqualTo(1.);
+		assertThat(
+				registry.get("ratelimit.requests")
+						.tags("limiter", "read", "scope", "read", "result", "allowed")
+						.functionCounter()
+						.count()).isEqualTo(1.);
+		assertThat(registry.get("ratelimit.keys").tags("scope", "admin").gauge().value()).isZero();
+		assertThat(registry.get("ratelimit.evictions").functionCounters()).hasSize(3);
+	}
+
+	private static Map<String, TokenBucketRateLimiter> scopeLimiters(
+			TokenBucketRateLimiter admin,
+			TokenBucketRateLimiter read) {
+		final Map<String, TokenBucketRateLimiter> limiters = new LinkedHashMap<>();
+		limiters.put("admin", admin);
+		limiters.put("read", read);
+		return limiters;
+	}
+}
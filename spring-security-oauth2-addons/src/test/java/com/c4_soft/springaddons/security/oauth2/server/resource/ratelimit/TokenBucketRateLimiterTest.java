@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.c4_soft.springaddons.security.oauth2.server.resource.MutableClock;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class TokenBucketRateLimiterTest {
+	private static final Instant NOW = Instant.parse("2019-12-01T10:00:00Z");
+
+	MutableClock clock;
+
+	TokenBucketRateLimiter limiter;
+
+	@Before
+	public void setUp() {
+		clock = new MutableClock(NOW);
+		limiter = new TokenBucketRateLimiter("test", 10, Duration.ofSeconds(1), Duration.ofSeconds(5), 4, clock);
+	}
+
+	@Test
+	public void burstIsCapacityAndTokensAreRefilledOverPeriod() {
+		for (int i = 0; i < 10; ++i) {
+			assertThat(limiter.tryAcquire("ch4mpy")).isZero();
+		}
+		assertThat(limiter.tryAcquire("ch4mpy")).isEqualTo(100);
+		assertThat(limiter.tryAcquire("other")).isZero();
+
+		clock.set(NOW.plusMillis(99));
+		assertThat(limiter.tryAcquire("ch4mpy")).isEqualTo(1);
+
+		clock.set(NOW.plusMillis(100));
+		assertThat(limiter.tryAcquire("ch4mpy")).isZero();
+		assertThat(limiter.tryAcquire("ch4mpy")).isEqualTo(100);
+
+		clock.set(NOW.plusSeconds(10));
+		for (int i = 0; i < 10; ++i) {
+			assertThat(limiter.tryAcquire("ch4mpy")).isZero();
+		}
+		assertThat(limiter.tryAcquire("ch4mpy")).isPositive();
+
+		assertThat(limiter.getGranted()).isEqualTo(22);
+		assertThat(limiter.getRejected()).isEqualTo(4);
+	}
+
+	@Test
+	public void bucketsFullForIdleTimeoutAreEvicted() {
+		limiter.tryAcquire("idle");
+		clock.set(NOW.plusSeconds(3));
+		limiter.tryAcquire("active");
+		assertThat(limiter.getTrackedKeys()).isEqualTo(2);
+
+		// "idle" full since NOW + 100ms
+		clock.set(NOW.plusSeconds(5).plusMillis(99));
+		limiter.evictIdle();
+		assertThat(limiter.getTrackedKeys()).isEqualTo(2);
+
+		clock.set(NOW.plusSeconds(5).plusMillis(100));
+		limiter.evictIdle();
+		assertThat(limiter.getTrackedKeys()).isEqualTo(1);
+		assertThat(limiter.getEvicted()).isEqualTo(1);
+
+		// shards are swept by requests too
+		clock.set(NOW.plusSeconds(60));
+		for (int i = 0; i < 100; ++i) {
+			limiter.tryAcquire("key-" + i);
+		}
+		assertThat(limiter.getEvicted()).isEqualTo(2);
+		assertThat(limiter.getTrackedKeys()).isEqualTo(100);
+
+		// an evicted key starts with a full bucket
+		for (int i = 0; i < 10; ++i) {
+			assertThat(limiter.tryAcquire("idle")).isZero();
+		}
+	}
+
+	@Test
+	public void concurrentRequestsNeverExceedCapacity() throws Exception {
+		final var bigBurst = new TokenBucketRateLimiter("test", 1000, Duration.ofDays(1), Duration.ofDays(1), 4, clock);
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final List<Callable<Integer>> tasks = new ArrayList<>();
+			for (int t = 0; t < 8; ++t) {
+				tasks.add(() -> {
+					int granted = 0;
+					for (int i = 0; i < 500; ++i) {
+						if (bigBurst.tryAcquire("shared") == 0) {
+							++granted;
+						}
+					}
+					return granted;
+				});
+			}
+			int granted = 0;
+			for (final Future<Integer> result : executor.invokeAll(tasks)) {
+				granted += result.get();
+			}
+			assertThat(granted).isEqualTo(1000);
+			assertThat(bigBurst.getGranted()).isEqualTo(1000);
+			assertThat(bigBurst.getRejected()).isEqualTo(3000);
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.server.resource.BearerTokenError;
+import org.springframework.security.oauth2.server.resource.BearerTokenErrorCodes;
+
+import com.c4_soft.oauth2.rfc6749.AuthenticationError;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class AuthenticationErrorHandlerTest {
+	static final OAuth2AuthenticationException INVALID_TOKEN = new OAuth2AuthenticationException(
+			new BearerTokenError(
+					BearerTokenErrorCodes.INVALID_TOKEN,
+					HttpStatus.UNAUTHORIZED,
+					"Invalid signature",
+					null));
+
+	final AuthenticationErrorResponses responses = new AuthenticationErrorResponses("showcase");
+
+	@Test
+	public void eachAuthenticationErrorIsEncodedOnce() throws Exception {
+		for (final AuthenticationError error : AuthenticationError.values()) {
+			final var response = responses.get(error);
+
+			assertThat(response).isSameAs(responses.get(error.value));
+			assertThat(new ObjectMapper().readTree(response.getBody()).get("error").asText()).isEqualTo(error.value);
+			assertThat(response.getWwwAuthenticate())
+					.startsWith("Bearer realm=\"showcase\", error=\"" + error.value + "\"");
+		}
+		assertThat(responses.get(AuthenticationError.INVALID_CLIENT).getStatus()).isEqualTo(HttpStatus.UNAUTHORIZED);
+		assertThat(responses.get(AuthenticationError.INVALID_REQUEST).getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThat(responses.get("unknown_error")).isSameAs(responses.unauthenticated());
+	}
+
+	@Test
+	public void invalidTokenIsRenderedWithoutExceptionMessage() throws Exception {
+		final var response = new MockHttpServletResponse();
+
+		new AuthenticationErrorHandler(responses).commence(new MockHttpServletRequest(), response, INVALID_TOKEN);
+
+		assertThat(response.getStatus()).isEqualTo(401);
+		assertThat(response.getHeader("WWW-Authenticate")).isEqualTo(
+				"Bearer realm=\"showcase\", error=\"invalid_token\", "
+						+ "error_description=\"The access token is malformed, expired, revoked or invalid for other "
+						+ "reasons\", "
+						+ "error_uri=\"https://tools.ietf.org/html/rfc6750#section-3.1\"");
+		assertThat(response.getContentType()).isEqualTo("application/json");
+		assertThat(response.getContentAsByteArray())
+				.isEqualTo(responses.get(BearerTokenErrorCodes.INVALID_TOKEN).getBody());
+		assertThat(response.getContentAsString()).doesNotContain("signature");
+	}
+
+	@Test
+	public void missingCredentialsAreChallengedWithoutBody() throws Exception {
+		final var response = new MockHttpServletResponse();
+
+		new AuthenticationErrorHandler().commence(
+				new MockHttpServletRequest(),
+				response,
+				new InsufficientAuthenticationException("Full authentication is required"));
+
+		assertThat(response.getStatus()).isEqualTo(401);
+		assertThat(response.getHeader("WWW-Authenticate")).isEqualTo("Bearer");
+		assertThat(response.getContentLength()).isZero();
+	}
+
+	@Test
+	public void accessDeniedIsInsufficientScope() throws Exception {
+		final var response = new MockHttpServletResponse();
+
+		new AuthenticationErrorHandler(responses)
+				.handle(new MockHttpServletRequest(), response, new AccessDeniedException("denied"));
+
+		assertThat(response.getStatus()).isEqualTo(403);
+		assertThat(response.getHeader("WWW-Authenticate")).contains("error=\"insufficient_scope\"");
+		assertThat(response.getContentAsString()).contains("\"error\":\"insufficient_scope\"");
+	}
+
+	@Test
+	public void exchangeResponsesArePreEncodedToo() {
+		final var handler = new ServerAuthenticationErrorHandler(responses);
+		final var rejected = MockServerWebExchange.from(MockServerHttpRequest.get("/greeting"));
+		final var denied = MockServerWebExchange.from(MockServerHttpRequest.get("/restricted"));
+
+		handler.commence(rejected, INVALID_TOKEN).block();
+		handler.handle(denied, new AccessDeniedException("denied")).block();
+
+		assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+		assertThat(rejected.getResponse().getHeaders().getFirst("WWW-Authenticate"))
+				.isEqualTo(responses.get(BearerTokenErrorCodes.INVALID_TOKEN).getWwwAuthenticate());
+		assertThat(rejected.getResponse().getBodyAsString().block()).contains("\"error\":\"invalid_token\"");
+		assertThat(denied.getResponse().getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+		assertThat(denied.getResponse().getBodyAsString().block()).contains("\"error\":\"insufficient_scope\"");
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+
+import org.junit.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import com.c4_soft.springaddons.security.oauth2.server.resource.metrics.AuthenticationType;
+import com.c4_soft.springaddons.security.oauth2.server.resource.metrics.RouteLatencyRecorders;
+import com.c4_soft.springaddons.security.oauth2.server.resource.metrics.RouteLatencyRecorders.IntervalHistogram;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class LatencyRecordingFilterTest {
+	RouteLatencyRecorders recorders = new RouteLatencyRecorders("embedded", "/greeting", "/restricted/**");
+
+	@Test
+	public void servletRequestIsRecordedUnderRouteWithinApplicationAndAuthenticationType() throws Exception {
+		final var request = new MockHttpServletRequest("GET", "/api/restricted/greeting");
+		request.setContextPath("/api");
+		request.addHeader("Authorization", "Bearer aaa.bbb.ccc");
+
+		new LatencyRecordingFilter(recorders).doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+		assertThat(recorders.intervalHistograms()).hasSize(1).first().satisfies(histogram -> {
+			assertThat(histogram.getRoute()).isEqualTo("/restricted/**");
+			assertThat(histogram.getAuthenticationType()).isEqualTo(AuthenticationType.JWT);
+			assertThat(histogram.getLatencies().getTotalCount()).isEqualTo(1);
+		});
+	}
+
+	@Test
+	public void servletRequestIsRecordedWhenChainFails() {
+		final var request = new MockHttpServletRequest("GET", "/greeting");
+
+		assertThatThrownBy(
+				() -> new LatencyRecordingFilter(recorders).doFilter(
+						request,
+						new MockHttpServletResponse(),
+						(req, resp) -> {
+							throw new ServletException("boom");
+						})).isInstanceOf(ServletException.class);
+
+		assertThat(recorders.intervalHistograms()).extracting(IntervalHistogram::getAuthenticationType)
+				.containsExactly(AuthenticationType.NONE);
+	}
+
+	@Test
+	public void asyncServletRequestIsRecordedOnceAsyncContextCompletes() throws Exception {
+		final var request = new MockHttpServletRequest("GET", "/greeting");
+		request.setAsyncSupported(true);
+
+		new LatencyRecordingFilter(recorders)
+				.doFilter(request, new MockHttpServletResponse(), (req, resp) -> req.startAsync());
+
+		assertThat(recorders.intervalHistograms()).isEmpty();
+
+		request.getAsyncContext().complete();
+
+		assertThat(recorders.intervalHistograms()).hasSize(1).first().satisfies(histogram -> {
+			assertThat(histogram.getRoute()).isEqualTo("/greeting");
+			assertThat(histogram.getLatencies().getTotalCount()).isEqualTo(1);
+		});
+	}
+
+	@Test
+	public void exchangeIsRecordedOnceChainTerminates() throws IOException {
+		final var exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/greeting").header("Authorization", "Bearer opaque-token"));
+		final Mono<Void> filtered = new LatencyRecordingWebFilter(recorders).filter(exchange, ex -> Mono.empty());
+
+		assertThat(recorders.intervalHistograms()).isEmpty();
+
+		filtered.block();
+
+		assertThat(recorders.intervalHistograms()).hasSize(1).first().satisfies(histogram -> {
+			assertThat(histogram.getRoute()).isEqualTo("/greeting");
+			assertThat(histogram.getAuthenticationType()).isEqualTo(AuthenticationType.OPAQUE);
+			assertThat(histogram.getLatencies().getTotalCount()).isEqualTo(1);
+		});
+	}
+
+	@Test
+	public void exchangeIsRecordedWhenChainFails() {
+		final var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/unknown"));
+
+		assertThatThrownBy(
+				() -> new LatencyRecordingWebFilter(recorders)
+						.filter(exchange, ex -> Mono.error(new IllegalStateException("boom")))
+						.block()).isInstanceOf(IllegalStateException.class);
+
+		assertThat(recorders.intervalHistograms()).extracting(IntervalHistogram::getRoute)
+				.containsExactly(RouteLatencyRecorders.OTHER_ROUTE);
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class PathPatternRequestMatcherTest {
+
+	@Test
+	public void matchesPathWithinApplication() {
+		final var matcher = new PathPatternRequestMatcher("/actuator/**");
+
+		assertThat(matcher.matches(request("GET", "", "/actuator"))).isTrue();
+		assertThat(matcher.matches(request("GET", "", "/actuator/health"))).isTrue();
+		assertThat(matcher.matches(request("POST", "/app", "/app/actuator/loggers/root"))).isTrue();
+		assertThat(matcher.matches(request("GET", "", "/actuators"))).isFalse();
+		assertThat(matcher.matches(request("GET", "/app", "/actuator/health"))).isFalse();
+	}
+
+	@Test
+	public void matchesUriVariablesAndTrailingSlash() {
+		final var matcher = new PathPatternRequestMatcher("/users/{id}");
+
+		assertThat(matcher.matches(request("GET", "", "/users/42"))).isTrue();
+		assertThat(matcher.matches(request("GET", "", "/users/42/"))).isTrue();
+		assertThat(matcher.matches(request("GET", "", "/users/42/roles"))).isFalse();
+	}
+
+	@Test
+	public void methodIsCheckedWhenProvided() {
+		final var matcher = new PathPatternRequestMatcher(HttpMethod.POST, "/greeting");
+
+		assertThat(matcher.matches(request("POST", "", "/greeting"))).isTrue();
+		assertThat(matcher.matches(request("GET", "", "/greeting"))).isFalse();
+	}
+
+	@Test
+	public void anyOfMatchesAnyPattern() {
+		final RequestMatcher matcher = PathPatternRequestMatcher.anyOf("/actuator/**", "/restricted/*");
+
+		assertThat(matcher.matches(request("GET", "", "/actuator/info"))).isTrue();
+		assertThat(matcher.matches(request("GET", "", "/restricted/greeting"))).isTrue();
+		assertThat(matcher.matches(request("GET", "", "/greeting"))).isFalse();
+	}
+
+	private static MockHttpServletRequest request(String method, String contextPath, String uri) {
+		final var request = new MockHttpServletRequest(method, uri);
+		request.setContextPath(contextPath);
+		return request;
+	}
+}
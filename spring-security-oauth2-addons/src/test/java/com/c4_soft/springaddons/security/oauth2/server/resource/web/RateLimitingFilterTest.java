@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019 Jérôme Wacongne
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.c4_soft.springaddons.security.oauth2.server.resource.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import com.c4_soft.oauth2.rfc7519.JwtClaimSet;
+import com.c4_soft.springaddons.security.oauth2.server.resource.authentication.OAuth2ClaimSetAuthentication;
+import com.c4_soft.springaddons.security.oauth2.server.resource.ratelimit.ClaimSetRateLimiter;
+import com.c4_soft.springaddons.security.oauth2.server.resource.ratelimit.TokenBucketRateLimiter;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Jérôme Wacongne &lt;ch4mp#64;c4-soft.com&gt;
+ *
+ */
+public class RateLimitingFilterTest {
+	ClaimSetRateLimiter rateLimiter = new ClaimSetRateLimiter(
+			ClaimSetRateLimiter::subject,
+			new TokenBucketRateLimiter("default", 1, Duration.ofSeconds(90)));
+
+	Authentication authentication = new OAuth2ClaimSetAuthentication<>(
+			new JwtClaimSet(Map.of("sub", "ch4mpy")),
+			Collections.emptySet());
+
+	@After
+	public void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	public void servletRequestIsRejectedOnceOutOfTokens() throws Exception {
+		SecurityContextHolder.getContext().setAuthentication(authentication);
+		final var filter = new RateLimitingFilter(rateLimiter);
+
+		final var grantedChain = new MockFilterChain();
+		filter.doFilter(new MockHttpServletRequest("GET", "/greeting"), new MockHttpServletResponse(), grantedChain);
+		assertThat(grantedChain.getRequest()).isNotNull();
+
+		final var rejectedChain = new MockFilterChain();
+		final var response = new MockHttpServletResponse();
+		filter.doFilter(new MockHttpServletRequest("GET", "/greeting"), response, rejectedChain);
+		assertThat(rejectedChain.getRequest()).isNull();
+		assertThat(response.getStatus()).isEqualTo(429);
+		assertThat(response.getHeader("Retry-After")).isEqualTo("90");
+	}
+
+	@Test
+	public void servletRequestWithoutClaimSetIsNotLimited() throws Exception {
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("ch4mpy", "secret"));
+		final var filter = new RateLimitingFilter(rateLimiter);
+
+		for (int i = 0; i < 3; ++i) {
+			final var chain = new MockFilterChain();
+			filter.doFilter(new MockHttpServletRequest("GET", "/greeting"), new MockHttpServletResponse(), chain);
+			assertThat(chain.getRequest()).isNotNull();
+		}
+	}
+
+	@Test
+	public void exchangeIsRejectedOnceOutOfTokens() {
+		final var filter = new RateLimitingWebFilter(rateLimiter);
+
+		final var granted = MockServerWebExchange.from(MockServerHttpRequest.get("/greeting"));
+		filter.filter(granted, ex -> {
+			ex.getResponse().setStatusCode(HttpStatus.OK);
+			return Mono.empty();
+		}).subscriberContext(ReactiveSecurityContextHolder.withAuthentication(authentication)).block();
+		assertThat(granted.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+
+		final var rejected = MockServerWebExchange.from(MockServerHttpRequest.get("/greeting"));
+		filter.filter(rejected, ex -> Mono.error(new IllegalStateException("chain should not be reached")))
+				.subscriberContext(ReactiveSecurityContextHolder.withAuthentication(authentication))
+				.block();
+		assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+		assertThat(rejected.getResponse().getHeaders().getFirst("Retry-After")).isEqualTo("90");
+	}
+
+	@Test
+	public void anonymousExchangeIsNotLimited() {
+		final var filter = new RateLimitingWebFilter(rateLimiter);
+
+		for (int i = 0; i < 3; ++i) {
+			final var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/greeting"));
+			filter.filter(exchange, ex -> {
+				ex.getResponse().setStatusCode(HttpStatus.OK);
+				return Mono.empty();
+			}).block();
+			assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+		}
+	}
+
+	@Test
+	public void exchangeWithoutAuthenticationIsNotLimited() {
+		final var filter = new RateLimitingWebFilter(rateLimiter);
+
+		for (int i = 0; i < 3; ++i) {
+			final var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/greeting"));
+			filter.filter(exchange, ex -> {
+				ex.getResponse().setStatusCode(HttpStatus.OK);
+				return Mono.empty();
+			}).subscriberContext(ReactiveSecurityContextHolder.withSecurityContext(Mono.just(new SecurityContextImpl())))
+					.block();
+			assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+		}
+	}
+}